@@ -0,0 +1,123 @@
+package com.evron.chargingsessionservice.benchmark;
+
+import com.evron.chargingsessionservice.ChargingsessionserviceApplication;
+import com.evron.chargingsessionservice.model.BatchResponse;
+import com.evron.chargingsessionservice.model.ChargingSession;
+import com.evron.chargingsessionservice.model.ChargingSessionRequest;
+import com.evron.chargingsessionservice.model.ChargingSessionResponse;
+import com.evron.chargingsessionservice.model.StatusCount;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A cluster of {@code nodes} nodes on localhost, each a full application
+ * partitioning {@code storeSize} sessions over HTTP, driven through the public
+ * endpoints of a random node: starting a session (routed to its owner),
+ * counting sessions and reading a page of 100 (both gathered from every node).
+ * <p>
+ * The nodes and the client share the cores of one machine, so this measures
+ * the cost of routing and scatter-gather against a single node rather than
+ * the capacity gained by running the nodes on separate machines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(16)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Dhttp.maxConnections=64"})
+public class ClusterBenchmark {
+
+    @Param({"1", "2", "4"})
+    int nodes;
+
+    @Param({"10000"})
+    int storeSize;
+
+    List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+
+    List<String> urls = new ArrayList<>();
+
+    RestTemplate client;
+
+    ChargingSessionRequest request;
+
+    @Setup(Level.Trial)
+    public void startCluster() throws IOException {
+        for (int i = 0; i < nodes; i++) {
+            try (ServerSocket socket = new ServerSocket(0)) {
+                urls.add("http://localhost:" + socket.getLocalPort());
+            }
+        }
+        for (String url : urls) {
+            contexts.add(new SpringApplicationBuilder(ChargingsessionserviceApplication.class).run(
+                    "--server.port=" + url.substring(url.lastIndexOf(':') + 1),
+                    "--logging.level.root=WARN",
+                    "--charging-session.admission.enabled=false",
+                    "--charging-session.cluster.enabled=true",
+                    "--charging-session.cluster.nodes=" + String.join(",", urls),
+                    "--charging-session.cluster.self=" + url));
+        }
+        client = new RestTemplateBuilder().build();
+        request = new ChargingSessionRequest();
+        request.setStationId("ABC-12345");
+        List<ChargingSessionRequest> batch = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            ChargingSessionRequest item = new ChargingSessionRequest();
+            item.setStationId("ABC-" + i);
+            batch.add(item);
+        }
+        for (int i = 0; i < storeSize; i += batch.size()) {
+            client.postForObject(urls.get(0) + "/chargingSessions/batch", batch, BatchResponse.class);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopCluster() {
+        contexts.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Benchmark
+    public ChargingSession start() {
+        return client.postForObject(anyNode() + "/chargingSessions", request, ChargingSession.class);
+    }
+
+    @Benchmark
+    public StatusCount counts() {
+        return client.getForObject(anyNode() + "/chargingSessions/counts", StatusCount.class);
+    }
+
+    @Benchmark
+    public ChargingSessionResponse page() {
+        return client.getForObject(anyNode() + "/chargingSessions?limit=100", ChargingSessionResponse.class);
+    }
+
+    private String anyNode() {
+        return urls.get(ThreadLocalRandom.current().nextInt(urls.size()));
+    }
+
+}
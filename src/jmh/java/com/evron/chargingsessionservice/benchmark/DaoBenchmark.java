@@ -0,0 +1,71 @@
+package com.evron.chargingsessionservice.benchmark;
+
+import com.evron.chargingsessionservice.dao.ChargingSessionDao;
+import com.evron.chargingsessionservice.model.ChargingSession;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ChargingSessionDao} hot paths against an in-memory store of
+ * {@code storeSize} sessions. {@code save} overwrites existing sessions so the
+ * store keeps its size during the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class DaoBenchmark {
+
+    @Param({"10000", "1000000"})
+    int storeSize;
+
+    ChargingSessionDao dao;
+
+    UUID[] ids;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        dao = new ChargingSessionDao();
+        ids = Sessions.fill(dao, storeSize);
+    }
+
+    @Benchmark
+    public ChargingSession save() {
+        int n = ThreadLocalRandom.current().nextInt(storeSize);
+        ChargingSession session = Sessions.started(n);
+        session.setId(ids[n]);
+        return dao.save(session);
+    }
+
+    @Benchmark
+    public ChargingSession findById() {
+        return dao.findById(ids[ThreadLocalRandom.current().nextInt(storeSize)]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void findAll(Blackhole blackhole) {
+        for (ChargingSession session : dao.findAll()) {
+            blackhole.consume(session);
+        }
+    }
+
+}
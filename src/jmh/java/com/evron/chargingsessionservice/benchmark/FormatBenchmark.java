@@ -0,0 +1,88 @@
+package com.evron.chargingsessionservice.benchmark;
+
+import com.evron.chargingsessionservice.controller.SessionFormat;
+import com.evron.chargingsessionservice.model.ChargingSession;
+import com.evron.chargingsessionservice.model.ChargingSessionResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.evron.chargingsessionservice.model.ChargingSession.SessionStatus.FINISHED;
+
+/**
+ * Serialization of a listing of {@code sessions} sessions, every other one of
+ * them finished, in each {@link SessionFormat}. The size of the encoded
+ * listing is printed at the start of each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FormatBenchmark {
+
+    @Param({"JSON", "CBOR", "SMILE"})
+    SessionFormat format;
+
+    @Param({"1", "1000"})
+    int sessions;
+
+    ObjectWriter writer;
+
+    ObjectReader reader;
+
+    ChargingSessionResponse response;
+
+    byte[] encoded;
+
+    @Setup
+    public void encode() throws IOException {
+        ObjectMapper mapper = format.objectMapper(Jackson2ObjectMapperBuilder.json().build());
+        writer = mapper.writerFor(ChargingSessionResponse.class);
+        reader = mapper.readerFor(ChargingSessionResponse.class);
+        List<ChargingSession> list = new ArrayList<>();
+        for (int i = 0; i < sessions; i++) {
+            ChargingSession session = Sessions.started(i);
+            if (i % 2 == 1) {
+                session.setStoppedAt(LocalDateTime.now());
+                session.setStatus(FINISHED);
+            }
+            list.add(session);
+        }
+        response = new ChargingSessionResponse();
+        response.setChargingSessions(list);
+        encoded = writer.writeValueAsBytes(response);
+        System.out.printf("%n%s, %d sessions: %d bytes%n", format, sessions, encoded.length);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return writer.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public ChargingSessionResponse deserialize() throws IOException {
+        return reader.readValue(encoded);
+    }
+
+}
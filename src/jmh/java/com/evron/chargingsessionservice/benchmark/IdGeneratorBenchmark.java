@@ -0,0 +1,97 @@
+package com.evron.chargingsessionservice.benchmark;
+
+import com.evron.chargingsessionservice.dao.ChargingSessionDao;
+import com.evron.chargingsessionservice.model.ChargingSession;
+import com.evron.chargingsessionservice.service.RandomSessionIdGenerator;
+import com.evron.chargingsessionservice.service.SessionIdGenerator;
+import com.evron.chargingsessionservice.service.SessionIdGenerator.Strategy;
+import com.evron.chargingsessionservice.service.TimeOrderedSessionIdGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.evron.chargingsessionservice.model.ChargingSession.SessionStatus.IN_PROGRESS;
+
+/**
+ * {@link SessionIdGenerator} strategies with several threads starting sessions
+ * at once. {@code nextId} measures the generator alone, {@code saveNew} the
+ * insertion of sessions with those ids into a store of {@value #STORE_SIZE}
+ * sessions, which is rebuilt every iteration as it grows during the run. Both
+ * run with 4 threads, and again with 16 to show contention on the generator.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class IdGeneratorBenchmark {
+
+    private static final int STORE_SIZE = 100_000;
+
+    @Param({"RANDOM", "TIME_ORDERED"})
+    Strategy strategy;
+
+    SessionIdGenerator generator;
+
+    ChargingSessionDao dao;
+
+    @Setup(Level.Trial)
+    public void createGenerator() {
+        generator = strategy == Strategy.TIME_ORDERED ? new TimeOrderedSessionIdGenerator()
+                : new RandomSessionIdGenerator();
+    }
+
+    @Setup(Level.Iteration)
+    public void fill() {
+        dao = new ChargingSessionDao();
+        for (int i = 0; i < STORE_SIZE; i++) {
+            dao.save(session(i));
+        }
+    }
+
+    @Benchmark
+    public UUID nextId() {
+        return generator.nextId();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public UUID nextIdSixteenThreads() {
+        return generator.nextId();
+    }
+
+    @Benchmark
+    public ChargingSession saveNew() {
+        return dao.save(session(ThreadLocalRandom.current().nextInt(Sessions.STATIONS)));
+    }
+
+    @Benchmark
+    @Threads(16)
+    public ChargingSession saveNewSixteenThreads() {
+        return saveNew();
+    }
+
+    private ChargingSession session(int n) {
+        return new ChargingSession(generator.nextId(), "ABC-" + (10000 + n % Sessions.STATIONS),
+                LocalDateTime.now(), null, IN_PROGRESS);
+    }
+
+}
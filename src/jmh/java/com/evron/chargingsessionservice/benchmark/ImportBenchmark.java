@@ -0,0 +1,100 @@
+package com.evron.chargingsessionservice.benchmark;
+
+import com.evron.chargingsessionservice.dao.ChargingSessionDao;
+import com.evron.chargingsessionservice.model.ChargingSession;
+import com.evron.chargingsessionservice.model.ImportResponse;
+import com.evron.chargingsessionservice.service.SessionImporter;
+import com.evron.chargingsessionservice.service.SessionImporter.Format;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SessionImporter} loading a file of {@value #RECORDS} sessions, every
+ * other one of them finished, into an empty store. Scores are records per
+ * second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(ImportBenchmark.RECORDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ImportBenchmark {
+
+    static final int RECORDS = 100_000;
+
+    @Param({"NDJSON", "CSV"})
+    Format format;
+
+    @Param({"1", "4"})
+    int threads;
+
+    ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+
+    byte[] file;
+
+    SessionImporter importer;
+
+    @Setup(Level.Trial)
+    public void write() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (format == Format.CSV) {
+            out.write("id,stationId,startedAt,stoppedAt,status\n".getBytes(StandardCharsets.UTF_8));
+        }
+        for (int i = 0; i < RECORDS; i++) {
+            ChargingSession session = Sessions.started(i);
+            if (i % 2 == 1) {
+                session.setStoppedAt(LocalDateTime.now());
+                session.setStatus(ChargingSession.SessionStatus.FINISHED);
+            }
+            String line = format == Format.CSV
+                    ? String.join(",", session.getId().toString(), session.getStationId(),
+                    session.getStartedAt().toString(),
+                    session.getStoppedAt() != null ? session.getStoppedAt().toString() : "",
+                    session.getStatus().name())
+                    : mapper.writeValueAsString(session);
+            out.write(line.getBytes(StandardCharsets.UTF_8));
+            out.write('\n');
+        }
+        file = out.toByteArray();
+    }
+
+    @Setup(Level.Invocation)
+    public void createImporter() {
+        importer = new SessionImporter(new ChargingSessionDao(), mapper, threads, 10_000, 60_000, null, null, null);
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeImporter() {
+        importer.close();
+    }
+
+    @Benchmark
+    public ImportResponse importFile() throws IOException {
+        return importer.importSessions(new ByteArrayInputStream(file), format);
+    }
+
+}
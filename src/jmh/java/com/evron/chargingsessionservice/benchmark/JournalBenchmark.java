@@ -0,0 +1,71 @@
+package com.evron.chargingsessionservice.benchmark;
+
+import com.evron.chargingsessionservice.dao.SessionJournal;
+import com.evron.chargingsessionservice.dao.SessionJournal.FsyncPolicy;
+import com.evron.chargingsessionservice.model.ChargingSession;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Append throughput of the {@link SessionJournal} per {@link FsyncPolicy}. Run
+ * with several threads ({@code -t}) to see group commit at work with
+ * {@code ALWAYS}. The journal is written to a temporary directory, set
+ * {@code -Djava.io.tmpdir} to benchmark a specific disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JournalBenchmark {
+
+    @Param({"ALWAYS", "INTERVAL", "NEVER"})
+    FsyncPolicy fsyncPolicy;
+
+    Path directory;
+
+    SessionJournal journal;
+
+    ChargingSession session;
+
+    @Setup(Level.Trial)
+    public void open() throws IOException {
+        directory = Files.createTempDirectory("journal-benchmark");
+        journal = new SessionJournal(directory, fsyncPolicy, 100);
+        session = Sessions.started(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        journal.close();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void append() {
+        journal.append(session);
+    }
+
+}
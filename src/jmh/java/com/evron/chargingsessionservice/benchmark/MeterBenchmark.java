@@ -0,0 +1,80 @@
+package com.evron.chargingsessionservice.benchmark;
+
+import com.evron.chargingsessionservice.dao.ChargingSessionDao;
+import com.evron.chargingsessionservice.dao.MeterReadingDao;
+import com.evron.chargingsessionservice.model.ChargingSession;
+import com.evron.chargingsessionservice.model.EnergyResponse;
+import com.evron.chargingsessionservice.model.MeterReading;
+import com.evron.chargingsessionservice.service.MeterReadingServiceImpl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Energy totals and 15 minute curves of a session with {@code readings} meter
+ * readings, one every 5 seconds at about 11 kW. The bytes taken by the encoded
+ * readings are printed at the start of each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MeterBenchmark {
+
+    @Param({"720", "17280"})
+    int readings;
+
+    MeterReadingServiceImpl service;
+
+    UUID id;
+
+    @Setup
+    public void load() {
+        ChargingSessionDao dao = new ChargingSessionDao();
+        MeterReadingDao meterReadingDao = new MeterReadingDao(readings);
+        service = new MeterReadingServiceImpl(dao, meterReadingDao);
+        ChargingSession session = Sessions.started(0);
+        LocalDateTime startedAt = session.getStartedAt();
+        id = session.getId();
+        dao.save(session);
+        List<MeterReading> batch = new ArrayList<>();
+        double energyKwh = 1523.417;
+        for (int i = 0; i < readings; i++) {
+            energyKwh += (14 + i % 3) / 1000.0;
+            batch.add(new MeterReading(startedAt.plusSeconds(5L * i), energyKwh));
+            if (batch.size() == 1000 || i == readings - 1) {
+                service.appendReadings(id, batch);
+                batch.clear();
+            }
+        }
+        System.out.printf("%n%d readings: %d bytes%n", readings, meterReadingDao.encodedBytes());
+    }
+
+    @Benchmark
+    public EnergyResponse totals() {
+        return service.retrieveEnergy(id, null);
+    }
+
+    @Benchmark
+    public EnergyResponse curve() {
+        return service.retrieveEnergy(id, "15m");
+    }
+
+}
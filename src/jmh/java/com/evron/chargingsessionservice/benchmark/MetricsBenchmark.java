@@ -0,0 +1,117 @@
+package com.evron.chargingsessionservice.benchmark;
+
+import com.evron.chargingsessionservice.dao.ChargingSessionDao;
+import com.evron.chargingsessionservice.model.ChargingSession;
+import com.evron.chargingsessionservice.service.ChargingSessionService;
+import com.evron.chargingsessionservice.service.ChargingSessionServiceImpl;
+import com.evron.chargingsessionservice.service.InstrumentedChargingSessionService;
+import com.evron.chargingsessionservice.service.SlidingWindowCounter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+
+/**
+ * Cost of the Micrometer instrumentation on the hottest DAO and service
+ * operations. {@code none} runs without a registry, {@code prometheus} records
+ * into a Prometheus registry with the percentile histograms configured in
+ * {@code application.yml}; the difference is the instrumentation overhead.
+ * {@code scrape} renders the registry as Prometheus does on every scrape,
+ * including the stored sessions gauge, which must not grow with the store.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class MetricsBenchmark {
+
+    @Param({"none", "prometheus"})
+    String metrics;
+
+    @Param({"10000", "1000000"})
+    int storeSize;
+
+    PrometheusMeterRegistry registry;
+
+    ChargingSessionDao dao;
+
+    ChargingSessionService service;
+
+    UUID[] ids;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        if ("prometheus".equals(metrics)) {
+            registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+            registry.config().meterFilter(new MeterFilter() {
+                @Override
+                public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                    return DistributionStatisticConfig.builder()
+                            .percentilesHistogram(true)
+                            .minimumExpectedValue((double) TimeUnit.MICROSECONDS.toNanos(1))
+                            .maximumExpectedValue((double) TimeUnit.SECONDS.toNanos(10))
+                            .build().merge(config);
+                }
+            });
+            dao = new ChargingSessionDao(null, null, null, registry);
+            SlidingWindowCounter counter = new SlidingWindowCounter();
+            service = new InstrumentedChargingSessionService(new ChargingSessionServiceImpl(dao, counter), counter,
+                    registry);
+        } else {
+            dao = new ChargingSessionDao();
+            service = new ChargingSessionServiceImpl(dao, new SlidingWindowCounter());
+        }
+        ids = Sessions.fill(dao, storeSize);
+    }
+
+    @Benchmark
+    public ChargingSession daoFindById() {
+        return dao.findById(ids[ThreadLocalRandom.current().nextInt(storeSize)]);
+    }
+
+    @Benchmark
+    public ChargingSession daoSave() {
+        int n = ThreadLocalRandom.current().nextInt(storeSize);
+        ChargingSession session = Sessions.started(n);
+        session.setId(ids[n]);
+        return dao.save(session);
+    }
+
+    /**
+     * One timed DAO call and one timed service call per operation.
+     */
+    @Benchmark
+    public ChargingSession serviceStopChargingSession() {
+        return service.stopChargingSession(ids[ThreadLocalRandom.current().nextInt(storeSize)]);
+    }
+
+    /**
+     * Without a registry only the stored sessions count the gauge reads is taken.
+     */
+    @Benchmark
+    public Object scrape() {
+        return registry != null ? registry.scrape() : dao.size();
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.evron.chargingsessionservice.benchmark;
+
+import com.evron.chargingsessionservice.controller.SerializedResponseCache;
+import com.evron.chargingsessionservice.dao.ChargingSessionDao;
+import com.evron.chargingsessionservice.model.ChargingSessionResponse;
+import com.evron.chargingsessionservice.service.ChargingSessionServiceImpl;
+import com.evron.chargingsessionservice.service.SlidingWindowCounter;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 100 concurrent pollers of the full listing of {@code storeSize} sessions,
+ * each serializing it ({@code none}) or sharing the serialization of the
+ * current version of the store ({@code cached}). A background writer starts
+ * {@code changesPerSecond} sessions per second, each of them invalidating the
+ * cached listing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(100)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ResponseCacheBenchmark {
+
+    @Param({"1000", "10000"})
+    int storeSize;
+
+    @Param({"none", "cached"})
+    String cache;
+
+    @Param({"0", "10", "100"})
+    int changesPerSecond;
+
+    ChargingSessionServiceImpl service;
+
+    ObjectWriter writer;
+
+    SerializedResponseCache responseCache;
+
+    ScheduledExecutorService changes;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        ChargingSessionDao dao = new ChargingSessionDao();
+        Sessions.fill(dao, storeSize);
+        service = new ChargingSessionServiceImpl(dao, new SlidingWindowCounter());
+        writer = Jackson2ObjectMapperBuilder.json().build().writerFor(ChargingSessionResponse.class);
+        responseCache = new SerializedResponseCache();
+        changes = Executors.newSingleThreadScheduledExecutor();
+        if (changesPerSecond > 0) {
+            AtomicInteger n = new AtomicInteger();
+            changes.scheduleAtFixedRate(() -> dao.save(Sessions.started(n.incrementAndGet())),
+                    0, 1_000_000 / changesPerSecond, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopChanges() {
+        changes.shutdownNow();
+    }
+
+    @Benchmark
+    public byte[] pollAllSessions() throws IOException {
+        if ("none".equals(cache)) {
+            return writer.writeValueAsBytes(service.retrieveChargingSessions());
+        }
+        return responseCache.get("all", service::retrieveChargingSessionsVersion,
+                () -> writer.writeValueAsBytes(service.retrieveChargingSessions()));
+    }
+
+}
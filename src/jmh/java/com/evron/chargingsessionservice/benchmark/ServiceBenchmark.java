@@ -0,0 +1,86 @@
+package com.evron.chargingsessionservice.benchmark;
+
+import com.evron.chargingsessionservice.dao.ChargingSessionDao;
+import com.evron.chargingsessionservice.model.ChargingSession;
+import com.evron.chargingsessionservice.model.ChargingSessionRequest;
+import com.evron.chargingsessionservice.model.ChargingSessionResponse;
+import com.evron.chargingsessionservice.service.ChargingSessionServiceImpl;
+import com.evron.chargingsessionservice.service.SlidingWindowCounter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ChargingSessionServiceImpl} operations against an in-memory store of
+ * {@code storeSize} sessions. Started sessions accumulate over a run, so
+ * {@code saveNewChargingSession} grows the store by its iteration count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ServiceBenchmark {
+
+    @Param({"10000", "1000000"})
+    int storeSize;
+
+    ChargingSessionServiceImpl service;
+
+    UUID[] ids;
+
+    ChargingSessionRequest request;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        ChargingSessionDao dao = new ChargingSessionDao();
+        ids = Sessions.fill(dao, storeSize);
+        service = new ChargingSessionServiceImpl(dao, new SlidingWindowCounter());
+        request = new ChargingSessionRequest();
+        request.setStationId("ABC-12345");
+    }
+
+    @Benchmark
+    public ChargingSession saveNewChargingSession() {
+        return service.saveNewChargingSession(request);
+    }
+
+    @Benchmark
+    public ChargingSession stopChargingSession() {
+        return service.stopChargingSession(ids[ThreadLocalRandom.current().nextInt(storeSize)]);
+    }
+
+    /**
+     * One page of 100 sessions, the way clients are expected to list the store.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public ChargingSessionResponse retrieveChargingSessionsPage() {
+        return service.retrieveChargingSessions(100, null, null);
+    }
+
+    /**
+     * The legacy unpaginated listing, materializing the whole store.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public ChargingSessionResponse retrieveChargingSessions() {
+        return service.retrieveChargingSessions();
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.evron.chargingsessionservice.benchmark;
+
+import com.evron.chargingsessionservice.dao.ChargingSessionDao;
+import com.evron.chargingsessionservice.model.ChargingSession;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static com.evron.chargingsessionservice.model.ChargingSession.SessionStatus.FINISHED;
+import static com.evron.chargingsessionservice.model.ChargingSession.SessionStatus.IN_PROGRESS;
+
+/**
+ * Test data shared by the benchmarks.
+ */
+final class Sessions {
+
+    /**
+     * Number of distinct stations the generated sessions are spread over
+     */
+    static final int STATIONS = 5000;
+
+    private Sessions() {
+    }
+
+    /**
+     * @return new {@code IN_PROGRESS} session of the n-th station
+     */
+    static ChargingSession started(int n) {
+        return new ChargingSession(UUID.randomUUID(), "ABC-" + (10000 + n % STATIONS), LocalDateTime.now(), null,
+                IN_PROGRESS);
+    }
+
+    /**
+     * Fills the DAO with sessions, every other one of them finished.
+     *
+     * @return ids of the saved sessions
+     */
+    static UUID[] fill(ChargingSessionDao dao, int size) {
+        UUID[] ids = new UUID[size];
+        for (int i = 0; i < size; i++) {
+            ChargingSession session = started(i);
+            if (i % 2 == 1) {
+                session.setStoppedAt(LocalDateTime.now());
+                session.setStatus(FINISHED);
+            }
+            dao.save(session);
+            ids[i] = session.getId();
+        }
+        return ids;
+    }
+
+}
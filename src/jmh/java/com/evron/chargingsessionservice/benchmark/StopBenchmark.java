@@ -0,0 +1,85 @@
+package com.evron.chargingsessionservice.benchmark;
+
+import com.evron.chargingsessionservice.dao.ChargingSessionDao;
+import com.evron.chargingsessionservice.model.ChargingSession;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.evron.chargingsessionservice.model.ChargingSession.SessionStatus.FINISHED;
+
+/**
+ * Stop/restart cycles of random sessions from several threads. With
+ * {@code sessions=64} the threads keep colliding on the same entries; with a
+ * million they rarely do.
+ * <p>
+ * {@code compareAndSet} stops with {@link ChargingSessionDao#stop(UUID, LocalDateTime)};
+ * {@code readModifyWrite} replays the former contains, findById and save
+ * sequence, which can lose concurrent updates of the same session.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class StopBenchmark {
+
+    @Param({"64", "1000000"})
+    int sessions;
+
+    ChargingSessionDao dao;
+
+    ChargingSession[] started;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        dao = new ChargingSessionDao();
+        started = new ChargingSession[sessions];
+        for (int i = 0; i < sessions; i++) {
+            started[i] = Sessions.started(i);
+            dao.save(started[i]);
+        }
+    }
+
+    @Benchmark
+    public ChargingSession compareAndSet() {
+        ChargingSession session = started[ThreadLocalRandom.current().nextInt(sessions)];
+        ChargingSession stopped = dao.stop(session.getId(), LocalDateTime.now()).getSession();
+        dao.save(session);
+        return stopped;
+    }
+
+    @Benchmark
+    public ChargingSession readModifyWrite() {
+        ChargingSession session = started[ThreadLocalRandom.current().nextInt(sessions)];
+        UUID id = session.getId();
+        ChargingSession stopped = null;
+        if (dao.contains(id)) {
+            ChargingSession current = dao.findById(id);
+            stopped = new ChargingSession(id, current.getStationId(), current.getStartedAt(), LocalDateTime.now(),
+                    FINISHED);
+            dao.save(stopped);
+        }
+        dao.save(session);
+        return stopped;
+    }
+
+}
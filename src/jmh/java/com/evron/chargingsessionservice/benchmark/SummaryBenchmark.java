@@ -0,0 +1,65 @@
+package com.evron.chargingsessionservice.benchmark;
+
+import com.evron.chargingsessionservice.dao.ChargingSessionDao;
+import com.evron.chargingsessionservice.model.MetricsCount;
+import com.evron.chargingsessionservice.service.ChargingSessionServiceImpl;
+import com.evron.chargingsessionservice.service.SlidingWindowCounter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the session summaries against an in-memory store of
+ * {@code storeSize} sessions, up to ten million. Summaries are read from
+ * counters kept up to date by saves and stops, so the latency should not change
+ * with the store size; the larger heap only holds the filled store.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SummaryBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    int storeSize;
+
+    ChargingSessionServiceImpl service;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        ChargingSessionDao dao = new ChargingSessionDao();
+        Sessions.fill(dao, storeSize);
+        service = new ChargingSessionServiceImpl(dao, new SlidingWindowCounter());
+    }
+
+    /**
+     * Starts and stops of the last minute.
+     */
+    @Benchmark
+    public MetricsCount retrieveChargingSessionsSummary() {
+        return service.retrieveChargingSessionsSummary();
+    }
+
+    /**
+     * Starts and stops of the last hour, summed from minute buckets.
+     */
+    @Benchmark
+    public MetricsCount retrieveChargingSessionsSummaryOfHour() {
+        return service.retrieveChargingSessionsSummary("1h", null);
+    }
+
+}
@@ -0,0 +1,327 @@
+package com.evron.chargingsessionservice.loadtest;
+
+import com.evron.chargingsessionservice.ChargingsessionserviceApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Self-contained HTTP load test. Boots the application in-process on a random
+ * port and drives it with the flows of the bundled Postman collection (start,
+ * stop, list and summary) at a constant target rate.
+ * <p>
+ * Requests are sent open-loop: request {@code n} is due at
+ * {@code n / rate} seconds, and its latency is measured from that due time
+ * rather than from the moment a client thread got around to sending it. A
+ * server that falls behind therefore shows up as queueing in the percentiles
+ * instead of silently lowering the offered rate (coordinated omission).
+ * <p>
+ * Settings are read from the Spring environment, so they are passed like any
+ * other application argument. Arguments it does not know, such as
+ * {@code --spring.main.web-application-type=reactive} or
+ * {@code --charging-session.journal.enabled=true}, configure the application
+ * under test:
+ *
+ * <pre>
+ * --load.rate=1000                 requests per second
+ * --load.duration-seconds=30       measured duration
+ * --load.warmup-seconds=10         unmeasured warmup before it
+ * --load.connections=64            client threads, each with a keep-alive connection
+ * --load.mix=40,30,20,10           weights of start, stop, list and summary requests
+ * --load.list-limit=100            page size of list requests, 0 for the unpaginated listing
+ * --load.histogram-directory=      if set, an .hgrm percentile file is written per endpoint
+ * </pre>
+ */
+public final class LoadTest {
+
+    /**
+     * Endpoints exercised by the load test
+     */
+    enum Endpoint {
+        START, STOP, LIST, SUMMARY
+    }
+
+    /**
+     * Highest latency tracked by the histograms, in microseconds
+     */
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final String baseUrl;
+
+    private final double rate;
+
+    private final long warmupNanos;
+
+    private final long durationNanos;
+
+    private final int connections;
+
+    private final int[] mix;
+
+    private final int listLimit;
+
+    private final Map<Endpoint, Histogram> histograms = new EnumMap<>(Endpoint.class);
+
+    private final Map<Endpoint, LongAdder> errors = new EnumMap<>(Endpoint.class);
+
+    /**
+     * Ids of started sessions, stopped by later stop requests
+     */
+    private final Queue<String> started = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private LoadTest(String baseUrl, Environment environment) {
+        this.baseUrl = baseUrl;
+        this.rate = environment.getProperty("load.rate", Double.class, 1000.0);
+        this.warmupNanos = TimeUnit.SECONDS.toNanos(environment.getProperty("load.warmup-seconds", Long.class, 10L));
+        this.durationNanos = TimeUnit.SECONDS.toNanos(environment.getProperty("load.duration-seconds", Long.class, 30L));
+        this.connections = environment.getProperty("load.connections", Integer.class, 64);
+        this.mix = parseMix(environment.getProperty("load.mix", "40,30,20,10"));
+        this.listLimit = environment.getProperty("load.list-limit", Integer.class, 100);
+        for (Endpoint endpoint : Endpoint.values()) {
+            histograms.put(endpoint, new ConcurrentHistogram(MAX_LATENCY_MICROS, 3));
+            errors.put(endpoint, new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        // system properties override application.yml, command line arguments override both
+        System.setProperty("server.port", "0");
+        System.setProperty("logging.level.root", "warn");
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(ChargingsessionserviceApplication.class)
+                .run(args);
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            Environment environment = context.getEnvironment();
+            LoadTest loadTest = new LoadTest("http://localhost:" + port + "/chargingSessions", environment);
+            loadTest.run();
+            loadTest.report(System.out);
+            String directory = environment.getProperty("load.histogram-directory", "");
+            if (!directory.isEmpty()) {
+                loadTest.writeHistograms(Paths.get(directory));
+            }
+        } finally {
+            context.close();
+        }
+    }
+
+    private void run() throws InterruptedException {
+        System.setProperty("http.maxConnections", String.valueOf(connections));
+        System.out.printf("Offering %.0f requests/s with %d connections: %d s warmup, %d s measured%n", rate,
+                connections, TimeUnit.NANOSECONDS.toSeconds(warmupNanos),
+                TimeUnit.NANOSECONDS.toSeconds(durationNanos));
+        long start = System.nanoTime();
+        CountDownLatch done = new CountDownLatch(connections);
+        for (int i = 0; i < connections; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    drive(start);
+                } finally {
+                    done.countDown();
+                }
+            }, "load-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+    }
+
+    /**
+     * Client loop: claims the next due request, waits for its due time and sends it.
+     */
+    private void drive(long start) {
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        while (true) {
+            long due = start + (long) (sequence.getAndIncrement() * intervalNanos);
+            // requests still unsent when the run ends count as not offered, see report()
+            if (due - start >= warmupNanos + durationNanos
+                    || System.nanoTime() - start >= warmupNanos + durationNanos) {
+                return;
+            }
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                sleep(wait);
+            }
+            Endpoint endpoint = pick();
+            String id = endpoint == Endpoint.STOP ? started.poll() : null;
+            if (endpoint == Endpoint.STOP && id == null) {
+                endpoint = Endpoint.START;
+            }
+            boolean ok = send(endpoint, id);
+            if (due - start >= warmupNanos) {
+                if (ok) {
+                    long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - due);
+                    histograms.get(endpoint).recordValue(Math.min(micros, MAX_LATENCY_MICROS));
+                } else {
+                    errors.get(endpoint).increment();
+                }
+            }
+        }
+    }
+
+    private Endpoint pick() {
+        int value = ThreadLocalRandom.current().nextInt(mix[mix.length - 1]);
+        for (int i = 0; i < mix.length; i++) {
+            if (value < mix[i]) {
+                return Endpoint.values()[i];
+            }
+        }
+        throw new IllegalStateException("Invalid mix");
+    }
+
+    /**
+     * @param endpoint {@link Endpoint} to call
+     * @param id       id of the session to stop, for {@link Endpoint#STOP}
+     * @return {@code true} if the request succeeded with status 200
+     */
+    private boolean send(Endpoint endpoint, String id) {
+        try {
+            switch (endpoint) {
+                case START:
+                    String session = request("POST", "", "{\"stationId\":\"ABC-"
+                            + (10000 + ThreadLocalRandom.current().nextInt(5000)) + "\"}");
+                    if (session == null) {
+                        return false;
+                    }
+                    started.add(MAPPER.readTree(session).get("id").asText());
+                    return true;
+                case STOP:
+                    return request("PUT", "/" + id, null) != null;
+                case LIST:
+                    return request("GET", listLimit > 0 ? "?limit=" + listLimit : "", null) != null;
+                default:
+                    return request("GET", "/summary", null) != null;
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return response body, or {@code null} if the status is not 200
+     */
+    private String request(String method, String path, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream output = connection.getOutputStream()) {
+                output.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = connection.getResponseCode();
+        InputStream input = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        if (input != null) {
+            // read the whole response so the connection goes back to the keep-alive pool
+            try (InputStream in = input) {
+                byte[] buffer = new byte[8192];
+                for (int read; (read = in.read(buffer)) > 0; ) {
+                    response.write(buffer, 0, read);
+                }
+            }
+        }
+        return status == 200 ? new String(response.toByteArray(), StandardCharsets.UTF_8) : null;
+    }
+
+    private void report(PrintStream out) {
+        double seconds = durationNanos / 1e9;
+        Histogram total = new Histogram(MAX_LATENCY_MICROS, 3);
+        long totalErrors = 0;
+        out.printf("%n%-8s %10s %10s %8s %10s %10s %10s %10s%n", "endpoint", "requests", "req/s", "errors",
+                "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Endpoint endpoint : Endpoint.values()) {
+            Histogram histogram = histograms.get(endpoint);
+            long endpointErrors = errors.get(endpoint).sum();
+            total.add(histogram);
+            totalErrors += endpointErrors;
+            print(out, endpoint.name(), histogram, endpointErrors, seconds);
+        }
+        print(out, "ALL", total, totalErrors, seconds);
+        if (total.getTotalCount() + totalErrors < rate * seconds * 0.95) {
+            out.printf("%nWARNING: only %.0f of %.0f offered requests/s were sent, add connections%n",
+                    (total.getTotalCount() + totalErrors) / seconds, rate);
+        }
+    }
+
+    private void print(PrintStream out, String name, Histogram histogram, long errors, double seconds) {
+        out.printf("%-8s %10d %10.0f %8d %10.2f %10.2f %10.2f %10.2f%n", name, histogram.getTotalCount(),
+                histogram.getTotalCount() / seconds, errors, millis(histogram, 50), millis(histogram, 99),
+                millis(histogram, 99.9), histogram.getMaxValue() / 1000.0);
+    }
+
+    private double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private void writeHistograms(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        for (Endpoint endpoint : Endpoint.values()) {
+            Path file = directory.resolve(endpoint.name().toLowerCase() + ".hgrm");
+            try (PrintStream out = new PrintStream(new FileOutputStream(file.toFile()), false, "UTF-8")) {
+                histograms.get(endpoint).outputPercentileDistribution(out, 1000.0);
+            }
+        }
+        System.out.println("Percentile distributions in milliseconds written to " + directory.toAbsolutePath());
+    }
+
+    private static void sleep(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return cumulative weights of the endpoints, in {@link Endpoint} order
+     */
+    private static int[] parseMix(String mix) {
+        String[] weights = mix.split(",");
+        if (weights.length != Endpoint.values().length) {
+            throw new IllegalArgumentException("load.mix needs one weight per endpoint: start,stop,list,summary");
+        }
+        int[] cumulative = new int[weights.length];
+        int sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += Integer.parseInt(weights[i].trim());
+            cumulative[i] = sum;
+        }
+        if (sum <= 0) {
+            throw new IllegalArgumentException("load.mix weights must add up to more than 0");
+        }
+        return cumulative;
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.evron.chargingsessionservice.config;
+
+import com.evron.chargingsessionservice.controller.AdmissionFilter;
+import com.evron.chargingsessionservice.controller.AdmissionLimiter;
+import com.evron.chargingsessionservice.controller.ReactiveAdmissionFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Admission control of the charging session endpoints, on unless
+ * {@code charging-session.admission.enabled} is {@code false}. The
+ * {@link AdmissionLimiter} is placed in front of the controller by a servlet
+ * filter, or by a web filter in the non-blocking mode.
+ */
+@Configuration
+@EnableConfigurationProperties(AdmissionProperties.class)
+@ConditionalOnProperty(prefix = "charging-session.admission", name = "enabled", havingValue = "true",
+        matchIfMissing = true)
+public class AdmissionConfig {
+
+    @Bean
+    public AdmissionLimiter admissionLimiter(AdmissionProperties properties, MeterRegistry registry) {
+        return new AdmissionLimiter(properties.getMaxWrites(), properties.getMaxReads(), properties.getMaxScans(),
+                properties.getMaxStreams(), properties.getRetryAfterSeconds(), registry);
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = Type.SERVLET)
+    public FilterRegistrationBean<AdmissionFilter> admissionFilter(AdmissionLimiter limiter,
+                                                                   ObjectMapper objectMapper) {
+        FilterRegistrationBean<AdmissionFilter> registration =
+                new FilterRegistrationBean<>(new AdmissionFilter(limiter, objectMapper));
+        registration.addUrlPatterns("/chargingSessions", "/chargingSessions/*");
+        return registration;
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = Type.REACTIVE)
+    public ReactiveAdmissionFilter reactiveAdmissionFilter(AdmissionLimiter limiter, ObjectMapper objectMapper) {
+        return new ReactiveAdmissionFilter(limiter, objectMapper);
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.evron.chargingsessionservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Admission control settings of the charging session endpoints, bound from
+ * {@code charging-session.admission.*}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "charging-session.admission")
+public class AdmissionProperties {
+
+    /**
+     * Whether requests beyond the limits are refused with 429.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Requests starting or stopping sessions in flight at most.
+     */
+    private int maxWrites = 64;
+
+    /**
+     * Paginated, per-station, count and summary requests in flight at most.
+     */
+    private int maxReads = 32;
+
+    /**
+     * Unpaginated list and export requests in flight at most.
+     */
+    private int maxScans = 4;
+
+    /**
+     * Event streams open at most.
+     */
+    private int maxStreams = 16;
+
+    /**
+     * Seconds refused clients are asked to wait, sent as {@code Retry-After}.
+     */
+    private long retryAfterSeconds = 1;
+
+}
@@ -0,0 +1,99 @@
+package com.evron.chargingsessionservice.config;
+
+import com.evron.chargingsessionservice.service.ChargingSessionService;
+import com.evron.chargingsessionservice.service.ChargingSessionServiceImpl;
+import com.evron.chargingsessionservice.service.ClusteredChargingSessionService;
+import com.evron.chargingsessionservice.service.ClusteredMeterReadingService;
+import com.evron.chargingsessionservice.service.ConsistentHashRing;
+import com.evron.chargingsessionservice.service.MeterReadingService;
+import com.evron.chargingsessionservice.service.MeterReadingServiceImpl;
+import com.evron.chargingsessionservice.service.RemoteChargingSessionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cluster mode, enabled with {@code charging-session.cluster.enabled}. Sessions
+ * are partitioned across {@code charging-session.cluster.nodes} by a
+ * {@link ConsistentHashRing} on their id, and the endpoints of every node
+ * serve the whole cluster through a {@link ClusteredChargingSessionService},
+ * and a {@link ClusteredMeterReadingService} for the meter readings stored
+ * with the sessions.
+ * The nodes call each other on the blocking servlet stack, which cluster mode
+ * requires.
+ */
+@Configuration
+@EnableConfigurationProperties(ClusterProperties.class)
+@ConditionalOnProperty(prefix = "charging-session.cluster", name = "enabled", havingValue = "true")
+@ConditionalOnWebApplication(type = Type.SERVLET)
+public class ClusterConfig {
+
+    @Bean
+    public ConsistentHashRing clusterRing(ClusterProperties properties) {
+        if (properties.getSelf() == null || !properties.getNodes().contains(properties.getSelf())) {
+            throw new IllegalStateException(
+                    "charging-session.cluster.self must be one of charging-session.cluster.nodes");
+        }
+        return new ConsistentHashRing(properties.getNodes(), properties.getVirtualNodes());
+    }
+
+    /**
+     * The service owns the threads calling the other nodes: an {@code Executor}
+     * bean would replace the task executor of Spring MVC's asynchronous
+     * requests.
+     */
+    @Bean(destroyMethod = "close")
+    public ClusteredChargingSessionService clusteredChargingSessionService(ClusterProperties properties,
+                                                                           ConsistentHashRing clusterRing,
+                                                                           ChargingSessionServiceImpl local,
+                                                                           RestTemplateBuilder restTemplateBuilder,
+                                                                           ObjectMapper objectMapper) {
+        Map<String, ChargingSessionService> partitions = new LinkedHashMap<>();
+        for (String node : clusterRing.nodes()) {
+            partitions.put(node, node.equals(properties.getSelf()) ? local
+                    : remote(node, properties, restTemplateBuilder, objectMapper));
+        }
+        return new ClusteredChargingSessionService(clusterRing, properties.getSelf(), partitions,
+                properties.getThreads());
+    }
+
+    /**
+     * Takes the place of the {@code MeterReadingService} of this node in the
+     * public endpoints; the {@code ClusterController} keeps serving the local one.
+     */
+    @Bean
+    @Primary
+    public ClusteredMeterReadingService clusteredMeterReadingService(ClusterProperties properties,
+                                                                     ConsistentHashRing clusterRing,
+                                                                     MeterReadingServiceImpl local,
+                                                                     RestTemplateBuilder restTemplateBuilder,
+                                                                     ObjectMapper objectMapper) {
+        Map<String, MeterReadingService> partitions = new LinkedHashMap<>();
+        for (String node : clusterRing.nodes()) {
+            partitions.put(node, node.equals(properties.getSelf()) ? local
+                    : remote(node, properties, restTemplateBuilder, objectMapper));
+        }
+        return new ClusteredMeterReadingService(clusterRing, partitions);
+    }
+
+    private static RemoteChargingSessionService remote(String node, ClusterProperties properties,
+                                                       RestTemplateBuilder restTemplateBuilder,
+                                                       ObjectMapper objectMapper) {
+        RestTemplateBuilder builder = restTemplateBuilder
+                .setConnectTimeout(Duration.ofMillis(properties.getConnectTimeoutMs()))
+                .setReadTimeout(Duration.ofMillis(properties.getReadTimeoutMs()));
+        return new RemoteChargingSessionService(node, builder, objectMapper);
+    }
+
+}
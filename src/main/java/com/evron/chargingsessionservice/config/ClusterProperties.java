@@ -0,0 +1,55 @@
+package com.evron.chargingsessionservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Cluster mode settings, bound from {@code charging-session.cluster.*}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "charging-session.cluster")
+public class ClusterProperties {
+
+    /**
+     * Whether sessions are partitioned across the nodes of the cluster.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Base URLs of all the nodes, this one included, such as {@code http://10.0.0.1:8080}.
+     * Every node must list the same nodes.
+     */
+    private List<String> nodes = new ArrayList<>();
+
+    /**
+     * Base URL of this node, as listed in {@code nodes}.
+     */
+    private String self;
+
+    /**
+     * Number of points of each node on the hash ring.
+     */
+    private int virtualNodes = 128;
+
+    /**
+     * Threads calling the other nodes.
+     */
+    private int threads = 32;
+
+    /**
+     * Timeout of connecting to another node, in milliseconds.
+     */
+    private long connectTimeoutMs = 1000;
+
+    /**
+     * Timeout of reading the response of another node, in milliseconds.
+     */
+    private long readTimeoutMs = 10_000;
+
+}
@@ -0,0 +1,21 @@
+package com.evron.chargingsessionservice.config;
+
+import com.evron.chargingsessionservice.service.SessionEventFeed;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Sets up the {@link SessionEventFeed} streamed by the {@code /events} endpoint.
+ */
+@Configuration
+@EnableConfigurationProperties(EventFeedProperties.class)
+public class EventFeedConfig {
+
+    @Bean(destroyMethod = "close")
+    public SessionEventFeed sessionEventFeed(EventFeedProperties properties) {
+        return new SessionEventFeed(properties.getBufferSize(), properties.getHeartbeatMs());
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.evron.chargingsessionservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Settings of the feed of session events, bound from
+ * {@code charging-session.events.*}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "charging-session.events")
+public class EventFeedProperties {
+
+    /**
+     * Number of latest events kept for consumers resuming after a disconnect
+     */
+    private int bufferSize = 10_000;
+
+    /**
+     * Period of the heartbeats sent to idle consumers, in milliseconds
+     */
+    private long heartbeatMs = 15_000;
+
+}
@@ -0,0 +1,40 @@
+package com.evron.chargingsessionservice.config;
+
+import com.evron.chargingsessionservice.dao.ChargingSessionDao;
+import com.evron.chargingsessionservice.service.ConsistentHashRing;
+import com.evron.chargingsessionservice.service.SessionImporter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.lang.Nullable;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Sets up the {@link SessionImporter} of the {@code /import} endpoint, served
+ * on the blocking servlet stack only.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = Type.SERVLET)
+@EnableConfigurationProperties(ImportProperties.class)
+public class ImportConfig {
+
+    /**
+     * In cluster mode, only the sessions of the partition of this node are
+     * imported.
+     */
+    @Bean(destroyMethod = "close")
+    public SessionImporter sessionImporter(ImportProperties properties, ChargingSessionDao dao,
+                                           ObjectMapper objectMapper, @Nullable ConsistentHashRing clusterRing,
+                                           @Nullable ClusterProperties clusterProperties,
+                                           @Nullable MeterRegistry registry) {
+        String self = clusterRing != null && clusterProperties != null ? clusterProperties.getSelf() : null;
+        return new SessionImporter(dao, objectMapper, properties.getThreads(), properties.getChunkLines(),
+                properties.getProgressIntervalMs(), self != null ? clusterRing : null, self, registry);
+    }
+
+}
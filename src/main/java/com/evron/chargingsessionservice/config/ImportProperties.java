@@ -0,0 +1,32 @@
+package com.evron.chargingsessionservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Settings of the bulk import of historical sessions, bound from
+ * {@code charging-session.import.*}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "charging-session.import")
+public class ImportProperties {
+
+    /**
+     * Threads parsing and saving chunks of the imported file
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Lines parsed and saved together, with one journal write
+     */
+    private int chunkLines = 10_000;
+
+    /**
+     * Period of the progress log lines of a running import, in milliseconds
+     */
+    private long progressIntervalMs = 10_000;
+
+}
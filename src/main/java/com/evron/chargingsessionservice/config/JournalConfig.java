@@ -0,0 +1,42 @@
+package com.evron.chargingsessionservice.config;
+
+import com.evron.chargingsessionservice.dao.ChargingSessionDao;
+import com.evron.chargingsessionservice.dao.SessionJournal;
+import com.evron.chargingsessionservice.dao.SessionSnapshotStore;
+import com.evron.chargingsessionservice.dao.SnapshotScheduler;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Paths;
+
+/**
+ * Optional persistence configuration. The {@link SessionJournal} and the
+ * snapshots are only set up when {@code charging-session.journal.enabled} is
+ * {@code true}; otherwise the store stays purely in memory.
+ */
+@Configuration
+@EnableConfigurationProperties(JournalProperties.class)
+@ConditionalOnProperty(prefix = "charging-session.journal", name = "enabled", havingValue = "true")
+public class JournalConfig {
+
+    @Bean
+    public SessionJournal sessionJournal(JournalProperties properties) {
+        return new SessionJournal(Paths.get(properties.getDirectory()),
+                properties.getFsyncPolicy(), properties.getFsyncIntervalMs());
+    }
+
+    @Bean
+    public SessionSnapshotStore sessionSnapshotStore(JournalProperties properties) {
+        return new SessionSnapshotStore(Paths.get(properties.getDirectory()), properties.getRetainedSnapshots());
+    }
+
+    @Bean
+    @ConditionalOnExpression("${charging-session.journal.snapshot-interval-ms:300000} > 0")
+    public SnapshotScheduler snapshotScheduler(ChargingSessionDao dao, JournalProperties properties) {
+        return new SnapshotScheduler(dao, properties.getSnapshotIntervalMs());
+    }
+}
@@ -0,0 +1,49 @@
+package com.evron.chargingsessionservice.config;
+
+import com.evron.chargingsessionservice.dao.SessionJournal.FsyncPolicy;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Persistence settings of the charging session store, bound from
+ * {@code charging-session.journal.*}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "charging-session.journal")
+public class JournalProperties {
+
+    /**
+     * Whether saved sessions are journaled to disk and recovered on startup.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Directory holding the journal segments and snapshots.
+     */
+    private String directory = "data";
+
+    /**
+     * When the journal is forced to disk.
+     */
+    private FsyncPolicy fsyncPolicy = FsyncPolicy.INTERVAL;
+
+    /**
+     * Period of the background fsync, used with {@code INTERVAL}.
+     */
+    private long fsyncIntervalMs = 100;
+
+    /**
+     * Period between snapshots of the store; {@code 0} disables snapshots.
+     */
+    private long snapshotIntervalMs = 300_000;
+
+    /**
+     * Number of newest snapshots kept on disk.
+     */
+    private int retainedSnapshots = 2;
+
+}
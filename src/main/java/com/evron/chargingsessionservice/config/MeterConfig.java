@@ -0,0 +1,35 @@
+package com.evron.chargingsessionservice.config;
+
+import com.evron.chargingsessionservice.dao.ChargingSessionDao;
+import com.evron.chargingsessionservice.dao.MeterReadingDao;
+import com.evron.chargingsessionservice.service.MeterReadingServiceImpl;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.lang.Nullable;
+
+import java.time.Clock;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Sets up the storage of the energy meter readings of charging sessions.
+ */
+@Configuration
+@EnableConfigurationProperties(MeterProperties.class)
+public class MeterConfig {
+
+    @Bean(destroyMethod = "close")
+    public MeterReadingDao meterReadingDao(MeterProperties properties, @Nullable MeterRegistry registry) {
+        return new MeterReadingDao(properties.getMaxReadingsPerSession(), properties.getRetainMs(),
+                Clock.systemDefaultZone(), registry);
+    }
+
+    @Bean
+    public MeterReadingServiceImpl meterReadingService(ChargingSessionDao chargingSessionDao,
+                                                       MeterReadingDao meterReadingDao) {
+        return new MeterReadingServiceImpl(chargingSessionDao, meterReadingDao);
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.evron.chargingsessionservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Storage of the energy meter readings of charging sessions, bound from
+ * {@code charging-session.meter.*}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "charging-session.meter")
+public class MeterProperties {
+
+    /**
+     * Number of readings kept per session at most, 48 hours of a reading
+     * every second by default
+     */
+    private int maxReadingsPerSession = 172_800;
+
+    /**
+     * Age of the last reading of a session after which its readings are
+     * dropped, in milliseconds, 0 to keep them until restart
+     */
+    private long retainMs = 604_800_000;
+
+}
@@ -0,0 +1,39 @@
+package com.evron.chargingsessionservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Configuration of the non-blocking mode, selected at startup with
+ * {@code spring.main.web-application-type=reactive}. Requests are served by
+ * Netty instead of Tomcat.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveConfig {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    /**
+     * Scheduler the service is called on. Service calls are in-memory and run
+     * on the event loop, unless they may wait for the disk: with the journal,
+     * saves and stops write to it, and with retention, lookups of archived
+     * sessions read cold segments. They are then moved to
+     * {@link Schedulers#boundedElastic()} so the event loop never blocks.
+     */
+    @Bean
+    public Scheduler chargingSessionScheduler(@Value("${charging-session.journal.enabled:false}") boolean journal,
+                                              @Value("${charging-session.retention.enabled:false}") boolean retention) {
+        return journal || retention ? Schedulers.boundedElastic() : Schedulers.immediate();
+    }
+}
@@ -0,0 +1,21 @@
+package com.evron.chargingsessionservice.config;
+
+import com.evron.chargingsessionservice.controller.SerializedResponseCache;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Sets up the {@link SerializedResponseCache} of the listing endpoints.
+ */
+@Configuration
+@EnableConfigurationProperties(ResponseCacheProperties.class)
+public class ResponseCacheConfig {
+
+    @Bean
+    public SerializedResponseCache serializedResponseCache(ResponseCacheProperties properties) {
+        return new SerializedResponseCache(properties.getMaxEntryBytes());
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.evron.chargingsessionservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Settings of the cache of serialized listings, bound from
+ * {@code charging-session.response-cache.*}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "charging-session.response-cache")
+public class ResponseCacheProperties {
+
+    /**
+     * Size of the largest serialized listing kept between requests; {@code 0}
+     * keeps none, concurrent requests still share one serialization.
+     */
+    private long maxEntryBytes = 64L * 1024 * 1024;
+
+}
@@ -0,0 +1,35 @@
+package com.evron.chargingsessionservice.config;
+
+import com.evron.chargingsessionservice.dao.ArchiveScheduler;
+import com.evron.chargingsessionservice.dao.ChargingSessionDao;
+import com.evron.chargingsessionservice.dao.ColdSegmentStore;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Paths;
+import java.time.Clock;
+
+/**
+ * Optional tiered retention. The {@link ColdSegmentStore} and the periodic
+ * archiving are only set up when {@code charging-session.retention.enabled} is
+ * {@code true}; otherwise finished sessions stay in memory.
+ */
+@Configuration
+@EnableConfigurationProperties(RetentionProperties.class)
+@ConditionalOnProperty(prefix = "charging-session.retention", name = "enabled", havingValue = "true")
+public class RetentionConfig {
+
+    @Bean
+    public ColdSegmentStore coldSegmentStore(RetentionProperties properties) {
+        return new ColdSegmentStore(Paths.get(properties.getDirectory()));
+    }
+
+    @Bean
+    public ArchiveScheduler archiveScheduler(ChargingSessionDao dao, RetentionProperties properties) {
+        return new ArchiveScheduler(dao, Clock.systemDefaultZone(), properties.getArchiveAfterMs(),
+                properties.getIntervalMs());
+    }
+}
@@ -0,0 +1,37 @@
+package com.evron.chargingsessionservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Retention settings of the charging session store, bound from
+ * {@code charging-session.retention.*}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "charging-session.retention")
+public class RetentionProperties {
+
+    /**
+     * Whether old finished sessions are moved from memory to cold segments on disk.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Directory holding the cold segments.
+     */
+    private String directory = "data/cold";
+
+    /**
+     * Time after being stopped at which a finished session is archived.
+     */
+    private long archiveAfterMs = 7L * 24 * 60 * 60 * 1000;
+
+    /**
+     * Period between archiving runs.
+     */
+    private long intervalMs = 600_000;
+
+}
@@ -0,0 +1,21 @@
+package com.evron.chargingsessionservice.config;
+
+import com.evron.chargingsessionservice.service.SessionRollups;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Sets up the {@link SessionRollups} answering windowed and per-station summaries.
+ */
+@Configuration
+@EnableConfigurationProperties(RollupProperties.class)
+public class RollupConfig {
+
+    @Bean
+    public SessionRollups sessionRollups(RollupProperties properties) {
+        return new SessionRollups(properties.getMinuteBuckets(), properties.getHourBuckets());
+    }
+
+}
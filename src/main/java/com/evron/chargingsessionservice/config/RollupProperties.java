@@ -0,0 +1,26 @@
+package com.evron.chargingsessionservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Retention of the summary rollups, bound from {@code charging-session.rollups.*}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "charging-session.rollups")
+public class RollupProperties {
+
+    /**
+     * Number of minutes kept at minute granularity.
+     */
+    private int minuteBuckets = 120;
+
+    /**
+     * Number of hours kept at hour granularity, the longest summary window.
+     */
+    private int hourBuckets = 168;
+
+}
@@ -0,0 +1,90 @@
+package com.evron.chargingsessionservice.config;
+
+import com.evron.chargingsessionservice.controller.SessionFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+
+import org.reactivestreams.Publisher;
+
+import java.util.Map;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Reads and writes request and response bodies in the binary
+ * {@link SessionFormat}s, CBOR and Smile, besides JSON. The converters replace
+ * the ones Spring registers by default for these formats, so that every
+ * endpoint encodes times and ids the same way as the cached listings.
+ */
+@Configuration
+public class SessionFormatConfig {
+
+    @Bean
+    @ConditionalOnWebApplication(type = Type.SERVLET)
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(ObjectMapper objectMapper) {
+        return new MappingJackson2CborHttpMessageConverter(SessionFormat.CBOR.objectMapper(objectMapper));
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = Type.SERVLET)
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(ObjectMapper objectMapper) {
+        return new MappingJackson2SmileHttpMessageConverter(SessionFormat.SMILE.objectMapper(objectMapper));
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = Type.REACTIVE)
+    public CodecCustomizer sessionFormatCodecCustomizer(ObjectMapper objectMapper) {
+        ObjectMapper cbor = SessionFormat.CBOR.objectMapper(objectMapper);
+        ObjectMapper smile = SessionFormat.SMILE.objectMapper(objectMapper);
+        // without explicit media types the codecs would claim the JSON ones
+        MimeType[] smileTypes = {SessionFormat.SMILE.getMediaType(),
+                MediaType.valueOf("application/stream+x-jackson-smile")};
+        return configurer -> {
+            configurer.defaultCodecs().jackson2SmileEncoder(new Jackson2SmileEncoder(smile, smileTypes));
+            configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(smile, smileTypes));
+            // no CBOR codecs are registered by default; custom writers take precedence over the default
+            // ones, so JSON is registered again ahead of CBOR to stay the encoding of bodies without produces
+            configurer.customCodecs().register(new Jackson2JsonEncoder(objectMapper));
+            configurer.customCodecs().register(new ValueCborEncoder(cbor));
+            configurer.customCodecs().register(new Jackson2CborDecoder(cbor, MediaType.APPLICATION_CBOR));
+        };
+    }
+
+    /**
+     * {@link Jackson2CborEncoder} encoding each value of the body on its own,
+     * which the stock one refuses to do for HTTP responses.
+     */
+    private static final class ValueCborEncoder extends Jackson2CborEncoder {
+
+        private ValueCborEncoder(ObjectMapper mapper) {
+            super(mapper, MediaType.APPLICATION_CBOR);
+        }
+
+        @Override
+        public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+                                       ResolvableType elementType, @Nullable MimeType mimeType,
+                                       @Nullable Map<String, Object> hints) {
+            return Flux.from(inputStream).map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints));
+        }
+
+    }
+
+}
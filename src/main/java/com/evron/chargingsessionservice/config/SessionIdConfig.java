@@ -0,0 +1,44 @@
+package com.evron.chargingsessionservice.config;
+
+import com.evron.chargingsessionservice.service.ConsistentHashRing;
+import com.evron.chargingsessionservice.service.PartitionedSessionIdGenerator;
+import com.evron.chargingsessionservice.service.RandomSessionIdGenerator;
+import com.evron.chargingsessionservice.service.SessionIdGenerator;
+import com.evron.chargingsessionservice.service.TimeOrderedSessionIdGenerator;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.lang.Nullable;
+
+/**
+ * Selects the {@link SessionIdGenerator} configured by
+ * {@code charging-session.ids.strategy}.
+ */
+@Configuration
+@EnableConfigurationProperties(SessionIdProperties.class)
+public class SessionIdConfig {
+
+    /**
+     * In cluster mode, the generator only returns ids of the partition of this
+     * node.
+     */
+    @Bean
+    public SessionIdGenerator sessionIdGenerator(SessionIdProperties properties,
+                                                 @Nullable ConsistentHashRing clusterRing,
+                                                 @Nullable ClusterProperties clusterProperties) {
+        SessionIdGenerator generator;
+        switch (properties.getStrategy()) {
+            case TIME_ORDERED:
+                generator = new TimeOrderedSessionIdGenerator();
+                break;
+            default:
+                generator = new RandomSessionIdGenerator();
+        }
+        if (clusterRing != null && clusterProperties != null) {
+            return new PartitionedSessionIdGenerator(generator, clusterRing, clusterProperties.getSelf());
+        }
+        return generator;
+    }
+
+}
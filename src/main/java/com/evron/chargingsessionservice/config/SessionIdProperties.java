@@ -0,0 +1,23 @@
+package com.evron.chargingsessionservice.config;
+
+import com.evron.chargingsessionservice.service.SessionIdGenerator.Strategy;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Session id settings, bound from {@code charging-session.ids.*}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "charging-session.ids")
+public class SessionIdProperties {
+
+    /**
+     * How the ids of new sessions are generated.
+     */
+    private Strategy strategy = Strategy.RANDOM;
+
+}
@@ -0,0 +1,116 @@
+package com.evron.chargingsessionservice.controller;
+
+import com.evron.chargingsessionservice.controller.AdmissionLimiter.EndpointClass;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Servlet filter placing the {@link ChargingSessionController} endpoints under
+ * the {@link AdmissionLimiter}. Refused requests get a {@code 429 Too Many
+ * Requests} with a {@code Retry-After} header, without reaching the controller.
+ * <p>
+ * The permit of a request is held until its response is complete, including
+ * the streaming of an export after the request thread has returned.
+ */
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    private final AdmissionLimiter limiter;
+
+    private final ObjectMapper objectMapper;
+
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+    public AdmissionFilter(AdmissionLimiter limiter, ObjectMapper objectMapper) {
+        this.limiter = limiter;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !AdmissionLimiter.covers(urlPathHelper.getPathWithinApplication(request));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        EndpointClass endpointClass = AdmissionLimiter.classify(request.getMethod(),
+                urlPathHelper.getPathWithinApplication(request), name -> request.getParameter(name) != null);
+        if (!limiter.tryAcquire(endpointClass)) {
+            reject(response);
+            return;
+        }
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            if (isAsyncStarted(request)) {
+                request.getAsyncContext().addListener(new ReleasingListener(endpointClass));
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                limiter.release(endpointClass);
+            }
+        }
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("message", "Too many requests, retry later");
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(limiter.getRetryAfterSeconds()));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+
+    /**
+     * Releases the permit of an asynchronous request once its response is
+     * complete, which also follows errors and timeouts.
+     */
+    private final class ReleasingListener implements AsyncListener {
+
+        private final EndpointClass endpointClass;
+
+        ReleasingListener(EndpointClass endpointClass) {
+            this.endpointClass = endpointClass;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            limiter.release(endpointClass);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // the listener is dropped when the request goes asynchronous again
+            event.getAsyncContext().addListener(this);
+        }
+    }
+
+}
@@ -0,0 +1,176 @@
+package com.evron.chargingsessionservice.controller;
+
+import org.springframework.lang.Nullable;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.function.Predicate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+/**
+ * Admission control of the charging session endpoints. Every request holds a
+ * permit of its {@link EndpointClass} while in flight; a request finding no
+ * free permit is refused straight away instead of queueing behind the others,
+ * so the latency of admitted requests stays bounded however many arrive.
+ * <p>
+ * Writes have priority over scans: while half or more of the write permits are
+ * taken, scans are refused even if scan permits are free. Reads such as the
+ * summary only compete with each other.
+ */
+public class AdmissionLimiter {
+
+    /**
+     * Path of the endpoints under admission control
+     */
+    static final String BASE_PATH = "/chargingSessions";
+
+    /**
+     * Endpoints sharing a concurrency limit.
+     */
+    public enum EndpointClass {
+        /**
+         * Starting and stopping sessions, one at a time or in batches
+         */
+        WRITE,
+        /**
+         * Reads answered from an index or a counter: pages, a station's
+         * sessions, active sessions, counts and summaries
+         */
+        READ,
+        /**
+         * Requests walking the whole store or a whole upload: the unpaginated
+         * list, the export and the import
+         */
+        SCAN,
+        /**
+         * Subscriptions to the event feed, open for as long as the consumer
+         * stays connected
+         */
+        STREAM
+    }
+
+    private final Map<EndpointClass, Semaphore> permits = new EnumMap<>(EndpointClass.class);
+
+    private final Map<EndpointClass, Integer> limits = new EnumMap<>(EndpointClass.class);
+
+    private final Map<EndpointClass, Counter> rejected = new EnumMap<>(EndpointClass.class);
+
+    private final long retryAfterSeconds;
+
+    public AdmissionLimiter(int maxWrites, int maxReads, int maxScans, long retryAfterSeconds,
+                            @Nullable MeterRegistry registry) {
+        this(maxWrites, maxReads, maxScans, 16, retryAfterSeconds, registry);
+    }
+
+    /**
+     * @param maxWrites         write requests in flight at most
+     * @param maxReads          read requests in flight at most
+     * @param maxScans          scan requests in flight at most
+     * @param maxStreams        event streams open at most
+     * @param retryAfterSeconds delay advertised to refused clients
+     * @param registry          {@link MeterRegistry} receiving the admission metrics, {@code null}
+     *                          to not publish them
+     */
+    public AdmissionLimiter(int maxWrites, int maxReads, int maxScans, int maxStreams, long retryAfterSeconds,
+                            @Nullable MeterRegistry registry) {
+        if (maxWrites < 1 || maxReads < 1 || maxScans < 1 || maxStreams < 1) {
+            throw new IllegalArgumentException("Every endpoint class needs at least one permit");
+        }
+        if (registry == null) {
+            registry = new CompositeMeterRegistry();
+        }
+        this.retryAfterSeconds = retryAfterSeconds;
+        limits.put(EndpointClass.WRITE, maxWrites);
+        limits.put(EndpointClass.READ, maxReads);
+        limits.put(EndpointClass.SCAN, maxScans);
+        limits.put(EndpointClass.STREAM, maxStreams);
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            String tag = endpointClass.name().toLowerCase(Locale.ROOT);
+            int limit = limits.get(endpointClass);
+            permits.put(endpointClass, new Semaphore(limit));
+            Gauge.builder("charging.session.admission.inflight", this, limiter -> limiter.inFlight(endpointClass))
+                    .description("Requests in flight per endpoint class")
+                    .tag("class", tag).register(registry);
+            Gauge.builder("charging.session.admission.limit", () -> limit)
+                    .description("Limit of requests in flight per endpoint class")
+                    .tag("class", tag).register(registry);
+            rejected.put(endpointClass, Counter.builder("charging.session.admission.rejected")
+                    .description("Requests refused with 429 per endpoint class")
+                    .tag("class", tag).register(registry));
+        }
+    }
+
+    /**
+     * @param path path of the request within the application
+     * @return {@code true} if the path is under admission control
+     */
+    static boolean covers(String path) {
+        return path.equals(BASE_PATH) || path.startsWith(BASE_PATH + "/");
+    }
+
+    /**
+     * @param method       HTTP method of the request
+     * @param path         path of the request within the application
+     * @param hasParameter tells whether a query parameter is present
+     * @return {@link EndpointClass} of the request
+     */
+    static EndpointClass classify(String method, String path, Predicate<String> hasParameter) {
+        // an import holds its permit for the whole upload, so it must not take one from the writes
+        if (path.endsWith("/export") || path.endsWith("/import")) {
+            return EndpointClass.SCAN;
+        }
+        if ("POST".equals(method) || "PUT".equals(method)) {
+            return EndpointClass.WRITE;
+        }
+        if (path.equals(BASE_PATH + "/events")) {
+            return EndpointClass.STREAM;
+        }
+        if (path.equals(BASE_PATH) || path.equals(BASE_PATH + "/")) {
+            // the listing is only unpaginated without any of these
+            boolean filtered = hasParameter.test("stationId") || hasParameter.test("limit")
+                    || hasParameter.test("cursor") || hasParameter.test("status");
+            return filtered ? EndpointClass.READ : EndpointClass.SCAN;
+        }
+        return EndpointClass.READ;
+    }
+
+    /**
+     * Takes a permit of the class without waiting. Each successful call must be
+     * matched by one {@link #release(EndpointClass)}.
+     *
+     * @return {@code true} if the request is admitted
+     */
+    public boolean tryAcquire(EndpointClass endpointClass) {
+        boolean writesBusy = inFlight(EndpointClass.WRITE) * 2 >= limits.get(EndpointClass.WRITE);
+        if (endpointClass == EndpointClass.SCAN && writesBusy || !permits.get(endpointClass).tryAcquire()) {
+            rejected.get(endpointClass).increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Gives back the permit of an admitted request.
+     */
+    public void release(EndpointClass endpointClass) {
+        permits.get(endpointClass).release();
+    }
+
+    /**
+     * @return seconds refused clients are asked to wait before retrying
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    private int inFlight(EndpointClass endpointClass) {
+        return limits.get(endpointClass) - permits.get(endpointClass).availablePermits();
+    }
+
+}
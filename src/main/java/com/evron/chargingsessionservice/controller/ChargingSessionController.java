@@ -1,12 +1,27 @@
 package com.evron.chargingsessionservice.controller;
 
+import com.evron.chargingsessionservice.model.BatchResponse;
 import com.evron.chargingsessionservice.model.ChargingSession;
+import com.evron.chargingsessionservice.model.ChargingSession.SessionStatus;
 import com.evron.chargingsessionservice.model.ChargingSessionRequest;
 import com.evron.chargingsessionservice.model.ChargingSessionResponse;
 import com.evron.chargingsessionservice.model.MetricsCount;
+import com.evron.chargingsessionservice.model.SessionEvent;
+import com.evron.chargingsessionservice.model.StatusCount;
 import com.evron.chargingsessionservice.service.ChargingSessionService;
+import com.evron.chargingsessionservice.service.CloseableIterator;
+import com.evron.chargingsessionservice.service.SessionEventFeed;
+import com.evron.chargingsessionservice.service.SessionEventFeed.SessionEventListener;
+import com.evron.chargingsessionservice.service.SessionEventFeed.Subscription;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.ObjectUtils;
@@ -15,45 +30,282 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.UUID;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 
 /**
- * REST controller for ChargingSessions
+ * REST controller for ChargingSessions, served by Spring MVC unless the
+ * non-blocking {@link ReactiveChargingSessionController} is selected.
+ * <p>
+ * Listings, counts and summaries carry an {@code ETag} (see {@link SessionETags});
+ * a request whose {@code If-None-Match} still matches gets a {@code 304 Not
+ * Modified}, and listings are then not even read from the store.
+ * <p>
+ * The full listing and the active sessions are served from a
+ * {@link SerializedResponseCache}, serialized once per change of the store
+ * however many clients poll them.
+ * <p>
+ * Bodies are JSON unless the client accepts or sends one of the binary
+ * {@link SessionFormat}s, CBOR or Smile.
+ * <p>
+ * Instead of polling, clients can follow the starts and stops of sessions on
+ * the {@code /events} stream of the {@link SessionEventFeed}.
  */
 @RestController
+@ConditionalOnWebApplication(type = Type.SERVLET)
 @Api(value = "Charging Session Service")
 @RequestMapping(value = "chargingSessions")
 public class ChargingSessionController {
 
+    /**
+     * Page size used when paginating without an explicit {@code limit}
+     */
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    /**
+     * Number of exported sessions after which the stream is flushed
+     */
+    private static final int EXPORT_FLUSH_INTERVAL = 1000;
+
+    /**
+     * {@link SerializedResponseCache} key of the full listing
+     */
+    static final String ALL_SESSIONS = "all";
+
+    /**
+     * {@link SerializedResponseCache} key of the active sessions
+     */
+    static final String ACTIVE_SESSIONS = "active";
+
+    /**
+     * Body of the full listing of an empty store
+     */
+    static final byte[] NO_SESSIONS = "No sessions found!!".getBytes(StandardCharsets.UTF_8);
+
     /**
      * {@code ChargingSessionService} instance
      */
     private ChargingSessionService service;
 
+    /**
+     * {@code ObjectWriter} used to stream exported sessions
+     */
+    private ObjectWriter sessionWriter;
+
+    /**
+     * {@code ObjectWriter}s used to serialize cached listings, per encoding
+     */
+    private Map<SessionFormat, ObjectWriter> responseWriters = new EnumMap<>(SessionFormat.class);
+
+    /**
+     * Serialized listings of the current version of the store
+     */
+    private SerializedResponseCache responseCache;
+
+    /**
+     * Feed of the session events streamed to subscribers
+     */
+    private SessionEventFeed eventFeed;
+
     @Autowired
-    public ChargingSessionController(ChargingSessionService service) {
+    public ChargingSessionController(ChargingSessionService service, ObjectMapper objectMapper,
+                                     SerializedResponseCache responseCache, SessionEventFeed eventFeed) {
         this.service = service;
+        this.sessionWriter = objectMapper.writerFor(ChargingSession.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        for (SessionFormat format : SessionFormat.values()) {
+            responseWriters.put(format, format.objectMapper(objectMapper).writerFor(ChargingSessionResponse.class));
+        }
+        this.responseCache = responseCache;
+        this.eventFeed = eventFeed;
     }
 
     /**
-     * This method retrieves all charging sessions.
+     * This method retrieves charging sessions. With {@code stationId} only the
+     * sessions of that station are returned. Without {@code limit} all sessions
+     * are returned; with {@code limit} one page is returned, ordered by id,
+     * together with a {@code nextCursor} to fetch the following page.
      *
+     * @param stationId optional id of the charging station
+     * @param limit     optional page size
+     * @param cursor    optional continuation token of the previous page
+     * @param status    optional {@link SessionStatus} filter
+     * @param request   current request, checked for {@code If-None-Match}
      * @return {@link ChargingSessionResponse} wrapped in {@link ResponseEntity}
      */
-    @ApiOperation(value = "Retrieve all charging sessions")
-    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<?> retriveChargingSessions() {
-        ChargingSessionResponse response = service.retrieveChargingSessions();
-        if (ObjectUtils.isEmpty(response.getChargingSessions())) {
-            return ResponseEntity.ok("No sessions found!!");
+    @ApiOperation(value = "Retrieve all charging sessions, one page of them, or those of a station")
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            SessionFormat.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<?> retriveChargingSessions(@RequestParam(required = false) String stationId,
+                                                     @RequestParam(required = false) Integer limit,
+                                                     @RequestParam(required = false) String cursor,
+                                                     @RequestParam(required = false) SessionStatus status,
+                                                     WebRequest request) {
+        String version = service.retrieveChargingSessionsVersion();
+        SessionFormat format = format(request);
+        String eTag = SessionETags.ofVersion(version, format);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        if (stationId != null) {
+            return ResponseEntity.ok().eTag(eTag).body(service.retrieveChargingSessionsByStation(stationId, status));
+        }
+        if (limit != null || cursor != null || status != null) {
+            int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+            return ResponseEntity.ok().eTag(eTag).body(service.retrieveChargingSessions(pageSize, cursor, status));
+        }
+        byte[] body = responseCache.get(ALL_SESSIONS + format, service::retrieveChargingSessionsVersion, () -> {
+            ChargingSessionResponse response = service.retrieveChargingSessions();
+            if (format == SessionFormat.JSON && ObjectUtils.isEmpty(response.getChargingSessions())) {
+                return NO_SESSIONS;
+            }
+            return responseWriters.get(format).writeValueAsBytes(response);
+        });
+        return ResponseEntity.ok().eTag(eTag).contentType(format.getMediaType()).body(body);
+    }
+
+    /**
+     * This method retrieves all charging sessions which are in progress.
+     *
+     * @param request current request, checked for {@code If-None-Match}
+     * @return serialized {@link ChargingSessionResponse} wrapped in {@link ResponseEntity}
+     */
+    @ApiOperation(value = "Retrieve active charging sessions", response = ChargingSessionResponse.class)
+    @GetMapping(value = "/active", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            SessionFormat.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<byte[]> retriveActiveChargingSessions(WebRequest request) {
+        String version = service.retrieveChargingSessionsVersion();
+        SessionFormat format = format(request);
+        String eTag = SessionETags.ofVersion(version, format);
+        if (request.checkNotModified(eTag)) {
+            return null;
         }
-        return ResponseEntity.ok(service.retrieveChargingSessions());
+        byte[] body = responseCache.get(ACTIVE_SESSIONS + format, service::retrieveChargingSessionsVersion,
+                () -> responseWriters.get(format).writeValueAsBytes(service.retrieveActiveChargingSessions()));
+        return ResponseEntity.ok().eTag(eTag).contentType(format.getMediaType()).body(body);
+    }
+
+    /**
+     * This method retrieves the number of stored charging sessions per status
+     * including: <b>totalCount</b>, <b>inProgressCount</b> and
+     * <b>finishedCount</b>
+     *
+     * @param request current request, negotiating the encoding
+     * @return {@link StatusCount} wrapped in {@link ResponseEntity}
+     */
+    @ApiOperation(value = "Retrieve number of charging sessions per status")
+    @GetMapping(value = "/counts", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            SessionFormat.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<StatusCount> retriveStatusCount(WebRequest request) {
+        String eTag = SessionETags.ofVersion(service.retrieveChargingSessionsVersion(), format(request));
+        return ResponseEntity.ok().eTag(eTag).body(service.retrieveStatusCount());
+    }
+
+    /**
+     * This method exports all charging sessions as newline-delimited JSON, one
+     * session per line. Sessions are serialized straight from the store to the
+     * response stream, so memory use does not grow with the number of sessions.
+     *
+     * @return {@link StreamingResponseBody} wrapped in {@link ResponseEntity}
+     */
+    @ApiOperation(value = "Export all charging sessions as NDJSON")
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportChargingSessions() {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(export(sessionWriter, service));
+    }
+
+    /**
+     * Streams {@link ChargingSessionService#exportChargingSessions()} as
+     * newline-delimited JSON, flushing every {@value #EXPORT_FLUSH_INTERVAL}
+     * sessions.
+     *
+     * @param sessionWriter {@code ObjectWriter} of one {@link ChargingSession}
+     * @param service       {@code ChargingSessionService} to export
+     * @return {@link StreamingResponseBody} of the export
+     */
+    static StreamingResponseBody export(ObjectWriter sessionWriter, ChargingSessionService service) {
+        return outputStream -> {
+            // closed when the client disconnects, releasing the exports of other nodes
+            try (CloseableIterator<ChargingSession> iterator = service.exportChargingSessions();
+                 JsonGenerator generator = sessionWriter.getFactory().createGenerator(outputStream)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                int written = 0;
+                while (iterator.hasNext()) {
+                    sessionWriter.writeValue(generator, iterator.next());
+                    generator.writeRaw('\n');
+                    if (++written % EXPORT_FLUSH_INTERVAL == 1) {
+                        generator.flush();
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * This method streams the starts and stops of charging sessions as
+     * Server-Sent Events, named {@code started} or {@code stopped} and carrying
+     * the {@link SessionEvent}, with {@code <run>-<sequence>} as event id. A client
+     * reconnecting with the last id it saw, as {@code Last-Event-ID} or
+     * {@code after}, first receives the events it missed; if those are no
+     * longer kept, or the id is of a previous run, the stream answers
+     * {@code 410 Gone}; it sends an
+     * {@code expired} event and ends once the client fell behind while
+     * connected, and the sessions have to be read again.
+     *
+     * @param after       optional id of the last event already seen
+     * @param lastEventId id of the last event already seen, sent by
+     *                    reconnecting {@code EventSource} clients
+     * @return {@link SseEmitter} of the events
+     */
+    @ApiOperation(value = "Stream starts and stops of charging sessions as Server-Sent Events")
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamSessionEvents(@RequestParam(required = false) String after,
+                                          @RequestHeader(value = "Last-Event-ID", required = false)
+                                                  String lastEventId) {
+        SseEmitter emitter = new SseEmitter(0L);
+        Subscription subscription = eventFeed.subscribe(eventFeed.sequenceOf(lastEventId != null ? lastEventId : after),
+                new SessionEventListener() {
+                    @Override
+                    public void onEvents(List<SessionEvent> events) throws IOException {
+                        for (SessionEvent event : events) {
+                            emitter.send(SseEmitter.event().id(eventFeed.eventId(event))
+                                    .name(event.getType().name().toLowerCase(Locale.ROOT))
+                                    .data(event, MediaType.APPLICATION_JSON));
+                        }
+                    }
+
+                    @Override
+                    public void onHeartbeat() throws IOException {
+                        emitter.send(SseEmitter.event().comment(""));
+                    }
+
+                    @Override
+                    public void onExpired(String message) throws IOException {
+                        emitter.send(SseEmitter.event().name("expired").data(message));
+                        emitter.complete();
+                    }
+                });
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(e -> subscription.close());
+        return emitter;
     }
 
     /**
@@ -64,7 +316,8 @@ public class ChargingSessionController {
      * @return {@link ChargingSession} wrapped in {@link ResponseEntity}
      */
     @ApiOperation(value = "Submit a new charging session for the station")
-    @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    @PostMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            SessionFormat.APPLICATION_SMILE_VALUE})
     public ResponseEntity<ChargingSession> createChargingSession(@RequestBody ChargingSessionRequest request) {
         return ResponseEntity.ok(service.saveNewChargingSession(request));
     }
@@ -76,11 +329,41 @@ public class ChargingSessionController {
      * @return {@link ChargingSession} wrapped in {@link ResponseEntity}
      */
     @ApiOperation(value = "Stop charging session")
-    @PutMapping(value = "{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @PutMapping(value = "{id}", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            SessionFormat.APPLICATION_SMILE_VALUE})
     public ResponseEntity<ChargingSession> stopChargingSession(@PathVariable UUID id) {
         return ResponseEntity.ok(service.stopChargingSession(id));
     }
 
+    /**
+     * This method adds a new charging session for every request of the batch in
+     * one pass. Items failing validation are reported in the response without
+     * failing the others.
+     *
+     * @param requests array of {@link ChargingSessionRequest}s
+     * @return {@link BatchResponse} wrapped in {@link ResponseEntity}
+     */
+    @ApiOperation(value = "Submit a batch of new charging sessions")
+    @PostMapping(value = "/batch", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            SessionFormat.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<BatchResponse> createChargingSessions(@RequestBody List<ChargingSessionRequest> requests) {
+        return ResponseEntity.ok(service.saveNewChargingSessions(requests));
+    }
+
+    /**
+     * This method stops the charging session of every id of the batch in one
+     * pass. Unknown ids are reported in the response without failing the others.
+     *
+     * @param ids array of {@link UUID}s for which Charging Sessions will be stopped.
+     * @return {@link BatchResponse} wrapped in {@link ResponseEntity}
+     */
+    @ApiOperation(value = "Stop a batch of charging sessions")
+    @PutMapping(value = "/batch", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            SessionFormat.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<BatchResponse> stopChargingSessions(@RequestBody List<UUID> ids) {
+        return ResponseEntity.ok(service.stopChargingSessions(ids));
+    }
+
     /**
      * This method retrieves summary of submitted charging sessions including: <br>
      * <b>totalCount</b>- <em>total number of charging session updates <b>for the
@@ -91,14 +374,34 @@ public class ChargingSessionController {
      * <br>
      * <b>stoppedCount</b>- <em>total number of stopped charging session updates
      * <b>for the last minute</b></br>
+     * <p>
+     * With a {@code window} or a {@code stationId}, the counts cover the given
+     * window, of one station or of all of them, in whole minutes or hours.
      *
+     * @param window    optional window such as {@code 5m}, {@code 1h} or {@code 1d}
+     * @param stationId optional station to count
+     * @param request   current request, negotiating the encoding
      * @return {@link MetricsCount} wrapped in {@link ResponseEntity}
      */
     @ApiOperation(value = "Retrieve a summary of submitted charging sessions")
-    @GetMapping(value = "/summary", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<MetricsCount> retriveSessionsSummary() {
-        return ResponseEntity.ok(service.retrieveChargingSessionsSummary());
+    @GetMapping(value = "/summary", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            SessionFormat.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<MetricsCount> retriveSessionsSummary(@RequestParam(required = false) String window,
+                                                               @RequestParam(required = false) String stationId,
+                                                               WebRequest request) {
+        MetricsCount count = window == null && stationId == null ? service.retrieveChargingSessionsSummary()
+                : service.retrieveChargingSessionsSummary(window, stationId);
+        // a matching If-None-Match is answered with 304 by Spring, without serializing the counts
+        return ResponseEntity.ok().eTag(SessionETags.ofSummary(count, format(request))).body(count);
+    }
 
+    /**
+     * @return {@link SessionFormat} of the response to the request
+     */
+    private static SessionFormat format(WebRequest request) {
+        String[] accept = request.getHeaderValues(HttpHeaders.ACCEPT);
+        return accept == null ? SessionFormat.JSON
+                : SessionFormat.negotiate(MediaType.parseMediaTypes(Arrays.asList(accept)));
     }
 
 }
@@ -0,0 +1,147 @@
+package com.evron.chargingsessionservice.controller;
+
+import com.evron.chargingsessionservice.model.BatchResponse;
+import com.evron.chargingsessionservice.model.ChargingSession;
+import com.evron.chargingsessionservice.model.ChargingSession.SessionStatus;
+import com.evron.chargingsessionservice.model.ChargingSessionRequest;
+import com.evron.chargingsessionservice.model.ChargingSessionResponse;
+import com.evron.chargingsessionservice.model.EnergyResponse;
+import com.evron.chargingsessionservice.model.MeterReading;
+import com.evron.chargingsessionservice.model.MetricsCount;
+import com.evron.chargingsessionservice.model.StatusCount;
+import com.evron.chargingsessionservice.service.ChargingSessionServiceImpl;
+import com.evron.chargingsessionservice.service.MeterReadingServiceImpl;
+import com.evron.chargingsessionservice.service.RemoteChargingSessionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+import java.util.UUID;
+
+import springfox.documentation.annotations.ApiIgnore;
+
+/**
+ * REST controller of the partition of this node in cluster mode, called by
+ * the {@link RemoteChargingSessionService}s of the other nodes. It serves the
+ * sessions stored on this node, and their meter readings, only, without routing to or gathering from
+ * the other nodes, and is left out of the API documentation.
+ */
+@ApiIgnore
+@RestController
+@ConditionalOnWebApplication(type = Type.SERVLET)
+@ConditionalOnProperty(prefix = "charging-session.cluster", name = "enabled", havingValue = "true")
+@RequestMapping(value = RemoteChargingSessionService.BASE_PATH)
+public class ClusterController {
+
+    /**
+     * {@code ChargingSessionServiceImpl} of the sessions of this node
+     */
+    private ChargingSessionServiceImpl local;
+
+    /**
+     * {@code MeterReadingServiceImpl} of the sessions of this node
+     */
+    private MeterReadingServiceImpl localReadings;
+
+    /**
+     * {@code ObjectWriter} used to stream exported sessions
+     */
+    private ObjectWriter sessionWriter;
+
+    public ClusterController(ChargingSessionServiceImpl local, MeterReadingServiceImpl localReadings,
+                             ObjectMapper objectMapper) {
+        this.local = local;
+        this.localReadings = localReadings;
+        this.sessionWriter = objectMapper.writerFor(ChargingSession.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ChargingSessionResponse retriveChargingSessions(@RequestParam(required = false) String stationId,
+                                                           @RequestParam(required = false) Integer limit,
+                                                           @RequestParam(required = false) String cursor,
+                                                           @RequestParam(required = false) SessionStatus status) {
+        if (stationId != null) {
+            return local.retrieveChargingSessionsByStation(stationId, status);
+        }
+        if (limit != null) {
+            return local.retrieveChargingSessions(limit, cursor, status);
+        }
+        return local.retrieveChargingSessions();
+    }
+
+    @GetMapping(value = "/active", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ChargingSessionResponse retriveActiveChargingSessions() {
+        return local.retrieveActiveChargingSessions();
+    }
+
+    @GetMapping(value = "/counts", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StatusCount retriveStatusCount() {
+        return local.retrieveStatusCount();
+    }
+
+    @GetMapping(value = "/version", produces = MediaType.TEXT_PLAIN_VALUE)
+    public String retriveVersion() {
+        return local.retrieveChargingSessionsVersion();
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportChargingSessions() {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON)
+                .body(ChargingSessionController.export(sessionWriter, local));
+    }
+
+    @GetMapping(value = "/summary", produces = MediaType.APPLICATION_JSON_VALUE)
+    public MetricsCount retriveSessionsSummary(@RequestParam(required = false) String window,
+                                               @RequestParam(required = false) String stationId) {
+        return window == null && stationId == null ? local.retrieveChargingSessionsSummary()
+                : local.retrieveChargingSessionsSummary(window, stationId);
+    }
+
+    @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ChargingSession createChargingSession(@RequestBody ChargingSessionRequest request) {
+        return local.saveNewChargingSession(request);
+    }
+
+    @PutMapping(value = "{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ChargingSession stopChargingSession(@PathVariable UUID id) {
+        return local.stopChargingSession(id);
+    }
+
+    @PostMapping(value = "/batch", produces = MediaType.APPLICATION_JSON_VALUE)
+    public BatchResponse createChargingSessions(@RequestBody List<ChargingSessionRequest> requests) {
+        return local.saveNewChargingSessions(requests);
+    }
+
+    @PutMapping(value = "/batch", produces = MediaType.APPLICATION_JSON_VALUE)
+    public BatchResponse stopChargingSessions(@RequestBody List<UUID> ids) {
+        return local.stopChargingSessions(ids);
+    }
+
+    @PostMapping(value = "{id}/readings", produces = MediaType.APPLICATION_JSON_VALUE)
+    public EnergyResponse appendMeterReadings(@PathVariable UUID id, @RequestBody List<MeterReading> readings) {
+        return localReadings.appendReadings(id, readings);
+    }
+
+    @GetMapping(value = "{id}/energy", produces = MediaType.APPLICATION_JSON_VALUE)
+    public EnergyResponse getEnergy(@PathVariable UUID id, @RequestParam(required = false) String interval) {
+        return localReadings.retrieveEnergy(id, interval);
+    }
+
+}
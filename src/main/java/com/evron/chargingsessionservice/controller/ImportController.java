@@ -0,0 +1,68 @@
+package com.evron.chargingsessionservice.controller;
+
+import com.evron.chargingsessionservice.model.ImportResponse;
+import com.evron.chargingsessionservice.service.SessionImporter;
+import com.evron.chargingsessionservice.service.SessionImporter.Format;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+
+/**
+ * REST controller of the bulk import of historical charging sessions, served
+ * on the blocking servlet stack, where the uploaded file is read as a stream
+ * while it is being imported.
+ */
+@RestController
+@ConditionalOnWebApplication(type = Type.SERVLET)
+@Api(value = "Charging Session Service")
+@RequestMapping(value = "chargingSessions")
+public class ImportController {
+
+    /**
+     * Media type of CSV files
+     */
+    static final String TEXT_CSV_VALUE = "text/csv";
+
+    /**
+     * {@code SessionImporter} instance
+     */
+    private SessionImporter importer;
+
+    public ImportController(SessionImporter importer) {
+        this.importer = importer;
+    }
+
+    /**
+     * This method imports historical charging sessions with their original
+     * ids, times and status, from newline-delimited JSON in the format of the
+     * export, or from CSV with a header line. The request returns once the
+     * whole body is imported.
+     *
+     * @param contentType {@code application/x-ndjson} or {@code text/csv}
+     * @param body        sessions to import
+     * @return {@link ImportResponse} with the numbers of imported and failed
+     * sessions
+     */
+    @ApiOperation(value = "Import historical charging sessions from NDJSON or CSV")
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, TEXT_CSV_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+                    SessionFormat.APPLICATION_SMILE_VALUE})
+    public ImportResponse importChargingSessions(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                 InputStream body) throws IOException {
+        Format format = MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType) ? Format.NDJSON : Format.CSV;
+        return importer.importSessions(body, format);
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.evron.chargingsessionservice.controller;
+
+import com.evron.chargingsessionservice.model.EnergyResponse;
+import com.evron.chargingsessionservice.model.MeterReading;
+import com.evron.chargingsessionservice.service.MeterReadingService;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.UUID;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+
+/**
+ * REST controller of the energy meter readings of charging sessions, on the
+ * servlet stack. Readings are kept in memory, but the session they belong to
+ * may be read from cold segments on disk, or from another node in cluster
+ * mode; {@link ReactiveMeterReadingController} serves the same endpoints on
+ * WebFlux, off the event loop.
+ */
+@RestController
+@ConditionalOnWebApplication(type = Type.SERVLET)
+@Api(value = "Charging Session Service")
+@RequestMapping(value = "chargingSessions")
+public class MeterReadingController {
+
+    /**
+     * {@code MeterReadingService} instance
+     */
+    private MeterReadingService service;
+
+    public MeterReadingController(MeterReadingService service) {
+        this.service = service;
+    }
+
+    /**
+     * This method appends the meter readings reported by the charger to a
+     * charging session in progress.
+     *
+     * @param id       {@link UUID} of the charging session
+     * @param readings {@link MeterReading}s in time order
+     * @return {@link EnergyResponse} with the energy delivered so far, wrapped
+     * in {@link ResponseEntity}
+     */
+    @ApiOperation(value = "Append energy meter readings to a charging session in progress")
+    @PostMapping(value = "{id}/readings", produces = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, SessionFormat.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<EnergyResponse> appendMeterReadings(@PathVariable UUID id,
+                                                              @RequestBody List<MeterReading> readings) {
+        return ResponseEntity.ok(service.appendReadings(id, readings));
+    }
+
+    /**
+     * This method retrieves the energy delivered during a charging session,
+     * with its curve downsampled to the given interval.
+     *
+     * @param id       {@link UUID} of the charging session
+     * @param interval length of the intervals of the curve, such as {@code 15m};
+     *                 no curve without it
+     * @return {@link EnergyResponse} wrapped in {@link ResponseEntity}
+     */
+    @ApiOperation(value = "Get the energy delivered during a charging session")
+    @GetMapping(value = "{id}/energy", produces = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, SessionFormat.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<EnergyResponse> getEnergy(@PathVariable UUID id,
+                                                    @RequestParam(required = false) String interval) {
+        return ResponseEntity.ok(service.retrieveEnergy(id, interval));
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.evron.chargingsessionservice.controller;
+
+import com.evron.chargingsessionservice.controller.AdmissionLimiter.EndpointClass;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link AdmissionFilter} of the non-blocking mode, placing the
+ * {@link ReactiveChargingSessionController} endpoints under the
+ * {@link AdmissionLimiter}. The permit of a request is held until its response
+ * completes, fails or is cancelled.
+ */
+public class ReactiveAdmissionFilter implements WebFilter {
+
+    private final AdmissionLimiter limiter;
+
+    private final ObjectMapper objectMapper;
+
+    public ReactiveAdmissionFilter(AdmissionLimiter limiter, ObjectMapper objectMapper) {
+        this.limiter = limiter;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        String path = request.getPath().pathWithinApplication().value();
+        if (!AdmissionLimiter.covers(path)) {
+            return chain.filter(exchange);
+        }
+        EndpointClass endpointClass = AdmissionLimiter.classify(request.getMethodValue(), path,
+                request.getQueryParams()::containsKey);
+        if (!limiter.tryAcquire(endpointClass)) {
+            return reject(exchange.getResponse());
+        }
+        return chain.filter(exchange).doFinally(signal -> limiter.release(endpointClass));
+    }
+
+    private Mono<Void> reject(ServerHttpResponse response) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("message", "Too many requests, retry later");
+
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(limiter.getRetryAfterSeconds()));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        try {
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(objectMapper.writeValueAsBytes(body))));
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
+        }
+    }
+
+}
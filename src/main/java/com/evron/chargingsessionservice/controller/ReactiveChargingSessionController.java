@@ -0,0 +1,321 @@
+package com.evron.chargingsessionservice.controller;
+
+import com.evron.chargingsessionservice.model.BatchResponse;
+import com.evron.chargingsessionservice.model.ChargingSession;
+import com.evron.chargingsessionservice.model.ChargingSession.SessionStatus;
+import com.evron.chargingsessionservice.model.ChargingSessionRequest;
+import com.evron.chargingsessionservice.model.ChargingSessionResponse;
+import com.evron.chargingsessionservice.model.MetricsCount;
+import com.evron.chargingsessionservice.model.SessionEvent;
+import com.evron.chargingsessionservice.model.StatusCount;
+import com.evron.chargingsessionservice.service.ChargingSessionService;
+import com.evron.chargingsessionservice.service.CloseableIterator;
+import com.evron.chargingsessionservice.service.SessionEventFeed;
+import com.evron.chargingsessionservice.service.SessionEventFeed.SessionEventListener;
+import com.evron.chargingsessionservice.service.SessionEventFeed.Subscription;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.util.ObjectUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Non-blocking REST controller for ChargingSessions, exposing the same
+ * endpoints as {@link ChargingSessionController} on WebFlux. Only active when
+ * the application is started with
+ * {@code spring.main.web-application-type=reactive}.
+ * <p>
+ * Service calls run on the scheduler configured by
+ * {@link com.evron.chargingsessionservice.config.ReactiveConfig}, so event
+ * loop threads never wait for the disk. Listings which
+ * are cached and the export walk the whole store, and always run on
+ * {@link Schedulers#boundedElastic()}.
+ * <p>
+ * Responses carry the same {@code ETag}s, and get the same {@code 304 Not
+ * Modified}, as those of {@link ChargingSessionController}. Cached listings are
+ * awaited without blocking while another request serializes them.
+ */
+@RestController
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+@RequestMapping(value = "chargingSessions")
+public class ReactiveChargingSessionController {
+
+    /**
+     * Page size used when paginating without an explicit {@code limit}
+     */
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    /**
+     * Events waiting for a slow event stream consumer at most, after which its
+     * stream ends and it resumes from its last event id
+     */
+    private static final int STREAM_BUFFER = 1000;
+
+    /**
+     * {@code ChargingSessionService} instance
+     */
+    private ChargingSessionService service;
+
+    /**
+     * {@code Scheduler} the service is called on
+     */
+    private Scheduler scheduler;
+
+    /**
+     * {@code ObjectWriter}s used to serialize cached listings, per encoding
+     */
+    private Map<SessionFormat, ObjectWriter> responseWriters = new EnumMap<>(SessionFormat.class);
+
+    /**
+     * Serialized listings of the current version of the store
+     */
+    private SerializedResponseCache responseCache;
+
+    /**
+     * Feed of the session events streamed to subscribers
+     */
+    private SessionEventFeed eventFeed;
+
+    @Autowired
+    public ReactiveChargingSessionController(ChargingSessionService service,
+                                             @Qualifier("chargingSessionScheduler") Scheduler scheduler,
+                                             ObjectMapper objectMapper, SerializedResponseCache responseCache,
+                                             SessionEventFeed eventFeed) {
+        this.service = service;
+        this.scheduler = scheduler;
+        for (SessionFormat format : SessionFormat.values()) {
+            responseWriters.put(format, format.objectMapper(objectMapper).writerFor(ChargingSessionResponse.class));
+        }
+        this.responseCache = responseCache;
+        this.eventFeed = eventFeed;
+    }
+
+    /**
+     * @see ChargingSessionController#retriveChargingSessions(String, Integer, String, SessionStatus,
+     * org.springframework.web.context.request.WebRequest)
+     */
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            SessionFormat.APPLICATION_SMILE_VALUE})
+    public Mono<ResponseEntity<?>> retriveChargingSessions(@RequestParam(required = false) String stationId,
+                                                           @RequestParam(required = false) Integer limit,
+                                                           @RequestParam(required = false) String cursor,
+                                                           @RequestParam(required = false) SessionStatus status,
+                                                           ServerWebExchange exchange) {
+        return Mono.defer(() -> {
+            String version = service.retrieveChargingSessionsVersion();
+            SessionFormat format = format(exchange);
+            String eTag = SessionETags.ofVersion(version, format);
+            if (exchange.checkNotModified(eTag)) {
+                return Mono.empty();
+            }
+            if (stationId != null) {
+                return Mono.just(ResponseEntity.ok().eTag(eTag)
+                        .body(service.retrieveChargingSessionsByStation(stationId, status)));
+            }
+            if (limit != null || cursor != null || status != null) {
+                int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+                return Mono.just(ResponseEntity.ok().eTag(eTag)
+                        .body(service.retrieveChargingSessions(pageSize, cursor, status)));
+            }
+            return cached(ChargingSessionController.ALL_SESSIONS, format, eTag, () -> {
+                ChargingSessionResponse response = service.retrieveChargingSessions();
+                if (format == SessionFormat.JSON && ObjectUtils.isEmpty(response.getChargingSessions())) {
+                    return ChargingSessionController.NO_SESSIONS;
+                }
+                return responseWriters.get(format).writeValueAsBytes(response);
+            });
+        }).subscribeOn(scheduler);
+    }
+
+    /**
+     * @see ChargingSessionController#retriveActiveChargingSessions(org.springframework.web.context.request.WebRequest)
+     */
+    @GetMapping(value = "/active", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            SessionFormat.APPLICATION_SMILE_VALUE})
+    public Mono<ResponseEntity<byte[]>> retriveActiveChargingSessions(ServerWebExchange exchange) {
+        return Mono.defer(() -> {
+            String version = service.retrieveChargingSessionsVersion();
+            SessionFormat format = format(exchange);
+            String eTag = SessionETags.ofVersion(version, format);
+            if (exchange.checkNotModified(eTag)) {
+                return Mono.<ResponseEntity<byte[]>>empty();
+            }
+            return cached(ChargingSessionController.ACTIVE_SESSIONS, format, eTag,
+                    () -> responseWriters.get(format).writeValueAsBytes(service.retrieveActiveChargingSessions()));
+        }).subscribeOn(scheduler);
+    }
+
+    /**
+     * @see ChargingSessionController#retriveStatusCount(org.springframework.web.context.request.WebRequest)
+     */
+    @GetMapping(value = "/counts", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            SessionFormat.APPLICATION_SMILE_VALUE})
+    public Mono<ResponseEntity<StatusCount>> retriveStatusCount(ServerWebExchange exchange) {
+        return call(() -> {
+            String eTag = SessionETags.ofVersion(service.retrieveChargingSessionsVersion(), format(exchange));
+            return ResponseEntity.ok().eTag(eTag).body(service.retrieveStatusCount());
+        });
+    }
+
+    /**
+     * Exports all charging sessions as newline-delimited JSON. Sessions are
+     * pulled from the store as the client consumes them, on the
+     * {@link Schedulers#boundedElastic()} scheduler as archived sessions are
+     * read from disk.
+     *
+     * @return {@link Flux} of {@link ChargingSession}s
+     * @see ChargingSessionController#exportChargingSessions()
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<ChargingSession> exportChargingSessions() {
+        // closed when the client disconnects, releasing the exports of other nodes
+        return Flux.using(service::exportChargingSessions, iterator -> Flux.fromIterable(() -> iterator),
+                CloseableIterator::close).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Events are pushed by the {@link SessionEventFeed} regardless of demand;
+     * up to {@value #STREAM_BUFFER} of them wait for a slow consumer, beyond
+     * which its stream fails and the consumer resumes from its last event id.
+     *
+     * @see ChargingSessionController#streamSessionEvents(String, String)
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<?>> streamSessionEvents(@RequestParam(required = false) String after,
+                                                        @RequestHeader(value = "Last-Event-ID", required = false)
+                                                                String lastEventId) {
+        // before the stream starts, so an id of a previous run is answered with 410 Gone
+        Long sequence = eventFeed.sequenceOf(lastEventId != null ? lastEventId : after);
+        Flux<ServerSentEvent<?>> events = Flux.create(sink -> {
+            Subscription subscription = eventFeed.subscribe(sequence,
+                    new SessionEventListener() {
+                        @Override
+                        public void onEvents(List<SessionEvent> events) {
+                            for (SessionEvent event : events) {
+                                sink.next(ServerSentEvent.builder(event).id(eventFeed.eventId(event))
+                                        .event(event.getType().name().toLowerCase(Locale.ROOT)).build());
+                            }
+                        }
+
+                        @Override
+                        public void onHeartbeat() {
+                            sink.next(ServerSentEvent.builder().comment("").build());
+                        }
+
+                        @Override
+                        public void onExpired(String message) {
+                            sink.next(ServerSentEvent.builder(message).event("expired").build());
+                            sink.complete();
+                        }
+                    });
+            sink.onDispose(subscription::close);
+        });
+        return events.onBackpressureBuffer(STREAM_BUFFER, BufferOverflowStrategy.ERROR);
+    }
+
+    /**
+     * @see ChargingSessionController#createChargingSession(ChargingSessionRequest)
+     */
+    @PostMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            SessionFormat.APPLICATION_SMILE_VALUE})
+    public Mono<ChargingSession> createChargingSession(@RequestBody ChargingSessionRequest request) {
+        return call(() -> service.saveNewChargingSession(request));
+    }
+
+    /**
+     * @see ChargingSessionController#stopChargingSession(UUID)
+     */
+    @PutMapping(value = "{id}", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            SessionFormat.APPLICATION_SMILE_VALUE})
+    public Mono<ChargingSession> stopChargingSession(@PathVariable UUID id) {
+        return call(() -> service.stopChargingSession(id));
+    }
+
+    /**
+     * @see ChargingSessionController#createChargingSessions(List)
+     */
+    @PostMapping(value = "/batch", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            SessionFormat.APPLICATION_SMILE_VALUE})
+    public Mono<BatchResponse> createChargingSessions(@RequestBody List<ChargingSessionRequest> requests) {
+        return call(() -> service.saveNewChargingSessions(requests));
+    }
+
+    /**
+     * @see ChargingSessionController#stopChargingSessions(List)
+     */
+    @PutMapping(value = "/batch", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            SessionFormat.APPLICATION_SMILE_VALUE})
+    public Mono<BatchResponse> stopChargingSessions(@RequestBody List<UUID> ids) {
+        return call(() -> service.stopChargingSessions(ids));
+    }
+
+    /**
+     * @see ChargingSessionController#retriveSessionsSummary(String, String,
+     * org.springframework.web.context.request.WebRequest)
+     */
+    @GetMapping(value = "/summary", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            SessionFormat.APPLICATION_SMILE_VALUE})
+    public Mono<ResponseEntity<MetricsCount>> retriveSessionsSummary(@RequestParam(required = false) String window,
+                                                                     @RequestParam(required = false) String stationId,
+                                                                     ServerWebExchange exchange) {
+        return call(() -> {
+            MetricsCount count = window == null && stationId == null ? service.retrieveChargingSessionsSummary()
+                    : service.retrieveChargingSessionsSummary(window, stationId);
+            return ResponseEntity.ok().eTag(SessionETags.ofSummary(count, format(exchange))).body(count);
+        });
+    }
+
+    /**
+     * Serves a listing from the {@link SerializedResponseCache}, waiting
+     * without blocking if another request is serializing it.
+     */
+    private Mono<ResponseEntity<byte[]>> cached(String key, SessionFormat format, String eTag,
+                                                SerializedResponseCache.Serializer serializer) {
+        // the serializer runs on the subscribing thread when the body is not cached
+        return Mono.defer(() -> Mono.fromFuture(responseCache.getAsync(key + format,
+                service::retrieveChargingSessionsVersion, serializer)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(body -> ResponseEntity.ok().eTag(eTag).contentType(format.getMediaType()).body(body));
+    }
+
+    /**
+     * @return {@link SessionFormat} of the response to the request
+     */
+    private static SessionFormat format(ServerWebExchange exchange) {
+        return SessionFormat.negotiate(exchange.getRequest().getHeaders().getAccept());
+    }
+
+    private <T> Mono<T> call(Callable<T> action) {
+        return Mono.fromCallable(action).subscribeOn(scheduler);
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.evron.chargingsessionservice.controller;
+
+import com.evron.chargingsessionservice.model.EnergyResponse;
+import com.evron.chargingsessionservice.model.MeterReading;
+import com.evron.chargingsessionservice.service.MeterReadingService;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.UUID;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Non-blocking REST controller of the energy meter readings of charging
+ * sessions, exposing the same endpoints as {@link MeterReadingController} on
+ * WebFlux. Only active when the application is started with
+ * {@code spring.main.web-application-type=reactive}.
+ * <p>
+ * The service looks up the session the readings belong to, which may be
+ * archived on disk, so it is called on the scheduler configured by
+ * {@link com.evron.chargingsessionservice.config.ReactiveConfig}, as by
+ * {@link ReactiveChargingSessionController}.
+ */
+@RestController
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+@RequestMapping(value = "chargingSessions")
+public class ReactiveMeterReadingController {
+
+    /**
+     * {@code MeterReadingService} instance
+     */
+    private MeterReadingService service;
+
+    /**
+     * {@code Scheduler} the service is called on
+     */
+    private Scheduler scheduler;
+
+    public ReactiveMeterReadingController(MeterReadingService service,
+                                          @Qualifier("chargingSessionScheduler") Scheduler scheduler) {
+        this.service = service;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * @see MeterReadingController#appendMeterReadings(UUID, List)
+     */
+    @PostMapping(value = "{id}/readings", produces = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, SessionFormat.APPLICATION_SMILE_VALUE})
+    public Mono<EnergyResponse> appendMeterReadings(@PathVariable UUID id,
+                                                    @RequestBody List<MeterReading> readings) {
+        return Mono.fromCallable(() -> service.appendReadings(id, readings)).subscribeOn(scheduler);
+    }
+
+    /**
+     * @see MeterReadingController#getEnergy(UUID, String)
+     */
+    @GetMapping(value = "{id}/energy", produces = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, SessionFormat.APPLICATION_SMILE_VALUE})
+    public Mono<EnergyResponse> getEnergy(@PathVariable UUID id, @RequestParam(required = false) String interval) {
+        return Mono.fromCallable(() -> service.retrieveEnergy(id, interval)).subscribeOn(scheduler);
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.evron.chargingsessionservice.controller;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Cache of serialized response bodies, each tagged with the version of the
+ * store it was built from (see
+ * {@link com.evron.chargingsessionservice.service.ChargingSessionService#retrieveChargingSessionsVersion()}).
+ * <p>
+ * A body is served as long as the store is at the version it was built from;
+ * versions are opaque and only compared for equality. Once the store has
+ * changed, the first request rebuilds it and the concurrent requests for the
+ * same response wait for that one build instead of serializing it again, so a
+ * herd of pollers costs one serialization per change of the store. An entry
+ * being built is never replaced, so requests which read the version just
+ * before and just after a change do not keep evicting each other's builds.
+ * Bodies larger than {@code maxEntryBytes} are shared with the requests
+ * waiting for them, but not kept.
+ */
+public class SerializedResponseCache {
+
+    /**
+     * Builds a serialized response body.
+     */
+    @FunctionalInterface
+    public interface Serializer {
+        byte[] serialize() throws IOException;
+    }
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final long maxEntryBytes;
+
+    public SerializedResponseCache() {
+        this(64L * 1024 * 1024);
+    }
+
+    /**
+     * @param maxEntryBytes size of the largest body kept, {@code 0} to keep none
+     */
+    public SerializedResponseCache(long maxEntryBytes) {
+        this.maxEntryBytes = maxEntryBytes;
+    }
+
+    /**
+     * Returns the cached body of the response, built at the current version of
+     * the store, serializing it on the calling thread if no other thread is
+     * already doing so.
+     * <p>
+     * A request finding the body being built at another version waits for
+     * that build, then reads the version again, which has usually caught up
+     * with the body by then. If the store changed again meanwhile, the body is
+     * rebuilt on the thread completing the previous build. Either way the body
+     * may be built at a newer version than one read before calling, never at
+     * an older one.
+     *
+     * @param key        identifies the response
+     * @param version    reads the current version of the store
+     * @param serializer builds the body from the store
+     * @return {@link CompletableFuture} completed with the body, or with the
+     * exception of the serializer
+     */
+    public CompletableFuture<byte[]> getAsync(String key, Supplier<String> version, Serializer serializer) {
+        while (true) {
+            String current = version.get();
+            Entry entry = entries.get(key);
+            if (entry != null && entry.version.equals(current)) {
+                return entry.body;
+            }
+            if (entry != null && !entry.body.isDone()) {
+                return entry.body.handle((body, e) -> null).thenCompose(built -> getAsync(key, version, serializer));
+            }
+            Entry fresh = new Entry(current);
+            boolean won = entry == null ? entries.putIfAbsent(key, fresh) == null : entries.replace(key, entry, fresh);
+            if (won) {
+                build(key, fresh, serializer);
+                return fresh.body;
+            }
+        }
+    }
+
+    /**
+     * Blocking {@link #getAsync(String, Supplier, Serializer)}.
+     *
+     * @return body of the response
+     */
+    public byte[] get(String key, Supplier<String> version, Serializer serializer) {
+        try {
+            return getAsync(key, version, serializer).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof IOException) {
+                throw new UncheckedIOException((IOException) e.getCause());
+            }
+            throw e;
+        }
+    }
+
+    private void build(String key, Entry entry, Serializer serializer) {
+        try {
+            byte[] body = serializer.serialize();
+            if (body.length > maxEntryBytes) {
+                entries.remove(key, entry);
+            }
+            entry.body.complete(body);
+        } catch (Throwable e) {
+            // the next request builds it again
+            entries.remove(key, entry);
+            entry.body.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Body of a response, being built or built, at a version of the store.
+     */
+    private static final class Entry {
+
+        private final String version;
+
+        private final CompletableFuture<byte[]> body = new CompletableFuture<>();
+
+        private Entry(String version) {
+            this.version = version;
+        }
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.evron.chargingsessionservice.controller;
+
+import com.evron.chargingsessionservice.model.MetricsCount;
+
+/**
+ * {@code ETag}s of the charging session endpoints, letting polling clients get
+ * a {@code 304 Not Modified} instead of an unchanged response.
+ * <p>
+ * Listings are tagged with the version of the store, known before reading it,
+ * so an unchanged listing is neither read nor serialized. The version is
+ * tagged with the instance of the store, so a tag never matches another
+ * instance's listing.
+ * <p>
+ * Summaries depend on the time as well, as updates leave the window; they are
+ * tagged with their counts instead, which are computed from pre-aggregated
+ * buckets without reading the store.
+ * <p>
+ * Each {@link SessionFormat} of a response is a different representation and
+ * gets a different tag.
+ */
+final class SessionETags {
+
+    private SessionETags() {
+    }
+
+    /**
+     * @param version version of the stored sessions
+     * @param format  encoding of the response
+     * @return strong {@code ETag} of a response built from the store at that version
+     */
+    static String ofVersion(String version, SessionFormat format) {
+        return "\"" + version + format.getTagSuffix() + "\"";
+    }
+
+    /**
+     * @param count  summary counts
+     * @param format encoding of the response
+     * @return strong {@code ETag} of the summary
+     */
+    static String ofSummary(MetricsCount count, SessionFormat format) {
+        return "\"" + count.getStartedCount() + "-" + count.getStoppedCount() + format.getTagSuffix() + "\"";
+    }
+
+}
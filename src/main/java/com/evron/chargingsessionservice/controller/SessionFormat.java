@@ -0,0 +1,93 @@
+package com.evron.chargingsessionservice.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encodings of the bodies of the charging session endpoints, negotiated from
+ * the {@code Accept} and {@code Content-Type} headers.
+ * <p>
+ * The binary encodings write ids as 16 raw bytes instead of 36 characters and
+ * times as arrays of small integers instead of ISO-8601 strings, and repeat
+ * no field names (Smile) or encode them compactly (CBOR), which makes
+ * listings smaller and cheaper to serialize than JSON.
+ */
+public enum SessionFormat {
+
+    JSON(MediaType.APPLICATION_JSON, ""),
+    CBOR(MediaType.APPLICATION_CBOR, "-cbor"),
+    SMILE(MediaType.valueOf(SessionFormat.APPLICATION_SMILE_VALUE), "-smile");
+
+    /**
+     * Media type of Smile, binary JSON
+     */
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+    private final MediaType mediaType;
+
+    /**
+     * Appended to the {@code ETag} of the responses, as every encoding of a
+     * response is a different representation
+     */
+    private final String tagSuffix;
+
+    SessionFormat(MediaType mediaType, String tagSuffix) {
+        this.mediaType = mediaType;
+        this.tagSuffix = tagSuffix;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * @param jsonMapper {@code ObjectMapper} of the application, used for JSON
+     * @return {@code ObjectMapper} writing and reading this encoding
+     */
+    public ObjectMapper objectMapper(ObjectMapper jsonMapper) {
+        switch (this) {
+            case CBOR:
+                return binary(Jackson2ObjectMapperBuilder.cbor());
+            case SMILE:
+                return binary(Jackson2ObjectMapperBuilder.smile());
+            default:
+                return jsonMapper;
+        }
+    }
+
+    String getTagSuffix() {
+        return tagSuffix;
+    }
+
+    /**
+     * Picks the encoding the client prefers, as Spring does for the bodies
+     * written by message converters, so that cached bodies match them.
+     *
+     * @param accepted media types of the {@code Accept} header
+     * @return preferred encoding, {@link #JSON} if none is accepted
+     */
+    static SessionFormat negotiate(List<MediaType> accepted) {
+        List<MediaType> sorted = new ArrayList<>(accepted);
+        MediaType.sortBySpecificityAndQuality(sorted);
+        for (MediaType mediaType : sorted) {
+            for (SessionFormat format : values()) {
+                if (mediaType.isCompatibleWith(format.mediaType)) {
+                    return format;
+                }
+            }
+        }
+        return JSON;
+    }
+
+    private static ObjectMapper binary(Jackson2ObjectMapperBuilder builder) {
+        // times as [year, month, day, ...] arrays rather than strings
+        return builder.featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+    }
+
+}
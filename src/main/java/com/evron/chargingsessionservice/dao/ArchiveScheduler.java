@@ -0,0 +1,47 @@
+package com.evron.chargingsessionservice.dao;
+
+import java.io.Closeable;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Periodically moves old {@code FINISHED} sessions of the
+ * {@link ChargingSessionDao} to cold storage on a background thread.
+ */
+@Slf4j
+public class ArchiveScheduler implements Closeable {
+
+    private final ScheduledExecutorService executor;
+
+    /**
+     * @param dao            {@code ChargingSessionDao} to archive from
+     * @param clock          clock sessions are timestamped with
+     * @param archiveAfterMs age after which a finished session is archived, in milliseconds
+     * @param intervalMs     delay between the end of a run and the start of the next one
+     */
+    public ArchiveScheduler(ChargingSessionDao dao, Clock clock, long archiveAfterMs, long intervalMs) {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-archive");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                dao.archive(LocalDateTime.now(clock).minusNanos(TimeUnit.MILLISECONDS.toNanos(archiveAfterMs)));
+            } catch (RuntimeException e) {
+                log.error("Periodic archiving failed", e);
+            }
+        }, 0, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+}
@@ -1,47 +1,1220 @@
 package com.evron.chargingsessionservice.dao;
 
 import com.evron.chargingsessionservice.model.ChargingSession;
+import com.evron.chargingsessionservice.model.ChargingSession.SessionStatus;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * <em>In-memory data structure is being used here as repository.</em> DAO layer
  * for containing methods to manipulate {@code ChargingSession} data. To make
- * application <em>Thread-safe</em> , <b>{@link ConcurrentHashMap} </b> is being
- * used.
+ * application <em>Thread-safe</em> , <b>{@link ConcurrentSkipListMap} </b> is
+ * being used. Sessions are kept ordered by id, so listings can be resumed from
+ * any id without materializing the whole store.
+ * <p>
+ * Sessions are stored as {@link CompactSession}s, with stationIds interned in a
+ * {@link StationDictionary}; {@link ChargingSession} objects are only built for
+ * the sessions a caller actually reads.
+ * <p>
+ * A secondary index maps each stationId to the ids of its sessions, so the
+ * sessions of one station are found without scanning the whole store.
+ * <p>
+ * Sessions are stopped with {@link #stop(UUID, LocalDateTime)}, a single
+ * compare-and-set of the stored value: concurrent stops of the same session
+ * race on one map entry, exactly one of them applies, and the others return the
+ * session it stopped.
+ * <p>
+ * The ids of {@code IN_PROGRESS} sessions and the number of sessions per
+ * {@link SessionStatus} are maintained on every save, by comparing the saved
+ * session with the one it replaces. Stored sessions must therefore be replaced,
+ * not mutated in place, when their status changes.
+ * <p>
+ * When a {@link SessionJournal} is configured, every save is appended to it
+ * before being applied, and the journal is replayed on construction so the
+ * store survives restarts. With a {@link SessionSnapshotStore} as well, startup
+ * loads the newest snapshot and only replays the journal written after it; a
+ * snapshot waits for the saves being journaled to be applied before rotating
+ * the journal, so each of them is either in the snapshot or replayed after it.
+ * The snapshot lists the sessions in id order, so the map and its indexes are
+ * built from it in bulk, in linear time, rather than one insert at a time.
+ * <p>
+ * With a {@link ColdSegmentStore}, {@link #archive(LocalDateTime)} moves
+ * {@code FINISHED} sessions out of memory into compressed segments on disk.
+ * Archived sessions are still found by id, counted and exported, but no longer
+ * appear in listings or station queries. A session saved again while being
+ * archived, or recovered from a journal record newer than its archived copy,
+ * is both in memory and in cold storage: the copy in memory is the live one,
+ * and the archived copy is neither counted nor exported.
+ * <p>
+ * Every change of the stored sessions increments a {@link #version()}, read by
+ * callers to tell whether anything changed without reading the store.
+ * <p>
+ * Calls are timed in the given {@link MeterRegistry} as {@value #TIMER_NAME},
+ * tagged with their {@code operation}, and the number of stored, active and
+ * archived sessions is published as gauges. Constant time counters and the
+ * lazy views, whose cost is paid by whoever iterates them, are not timed.
  */
+@Slf4j
 @Component
 public class ChargingSessionDao {
 
-    Map<UUID, ChargingSession> map;
+    static final int ARCHIVE_BATCH_SIZE = 1_000_000;
+
+    static final String TIMER_NAME = "charging.session.dao";
+
+    ConcurrentNavigableMap<UUID, CompactSession> map;
+
+    StationDictionary stations;
+
+    /**
+     * Ids of the sessions of each stationId, as keys
+     */
+    ConcurrentMap<String, ConcurrentNavigableMap<UUID, Boolean>> stationIndex;
+
+    /**
+     * Ids of the {@code IN_PROGRESS} sessions, as keys
+     */
+    ConcurrentNavigableMap<UUID, Boolean> activeIndex;
+
+    AtomicLongArray statusCounts;
+
+    /**
+     * Number of changes applied to the store; incremented after each change is
+     * visible, so a reader seeing a version also sees the changes it counts
+     */
+    private final LongAdder mutations = new LongAdder();
+
+    /**
+     * Number of sessions held in memory, kept next to the map whose own size
+     * is computed by walking it
+     */
+    private final LongAdder stored = new LongAdder();
+
+    /**
+     * Held shared while a change is journaled and applied, and exclusively
+     * while the journal is rotated for a snapshot
+     */
+    private final ReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+
+    /**
+     * Ids of the sessions held in memory which also have an archived copy,
+     * shadowed by the one in memory
+     */
+    private final Set<UUID> shadowed = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Stops applied and being journaled, by session id
+     */
+    private final ConcurrentMap<UUID, CompletableFuture<Void>> pendingStops = new ConcurrentHashMap<>();
+
+    private final SessionJournal journal;
+
+    private final SessionSnapshotStore snapshotStore;
+
+    private final ColdSegmentStore coldStore;
+
+    private final Timer saveTimer;
+
+    private final Timer saveAllTimer;
+
+    private final Timer stopTimer;
+
+    private final Timer stopAllTimer;
+
+    private final Timer containsTimer;
+
+    private final Timer findByIdTimer;
+
+    private final Timer findByStationIdTimer;
+
+    private final Timer findActiveTimer;
+
+    private final Timer archiveTimer;
+
+    private final Timer snapshotTimer;
 
     public ChargingSessionDao() {
-        map = new ConcurrentHashMap<>();
+        this(null, null, null);
+    }
+
+    public ChargingSessionDao(SessionJournal journal, SessionSnapshotStore snapshotStore) {
+        this(journal, snapshotStore, null);
+    }
+
+    public ChargingSessionDao(SessionJournal journal, SessionSnapshotStore snapshotStore,
+                              ColdSegmentStore coldStore) {
+        this(journal, snapshotStore, coldStore, null);
+    }
+
+    /**
+     * @param registry {@link MeterRegistry} receiving the DAO metrics, {@code null}
+     *                 to discard them
+     */
+    @Autowired
+    public ChargingSessionDao(@Nullable SessionJournal journal, @Nullable SessionSnapshotStore snapshotStore,
+                              @Nullable ColdSegmentStore coldStore, @Nullable MeterRegistry registry) {
+        if (registry == null) {
+            // a composite without registries hands out no-op meters
+            registry = new CompositeMeterRegistry();
+        }
+        saveTimer = timer(registry, "save");
+        saveAllTimer = timer(registry, "saveAll");
+        stopTimer = timer(registry, "stop");
+        stopAllTimer = timer(registry, "stopAll");
+        containsTimer = timer(registry, "contains");
+        findByIdTimer = timer(registry, "findById");
+        findByStationIdTimer = timer(registry, "findByStationId");
+        findActiveTimer = timer(registry, "findActive");
+        archiveTimer = timer(registry, "archive");
+        snapshotTimer = timer(registry, "snapshot");
+        Gauge.builder("charging.sessions.stored", this, ChargingSessionDao::size)
+                .description("Charging sessions held in memory").register(registry);
+        Gauge.builder("charging.sessions.active", this, dao -> dao.countByStatus(SessionStatus.IN_PROGRESS))
+                .description("Charging sessions in progress").register(registry);
+        if (coldStore != null) {
+            Gauge.builder("charging.sessions.archived", this, ChargingSessionDao::countArchived)
+                    .description("Charging sessions moved to cold segments").register(registry);
+        }
+        map = new ConcurrentSkipListMap<>();
+        stations = new StationDictionary();
+        stationIndex = new ConcurrentHashMap<>();
+        activeIndex = new ConcurrentSkipListMap<>();
+        statusCounts = new AtomicLongArray(SessionStatus.values().length);
+        this.journal = journal;
+        this.snapshotStore = journal != null ? snapshotStore : null;
+        this.coldStore = coldStore;
+        if (journal != null) {
+            recover();
+        }
     }
 
     public ChargingSession save(ChargingSession session) {
-        return map.put(session.getId(), session);
+        return saveTimer.record(() -> journaled(() -> {
+            if (journal != null) {
+                journal.append(session);
+            }
+            return apply(session, false);
+        }));
+    }
+
+    /**
+     * Saves several sessions, journaling them with a single write.
+     *
+     * @param sessions {@link ChargingSession}s to save, in order
+     */
+    public void saveAll(List<ChargingSession> sessions) {
+        saveAll(sessions, false);
+    }
+
+    /**
+     * Saves several sessions like {@link #saveAll(List)}, except those
+     * identical to their archived copy. A session whose archived copy differs
+     * is kept in memory and replaces it.
+     * <p>
+     * Unlike the other saves, ids which are not in memory are looked up in
+     * cold storage, so sessions saved with ids of their own, like imported
+     * ones, are neither archived twice nor counted twice.
+     *
+     * @param sessions {@link ChargingSession}s to save, in order
+     * @return number of sessions skipped as archived already
+     */
+    public int saveAllUnlessArchived(List<ChargingSession> sessions) {
+        if (coldStore == null) {
+            saveAll(sessions, false);
+            return 0;
+        }
+        List<ChargingSession> changed = new ArrayList<>(sessions.size());
+        for (ChargingSession session : sessions) {
+            if (map.containsKey(session.getId()) || !isArchivedAs(session)) {
+                changed.add(session);
+            }
+        }
+        saveAll(changed, true);
+        return sessions.size() - changed.size();
+    }
+
+    /**
+     * Stops the {@code IN_PROGRESS} session with the given id. Stopping a
+     * session that is already {@code FINISHED}, archived ones included, is not
+     * an error: the call leaves it untouched and returns it as stored.
+     * <p>
+     * The stop is applied first and journaled afterwards, so a journal record
+     * is only written by the one concurrent call that applied it. The call
+     * still returns only once the record is journaled, and is rolled back if
+     * the record cannot be written. A concurrent call finding the session
+     * already stopped returns once that stop is journaled too; if it is rolled
+     * back instead, the call applies the stop itself.
+     *
+     * @param id        id of the session
+     * @param stoppedAt stop time to record
+     * @return {@link SessionTransition} with the stopped session, {@code null}
+     * if no session has the id
+     */
+    public SessionTransition stop(UUID id, LocalDateTime stoppedAt) {
+        return stopTimer.record(() -> stopAndJournal(Collections.singletonList(id),
+                CompactSession.toEpochNanos(stoppedAt)).get(0));
+    }
+
+    /**
+     * Stops several sessions like {@link #stop(UUID, LocalDateTime)}, journaling
+     * the applied stops with a single write.
+     *
+     * @param ids       ids of the sessions, may contain {@code null}s
+     * @param stoppedAt stop time to record
+     * @return one {@link SessionTransition} per id, in order, {@code null} for
+     * unknown ids
+     */
+    public List<SessionTransition> stopAll(List<UUID> ids, LocalDateTime stoppedAt) {
+        return stopAllTimer.record(() -> stopAndJournal(ids, CompactSession.toEpochNanos(stoppedAt)));
+    }
+
+    /**
+     * @param session session to look up in cold storage
+     * @return {@code true} if its archived copy holds the same station, times and status
+     */
+    private boolean isArchivedAs(ChargingSession session) {
+        ChargingSession archived = coldStore.find(session.getId());
+        return archived != null && CompactSession.of(stations.encode(archived.getStationId()), archived)
+                .sameAs(CompactSession.of(stations.encode(session.getStationId()), session));
     }
 
     public boolean contains(UUID id) {
-        return map.containsKey(id);
+        return containsTimer.record(() -> map.containsKey(id) || coldStore != null && coldStore.contains(id));
     }
 
+    /**
+     * Returns the session with the given id, looking it up in the cold
+     * segments when it is not in memory.
+     *
+     * @param id id of the session
+     * @return stored {@link ChargingSession}, or {@code null}
+     */
     public ChargingSession findById(UUID id) {
-        return map.get(id);
+        return findByIdTimer.record(() -> {
+            CompactSession session = map.get(id);
+            if (session != null) {
+                return session.toSession(id, stations);
+            }
+            return coldStore != null ? coldStore.find(id) : null;
+        });
     }
 
     public Collection<ChargingSession> findAll() {
-        return map.values();
+        return view(map.entrySet());
+    }
+
+    /**
+     * Returns a live, id-ordered view of the sessions stored after the given id.
+     * Nothing is copied; the view is traversed lazily.
+     *
+     * @param id exclusive lower bound, or {@code null} to start from the first session
+     * @return {@link Collection} view of {@link ChargingSession}s
+     */
+    public Collection<ChargingSession> findAllAfter(UUID id) {
+        return id == null ? view(map.entrySet()) : view(map.tailMap(id, false).entrySet());
+    }
+
+    /**
+     * Returns a live, id-ordered view of the {@code IN_PROGRESS} sessions stored
+     * after the given id, read from the index of active sessions. Cost depends
+     * on the number of active sessions visited only.
+     *
+     * @param id exclusive lower bound, or {@code null} to start from the first session
+     * @return {@link Iterable} view of active {@link ChargingSession}s
+     */
+    public Iterable<ChargingSession> findActiveAfter(@Nullable UUID id) {
+        NavigableSet<UUID> ids = id == null ? activeIndex.keySet() : activeIndex.tailMap(id, false).keySet();
+        return () -> new Iterator<ChargingSession>() {
+
+            private final Iterator<UUID> iterator = ids.iterator();
+
+            private ChargingSession next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && iterator.hasNext()) {
+                    UUID candidate = iterator.next();
+                    CompactSession session = map.get(candidate);
+                    // ids are indexed before the session is stored, and unindexed after it stops
+                    if (session != null && session.status() == SessionStatus.IN_PROGRESS) {
+                        next = session.toSession(candidate, stations);
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public ChargingSession next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                ChargingSession session = next;
+                next = null;
+                return session;
+            }
+        };
+    }
+
+    /**
+     * Returns the sessions of a station, ordered by id. Cost depends on the
+     * number of sessions of that station only.
+     *
+     * @param stationId id of the charging station
+     * @return {@link List} of {@link ChargingSession}s, empty if the station is unknown
+     */
+    public List<ChargingSession> findByStationId(String stationId) {
+        return findByStationIdTimer.record(() -> {
+            ConcurrentNavigableMap<UUID, Boolean> ids = stationIndex.get(stationId);
+            if (ids == null) {
+                return Collections.<ChargingSession>emptyList();
+            }
+            List<ChargingSession> sessions = new ArrayList<>(ids.size());
+            for (UUID id : ids.keySet()) {
+                CompactSession session = map.get(id);
+                if (session != null && stationId.equals(stations.decode(session.station))) {
+                    sessions.add(session.toSession(id, stations));
+                }
+            }
+            return sessions;
+        });
+    }
+
+    /**
+     * Returns the {@code IN_PROGRESS} sessions. Cost depends on the number of
+     * active sessions only.
+     *
+     * @return {@link List} of active {@link ChargingSession}s
+     */
+    public List<ChargingSession> findActive() {
+        return findActiveTimer.record(() -> {
+            List<ChargingSession> sessions = new ArrayList<>(activeIndex.size());
+            for (UUID id : activeIndex.keySet()) {
+                CompactSession session = map.get(id);
+                if (session != null && session.status() == SessionStatus.IN_PROGRESS) {
+                    sessions.add(session.toSession(id, stations));
+                }
+            }
+            return sessions;
+        });
     }
 
+    /**
+     * Returns the number of stored sessions with the given status in constant time.
+     *
+     * @param status {@link SessionStatus}
+     * @return number of sessions
+     */
+    public long countByStatus(SessionStatus status) {
+        long count = statusCounts.get(status.ordinal());
+        return status == SessionStatus.FINISHED ? count + countArchived() : count;
+    }
+
+    /**
+     * Returns the number of sessions only held in cold storage in constant time;
+     * archived copies shadowed by a session in memory are not counted.
+     *
+     * @return number of archived sessions, {@code 0} if cold storage is not configured
+     */
+    public long countArchived() {
+        return coldStore != null ? coldStore.size() - shadowed.size() : 0;
+    }
+
+    /**
+     * Returns the version of the stored sessions, increased by every save, applied
+     * stop and archiving. Reading it does not touch the store; two reads returning
+     * the same version saw the same sessions, unless a change was being applied
+     * concurrently.
+     *
+     * @return monotonically increasing version
+     */
+    public long version() {
+        return mutations.sum();
+    }
+
+    /**
+     * Returns the number of sessions held in memory in constant time.
+     *
+     * @return number of sessions held in memory
+     */
     public int size() {
-        return map.size();
+        return (int) stored.sum();
+    }
+
+    /**
+     * @return {@code true} if no session is held in memory
+     */
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    /**
+     * Iterates over every stored session: the in-memory ones in id order,
+     * followed by the archived ones. Archived copies of sessions saved again
+     * since are skipped.
+     *
+     * @return weakly consistent {@link Iterator} of {@link ChargingSession}s
+     */
+    public Iterator<ChargingSession> exportAll() {
+        Iterator<ChargingSession> hot = findAll().iterator();
+        if (coldStore == null) {
+            return hot;
+        }
+        Iterator<ChargingSession> cold = coldStore.iterator();
+        return new Iterator<ChargingSession>() {
+
+            private ChargingSession next;
+
+            @Override
+            public boolean hasNext() {
+                if (next != null) {
+                    return true;
+                }
+                if (hot.hasNext()) {
+                    next = hot.next();
+                    return true;
+                }
+                while (cold.hasNext()) {
+                    ChargingSession session = cold.next();
+                    if (!map.containsKey(session.getId())) {
+                        next = session;
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public ChargingSession next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                ChargingSession session = next;
+                next = null;
+                return session;
+            }
+        };
+    }
+
+    /**
+     * Moves the {@code FINISHED} sessions stopped before the cutoff from memory
+     * to new cold segments, at most {@value #ARCHIVE_BATCH_SIZE} sessions per
+     * segment. A session saved again while its batch is written stays in
+     * memory. With snapshots configured, a snapshot is taken afterwards so
+     * recovery no longer sees the archived sessions.
+     *
+     * @param cutoff sessions stopped before this time are archived
+     * @return number of archived sessions, {@code -1} if cold storage is not configured
+     */
+    public synchronized long archive(LocalDateTime cutoff) {
+        if (coldStore == null) {
+            return -1;
+        }
+        long start = System.nanoTime();
+        long limit = CompactSession.toEpochNanos(cutoff);
+        byte finished = CompactSession.encodeStatus(SessionStatus.FINISHED);
+        List<Map.Entry<UUID, CompactSession>> batch = new ArrayList<>();
+        long archived = 0;
+        for (Map.Entry<UUID, CompactSession> entry : map.entrySet()) {
+            CompactSession session = entry.getValue();
+            if (session.status == finished && session.stoppedAt != CompactSession.NO_TIME
+                    && session.stoppedAt < limit) {
+                batch.add(entry);
+                if (batch.size() == ARCHIVE_BATCH_SIZE) {
+                    archived += archiveBatch(batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            archived += archiveBatch(batch);
+        }
+        if (archived > 0) {
+            log.info("Archived {} finished charging sessions in {} ms", archived,
+                    (System.nanoTime() - start) / 1_000_000);
+            snapshot();
+        }
+        archiveTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return archived;
+    }
+
+    /**
+     * Writes a snapshot of the store and deletes the snapshots and journal
+     * segments it makes obsolete. The journal is rotated once the saves being
+     * journaled are applied, so every save is either already in memory when
+     * the snapshot reads the store or journaled in the segments replayed on top
+     * of it. Writers only wait for the rotation, not for the snapshot.
+     *
+     * @return number of sessions in the snapshot, {@code -1} if snapshots are not configured
+     */
+    public synchronized long snapshot() {
+        if (snapshotStore == null) {
+            return -1;
+        }
+        long start = System.nanoTime();
+        long segment;
+        Lock lock = snapshotLock.writeLock();
+        lock.lock();
+        try {
+            segment = journal.rotate();
+        } finally {
+            lock.unlock();
+        }
+        long count = snapshotStore.write(findAll(), segment);
+        int deleted = journal.deleteSegmentsBefore(snapshotStore.prune());
+        snapshotTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        log.info("Snapshot of {} charging sessions written in {} ms, {} journal segments deleted",
+                count, (System.nanoTime() - start) / 1_000_000, deleted);
+        return count;
+    }
+
+    /**
+     * Journals the sessions with a single write, then applies them.
+     *
+     * @param mayBeArchived whether the ids may have been archived, see
+     *                      {@link #apply(ChargingSession, boolean)}
+     */
+    private void saveAll(List<ChargingSession> sessions, boolean mayBeArchived) {
+        if (sessions.isEmpty()) {
+            return;
+        }
+        saveAllTimer.record(() -> journaled(() -> {
+            if (journal != null) {
+                journal.appendAll(sessions);
+            }
+            for (ChargingSession session : sessions) {
+                apply(session, mayBeArchived);
+            }
+            return null;
+        }));
+    }
+
+    /**
+     * Runs a change which is journaled and then applied, or applied and then
+     * journaled, so that no snapshot rotates the journal in between.
+     *
+     * @param change journaling and application of the change
+     * @return result of the change
+     */
+    private <T> T journaled(Supplier<T> change) {
+        if (snapshotStore == null) {
+            return change.get();
+        }
+        Lock lock = snapshotLock.readLock();
+        lock.lock();
+        try {
+            return change.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the store from the newest snapshot, if any, and the journal
+     * segments written after it.
+     */
+    private void recover() {
+        long start = System.nanoTime();
+        long fromSegment = snapshotStore != null ? loadSnapshot() : 0;
+        long fromSnapshot = size();
+        long records = journal.replay(fromSegment, this::recoverSession);
+        int archived = coldStore != null ? dropArchivedCopies() : 0;
+        log.info("Recovered {} charging sessions ({} from snapshot, {} journal records, {} archived since) in {} ms",
+                size(), fromSnapshot, records, archived, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Loads the newest snapshot into the empty store. Its blocks are decoded in
+     * parallel straight into {@link CompactSession}s. As the sessions come in id
+     * order, the map is then built in linear time by
+     * {@link ConcurrentSkipListMap#ConcurrentSkipListMap(SortedMap)}, and so are
+     * the per-station and active indexes, in parallel, from the ids grouped by a
+     * counting sort.
+     *
+     * @return journal segment from which replay has to continue, {@code 0} if
+     * there is no snapshot
+     */
+    private long loadSnapshot() {
+        SnapshotDecoder decoder = new SnapshotDecoder();
+        long segment = snapshotStore.loadLatest(decoder);
+        UUID[] ids = decoder.ids;
+        CompactSession[] sessions = decoder.sessions;
+        for (int i = 1; i < ids.length; i++) {
+            if (ids[i - 1].compareTo(ids[i]) >= 0) {
+                // not written from the id-ordered map, insert the sessions one at a time
+                for (int j = 0; j < ids.length; j++) {
+                    recoverSession(sessions[j].toSession(ids[j], stations));
+                }
+                return segment;
+            }
+        }
+        int count = ids.length;
+        map = new ConcurrentSkipListMap<>(new SortedIdMap<>(ids, 0, count, i -> sessions[i]));
+        stored.add(count);
+        mutations.add(count);
+
+        // counting sort of the ids by station, which keeps them in id order within a station
+        int stationCount = stations.size();
+        int[] firsts = new int[stationCount + 1];
+        long[] byStatus = new long[statusCounts.length()];
+        for (CompactSession session : sessions) {
+            firsts[session.station + 1]++;
+            if (session.status >= 0) {
+                byStatus[session.status]++;
+            }
+        }
+        for (int status = 0; status < byStatus.length; status++) {
+            statusCounts.addAndGet(status, byStatus[status]);
+        }
+        for (int code = 0; code < stationCount; code++) {
+            firsts[code + 1] += firsts[code];
+        }
+        int[] next = Arrays.copyOf(firsts, stationCount);
+        UUID[] byStation = new UUID[count];
+        UUID[] active = new UUID[(int) byStatus[SessionStatus.IN_PROGRESS.ordinal()]];
+        int activeCount = 0;
+        for (int i = 0; i < count; i++) {
+            byStation[next[sessions[i].station]++] = ids[i];
+            if (sessions[i].status() == SessionStatus.IN_PROGRESS) {
+                active[activeCount++] = ids[i];
+            }
+        }
+
+        IntFunction<Boolean> present = i -> Boolean.TRUE;
+        CompletableFuture<ConcurrentNavigableMap<UUID, Boolean>> activeBuild = CompletableFuture.supplyAsync(
+                () -> new ConcurrentSkipListMap<>(new SortedIdMap<>(active, 0, active.length, present)));
+        IntStream.range(0, stationCount).parallel().forEach(code -> stationIndex.put(stations.decode(code),
+                new ConcurrentSkipListMap<>(new SortedIdMap<>(byStation, firsts[code], firsts[code + 1], present))));
+        if (coldStore != null) {
+            Arrays.stream(ids).parallel().filter(coldStore::contains).forEach(shadowed::add);
+        }
+        activeIndex = activeBuild.join();
+        return segment;
+    }
+
+    /**
+     * Applies a recovered session. Whether it has been archived since it was
+     * journaled or snapshotted is only known once the last record of its id is
+     * applied, see {@link #dropArchivedCopies()}.
+     */
+    private void recoverSession(ChargingSession session) {
+        apply(session, true);
+    }
+
+    /**
+     * Drops from memory the recovered sessions identical to their archived
+     * copy, which were journaled before being archived. The others were saved
+     * again after being archived and stay in memory, shadowing their archived
+     * copy.
+     *
+     * @return number of sessions dropped from memory
+     */
+    private int dropArchivedCopies() {
+        int dropped = 0;
+        for (UUID id : shadowed) {
+            CompactSession session = map.get(id);
+            ChargingSession archived = coldStore.find(id);
+            if (session != null && archived != null
+                    && session.sameAs(CompactSession.of(stations.encode(archived.getStationId()), archived))) {
+                shadowed.remove(id);
+                if (evict(id, session)) {
+                    dropped++;
+                }
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * Writes the batch to a cold segment, then drops from memory every session
+     * of the batch that has not been replaced in the meantime. A replaced one
+     * stays in memory and shadows the copy just archived.
+     *
+     * @param batch id-ordered entries of the sessions to archive
+     * @return number of sessions dropped from memory
+     */
+    private long archiveBatch(List<Map.Entry<UUID, CompactSession>> batch) {
+        long superseded = 0;
+        for (Map.Entry<UUID, CompactSession> entry : batch) {
+            if (shadowed.contains(entry.getKey())) {
+                superseded++;
+            }
+        }
+        coldStore.write(view(batch), superseded);
+        long removed = 0;
+        for (Map.Entry<UUID, CompactSession> entry : batch) {
+            UUID id = entry.getKey();
+            // before the removal, as a save re-adding the id right after it marks it shadowed again
+            shadowed.remove(id);
+            if (evict(id, entry.getValue())) {
+                removed++;
+            } else {
+                shadowed.add(id);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Drops a session from memory and from its indexes, unless it has been
+     * replaced since it was read.
+     *
+     * @param id      id of the session
+     * @param session stored value read before
+     * @return {@code true} if the session was dropped
+     */
+    private boolean evict(UUID id, CompactSession session) {
+        if (!map.remove(id, session)) {
+            return false;
+        }
+        stored.decrement();
+        statusCounts.decrementAndGet(session.status().ordinal());
+        if (session.status() == SessionStatus.IN_PROGRESS) {
+            activeIndex.remove(id);
+        }
+        mutations.increment();
+        String stationId = stations.decode(session.station);
+        ConcurrentNavigableMap<UUID, Boolean> ids = stationIndex.get(stationId);
+        if (ids != null) {
+            ids.remove(id);
+            CompactSession current = map.get(id);
+            if (current != null && current.station == session.station) {
+                ids.put(id, Boolean.TRUE);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stops the sessions, journals the applied stops with a single write, then
+     * waits for the stops of other calls these sessions were found stopped by.
+     *
+     * @param ids      ids of the sessions, may contain {@code null}s
+     * @param stopTime stop time in epoch nanoseconds
+     * @return one {@link SessionTransition} per id, in order, {@code null} for
+     * unknown ids
+     */
+    private List<SessionTransition> stopAndJournal(List<UUID> ids, long stopTime) {
+        CompletableFuture<Void> durable = new CompletableFuture<>();
+        Map<Integer, CompletableFuture<Void>> awaited = new HashMap<>();
+        List<SessionTransition> transitions = journaled(() -> {
+            List<SessionTransition> result = new ArrayList<>(ids.size());
+            List<AppliedStop> applied = new ArrayList<>();
+            for (int i = 0; i < ids.size(); i++) {
+                UUID id = ids.get(i);
+                result.add(id != null ? transitionToStopped(id, stopTime, durable, applied, awaited, i) : null);
+            }
+            if (journal != null && !applied.isEmpty()) {
+                List<ChargingSession> stopped = new ArrayList<>(applied.size());
+                for (AppliedStop stop : applied) {
+                    stopped.add(stop.session);
+                }
+                try {
+                    journal.appendAll(stopped);
+                    durable.complete(null);
+                } catch (RuntimeException e) {
+                    rollBack(applied);
+                    durable.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    for (AppliedStop stop : applied) {
+                        pendingStops.remove(stop.id, durable);
+                    }
+                }
+            }
+            return result;
+        });
+        for (Map.Entry<Integer, CompletableFuture<Void>> entry : awaited.entrySet()) {
+            try {
+                entry.getValue().join();
+            } catch (CompletionException e) {
+                // the stop found was rolled back, stop the session again
+                int index = entry.getKey();
+                transitions.set(index, stopAndJournal(Collections.singletonList(ids.get(index)), stopTime).get(0));
+            }
+        }
+        return transitions;
+    }
+
+    /**
+     * Replaces the stored value of an {@code IN_PROGRESS} session by its
+     * stopped copy with one compare-and-set, retried if the session is saved
+     * concurrently. Only the indexes of the status change need updating, as a
+     * stop never changes the station.
+     * <p>
+     * With a journal, the stop is registered as pending with {@code durable}
+     * before it is applied, so a call finding the session stopped knows
+     * whether to wait for the stop to be journaled.
+     *
+     * @param id        id of the session
+     * @param stoppedAt stop time in epoch nanoseconds
+     * @param durable   completed once the stops of the calling operation are journaled
+     * @param applied   receives the stop if it is applied and has to be journaled
+     * @param awaited   receives, at {@code index}, the pending stop of another
+     *                  operation to wait for
+     * @param index     position of the id in the calling operation
+     * @return {@link SessionTransition}, {@code null} if no session has the id
+     */
+    private SessionTransition transitionToStopped(UUID id, long stoppedAt, CompletableFuture<Void> durable,
+                                                  List<AppliedStop> applied,
+                                                  Map<Integer, CompletableFuture<Void>> awaited, int index) {
+        while (true) {
+            CompactSession current = map.get(id);
+            if (current == null) {
+                // only finished sessions are archived
+                ChargingSession archived = coldStore != null ? coldStore.find(id) : null;
+                return archived != null ? new SessionTransition(archived, false) : null;
+            }
+            if (current.status() == SessionStatus.FINISHED) {
+                CompletableFuture<Void> pending = pendingStops.get(id);
+                if (pending == null && map.get(id) != current) {
+                    // rolled back or saved again since read
+                    continue;
+                }
+                if (pending != null && pending != durable) {
+                    awaited.put(index, pending);
+                }
+                return new SessionTransition(current.toSession(id, stations), false);
+            }
+            if (journal != null) {
+                CompletableFuture<Void> pending = pendingStops.putIfAbsent(id, durable);
+                if (pending != null && pending != durable) {
+                    // a stop being rolled back
+                    Thread.yield();
+                    continue;
+                }
+            }
+            CompactSession stopped = current.stop(stoppedAt);
+            if (map.replace(id, current, stopped)) {
+                updateStatusIndex(id, current, stopped);
+                mutations.increment();
+                ChargingSession session = stopped.toSession(id, stations);
+                if (journal != null) {
+                    applied.add(new AppliedStop(id, current, stopped, session));
+                }
+                return new SessionTransition(session, true);
+            }
+            if (journal != null) {
+                pendingStops.remove(id, durable);
+            }
+        }
+    }
+
+    /**
+     * Restores the sessions of stops which could not be journaled, unless they
+     * were saved again in the meantime.
+     *
+     * @param applied stops to undo
+     */
+    private void rollBack(List<AppliedStop> applied) {
+        for (AppliedStop stop : applied) {
+            activeIndex.put(stop.id, Boolean.TRUE);
+            if (map.replace(stop.id, stop.stopped, stop.previous)) {
+                updateStatusIndex(stop.id, stop.stopped, stop.previous);
+                mutations.increment();
+            } else {
+                // saved again in the meantime, the id stays indexed only if that save is active
+                activeIndex.remove(stop.id);
+                CompactSession current = map.get(stop.id);
+                if (current != null && current.status() == SessionStatus.IN_PROGRESS) {
+                    activeIndex.put(stop.id, Boolean.TRUE);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stores the session and updates the indexes, without journaling.
+     *
+     * @param session       {@code ChargingSession} to store
+     * @param mayBeArchived whether the id may have been archived, to look it up
+     *                      in cold storage if it is not in memory; new sessions
+     *                      skip the lookup
+     * @return previously stored session with the same id, or {@code null}
+     */
+    private ChargingSession apply(ChargingSession session, boolean mayBeArchived) {
+        UUID id = session.getId();
+        int station = stations.encode(session.getStationId());
+        CompactSession compact = CompactSession.of(station, session);
+        // index first, so a session visible in the map is always reachable through its indexes
+        stationIndex.computeIfAbsent(stations.decode(station), key -> new ConcurrentSkipListMap<>())
+                .put(id, Boolean.TRUE);
+        if (compact.status() == SessionStatus.IN_PROGRESS) {
+            activeIndex.put(id, Boolean.TRUE);
+        }
+        CompactSession previous = map.put(id, compact);
+        if (previous == null) {
+            stored.increment();
+            if (mayBeArchived && coldStore != null && coldStore.contains(id)) {
+                shadowed.add(id);
+            }
+        }
+        if (previous != null && previous.station != station) {
+            ConcurrentNavigableMap<UUID, Boolean> ids = stationIndex.get(stations.decode(previous.station));
+            if (ids != null) {
+                ids.remove(id);
+            }
+        }
+        updateStatusIndex(id, previous, compact);
+        mutations.increment();
+        return previous != null ? previous.toSession(id, stations) : null;
+    }
+
+    /**
+     * Moves a session between status counters and the active index when its
+     * status changes.
+     *
+     * @param id       id of the saved session
+     * @param previous session replaced by the save, {@code null} if new
+     * @param current  saved session
+     */
+    private void updateStatusIndex(UUID id, CompactSession previous, CompactSession current) {
+        SessionStatus from = previous != null ? previous.status() : null;
+        SessionStatus to = current.status();
+        if (from == to) {
+            return;
+        }
+        if (from != null) {
+            statusCounts.decrementAndGet(from.ordinal());
+        }
+        if (to != null) {
+            statusCounts.incrementAndGet(to.ordinal());
+        }
+        if (from == SessionStatus.IN_PROGRESS) {
+            activeIndex.remove(id);
+        }
+    }
+
+    /**
+     * Decodes the blocks of a snapshot into id and {@link CompactSession}
+     * arrays, in file order.
+     */
+    private final class SnapshotDecoder implements SessionSnapshotStore.BlockDecoder {
+
+        UUID[] ids = new UUID[0];
+
+        CompactSession[] sessions = new CompactSession[0];
+
+        private final ThreadLocal<StationDictionary.Utf8Codes> codes = ThreadLocal.withInitial(stations::utf8Codes);
+
+        @Override
+        public void start(int count) {
+            ids = new UUID[count];
+            sessions = new CompactSession[count];
+        }
+
+        @Override
+        public void decode(ByteBuffer payload, int first, int count) {
+            for (int i = first; i < first + count; i++) {
+                ids[i] = SessionCodec.decodeId(payload);
+                sessions[i] = SessionCodec.decodeCompact(payload, codes.get());
+            }
+        }
+    }
+
+    /**
+     * Read-only {@link SortedMap} of a range of id-ordered ids, each mapped to
+     * a value computed from its position. Only meant to be copied by the
+     * {@link ConcurrentSkipListMap#ConcurrentSkipListMap(SortedMap)}
+     * constructor, which builds its copy of a sorted map in linear time.
+     */
+    private static final class SortedIdMap<V> extends AbstractMap<UUID, V> implements SortedMap<UUID, V> {
+
+        private final UUID[] ids;
+
+        private final int from;
+
+        private final int to;
+
+        private final IntFunction<V> values;
+
+        SortedIdMap(UUID[] ids, int from, int to, IntFunction<V> values) {
+            this.ids = ids;
+            this.from = from;
+            this.to = to;
+            this.values = values;
+        }
+
+        @Override
+        public Set<Map.Entry<UUID, V>> entrySet() {
+            return new AbstractSet<Map.Entry<UUID, V>>() {
+
+                @Override
+                public Iterator<Map.Entry<UUID, V>> iterator() {
+                    return new Iterator<Map.Entry<UUID, V>>() {
+
+                        private int next = from;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < to;
+                        }
+
+                        @Override
+                        public Map.Entry<UUID, V> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int i = next++;
+                            return new SimpleImmutableEntry<>(ids[i], values.apply(i));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return to - from;
+                }
+            };
+        }
+
+        @Override
+        public Comparator<? super UUID> comparator() {
+            return null;
+        }
+
+        @Override
+        public UUID firstKey() {
+            if (from == to) {
+                throw new NoSuchElementException();
+            }
+            return ids[from];
+        }
+
+        @Override
+        public UUID lastKey() {
+            if (from == to) {
+                throw new NoSuchElementException();
+            }
+            return ids[to - 1];
+        }
+
+        @Override
+        public SortedMap<UUID, V> subMap(UUID fromKey, UUID toKey) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SortedMap<UUID, V> headMap(UUID toKey) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SortedMap<UUID, V> tailMap(UUID fromKey) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Stop applied in memory and not journaled yet.
+     */
+    private static final class AppliedStop {
+
+        final UUID id;
+
+        final CompactSession previous;
+
+        final CompactSession stopped;
+
+        final ChargingSession session;
+
+        AppliedStop(UUID id, CompactSession previous, CompactSession stopped, ChargingSession session) {
+            this.id = id;
+            this.previous = previous;
+            this.stopped = stopped;
+            this.session = session;
+        }
+    }
+
+    /**
+     * Registers the timer of one DAO operation.
+     *
+     * @param registry  {@link MeterRegistry} to register with
+     * @param operation name of the operation, used as {@code operation} tag
+     * @return {@link Timer}
+     */
+    private static Timer timer(MeterRegistry registry, String operation) {
+        return Timer.builder(TIMER_NAME)
+                .description("Latency of charging session store operations")
+                .tag("operation", operation)
+                .register(registry);
+    }
+
+    /**
+     * Returns a read-only view building {@link ChargingSession}s lazily, one per
+     * iterated entry.
+     *
+     * @param source entries of the stored sessions to expose
+     * @return {@link Collection} view of {@link ChargingSession}s
+     */
+    private Collection<ChargingSession> view(Collection<Map.Entry<UUID, CompactSession>> source) {
+        return new AbstractCollection<ChargingSession>() {
+
+            @Override
+            public Iterator<ChargingSession> iterator() {
+                Iterator<Map.Entry<UUID, CompactSession>> entries = source.iterator();
+                return new Iterator<ChargingSession>() {
+
+                    @Override
+                    public boolean hasNext() {
+                        return entries.hasNext();
+                    }
+
+                    @Override
+                    public ChargingSession next() {
+                        Map.Entry<UUID, CompactSession> entry = entries.next();
+                        return entry.getValue().toSession(entry.getKey(), stations);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return source.size();
+            }
+        };
     }
 
 }
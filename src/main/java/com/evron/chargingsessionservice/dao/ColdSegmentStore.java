@@ -0,0 +1,847 @@
+package com.evron.chargingsessionservice.dao;
+
+import com.evron.chargingsessionservice.exception.SessionStorageException;
+import com.evron.chargingsessionservice.model.ChargingSession;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cold tier of the session store: immutable, compressed segment files holding
+ * sessions moved out of memory. Layout of a segment file:
+ *
+ * <pre>
+ * int  magic
+ * int  format version
+ * block*            int compressed length, int raw length, int session count, int crc32, deflated payload
+ * int  block count  index: per block long file offset, long first id msb, long first id lsb
+ * int  bloom hash count, int bloom word count, long[] bloom words
+ * long session count
+ * long superseded count
+ * long first merged segment
+ * long index offset
+ * int  magic
+ * </pre>
+ * <p>
+ * Payloads are {@link SessionCodec} encoded sessions in id order. Only the
+ * block index and a bloom filter of every segment are kept in memory, about
+ * 1.3 bytes per cold session, so a lookup by id reads and inflates at most one
+ * small block per segment whose bloom filter matches.
+ * <p>
+ * Segments are written to a temporary file and renamed once complete. An id
+ * stored in several segments resolves to its copy in the newest one; each
+ * segment records how many of its sessions supersede a copy in an older one,
+ * so those are counted once.
+ * <p>
+ * After each write the newest segments are merged into one as soon as they
+ * hold at least as many sessions as the next older segment, like the carries
+ * of a binary counter, dropping the superseded copies among them. The number
+ * of segments thus only grows with the logarithm of the archived sessions,
+ * and is capped at {@value #MAX_SEGMENTS}. A merged segment records the first
+ * segment it replaces, so segments left behind by a crash before they were
+ * deleted are dropped when the store is opened again.
+ */
+@Slf4j
+public class ColdSegmentStore implements Closeable {
+
+    static final String SEGMENT_PREFIX = "cold-";
+
+    static final String SEGMENT_SUFFIX = ".seg";
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final int MAGIC = 0x43534347;
+
+    private static final int VERSION = 3;
+
+    private static final int FILE_HEADER_SIZE = 8;
+
+    private static final int BLOCK_HEADER_SIZE = 16;
+
+    private static final int TRAILER_SIZE = 12;
+
+    /**
+     * Target raw payload size of a block, kept small as a lookup inflates a whole block
+     */
+    private static final int BLOCK_SIZE = 16 * 1024;
+
+    private static final int BLOOM_BITS_PER_SESSION = 10;
+
+    private static final int BLOOM_HASHES = 7;
+
+    /**
+     * Number of segments above which the newest ones are merged regardless of their size
+     */
+    static final int MAX_SEGMENTS = 32;
+
+    /**
+     * Thrown by a read of a segment which has been merged into a newer one and closed
+     */
+    private static final RuntimeException RETIRED = new RuntimeException("Cold segment merged into a newer one",
+            null, false, false) {
+    };
+
+    /**
+     * Newest copy first among copies of the same id
+     */
+    private static final Comparator<Cursor> CURSOR_ORDER = Comparator.<Cursor, UUID>comparing(
+            cursor -> cursor.current.getId()).thenComparingLong(cursor -> -cursor.segment.number);
+
+    private final Path directory;
+
+    /**
+     * Open segments, oldest first; replaced as a whole when segments are added or merged
+     */
+    private volatile List<Segment> segments;
+
+    /**
+     * Opens the segments found in the directory.
+     *
+     * @param directory directory holding the segment files
+     * @throws SessionStorageException if a segment cannot be opened
+     */
+    public ColdSegmentStore(Path directory) {
+        this.directory = directory;
+        for (long number : StorageFiles.list(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX + TEMP_SUFFIX)) {
+            StorageFiles.deleteQuietly(directory.resolve(
+                    StorageFiles.name(SEGMENT_PREFIX, number, SEGMENT_SUFFIX + TEMP_SUFFIX)));
+        }
+        List<Segment> opened = new ArrayList<>();
+        for (long number : StorageFiles.list(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            opened.add(open(number));
+        }
+        segments = dropMerged(opened);
+        if (!segments.isEmpty()) {
+            log.info("Opened {} cold segments holding {} charging sessions", segments.size(), size());
+        }
+    }
+
+    /**
+     * Writes sessions which are not stored in any segment yet to a new segment.
+     *
+     * @param sessions sessions ordered by id
+     * @return number of sessions written
+     * @throws SessionStorageException if the segment cannot be written
+     */
+    public long write(Iterable<ChargingSession> sessions) {
+        return write(sessions, 0);
+    }
+
+    /**
+     * Writes the sessions to a new segment.
+     *
+     * @param sessions   sessions ordered by id
+     * @param superseded number of the sessions already stored in an older segment
+     * @return number of sessions written
+     * @throws SessionStorageException if the segment cannot be written
+     */
+    public synchronized long write(Iterable<ChargingSession> sessions, long superseded) {
+        Collection<ChargingSession> batch;
+        if (sessions instanceof Collection) {
+            batch = (Collection<ChargingSession>) sessions;
+        } else {
+            batch = new ArrayList<>();
+            sessions.forEach(batch::add);
+        }
+        List<Segment> current = segments;
+        long number = current.isEmpty() ? 1 : current.get(current.size() - 1).number + 1;
+        Segment segment = writeSegment(number, batch.iterator(), batch.size(), () -> superseded, number);
+        List<Segment> next = new ArrayList<>(current);
+        next.add(segment);
+        segments = next;
+        compact();
+        return segment.count;
+    }
+
+    /**
+     * Looks the session up in the segments, newest first.
+     *
+     * @param id id of the session
+     * @return stored {@link ChargingSession}, or {@code null} if no segment holds it
+     * @throws SessionStorageException if a segment cannot be read
+     */
+    public ChargingSession find(UUID id) {
+        while (true) {
+            List<Segment> current = segments;
+            try {
+                for (int i = current.size() - 1; i >= 0; i--) {
+                    ChargingSession session = current.get(i).find(id);
+                    if (session != null) {
+                        return session;
+                    }
+                }
+                return null;
+            } catch (RuntimeException e) {
+                if (e != RETIRED) {
+                    throw e;
+                }
+                // merged into a newer segment meanwhile, look again in the current ones
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if a segment holds the session
+     */
+    public boolean contains(UUID id) {
+        return find(id) != null;
+    }
+
+    /**
+     * Time Complexity - O(s), s being the number of segments
+     *
+     * @return number of distinct sessions stored in the segments
+     */
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.count - segment.superseded;
+        }
+        return size;
+    }
+
+    /**
+     * Iterates over the stored sessions in id order, inflating one block per
+     * segment at a time. Copies shadowed by a newer segment are skipped.
+     * Segments merged while iterating are followed into the merged one.
+     *
+     * @return {@link Iterator} of {@link ChargingSession}s
+     */
+    public Iterator<ChargingSession> iterator() {
+        return new MergedSessions(segments, true);
+    }
+
+    /**
+     * @return number of open segments
+     */
+    int segmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        List<Segment> current = segments;
+        segments = Collections.emptyList();
+        for (Segment segment : current) {
+            segment.retire(false);
+        }
+    }
+
+    /**
+     * Merges the newest segments into one, see the class description. A failed
+     * merge leaves the segments as they are.
+     */
+    private void compact() {
+        List<Segment> current = segments;
+        int last = current.size() - 1;
+        int first = last;
+        long capacity = last >= 0 ? current.get(last).count : 0;
+        while (first > 0 && (current.get(first - 1).count <= capacity || first >= MAX_SEGMENTS)) {
+            first--;
+            capacity += current.get(first).count;
+        }
+        if (first == last) {
+            return;
+        }
+        long start = System.nanoTime();
+        List<Segment> merged = new ArrayList<>(current.subList(first, current.size()));
+        long superseded = 0;
+        for (Segment segment : merged) {
+            superseded += segment.superseded;
+        }
+        long mergedSuperseded = superseded;
+        MergedSessions sessions = new MergedSessions(merged, false);
+        Segment segment;
+        try {
+            segment = writeSegment(current.get(last).number + 1, sessions, capacity,
+                    () -> mergedSuperseded - sessions.dropped, merged.get(0).number);
+        } catch (RuntimeException e) {
+            log.error("Unable to merge cold segments {} to {}", merged.get(0).number, current.get(last).number, e);
+            return;
+        }
+        List<Segment> next = new ArrayList<>(current.subList(0, first));
+        next.add(segment);
+        segments = next;
+        for (Segment replaced : merged) {
+            replaced.retire(true);
+        }
+        log.info("Merged {} cold segments into one of {} charging sessions, dropping {} superseded copies, in {} ms",
+                merged.size(), segment.count, sessions.dropped, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Writes the sessions to a new segment file and opens it.
+     *
+     * @param number     sequence number of the segment
+     * @param sessions   sessions ordered by id
+     * @param capacity   maximum number of sessions, to size the bloom filter
+     * @param superseded number of the sessions stored in an older segment, read once all are written
+     * @param mergedFrom first segment replaced by this one, {@code number} if it replaces none
+     * @return opened {@link Segment}
+     * @throws SessionStorageException if the segment cannot be written
+     */
+    private Segment writeSegment(long number, Iterator<ChargingSession> sessions, long capacity,
+                                 LongSupplier superseded, long mergedFrom) {
+        String name = StorageFiles.name(SEGMENT_PREFIX, number, SEGMENT_SUFFIX);
+        Path temp = directory.resolve(name + TEMP_SUFFIX);
+        List<long[]> index = new ArrayList<>();
+        BloomFilter bloom = new BloomFilter(capacity);
+        long count = 0;
+        try {
+            Files.createDirectories(directory);
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+                header.putInt(MAGIC).putInt(VERSION).flip();
+                writeFully(channel, header);
+
+                BlockWriter blocks = new BlockWriter(channel);
+                while (sessions.hasNext()) {
+                    ChargingSession session = sessions.next();
+                    if (blocks.count == 0) {
+                        index.add(new long[]{channel.position(), session.getId().getMostSignificantBits(),
+                                session.getId().getLeastSignificantBits()});
+                    }
+                    blocks.add(session);
+                    bloom.add(session.getId());
+                    count++;
+                    if (blocks.raw.position() >= BLOCK_SIZE) {
+                        blocks.flush();
+                    }
+                }
+                blocks.flush();
+                blocks.close();
+
+                long indexOffset = channel.position();
+                ByteBuffer footer = ByteBuffer.allocate(4 + index.size() * 24 + 8 + bloom.words.length * 8 + 24
+                        + TRAILER_SIZE);
+                footer.putInt(index.size());
+                for (long[] entry : index) {
+                    footer.putLong(entry[0]).putLong(entry[1]).putLong(entry[2]);
+                }
+                footer.putInt(BLOOM_HASHES).putInt(bloom.words.length);
+                for (long word : bloom.words) {
+                    footer.putLong(word);
+                }
+                footer.putLong(count).putLong(superseded.getAsLong()).putLong(mergedFrom).putLong(indexOffset)
+                        .putInt(MAGIC).flip();
+                writeFully(channel, footer);
+                channel.force(true);
+            }
+            Files.move(temp, directory.resolve(name), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            StorageFiles.deleteQuietly(temp);
+            throw new SessionStorageException("Unable to write cold segment " + name, e);
+        }
+        return open(number);
+    }
+
+    /**
+     * Drops the segments replaced by a newer merged segment, left behind by a
+     * crash before they were deleted.
+     *
+     * @param opened segments found in the directory, oldest first
+     * @return segments to keep, oldest first
+     */
+    private static List<Segment> dropMerged(List<Segment> opened) {
+        List<Segment> kept = new ArrayList<>();
+        long mergedFrom = Long.MAX_VALUE;
+        for (int i = opened.size() - 1; i >= 0; i--) {
+            Segment segment = opened.get(i);
+            boolean replaced = segment.number >= mergedFrom;
+            mergedFrom = Math.min(mergedFrom, segment.mergedFrom);
+            if (replaced) {
+                log.info("Deleting cold segment {}, it was merged into a newer one", segment.file);
+                segment.retire(true);
+            } else {
+                kept.add(segment);
+            }
+        }
+        Collections.reverse(kept);
+        return kept;
+    }
+
+    private Segment open(long number) {
+        Path file = directory.resolve(StorageFiles.name(SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+            StorageFiles.readFully(channel, header, 0);
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+            StorageFiles.readFully(channel, trailer, size - TRAILER_SIZE);
+            int version = header.getInt(4);
+            if (header.getInt(0) != MAGIC || version < 1 || version > VERSION || trailer.getInt(8) != MAGIC) {
+                throw new IOException("Unsupported or incomplete cold segment");
+            }
+            long indexOffset = trailer.getLong(0);
+            ByteBuffer footer = ByteBuffer.allocate((int) (size - TRAILER_SIZE - indexOffset));
+            StorageFiles.readFully(channel, footer, indexOffset);
+            footer.flip();
+            int blocks = footer.getInt();
+            long[] offsets = new long[blocks];
+            UUID[] firstIds = new UUID[blocks];
+            for (int i = 0; i < blocks; i++) {
+                offsets[i] = footer.getLong();
+                firstIds[i] = new UUID(footer.getLong(), footer.getLong());
+            }
+            int hashes = footer.getInt();
+            long[] words = new long[footer.getInt()];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = footer.getLong();
+            }
+            long count = footer.getLong();
+            // segments of the first version were written before superseded copies were counted
+            long superseded = version > 1 ? footer.getLong() : 0;
+            long mergedFrom = version > 2 ? footer.getLong() : number;
+            return new Segment(number, file, channel, offsets, firstIds, new BloomFilter(words, hashes), count,
+                    superseded, mergedFrom);
+        } catch (IOException | RuntimeException e) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw new SessionStorageException("Unable to open cold segment " + file, e);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * One open segment file with its in-memory index.
+     */
+    private static final class Segment {
+
+        final long number;
+
+        final Path file;
+
+        final FileChannel channel;
+
+        final long[] offsets;
+
+        final UUID[] firstIds;
+
+        final BloomFilter bloom;
+
+        final long count;
+
+        /**
+         * Sessions of the segment superseding a copy in an older segment
+         */
+        final long superseded;
+
+        /**
+         * First segment this one replaces, its own number if it is not merged
+         */
+        final long mergedFrom;
+
+        /**
+         * Reads in progress, plus one held by the store until the segment is retired
+         */
+        final AtomicInteger users = new AtomicInteger(1);
+
+        /**
+         * Whether the file is deleted once the last read is done
+         */
+        volatile boolean obsolete;
+
+        Segment(long number, Path file, FileChannel channel, long[] offsets, UUID[] firstIds, BloomFilter bloom,
+                long count, long superseded, long mergedFrom) {
+            this.number = number;
+            this.file = file;
+            this.channel = channel;
+            this.offsets = offsets;
+            this.firstIds = firstIds;
+            this.bloom = bloom;
+            this.count = count;
+            this.superseded = superseded;
+            this.mergedFrom = mergedFrom;
+        }
+
+        ChargingSession find(UUID id) {
+            if (!bloom.mightContain(id)) {
+                return null;
+            }
+            int block = Arrays.binarySearch(firstIds, id);
+            if (block < 0) {
+                block = -block - 2;
+                if (block < 0) {
+                    return null;
+                }
+            }
+            ByteBuffer payload = readBlock(block);
+            int sessions = payload.getInt(payload.limit() - 4);
+            payload.limit(payload.limit() - 4);
+            for (int i = 0; i < sessions; i++) {
+                int position = payload.position();
+                int order = new UUID(payload.getLong(position), payload.getLong(position + 8)).compareTo(id);
+                if (order == 0) {
+                    return SessionCodec.decode(payload);
+                }
+                if (order > 0) {
+                    break;
+                }
+                SessionCodec.skip(payload);
+            }
+            return null;
+        }
+
+        /**
+         * Gives up the hold of the store on the segment. The file is closed, and
+         * deleted if requested, once the reads in progress are done.
+         *
+         * @param delete whether to delete the file
+         */
+        void retire(boolean delete) {
+            obsolete = delete;
+            release();
+        }
+
+        /**
+         * @return inflated payload of the block, followed by its int session count
+         * @throws RuntimeException {@link #RETIRED} if the segment has been retired
+         */
+        ByteBuffer readBlock(int block) {
+            int current;
+            do {
+                current = users.get();
+                if (current == 0) {
+                    throw RETIRED;
+                }
+            } while (!users.compareAndSet(current, current + 1));
+            Inflater inflater = new Inflater();
+            try {
+                ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+                StorageFiles.readFully(channel, header, offsets[block]);
+                int compressedLength = header.getInt(0);
+                int rawLength = header.getInt(4);
+                ByteBuffer compressed = ByteBuffer.allocate(compressedLength);
+                StorageFiles.readFully(channel, compressed, offsets[block] + BLOCK_HEADER_SIZE);
+                CRC32 crc = new CRC32();
+                crc.update(compressed.array(), 0, compressedLength);
+                if ((int) crc.getValue() != header.getInt(12)) {
+                    throw new SessionStorageException("Corrupted block in cold segment " + file, null);
+                }
+                byte[] raw = new byte[rawLength + 4];
+                inflater.setInput(compressed.array());
+                if (inflater.inflate(raw, 0, rawLength) != rawLength) {
+                    throw new DataFormatException("Truncated block");
+                }
+                return ByteBuffer.wrap(raw).putInt(rawLength, header.getInt(8));
+            } catch (IOException | DataFormatException e) {
+                throw new SessionStorageException("Unable to read cold segment " + file, e);
+            } finally {
+                inflater.end();
+                release();
+            }
+        }
+
+        private void release() {
+            if (users.decrementAndGet() > 0) {
+                return;
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Unable to close cold segment {}", file, e);
+            }
+            if (obsolete) {
+                StorageFiles.deleteQuietly(file);
+            }
+        }
+
+    }
+
+    /**
+     * Position in the sessions of one segment, decoding them in id order.
+     */
+    private static final class Cursor {
+
+        final Segment segment;
+
+        private int block;
+
+        private ByteBuffer payload;
+
+        private int remaining;
+
+        /**
+         * Session at the position, {@code null} once all have been read
+         */
+        ChargingSession current;
+
+        /**
+         * @param segment segment to read
+         * @param after   id after which to start, {@code null} to start with the first session
+         */
+        Cursor(Segment segment, UUID after) {
+            this.segment = segment;
+            if (after != null) {
+                int found = Arrays.binarySearch(segment.firstIds, after);
+                block = found >= 0 ? found : Math.max(0, -found - 2);
+            }
+            do {
+                if (!advance()) {
+                    return;
+                }
+            } while (after != null && current.getId().compareTo(after) <= 0);
+        }
+
+        /**
+         * @return {@code false} if there is no further session
+         */
+        boolean advance() {
+            while (remaining == 0) {
+                if (block == segment.offsets.length) {
+                    current = null;
+                    return false;
+                }
+                payload = segment.readBlock(block++);
+                remaining = payload.getInt(payload.limit() - 4);
+                payload.limit(payload.limit() - 4);
+            }
+            current = SessionCodec.decode(payload);
+            remaining--;
+            return true;
+        }
+
+    }
+
+    /**
+     * Merges the sessions of several segments in id order. Of an id stored in
+     * several of them only the copy in the newest one is returned.
+     */
+    private final class MergedSessions implements Iterator<ChargingSession> {
+
+        /**
+         * Whether to continue on the current segments of the store when a
+         * segment is merged, rather than to fail
+         */
+        private final boolean follow;
+
+        private PriorityQueue<Cursor> cursors;
+
+        private UUID last;
+
+        private ChargingSession next;
+
+        /**
+         * Number of copies skipped as they are shadowed by a newer one
+         */
+        long dropped;
+
+        MergedSessions(List<Segment> source, boolean follow) {
+            this.follow = follow;
+            open(source, null);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                Cursor cursor = cursors.poll();
+                if (cursor == null) {
+                    return false;
+                }
+                UUID id = cursor.current.getId();
+                if (id.equals(last)) {
+                    dropped++;
+                } else {
+                    next = cursor.current;
+                    last = id;
+                }
+                try {
+                    if (cursor.advance()) {
+                        cursors.add(cursor);
+                    }
+                } catch (RuntimeException e) {
+                    retired(e);
+                    open(segments, last);
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public ChargingSession next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ChargingSession session = next;
+            next = null;
+            return session;
+        }
+
+        private void open(List<Segment> source, UUID after) {
+            while (true) {
+                try {
+                    PriorityQueue<Cursor> opened = new PriorityQueue<>(Math.max(1, source.size()), CURSOR_ORDER);
+                    for (Segment segment : source) {
+                        Cursor cursor = new Cursor(segment, after);
+                        if (cursor.current != null) {
+                            opened.add(cursor);
+                        }
+                    }
+                    cursors = opened;
+                    return;
+                } catch (RuntimeException e) {
+                    retired(e);
+                    source = segments;
+                }
+            }
+        }
+
+        /**
+         * Rethrows the exception unless it is a read of a retired segment this
+         * iteration continues from.
+         */
+        private void retired(RuntimeException e) {
+            if (e != RETIRED) {
+                throw e;
+            }
+            if (!follow) {
+                throw new SessionStorageException("Cold segment closed while being read", e);
+            }
+        }
+
+    }
+
+    /**
+     * Encodes sessions into a block buffer and writes it deflated.
+     */
+    private static final class BlockWriter {
+
+        final FileChannel channel;
+
+        final ByteBuffer raw = ByteBuffer.allocate(BLOCK_SIZE + SessionCodec.MAX_FIXED_SIZE + 0xFFFF);
+
+        final Deflater deflater = new Deflater();
+
+        final CRC32 crc = new CRC32();
+
+        byte[] compressed = new byte[BLOCK_SIZE];
+
+        int count;
+
+        BlockWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void add(ChargingSession session) {
+            byte[] stationId = SessionCodec.stationIdBytes(session);
+            SessionCodec.encode(stationId, session, raw);
+            count++;
+        }
+
+        void flush() throws IOException {
+            if (count == 0) {
+                return;
+            }
+            deflater.reset();
+            deflater.setInput(raw.array(), 0, raw.position());
+            deflater.finish();
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+            crc.reset();
+            crc.update(compressed, 0, length);
+            ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+            header.putInt(length).putInt(raw.position()).putInt(count).putInt((int) crc.getValue()).flip();
+            writeFully(channel, header);
+            writeFully(channel, ByteBuffer.wrap(compressed, 0, length));
+            raw.clear();
+            count = 0;
+        }
+
+        void close() {
+            deflater.end();
+        }
+
+    }
+
+    /**
+     * Bloom filter over session ids, using double hashing of the id bits.
+     */
+    private static final class BloomFilter {
+
+        final long[] words;
+
+        final int hashes;
+
+        BloomFilter(long sessions) {
+            this(new long[(int) Math.max(1, (sessions * BLOOM_BITS_PER_SESSION + 63) / 64)], BLOOM_HASHES);
+        }
+
+        BloomFilter(long[] words, int hashes) {
+            this.words = words;
+            this.hashes = hashes;
+        }
+
+        void add(UUID id) {
+            long bits = words.length * 64L;
+            long h1 = mix(id.getMostSignificantBits() ^ id.getLeastSignificantBits());
+            long h2 = mix(id.getLeastSignificantBits() + 0x9E3779B97F4A7C15L) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bits);
+                words[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+
+        boolean mightContain(UUID id) {
+            long bits = words.length * 64L;
+            long h1 = mix(id.getMostSignificantBits() ^ id.getLeastSignificantBits());
+            long h2 = mix(id.getLeastSignificantBits() + 0x9E3779B97F4A7C15L) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bits);
+                if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static long mix(long value) {
+            value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+            value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+            return value ^ (value >>> 33);
+        }
+
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.evron.chargingsessionservice.dao;
+
+import com.evron.chargingsessionservice.model.ChargingSession;
+import com.evron.chargingsessionservice.model.ChargingSession.SessionStatus;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+/**
+ * Immutable storage representation of a {@link ChargingSession}. Timestamps are
+ * kept as epoch nanoseconds (UTC) instead of {@link LocalDateTime} object
+ * graphs, and the stationId as a code of the {@link StationDictionary}. The id
+ * is the key of the store and is not repeated here.
+ * <p>
+ * An instance takes 40 bytes of heap, against roughly 200 for a
+ * {@code ChargingSession} with its timestamps and stationId.
+ */
+final class CompactSession {
+
+    /**
+     * Marker of a missing timestamp
+     */
+    static final long NO_TIME = Long.MIN_VALUE;
+
+    private static final SessionStatus[] STATUSES = SessionStatus.values();
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    final long startedAt;
+
+    final long stoppedAt;
+
+    final int station;
+
+    final byte status;
+
+    CompactSession(long startedAt, long stoppedAt, int station, byte status) {
+        this.startedAt = startedAt;
+        this.stoppedAt = stoppedAt;
+        this.station = station;
+        this.status = status;
+    }
+
+    /**
+     * @param station code of the session stationId
+     * @param session {@code ChargingSession} to store
+     * @return compact copy of the session
+     * @throws IllegalArgumentException if a timestamp is outside the years 1678-2261
+     */
+    static CompactSession of(int station, ChargingSession session) {
+        return new CompactSession(toEpochNanos(session.getStartedAt()), toEpochNanos(session.getStoppedAt()),
+                station, encodeStatus(session.getStatus()));
+    }
+
+    /**
+     * @param other compact session
+     * @return {@code true} if both hold the same station, times and status
+     */
+    boolean sameAs(CompactSession other) {
+        return startedAt == other.startedAt && stoppedAt == other.stoppedAt && station == other.station
+                && status == other.status;
+    }
+
+    /**
+     * Builds the API representation of the session.
+     *
+     * @param id       id of the session
+     * @param stations {@code StationDictionary} the station code belongs to
+     * @return new {@link ChargingSession}
+     */
+    ChargingSession toSession(UUID id, StationDictionary stations) {
+        return new ChargingSession(id, stations.decode(station), toDateTime(startedAt), toDateTime(stoppedAt),
+                status());
+    }
+
+    /**
+     * @param stoppedAt stop time in epoch nanoseconds
+     * @return {@code FINISHED} copy of this session
+     */
+    CompactSession stop(long stoppedAt) {
+        return new CompactSession(startedAt, stoppedAt, station, encodeStatus(SessionStatus.FINISHED));
+    }
+
+    SessionStatus status() {
+        return status < 0 ? null : STATUSES[status];
+    }
+
+    static byte encodeStatus(SessionStatus status) {
+        return status == null ? -1 : (byte) status.ordinal();
+    }
+
+    static long toEpochNanos(LocalDateTime dateTime) {
+        if (dateTime == null) {
+            return NO_TIME;
+        }
+        try {
+            return Math.addExact(Math.multiplyExact(dateTime.toEpochSecond(ZoneOffset.UTC), NANOS_PER_SECOND),
+                    dateTime.getNano());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Timestamp " + dateTime + " is outside the supported range", e);
+        }
+    }
+
+    /**
+     * @param epochSecond epoch second (UTC) of a timestamp stored before, so within the supported range
+     * @param nano        nanosecond of the second
+     * @return epoch nanoseconds
+     */
+    static long toEpochNanos(long epochSecond, int nano) {
+        return epochSecond * NANOS_PER_SECOND + nano;
+    }
+
+    static LocalDateTime toDateTime(long epochNanos) {
+        if (epochNanos == NO_TIME) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochNanos, NANOS_PER_SECOND),
+                (int) Math.floorMod(epochNanos, NANOS_PER_SECOND), ZoneOffset.UTC);
+    }
+
+}
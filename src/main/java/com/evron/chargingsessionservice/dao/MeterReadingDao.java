@@ -0,0 +1,202 @@
+package com.evron.chargingsessionservice.dao;
+
+import org.springframework.lang.Nullable;
+
+import java.io.Closeable;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory store of the energy meter readings of charging sessions, one
+ * {@link MeterSeries} per session id.
+ * <p>
+ * Readings are not journaled: they are lost on restart, and a series whose
+ * last reading is older than {@code retainMs} is dropped by a background
+ * thread, so finished sessions do not hold on to their readings forever.
+ * <p>
+ * Appends, reads and the eviction of a series all run under its lock: a
+ * series is only dropped if no reading was appended since it was found too
+ * old, and an append finding its series dropped starts a new one.
+ * <p>
+ * The number of stored readings and the bytes taken by their encoding are
+ * published as gauges.
+ */
+@Slf4j
+public class MeterReadingDao implements Closeable {
+
+    /**
+     * Longest delay between two runs of the eviction
+     */
+    private static final long MAX_EVICTION_INTERVAL_MS = TimeUnit.HOURS.toMillis(1);
+
+    private final ConcurrentMap<UUID, MeterSeries> series = new ConcurrentHashMap<>();
+
+    private final int maxReadings;
+
+    private final AtomicLong readings = new AtomicLong();
+
+    private final ScheduledExecutorService evictor;
+
+    public MeterReadingDao(int maxReadings) {
+        this(maxReadings, 0, Clock.systemDefaultZone(), null);
+    }
+
+    /**
+     * @param maxReadings readings kept per session at most
+     * @param retainMs    age of the last reading after which a series is dropped,
+     *                    in milliseconds, {@code 0} to keep series until restart
+     * @param clock       clock sessions are timestamped with
+     * @param registry    {@link MeterRegistry} receiving the gauges, {@code null}
+     *                    to discard them
+     */
+    public MeterReadingDao(int maxReadings, long retainMs, Clock clock, @Nullable MeterRegistry registry) {
+        if (maxReadings < 1) {
+            throw new IllegalArgumentException("maxReadings must be positive");
+        }
+        this.maxReadings = maxReadings;
+        if (registry == null) {
+            registry = new CompositeMeterRegistry();
+        }
+        Gauge.builder("charging.session.meter.readings", readings, AtomicLong::get)
+                .description("Energy meter readings held in memory").register(registry);
+        Gauge.builder("charging.session.meter.bytes", this, MeterReadingDao::encodedBytes)
+                .description("Bytes taken by the encoded energy meter readings").baseUnit("bytes")
+                .register(registry);
+        if (retainMs > 0) {
+            evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "meter-reading-eviction");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalMs = Math.min(retainMs, MAX_EVICTION_INTERVAL_MS);
+            evictor.scheduleWithFixedDelay(() -> {
+                try {
+                    evictBefore(LocalDateTime.now(clock).toInstant(ZoneOffset.UTC).toEpochMilli() - retainMs);
+                } catch (RuntimeException e) {
+                    log.error("Eviction of meter readings failed", e);
+                }
+            }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            evictor = null;
+        }
+    }
+
+    /**
+     * Appends readings to the series of a session, creating it on the first
+     * readings, all of them or none, then reads the series under the same lock.
+     *
+     * @param id        id of the session
+     * @param times     reading times in epoch milliseconds, in time order
+     * @param wattHours meter values in Wh, never decreasing
+     * @param accepted  checked once the readings are written, which are removed
+     *                  again if it fails, see
+     *                  {@link MeterSeries#append(long[], long[], int, BooleanSupplier)}
+     * @param reader    reads the {@link MeterSeries} of the session after the append
+     * @return result of the reader
+     * @throws IllegalArgumentException if a reading is out of order or the
+     *                                  session already holds too many readings
+     * @throws IllegalStateException    if the readings are not accepted
+     */
+    public <T> T append(UUID id, long[] times, long[] wattHours, BooleanSupplier accepted,
+                        Function<MeterSeries, T> reader) {
+        while (true) {
+            MeterSeries meterSeries = series.computeIfAbsent(id, key -> new MeterSeries());
+            synchronized (meterSeries) {
+                // dropped by the eviction since it was looked up
+                if (series.get(id) != meterSeries) {
+                    continue;
+                }
+                try {
+                    readings.addAndGet(meterSeries.append(times, wattHours, maxReadings, accepted));
+                } catch (RuntimeException e) {
+                    // rejected first readings must not leave an empty series behind, never evicted without a retention
+                    if (meterSeries.count() == 0) {
+                        series.remove(id, meterSeries);
+                    }
+                    throw e;
+                }
+                return reader.apply(meterSeries);
+            }
+        }
+    }
+
+    /**
+     * Reads the series of a session under its lock, so readings appended
+     * meanwhile are either all seen or none.
+     *
+     * @param id     id of the session
+     * @param reader reads the {@link MeterSeries} of the session, empty if it
+     *               has no readings
+     * @return result of the reader
+     */
+    public <T> T read(UUID id, Function<MeterSeries, T> reader) {
+        MeterSeries meterSeries = series.get(id);
+        if (meterSeries == null) {
+            return reader.apply(new MeterSeries());
+        }
+        synchronized (meterSeries) {
+            return reader.apply(meterSeries);
+        }
+    }
+
+    /**
+     * Drops the series whose last reading is older than the cutoff.
+     *
+     * @param cutoff epoch milliseconds
+     * @return number of dropped series
+     */
+    public int evictBefore(long cutoff) {
+        int evicted = 0;
+        for (Map.Entry<UUID, MeterSeries> entry : series.entrySet()) {
+            MeterSeries meterSeries = entry.getValue();
+            synchronized (meterSeries) {
+                // readings may have been appended since the entry was read
+                if (meterSeries.lastTime() < cutoff && series.remove(entry.getKey(), meterSeries)) {
+                    readings.addAndGet(-meterSeries.count());
+                    evicted++;
+                }
+            }
+        }
+        if (evicted > 0) {
+            log.info("Dropped the meter readings of {} charging sessions", evicted);
+        }
+        return evicted;
+    }
+
+    /**
+     * Time Complexity - O(n), n being the number of sessions with readings
+     *
+     * @return bytes taken by the encoded readings
+     */
+    public long encodedBytes() {
+        long bytes = 0;
+        for (MeterSeries meterSeries : series.values()) {
+            bytes += meterSeries.encodedBytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public void close() {
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+    }
+
+}
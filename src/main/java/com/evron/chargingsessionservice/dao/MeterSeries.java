@@ -0,0 +1,236 @@
+package com.evron.chargingsessionservice.dao;
+
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Energy meter readings of one charging session, stored as a delta-encoded
+ * byte array instead of one object per reading.
+ * <p>
+ * The first reading is kept as is. Every following reading is appended as two
+ * variable-length integers: the change of the time step since the previous
+ * reading (zigzag encoded), then the energy delivered since the previous
+ * reading. A charger reporting at a steady rate has a time step change of
+ * zero, so a reading typically takes two bytes, against more than a hundred
+ * for a boxed timestamp and value in a list.
+ * <p>
+ * Times are in epoch milliseconds and meter values in Wh. Readings must come
+ * in time order with a meter value which never decreases, so both deltas are
+ * small; the first and last readings are kept decoded, so totals are answered
+ * without decoding the series. All methods are synchronized: one charger
+ * appends while any number of readers decode.
+ */
+public final class MeterSeries {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private long firstTime;
+
+    private long firstWh;
+
+    private long lastTime;
+
+    private long lastWh;
+
+    /**
+     * Time between the last two readings, the base of the next time delta
+     */
+    private long lastStep;
+
+    private int count;
+
+    private byte[] data = new byte[INITIAL_CAPACITY];
+
+    private int length;
+
+    /**
+     * Appends readings after the stored ones, all of them or none. A reading
+     * repeating the time and meter value of the previous one is a retry of the
+     * charger and is ignored.
+     *
+     * @param times       reading times in epoch milliseconds, in time order
+     * @param wattHours   meter values in Wh, never decreasing
+     * @param maxReadings number of readings the series may hold at most
+     * @return number of readings appended
+     * @throws IllegalArgumentException if a reading is out of order or the
+     *                                  series would exceed {@code maxReadings}
+     */
+    public synchronized int append(long[] times, long[] wattHours, int maxReadings) {
+        return append(times, wattHours, maxReadings, () -> true);
+    }
+
+    /**
+     * Appends readings like {@link #append(long[], long[], int)}, then checks
+     * whether they are still accepted, and removes them again if not. The
+     * check runs under the lock of the series once the readings are written,
+     * so a change of what it checks happens either after the whole append or
+     * before it, and readers never see readings removed again.
+     *
+     * @param times       reading times in epoch milliseconds, in time order
+     * @param wattHours   meter values in Wh, never decreasing
+     * @param maxReadings number of readings the series may hold at most
+     * @param accepted    whether the written readings are kept
+     * @return number of readings appended
+     * @throws IllegalArgumentException if a reading is out of order or the
+     *                                  series would exceed {@code maxReadings}
+     * @throws IllegalStateException    if the readings are not accepted
+     */
+    public synchronized int append(long[] times, long[] wattHours, int maxReadings, BooleanSupplier accepted) {
+        int appended = 0;
+        long time = lastTime;
+        long wh = lastWh;
+        boolean empty = count == 0;
+        for (int i = 0; i < times.length; i++) {
+            if (!empty) {
+                if (times[i] == time && wattHours[i] == wh) {
+                    continue;
+                }
+                if (times[i] <= time) {
+                    throw new IllegalArgumentException("Readings must be in time order");
+                }
+                if (wattHours[i] < wh) {
+                    throw new IllegalArgumentException("Meter value must not decrease");
+                }
+            }
+            empty = false;
+            time = times[i];
+            wh = wattHours[i];
+            appended++;
+        }
+        if (count + appended > maxReadings) {
+            throw new IllegalArgumentException(String.format("A session holds %d readings at most", maxReadings));
+        }
+        long previousFirstTime = firstTime;
+        long previousFirstWh = firstWh;
+        long previousLastTime = lastTime;
+        long previousLastWh = lastWh;
+        long previousLastStep = lastStep;
+        int previousCount = count;
+        int previousLength = length;
+        for (int i = 0; i < times.length; i++) {
+            add(times[i], wattHours[i]);
+        }
+        if (!accepted.getAsBoolean()) {
+            firstTime = previousFirstTime;
+            firstWh = previousFirstWh;
+            lastTime = previousLastTime;
+            lastWh = previousLastWh;
+            lastStep = previousLastStep;
+            count = previousCount;
+            length = previousLength;
+            throw new IllegalStateException("Readings are no longer accepted");
+        }
+        return appended;
+    }
+
+    /**
+     * Decodes the readings in time order, without materializing them.
+     * <p>
+     * Time Complexity - O(n)
+     *
+     * @param visitor receives every reading
+     */
+    public synchronized void forEach(ReadingVisitor visitor) {
+        if (count == 0) {
+            return;
+        }
+        long time = firstTime;
+        long wh = firstWh;
+        long step = 0;
+        visitor.visit(time, wh);
+        int position = 0;
+        while (position < length) {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            step += (value >>> 1) ^ -(value & 1);
+            time += step;
+            value = 0;
+            shift = 0;
+            do {
+                b = data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            wh += value;
+            visitor.visit(time, wh);
+        }
+    }
+
+    public synchronized int count() {
+        return count;
+    }
+
+    public synchronized long firstTime() {
+        return firstTime;
+    }
+
+    public synchronized long lastTime() {
+        return lastTime;
+    }
+
+    /**
+     * @return energy delivered between the first and the last reading, in Wh
+     */
+    public synchronized long energyWh() {
+        return lastWh - firstWh;
+    }
+
+    /**
+     * @return bytes taken by the encoded readings
+     */
+    public synchronized int encodedBytes() {
+        return length;
+    }
+
+    private void add(long time, long wh) {
+        if (count == 0) {
+            firstTime = time;
+            firstWh = wh;
+        } else if (time == lastTime && wh == lastWh) {
+            return;
+        } else {
+            long step = time - lastTime;
+            long stepChange = step - lastStep;
+            ensureCapacity(20);
+            writeVarLong((stepChange << 1) ^ (stepChange >> 63));
+            writeVarLong(wh - lastWh);
+            lastStep = step;
+        }
+        lastTime = time;
+        lastWh = wh;
+        count++;
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (length + bytes > data.length) {
+            data = Arrays.copyOf(data, Math.max(length + bytes, data.length + (data.length >> 1)));
+        }
+    }
+
+    private void writeVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            data[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[length++] = (byte) value;
+    }
+
+    /**
+     * Receiver of decoded readings.
+     */
+    public interface ReadingVisitor {
+
+        /**
+         * @param time epoch milliseconds of the reading
+         * @param wh   meter value in Wh
+         */
+        void visit(long time, long wh);
+    }
+
+}
@@ -0,0 +1,155 @@
+package com.evron.chargingsessionservice.dao;
+
+import com.evron.chargingsessionservice.model.ChargingSession;
+import com.evron.chargingsessionservice.model.ChargingSession.SessionStatus;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+/**
+ * Compact binary encoding of a {@link ChargingSession}, shared by the journal
+ * and snapshot files. Layout of an encoded session:
+ *
+ * <pre>
+ * long   id most significant bits
+ * long   id least significant bits
+ * long   startedAt epoch second (UTC)
+ * int    startedAt nano
+ * byte   status ordinal
+ * byte   1 if stoppedAt follows, 0 otherwise
+ * long   stoppedAt epoch second (UTC)  - optional
+ * int    stoppedAt nano                - optional
+ * short  stationId length in bytes
+ * byte[] stationId UTF-8
+ * </pre>
+ */
+final class SessionCodec {
+
+    /**
+     * Encoded size of a session without its stationId bytes, assuming stoppedAt is present
+     */
+    static final int MAX_FIXED_SIZE = 8 + 8 + 8 + 4 + 1 + 1 + 8 + 4 + 2;
+
+    private static final SessionStatus[] STATUSES = SessionStatus.values();
+
+    private SessionCodec() {
+    }
+
+    /**
+     * Returns the number of bytes {@link #encode(ChargingSession, ByteBuffer)}
+     * writes for the session.
+     *
+     * @param stationId UTF-8 bytes of the session stationId
+     * @param session   {@code ChargingSession} to encode
+     * @return encoded size in bytes
+     */
+    static int encodedSize(byte[] stationId, ChargingSession session) {
+        int size = MAX_FIXED_SIZE + stationId.length;
+        return session.getStoppedAt() == null ? size - 12 : size;
+    }
+
+    /**
+     * Encodes the session at the buffer position.
+     *
+     * @param stationId UTF-8 bytes of the session stationId, see {@link #stationIdBytes}
+     * @param session   {@code ChargingSession} to encode
+     * @param buffer    target with at least {@link #encodedSize} bytes remaining
+     */
+    static void encode(byte[] stationId, ChargingSession session, ByteBuffer buffer) {
+        buffer.putLong(session.getId().getMostSignificantBits());
+        buffer.putLong(session.getId().getLeastSignificantBits());
+        putDateTime(session.getStartedAt(), buffer);
+        buffer.put((byte) session.getStatus().ordinal());
+        if (session.getStoppedAt() != null) {
+            buffer.put((byte) 1);
+            putDateTime(session.getStoppedAt(), buffer);
+        } else {
+            buffer.put((byte) 0);
+        }
+        buffer.putShort((short) stationId.length);
+        buffer.put(stationId);
+    }
+
+    /**
+     * Decodes a session at the buffer position.
+     *
+     * @param buffer source positioned at an encoded session
+     * @return decoded {@code ChargingSession}
+     */
+    static ChargingSession decode(ByteBuffer buffer) {
+        UUID id = new UUID(buffer.getLong(), buffer.getLong());
+        LocalDateTime startedAt = getDateTime(buffer);
+        SessionStatus status = STATUSES[buffer.get()];
+        LocalDateTime stoppedAt = buffer.get() == 1 ? getDateTime(buffer) : null;
+        byte[] stationId = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(stationId);
+        return new ChargingSession(id, new String(stationId, StandardCharsets.UTF_8), startedAt, stoppedAt, status);
+    }
+
+    /**
+     * Decodes the id of a session at the buffer position, leaving the buffer
+     * positioned at the rest of the session, see {@link #decodeCompact}.
+     *
+     * @param buffer source positioned at an encoded session
+     * @return id of the session
+     */
+    static UUID decodeId(ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * Decodes the rest of a session straight into its storage representation,
+     * without building the {@link LocalDateTime}s of a {@code ChargingSession}.
+     *
+     * @param buffer   source positioned past the id of an encoded session
+     * @param stations codes of the stationIds, of the calling thread
+     * @return decoded {@code CompactSession}
+     */
+    static CompactSession decodeCompact(ByteBuffer buffer, StationDictionary.Utf8Codes stations) {
+        long startedAt = CompactSession.toEpochNanos(buffer.getLong(), buffer.getInt());
+        byte status = CompactSession.encodeStatus(STATUSES[buffer.get()]);
+        long stoppedAt = buffer.get() == 1 ? CompactSession.toEpochNanos(buffer.getLong(), buffer.getInt())
+                : CompactSession.NO_TIME;
+        int station = stations.encode(buffer, buffer.getShort() & 0xFFFF);
+        return new CompactSession(startedAt, stoppedAt, station, status);
+    }
+
+    /**
+     * Moves the buffer position past the encoded session, without decoding it.
+     *
+     * @param buffer source positioned at an encoded session
+     */
+    static void skip(ByteBuffer buffer) {
+        int position = buffer.position() + 8 + 8 + 8 + 4 + 1;
+        if (buffer.get(position++) == 1) {
+            position += 8 + 4;
+        }
+        buffer.position(position + 2 + (buffer.getShort(position) & 0xFFFF));
+    }
+
+    /**
+     * @param session {@code ChargingSession} to encode
+     * @return UTF-8 bytes of the session stationId
+     * @throws IllegalArgumentException if the stationId does not fit the length field
+     */
+    static byte[] stationIdBytes(ChargingSession session) {
+        byte[] bytes = session.getStationId().getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("stationId is too long to be stored");
+        }
+        return bytes;
+    }
+
+    private static void putDateTime(LocalDateTime dateTime, ByteBuffer buffer) {
+        buffer.putLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(dateTime.getNano());
+    }
+
+    private static LocalDateTime getDateTime(ByteBuffer buffer) {
+        return LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+    }
+
+}
@@ -0,0 +1,449 @@
+package com.evron.chargingsessionservice.dao;
+
+import com.evron.chargingsessionservice.exception.SessionStorageException;
+import com.evron.chargingsessionservice.model.ChargingSession;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only journal of saved {@link ChargingSession}s, written through a
+ * {@link FileChannel}. Every save of the DAO appends the full session state, so
+ * replaying the journal in order rebuilds the store after a restart.
+ * <p>
+ * The journal is split into numbered segment files. {@link #rotate()} starts a
+ * new segment, which lets a snapshot mark the point from which the journal has
+ * to be replayed and lets older segments be deleted once a snapshot covers them.
+ * <p>
+ * Each record is framed as {@code int length, int crc32, payload} where the
+ * payload is a {@link SessionCodec} encoded session. Replay stops at the first
+ * torn or corrupted record and truncates the last segment there. An append
+ * whose write fails is cut off again right away, so that records appended
+ * after it are not hidden behind a torn one; if that is impossible the journal
+ * refuses further appends.
+ * <p>
+ * Durability is governed by {@link FsyncPolicy}. With {@link FsyncPolicy#ALWAYS}
+ * writers wait for an fsync covering their record; concurrent writers share a
+ * single fsync (group commit), so throughput scales with the number of writers
+ * rather than being capped at one fsync per save.
+ */
+@Slf4j
+public class SessionJournal implements Closeable {
+
+    /**
+     * When the journal is forced to disk.
+     */
+    public enum FsyncPolicy {
+
+        /**
+         * Every append returns once it is on disk; concurrent appends are group committed.
+         */
+        ALWAYS,
+        /**
+         * Appends return immediately; the journal is forced to disk periodically.
+         */
+        INTERVAL,
+        /**
+         * The journal is never forced explicitly; flushing is left to the OS.
+         */
+        NEVER;
+    }
+
+    static final String SEGMENT_PREFIX = "sessions-";
+
+    static final String SEGMENT_SUFFIX = ".journal";
+
+    private static final int HEADER_SIZE = 8;
+
+    private final Path directory;
+
+    private final FsyncPolicy fsyncPolicy;
+
+    private final ScheduledExecutorService syncScheduler;
+
+    private final Object writeLock = new Object();
+
+    private final Object syncLock = new Object();
+
+    private final CRC32 crc = new CRC32();
+
+    private ByteBuffer writeBuffer = ByteBuffer.allocateDirect(4096);
+
+    /**
+     * Open segment, replaced under both locks on rotation
+     */
+    private volatile FileChannel channel;
+
+    /**
+     * Sequence number of the open segment, guarded by {@code writeLock}
+     */
+    private long segment;
+
+    /**
+     * Logical offset of the open segment start across all segments, guarded by {@code writeLock}
+     */
+    private long segmentBase;
+
+    /**
+     * Logical end of the last appended record, guarded by {@code writeLock}
+     */
+    private volatile long writtenPosition;
+
+    /**
+     * Logical end of the last record known to be on disk, guarded by {@code syncLock}
+     */
+    private volatile long durablePosition;
+
+    /**
+     * Set when a failed write could not be cut off, after which appends are refused
+     */
+    private volatile IOException failure;
+
+    /**
+     * Opens the newest journal segment in the directory, creating the first one
+     * if the directory holds none.
+     *
+     * @param directory       journal directory
+     * @param fsyncPolicy     {@link FsyncPolicy}
+     * @param fsyncIntervalMs period of background fsync for {@link FsyncPolicy#INTERVAL}
+     * @throws SessionStorageException if the journal cannot be opened
+     */
+    public SessionJournal(Path directory, FsyncPolicy fsyncPolicy, long fsyncIntervalMs) {
+        this.directory = directory;
+        this.fsyncPolicy = fsyncPolicy;
+        try {
+            Files.createDirectories(directory);
+            List<Long> segments = StorageFiles.list(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX);
+            segment = segments.isEmpty() ? 1 : segments.get(segments.size() - 1);
+            channel = openSegment(segment);
+            writtenPosition = channel.position();
+            durablePosition = writtenPosition;
+        } catch (IOException e) {
+            throw new SessionStorageException("Unable to open journal in " + directory, e);
+        }
+        if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+            syncScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "session-journal-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncScheduler.scheduleWithFixedDelay(this::syncQuietly, fsyncIntervalMs, fsyncIntervalMs,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            syncScheduler = null;
+        }
+    }
+
+    /**
+     * Replays every intact record of the segments numbered {@code fromSegment}
+     * and above, in write order, and positions the journal for appending after
+     * the last one. A torn tail left by a crash is truncated.
+     *
+     * @param fromSegment first segment to replay, {@code 0} for all
+     * @param consumer    receives the replayed sessions
+     * @return number of replayed records
+     * @throws SessionStorageException if a segment cannot be read
+     */
+    public long replay(long fromSegment, Consumer<ChargingSession> consumer) {
+        synchronized (writeLock) {
+            try {
+                long records = 0;
+                for (long number : StorageFiles.list(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+                    if (number < fromSegment) {
+                        continue;
+                    }
+                    if (number == segment) {
+                        records += replaySegment(channel, number, consumer);
+                    } else {
+                        try (FileChannel closed = FileChannel.open(segmentPath(number), StandardOpenOption.READ)) {
+                            records += replaySegment(closed, number, consumer);
+                        }
+                    }
+                }
+                writtenPosition = segmentBase + channel.position();
+                durablePosition = writtenPosition;
+                return records;
+            } catch (IOException e) {
+                throw new SessionStorageException("Unable to replay journal in " + directory, e);
+            }
+        }
+    }
+
+    /**
+     * Appends the session state to the journal. Depending on the
+     * {@link FsyncPolicy} the call returns once the record is on disk.
+     *
+     * @param session saved {@link ChargingSession}
+     * @throws SessionStorageException if the record cannot be written
+     */
+    public void append(ChargingSession session) {
+        appendAll(Collections.singletonList(session));
+    }
+
+    /**
+     * Appends the states of several sessions with a single write and, with
+     * {@link FsyncPolicy#ALWAYS}, a single fsync.
+     *
+     * @param sessions saved {@link ChargingSession}s, in save order
+     * @throws SessionStorageException if the records cannot be written
+     */
+    public void appendAll(List<ChargingSession> sessions) {
+        byte[][] stationIds = new byte[sessions.size()][];
+        int size = 0;
+        for (int i = 0; i < stationIds.length; i++) {
+            stationIds[i] = SessionCodec.stationIdBytes(sessions.get(i));
+            size += HEADER_SIZE + SessionCodec.encodedSize(stationIds[i], sessions.get(i));
+        }
+        long end;
+        synchronized (writeLock) {
+            if (failure != null) {
+                throw new SessionStorageException("Journal in " + directory + " refuses appends after a failed write",
+                        failure);
+            }
+            long appendStart = -1;
+            try {
+                if (writeBuffer.capacity() < size) {
+                    writeBuffer = ByteBuffer.allocateDirect(size);
+                }
+                ByteBuffer buffer = writeBuffer;
+                buffer.clear();
+                for (int i = 0; i < stationIds.length; i++) {
+                    int start = buffer.position();
+                    buffer.position(start + HEADER_SIZE);
+                    SessionCodec.encode(stationIds[i], sessions.get(i), buffer);
+                    int next = buffer.position();
+                    buffer.limit(next).position(start + HEADER_SIZE);
+                    crc.reset();
+                    crc.update(buffer);
+                    buffer.limit(buffer.capacity());
+                    buffer.putInt(start, next - start - HEADER_SIZE).putInt(start + 4, (int) crc.getValue());
+                    buffer.position(next);
+                }
+                buffer.flip();
+                appendStart = channel.position();
+                while (buffer.hasRemaining()) {
+                    write(channel, buffer);
+                }
+                end = segmentBase + channel.position();
+                writtenPosition = end;
+            } catch (IOException e) {
+                if (appendStart >= 0) {
+                    discardTornWrite(appendStart, e);
+                }
+                throw new SessionStorageException("Unable to append to journal in " + directory, e);
+            }
+        }
+        if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+            sync(end);
+        }
+    }
+
+    /**
+     * Closes the open segment and starts the next one. Every record appended
+     * before the call is in a segment numbered below the returned one.
+     *
+     * @return sequence number of the new segment
+     * @throws SessionStorageException if the segments cannot be switched
+     */
+    public long rotate() {
+        synchronized (writeLock) {
+            synchronized (syncLock) {
+                try {
+                    FileChannel previous = channel;
+                    if (fsyncPolicy != FsyncPolicy.NEVER) {
+                        previous.force(false);
+                    }
+                    FileChannel next = openSegment(segment + 1);
+                    segmentBase += previous.position();
+                    segment++;
+                    channel = next;
+                    previous.close();
+                    durablePosition = writtenPosition;
+                    return segment;
+                } catch (IOException e) {
+                    throw new SessionStorageException("Unable to rotate journal in " + directory, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes the segments numbered below the given one. The open segment is
+     * never deleted.
+     *
+     * @param beforeSegment first segment to keep
+     * @return number of deleted segments
+     */
+    public int deleteSegmentsBefore(long beforeSegment) {
+        long limit;
+        synchronized (writeLock) {
+            limit = Math.min(beforeSegment, segment);
+        }
+        int deleted = 0;
+        for (long number : StorageFiles.list(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            if (number < limit && StorageFiles.deleteQuietly(segmentPath(number))) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Forces every record appended so far to disk.
+     *
+     * @throws SessionStorageException if the journal cannot be forced
+     */
+    public void sync() {
+        sync(writtenPosition);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (syncScheduler != null) {
+            syncScheduler.shutdownNow();
+        }
+        synchronized (writeLock) {
+            synchronized (syncLock) {
+                if (channel.isOpen()) {
+                    if (fsyncPolicy != FsyncPolicy.NEVER) {
+                        channel.force(false);
+                    }
+                    channel.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Group commit: a writer that finds its record already covered by a previous
+     * fsync returns without forcing again.
+     *
+     * @param position logical end of the record which must be durable
+     */
+    private void sync(long position) {
+        if (durablePosition >= position) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (durablePosition >= position) {
+                return;
+            }
+            long target = writtenPosition;
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                throw new SessionStorageException("Unable to sync journal in " + directory, e);
+            }
+            durablePosition = target;
+        }
+    }
+
+    /**
+     * Writes the buffer to the open segment, possibly only partially.
+     *
+     * @param target open segment
+     * @param buffer records to write
+     * @throws IOException if the write fails, possibly after part of the buffer was written
+     */
+    void write(FileChannel target, ByteBuffer buffer) throws IOException {
+        target.write(buffer);
+    }
+
+    /**
+     * Cuts the open segment back to where a failed append started, so that the
+     * torn bytes do not end replay before the records appended afterwards. If
+     * that fails too, the journal refuses all further appends.
+     *
+     * @param start segment position the failed append started at
+     * @param cause failure of the append
+     */
+    private void discardTornWrite(long start, IOException cause) {
+        try {
+            channel.truncate(start);
+            channel.position(start);
+        } catch (IOException e) {
+            e.addSuppressed(cause);
+            failure = e;
+            log.error("Unable to discard torn append to journal segment {}, refusing further appends", segment, e);
+        }
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (SessionStorageException e) {
+            log.error("Periodic journal sync failed", e);
+        }
+    }
+
+    private long replaySegment(FileChannel segmentChannel, long number, Consumer<ChargingSession> consumer)
+            throws IOException {
+        long size = segmentChannel.size();
+        long position = 0;
+        long records = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        ByteBuffer payload = ByteBuffer.allocate(256);
+        while (position + HEADER_SIZE <= size) {
+            header.clear();
+            StorageFiles.readFully(segmentChannel, header, position);
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length <= 0 || position + HEADER_SIZE + length > size) {
+                break;
+            }
+            if (payload.capacity() < length) {
+                payload = ByteBuffer.allocate(length);
+            }
+            payload.clear().limit(length);
+            StorageFiles.readFully(segmentChannel, payload, position + HEADER_SIZE);
+            crc.reset();
+            crc.update(payload.array(), 0, length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            payload.flip();
+            consumer.accept(SessionCodec.decode(payload));
+            position += HEADER_SIZE + length;
+            records++;
+        }
+        if (position < size) {
+            if (number == segment) {
+                log.warn("Truncating journal segment {} at {} of {} bytes, tail is incomplete", number, position, size);
+                segmentChannel.truncate(position);
+            } else {
+                log.warn("Ignoring {} trailing bytes of journal segment {}", size - position, number);
+            }
+        }
+        if (number == segment) {
+            segmentChannel.position(position);
+        }
+        return records;
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        FileChannel opened = FileChannel.open(segmentPath(number), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        opened.position(opened.size());
+        return opened;
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(StorageFiles.name(SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+}
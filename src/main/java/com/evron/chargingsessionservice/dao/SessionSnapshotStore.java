@@ -0,0 +1,311 @@
+package com.evron.chargingsessionservice.dao;
+
+import com.evron.chargingsessionservice.exception.SessionStorageException;
+import com.evron.chargingsessionservice.model.ChargingSession;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Point-in-time binary snapshots of the session store. A snapshot is named
+ * after the journal segment from which replay has to continue after loading it.
+ * Layout of a snapshot file:
+ *
+ * <pre>
+ * int  magic
+ * int  format version
+ * long journal segment
+ * block*            int payload length, int session count, int crc32, payload
+ * int  0            end marker
+ * </pre>
+ * <p>
+ * Payloads are {@link SessionCodec} encoded sessions. Splitting the file into
+ * independently checksummed blocks lets {@link #loadLatest(Consumer)} decode
+ * blocks in parallel. Snapshots are written to a temporary file and renamed
+ * once complete, so a crash never leaves a partial snapshot behind.
+ */
+@Slf4j
+public class SessionSnapshotStore {
+
+    static final String SNAPSHOT_PREFIX = "snapshot-";
+
+    static final String SNAPSHOT_SUFFIX = ".snap";
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final int MAGIC = 0x43534E50;
+
+    private static final int VERSION = 1;
+
+    private static final int FILE_HEADER_SIZE = 16;
+
+    private static final int BLOCK_HEADER_SIZE = 12;
+
+    /**
+     * Target payload size of a block
+     */
+    private static final int BLOCK_SIZE = 1 << 20;
+
+    private final Path directory;
+
+    private final int retainedSnapshots;
+
+    /**
+     * @param directory         directory holding the snapshot files
+     * @param retainedSnapshots number of newest snapshots kept by {@link #prune()}
+     */
+    public SessionSnapshotStore(Path directory, int retainedSnapshots) {
+        this.directory = directory;
+        this.retainedSnapshots = Math.max(1, retainedSnapshots);
+    }
+
+    /**
+     * Writes a snapshot of the given sessions. The collection may change while
+     * it is written; replaying the journal from {@code journalSegment} on top of
+     * the snapshot restores every change made since the segment was started.
+     *
+     * @param sessions       weakly consistent view of the stored sessions
+     * @param journalSegment journal segment started before the sessions are read
+     * @return number of sessions written
+     * @throws SessionStorageException if the snapshot cannot be written
+     */
+    public long write(Iterable<ChargingSession> sessions, long journalSegment) {
+        String name = StorageFiles.name(SNAPSHOT_PREFIX, journalSegment, SNAPSHOT_SUFFIX);
+        Path temp = directory.resolve(name + TEMP_SUFFIX);
+        long count = 0;
+        try {
+            Files.createDirectories(directory);
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+                header.putInt(MAGIC).putInt(VERSION).putLong(journalSegment).flip();
+                writeFully(channel, header);
+
+                ByteBuffer block = ByteBuffer.allocate(BLOCK_HEADER_SIZE + BLOCK_SIZE);
+                CRC32 crc = new CRC32();
+                int blockCount = 0;
+                block.position(BLOCK_HEADER_SIZE);
+                for (ChargingSession session : sessions) {
+                    byte[] stationId = SessionCodec.stationIdBytes(session);
+                    int size = SessionCodec.encodedSize(stationId, session);
+                    if (block.remaining() < size) {
+                        writeBlock(channel, block, blockCount, crc);
+                        blockCount = 0;
+                    }
+                    SessionCodec.encode(stationId, session, block);
+                    blockCount++;
+                    count++;
+                }
+                if (blockCount > 0) {
+                    writeBlock(channel, block, blockCount, crc);
+                }
+                ByteBuffer end = ByteBuffer.allocate(4);
+                end.putInt(0).flip();
+                writeFully(channel, end);
+                channel.force(true);
+            }
+            Files.move(temp, directory.resolve(name), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            StorageFiles.deleteQuietly(temp);
+            throw new SessionStorageException("Unable to write snapshot " + name, e);
+        }
+        return count;
+    }
+
+    /**
+     * Loads the newest readable snapshot, decoding its blocks in parallel. A
+     * torn or corrupted snapshot is skipped in favour of the next older one.
+     * Sessions already passed on from the skipped snapshot are harmless: the
+     * older snapshot and the journal from its segment on, which is kept as long
+     * as the snapshot is, restore them or a newer state of them.
+     *
+     * @param consumer receives the loaded sessions; called concurrently, so it
+     *                 must be thread-safe
+     * @return journal segment from which replay has to continue, {@code 0} if
+     * there is no snapshot
+     * @throws SessionStorageException if no snapshot can be read
+     */
+    public long loadLatest(Consumer<ChargingSession> consumer) {
+        return loadLatest((payload, first, count) -> {
+            for (int i = 0; i < count; i++) {
+                consumer.accept(SessionCodec.decode(payload));
+            }
+        });
+    }
+
+    /**
+     * Loads the newest readable snapshot like {@link #loadLatest(Consumer)},
+     * handing the checksummed payload of each block to the decoder. The decoder
+     * is started again for every snapshot tried, so it can drop what it decoded
+     * from a snapshot found unreadable.
+     *
+     * @param decoder receives the blocks of the snapshots tried
+     * @return journal segment from which replay has to continue, {@code 0} if
+     * there is no snapshot
+     * @throws SessionStorageException if no snapshot can be read
+     */
+    long loadLatest(BlockDecoder decoder) {
+        List<Long> snapshots = StorageFiles.list(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        SessionStorageException failure = null;
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            Path file = directory.resolve(StorageFiles.name(SNAPSHOT_PREFIX, snapshots.get(i), SNAPSHOT_SUFFIX));
+            try {
+                return load(file, decoder);
+            } catch (SessionStorageException e) {
+                log.warn("Skipping unreadable snapshot {}", file, e);
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return 0;
+    }
+
+    private long load(Path file, BlockDecoder decoder) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+            StorageFiles.readFully(channel, header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Unsupported snapshot format");
+            }
+            long journalSegment = header.getLong();
+
+            List<long[]> blocks = new ArrayList<>();
+            ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+            long position = FILE_HEADER_SIZE;
+            long sessions = 0;
+            while (true) {
+                blockHeader.clear().limit(4);
+                StorageFiles.readFully(channel, blockHeader, position);
+                int length = blockHeader.getInt(0);
+                if (length == 0) {
+                    break;
+                }
+                blockHeader.limit(BLOCK_HEADER_SIZE);
+                StorageFiles.readFully(channel, blockHeader, position + 4);
+                int count = blockHeader.getInt(4);
+                blocks.add(new long[]{position + BLOCK_HEADER_SIZE, length, count, blockHeader.getInt(8), sessions});
+                position += BLOCK_HEADER_SIZE + length;
+                sessions += count;
+            }
+            if (sessions > Integer.MAX_VALUE) {
+                throw new IOException("Too many sessions in snapshot");
+            }
+            decoder.start((int) sessions);
+
+            // every block is waited for, so none is still being decoded once an older snapshot is loaded
+            AtomicReference<SessionStorageException> failure = new AtomicReference<>();
+            blocks.parallelStream().forEach(block -> {
+                if (failure.get() == null) {
+                    try {
+                        decodeBlock(channel, file, block, decoder);
+                    } catch (SessionStorageException e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            });
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+            return journalSegment;
+        } catch (IOException e) {
+            throw new SessionStorageException("Unable to load snapshot " + file, e);
+        }
+    }
+
+    /**
+     * Deletes all but the newest retained snapshots, and leftovers of
+     * interrupted snapshot writes.
+     *
+     * @return journal segment of the oldest retained snapshot, before which the
+     * journal is no longer needed; {@code 0} if there is no snapshot
+     */
+    public long prune() {
+        for (long number : StorageFiles.list(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX + TEMP_SUFFIX)) {
+            StorageFiles.deleteQuietly(directory.resolve(
+                    StorageFiles.name(SNAPSHOT_PREFIX, number, SNAPSHOT_SUFFIX + TEMP_SUFFIX)));
+        }
+        List<Long> snapshots = StorageFiles.list(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        int obsolete = Math.max(0, snapshots.size() - retainedSnapshots);
+        for (int i = 0; i < obsolete; i++) {
+            StorageFiles.deleteQuietly(directory.resolve(
+                    StorageFiles.name(SNAPSHOT_PREFIX, snapshots.get(i), SNAPSHOT_SUFFIX)));
+        }
+        return snapshots.isEmpty() ? 0 : snapshots.get(obsolete);
+    }
+
+    private void decodeBlock(FileChannel channel, Path file, long[] block, BlockDecoder decoder) {
+        ByteBuffer payload = ByteBuffer.allocate((int) block[1]);
+        try {
+            StorageFiles.readFully(channel, payload, block[0]);
+        } catch (IOException e) {
+            throw new SessionStorageException("Unable to load snapshot " + file, e);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload.array(), 0, payload.capacity());
+        if ((int) crc.getValue() != (int) block[3]) {
+            throw new SessionStorageException("Corrupted block in snapshot " + file, null);
+        }
+        payload.flip();
+        decoder.decode(payload, (int) block[4], (int) block[2]);
+    }
+
+    private void writeBlock(FileChannel channel, ByteBuffer block, int count, CRC32 crc) throws IOException {
+        int length = block.position() - BLOCK_HEADER_SIZE;
+        crc.reset();
+        crc.update(block.array(), BLOCK_HEADER_SIZE, length);
+        block.putInt(0, length).putInt(4, count).putInt(8, (int) crc.getValue());
+        block.flip();
+        writeFully(channel, block);
+        block.clear().position(BLOCK_HEADER_SIZE);
+    }
+
+    private void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Decoder of the {@link SessionCodec} encoded sessions of snapshot blocks.
+     */
+    interface BlockDecoder {
+
+        /**
+         * Called before the blocks of a snapshot are decoded.
+         *
+         * @param sessions number of sessions in the snapshot
+         */
+        default void start(int sessions) {
+        }
+
+        /**
+         * Decodes the sessions of one block; called concurrently for different
+         * blocks, so it must be thread-safe.
+         *
+         * @param payload sessions of the block
+         * @param first   number of sessions in the blocks before, in file order
+         * @param count   number of sessions in the block
+         */
+        void decode(ByteBuffer payload, int first, int count);
+    }
+
+}
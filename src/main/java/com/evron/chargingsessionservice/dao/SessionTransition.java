@@ -0,0 +1,25 @@
+package com.evron.chargingsessionservice.dao;
+
+import com.evron.chargingsessionservice.model.ChargingSession;
+
+import lombok.Value;
+
+/**
+ * Outcome of a lifecycle transition of a stored session, such as
+ * {@link ChargingSessionDao#stop(java.util.UUID, java.time.LocalDateTime)}.
+ */
+@Value
+public class SessionTransition {
+
+    /**
+     * Session as stored after the call
+     */
+    ChargingSession session;
+
+    /**
+     * {@code true} if this call changed the session, {@code false} if it was
+     * already in the target state
+     */
+    boolean applied;
+
+}
@@ -0,0 +1,43 @@
+package com.evron.chargingsessionservice.dao;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Takes periodic snapshots of the {@link ChargingSessionDao} on a background
+ * thread.
+ */
+@Slf4j
+public class SnapshotScheduler implements Closeable {
+
+    private final ScheduledExecutorService executor;
+
+    /**
+     * @param dao        {@code ChargingSessionDao} to snapshot
+     * @param intervalMs delay between the end of a snapshot and the start of the next one
+     */
+    public SnapshotScheduler(ChargingSessionDao dao, long intervalMs) {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                dao.snapshot();
+            } catch (RuntimeException e) {
+                log.error("Periodic snapshot failed", e);
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+}
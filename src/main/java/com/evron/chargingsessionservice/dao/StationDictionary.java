@@ -0,0 +1,162 @@
+package com.evron.chargingsessionservice.dao;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-safe dictionary assigning a dense int code to every distinct
+ * stationId. Stored sessions keep the code, so each stationId is held once no
+ * matter how many sessions the station has.
+ */
+final class StationDictionary {
+
+    private final ConcurrentMap<String, Integer> codes = new ConcurrentHashMap<>();
+
+    /**
+     * stationIds by code; a code is only handed out after its slot is written
+     */
+    private volatile String[] names = new String[64];
+
+    /**
+     * Number of assigned codes, guarded by {@code this}
+     */
+    private int size;
+
+    /**
+     * @param stationId id of the charging station
+     * @return code of the stationId, assigned on first use
+     */
+    int encode(String stationId) {
+        Integer code = codes.get(stationId);
+        if (code != null) {
+            return code;
+        }
+        synchronized (this) {
+            code = codes.get(stationId);
+            if (code != null) {
+                return code;
+            }
+            String[] current = names;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+            }
+            current[size] = stationId;
+            names = current;
+            codes.put(stationId, size);
+            return size++;
+        }
+    }
+
+    /**
+     * @param code code returned by {@link #encode(String)}
+     * @return the stationId of the code
+     */
+    String decode(int code) {
+        return names[code];
+    }
+
+    /**
+     * @return number of distinct stationIds
+     */
+    int size() {
+        return codes.size();
+    }
+
+    /**
+     * @return new {@link Utf8Codes} resolving stationIds through this dictionary
+     */
+    Utf8Codes utf8Codes() {
+        return new Utf8Codes();
+    }
+
+    /**
+     * Codes of UTF-8 encoded stationIds, cached for a single thread: a stationId
+     * seen before is resolved from its bytes, without building its String.
+     */
+    final class Utf8Codes {
+
+        private byte[][] keys = new byte[64][];
+
+        private int[] values = new int[64];
+
+        private int size;
+
+        private Utf8Codes() {
+        }
+
+        /**
+         * Reads a UTF-8 encoded stationId at the buffer position.
+         *
+         * @param buffer source positioned at the stationId bytes
+         * @param length number of bytes of the stationId
+         * @return code of the stationId, assigned on first use
+         */
+        int encode(ByteBuffer buffer, int length) {
+            int start = buffer.position();
+            int slot = slot(hash(buffer, start, length));
+            while (keys[slot] != null) {
+                if (matches(keys[slot], buffer, start, length)) {
+                    buffer.position(start + length);
+                    return values[slot];
+                }
+                slot = (slot + 1) & (keys.length - 1);
+            }
+            byte[] key = new byte[length];
+            buffer.get(key);
+            int code = StationDictionary.this.encode(new String(key, StandardCharsets.UTF_8));
+            keys[slot] = key;
+            values[slot] = code;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+            return code;
+        }
+
+        private void grow() {
+            byte[][] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new byte[oldKeys.length * 2][];
+            values = new int[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                byte[] key = oldKeys[i];
+                if (key != null) {
+                    int slot = slot(hash(ByteBuffer.wrap(key), 0, key.length));
+                    while (keys[slot] != null) {
+                        slot = (slot + 1) & (keys.length - 1);
+                    }
+                    keys[slot] = key;
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+
+        private int slot(int hash) {
+            int mixed = hash * 0x9E3779B9;
+            return (mixed ^ mixed >>> 16) & (keys.length - 1);
+        }
+
+        private boolean matches(byte[] key, ByteBuffer buffer, int start, int length) {
+            if (key.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (key[i] != buffer.get(start + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int hash(ByteBuffer buffer, int start, int length) {
+            int hash = 0;
+            for (int i = 0; i < length; i++) {
+                hash = 31 * hash + buffer.get(start + i);
+            }
+            return hash;
+        }
+    }
+
+}
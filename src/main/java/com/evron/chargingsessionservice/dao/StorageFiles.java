@@ -0,0 +1,91 @@
+package com.evron.chargingsessionservice.dao;
+
+import com.evron.chargingsessionservice.exception.SessionStorageException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * File helpers shared by the journal and snapshot stores, which name their
+ * files {@code <prefix><zero padded sequence number><suffix>}.
+ */
+@Slf4j
+final class StorageFiles {
+
+    private StorageFiles() {
+    }
+
+    /**
+     * @return file name of the given sequence number
+     */
+    static String name(String prefix, long number, String suffix) {
+        return String.format("%s%019d%s", prefix, number, suffix);
+    }
+
+    /**
+     * Lists the sequence numbers of the matching files in the directory.
+     *
+     * @param directory directory to scan, may not exist yet
+     * @param prefix    file name prefix
+     * @param suffix    file name suffix
+     * @return ascending sequence numbers
+     * @throws SessionStorageException if the directory cannot be read
+     */
+    static List<Long> list(Path directory, String prefix, String suffix) {
+        List<Long> numbers = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return numbers;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    numbers.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+                } catch (NumberFormatException e) {
+                    log.warn("Ignoring unexpected file {}", file);
+                }
+            }
+        } catch (IOException e) {
+            throw new SessionStorageException("Unable to list " + directory, e);
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    /**
+     * @return {@code true} if the file was deleted
+     */
+    static boolean deleteQuietly(Path file) {
+        try {
+            return Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Unable to delete {}", file, e);
+            return false;
+        }
+    }
+
+    /**
+     * Reads from the channel until the buffer is full. The buffer's current
+     * position is filled from the given file position onwards.
+     *
+     * @throws IOException if the channel ends before the buffer is full
+     */
+    static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long offset = position - buffer.position();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+    }
+
+}
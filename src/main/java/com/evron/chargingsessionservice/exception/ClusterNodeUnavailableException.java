@@ -0,0 +1,13 @@
+package com.evron.chargingsessionservice.exception;
+
+public class ClusterNodeUnavailableException extends RuntimeException {
+
+    /**
+     * @param message exception message
+     * @param cause   failure calling the node
+     */
+    public ClusterNodeUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
@@ -1,5 +1,7 @@
 package com.evron.chargingsessionservice.exception;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -20,6 +22,7 @@ import java.util.stream.Collectors;
  * Controller advice acts as centralized exception handler for Charging session service
  */
 @ControllerAdvice
+@ConditionalOnWebApplication(type = Type.SERVLET)
 public class ExceptionControllerAdvice extends ResponseEntityExceptionHandler {
 
     @ExceptionHandler(InvalidInputParameterException.class)
@@ -44,6 +47,28 @@ public class ExceptionControllerAdvice extends ResponseEntityExceptionHandler {
         return new ResponseEntity<>(body, HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler(SessionEventsExpiredException.class)
+    public ResponseEntity<Object> handleSessionEventsExpiredException(
+            SessionEventsExpiredException ex, WebRequest request) {
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("message", ex.getMessage());
+
+        return new ResponseEntity<>(body, HttpStatus.GONE);
+    }
+
+    @ExceptionHandler(ClusterNodeUnavailableException.class)
+    public ResponseEntity<Object> handleClusterNodeUnavailableException(
+            ClusterNodeUnavailableException ex, WebRequest request) {
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("message", ex.getMessage());
+
+        return new ResponseEntity<>(body, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     @Override
     protected ResponseEntity<Object> handleMethodArgumentNotValid(
             MethodArgumentNotValidException ex, HttpHeaders headers,
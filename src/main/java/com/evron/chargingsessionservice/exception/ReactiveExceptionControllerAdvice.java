@@ -0,0 +1,44 @@
+package com.evron.chargingsessionservice.exception;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Centralized exception handler of the non-blocking mode, mapping service
+ * exceptions to the same responses as {@link ExceptionControllerAdvice}.
+ */
+@RestControllerAdvice
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveExceptionControllerAdvice {
+
+    @ExceptionHandler(InvalidInputParameterException.class)
+    public ResponseEntity<Object> handleInvalidInputParameterException(InvalidInputParameterException ex) {
+        return new ResponseEntity<>(body(ex), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(ChargingSessionNotFoundException.class)
+    public ResponseEntity<Object> handleChargingSessionNotFoundException(ChargingSessionNotFoundException ex) {
+        return new ResponseEntity<>(body(ex), HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler(SessionEventsExpiredException.class)
+    public ResponseEntity<Object> handleSessionEventsExpiredException(SessionEventsExpiredException ex) {
+        return new ResponseEntity<>(body(ex), HttpStatus.GONE);
+    }
+
+    private Map<String, Object> body(RuntimeException ex) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("message", ex.getMessage());
+        return body;
+    }
+
+}
@@ -0,0 +1,12 @@
+package com.evron.chargingsessionservice.exception;
+
+public class SessionEventsExpiredException extends RuntimeException {
+
+    /**
+     * @param message exception message
+     */
+    public SessionEventsExpiredException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,13 @@
+package com.evron.chargingsessionservice.exception;
+
+public class SessionStorageException extends RuntimeException {
+
+    /**
+     * @param message exception message
+     * @param cause   underlying I/O failure
+     */
+    public SessionStorageException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
@@ -0,0 +1,30 @@
+package com.evron.chargingsessionservice.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Model class for the outcome of one item of a batch request. Exactly one of
+ * {@code chargingSession} and {@code error} is present.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchItemResult {
+
+    /**
+     * Position of the item in the request array
+     */
+    private int index;
+
+    @JsonInclude(value = Include.NON_NULL)
+    private ChargingSession chargingSession;
+
+    @JsonInclude(value = Include.NON_NULL)
+    private String error;
+
+}
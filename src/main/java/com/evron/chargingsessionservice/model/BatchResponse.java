@@ -0,0 +1,39 @@
+package com.evron.chargingsessionservice.model;
+
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * Model class for response of a batch request. Serialized JSON would look like:
+ *
+ * <pre>
+ * {
+ * "succeeded": 1,
+ * "failed": 1,
+ * "results": [
+ * {
+ * "index": 0,
+ * "chargingSession": {
+ * "id": "2649d05c-2b82-4c9e-8460-782891f665c8",
+ * "stationId": "MNO-12345",
+ * "startedAt": "2021-03-15T14:44:24.2349397",
+ * "status": "IN_PROGRESS"
+ * }
+ * },
+ * {
+ * "index": 1,
+ * "error": "Incorrect/missing stationId"
+ * }
+ * ]
+ * }
+ * </pre>
+ */
+@Data
+public class BatchResponse {
+
+    private int succeeded;
+    private int failed;
+    private List<BatchItemResult> results;
+
+}
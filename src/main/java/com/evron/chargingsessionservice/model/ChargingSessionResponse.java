@@ -1,6 +1,8 @@
 package com.evron.chargingsessionservice.model;
 
 import com.evron.chargingsessionservice.service.ChargingSessionService;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
 
 import java.util.List;
 
@@ -19,12 +21,19 @@ import lombok.Data;
  * "startedAt": "2021-03-15T14:44:24.2349397",
  * "status": "IN_PROGRESS"
  * }
- * ]
+ * ],
+ * "nextCursor": "JknQXCuCTJ6EYHgokfZlyA"
  * }
  * </pre>
+ * <p>
+ * {@code nextCursor} is only present on paginated responses which have more
+ * sessions to fetch.
  */
 @Data
 public class ChargingSessionResponse {
 
     private List<ChargingSession> chargingSessions;
+
+    @JsonInclude(value = Include.NON_NULL)
+    private String nextCursor;
 }
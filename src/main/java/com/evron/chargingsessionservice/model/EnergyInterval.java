@@ -0,0 +1,35 @@
+package com.evron.chargingsessionservice.model;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Model class for one point of the downsampled energy curve of a charging
+ * session: the energy delivered within an interval, and the average power it
+ * amounts to.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EnergyInterval {
+
+    /**
+     * Start of the interval
+     */
+    @JsonSerialize(using = LocalDateTimeSerializer.class)
+    @JsonDeserialize(using = LocalDateTimeDeserializer.class)
+    private LocalDateTime from;
+
+    private double energyKwh;
+
+    private double averagePowerKw;
+
+}
@@ -0,0 +1,59 @@
+package com.evron.chargingsessionservice.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import lombok.Data;
+
+/**
+ * Model class for the energy delivered during a charging session, from its
+ * meter readings. Serialized JSON would look like:
+ *
+ * <pre>
+ * {
+ * "chargingSessionId": "0b6f6f31-13bf-471a-9627-35c62f0ceda9",
+ * "readings": 721,
+ * "firstReadingAt": "2021-03-15T14:44:35",
+ * "lastReadingAt": "2021-03-15T15:44:35",
+ * "energyKwh": 10.872,
+ * "curve": [
+ * {"from": "2021-03-15T14:30:00", "energyKwh": 2.514, "averagePowerKw": 10.056},
+ * ...
+ * ]
+ * }
+ * </pre>
+ * <p>
+ * {@code energyKwh} is the energy delivered between the first and the last
+ * reading; the {@code curve} is only present when requested.
+ */
+@Data
+public class EnergyResponse {
+
+    private UUID chargingSessionId;
+
+    private int readings;
+
+    @JsonInclude(value = Include.NON_NULL)
+    @JsonSerialize(using = LocalDateTimeSerializer.class)
+    @JsonDeserialize(using = LocalDateTimeDeserializer.class)
+    private LocalDateTime firstReadingAt;
+
+    @JsonInclude(value = Include.NON_NULL)
+    @JsonSerialize(using = LocalDateTimeSerializer.class)
+    @JsonDeserialize(using = LocalDateTimeDeserializer.class)
+    private LocalDateTime lastReadingAt;
+
+    private double energyKwh;
+
+    @JsonInclude(value = Include.NON_NULL)
+    private List<EnergyInterval> curve;
+
+}
@@ -0,0 +1,39 @@
+package com.evron.chargingsessionservice.model;
+
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * Model class for the outcome of a bulk import. Serialized JSON would look
+ * like:
+ *
+ * <pre>
+ * {
+ * "imported": 999998,
+ * "skipped": 0,
+ * "failed": 2,
+ * "errors": [
+ * "line 17: Incorrect/missing stationId",
+ * "line 52: Unexpected end-of-input"
+ * ],
+ * "elapsedMs": 4210,
+ * "recordsPerSecond": 237529
+ * }
+ * </pre>
+ * <p>
+ * {@code skipped} counts the sessions owned by other nodes of a cluster and
+ * those archived already, and
+ * {@code errors} lists the first failed lines only.
+ */
+@Data
+public class ImportResponse {
+
+    private long imported;
+    private long skipped;
+    private long failed;
+    private List<String> errors;
+    private long elapsedMs;
+    private long recordsPerSecond;
+
+}
@@ -0,0 +1,40 @@
+package com.evron.chargingsessionservice.model;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Model class for a reading of the energy meter of a charger during a charging
+ * session. JSON representation of this class would look like:
+ *
+ * <pre>
+ * {
+ * "readAt": "2021-03-15T14:44:35",
+ * "energyKwh": 1523.417
+ * }
+ * </pre>
+ * <p>
+ * {@code energyKwh} is the meter register, which only ever increases, with a
+ * resolution of one Wh; {@code readAt} defaults to the time the reading is
+ * received.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MeterReading {
+
+    @JsonSerialize(using = LocalDateTimeSerializer.class)
+    @JsonDeserialize(using = LocalDateTimeDeserializer.class)
+    private LocalDateTime readAt;
+
+    private Double energyKwh;
+
+}
@@ -0,0 +1,46 @@
+package com.evron.chargingsessionservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Model class for a change of a charging session, as streamed by the change
+ * feed. Serialized JSON would look like:
+ *
+ * <pre>
+ * {
+ * "sequence": 42,
+ * "type": "STOPPED",
+ * "chargingSession": {
+ * "id": "0b6f6f31-13bf-471a-9627-35c62f0ceda9",
+ * "stationId": "ABC-12345",
+ * "startedAt": "2021-03-15T14:44:30.438609",
+ * "stoppedAt": "2021-03-15T14:44:43.1721144",
+ * "status": "FINISHED"
+ * }
+ * }
+ * </pre>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionEvent {
+
+    public enum Type {
+        STARTED, STOPPED
+    }
+
+    /**
+     * Position of the event in the feed, increasing by one per event
+     */
+    private long sequence;
+
+    private Type type;
+
+    /**
+     * Session as it was right after the change
+     */
+    private ChargingSession chargingSession;
+
+}
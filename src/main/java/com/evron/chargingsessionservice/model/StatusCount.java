@@ -0,0 +1,16 @@
+package com.evron.chargingsessionservice.model;
+
+import lombok.Data;
+
+/**
+ * Model class for StatusCount- number of stored charging sessions per
+ * {@link ChargingSession.SessionStatus}.
+ */
+@Data
+public class StatusCount {
+
+    private long totalCount;
+    private long inProgressCount;
+    private long finishedCount;
+
+}
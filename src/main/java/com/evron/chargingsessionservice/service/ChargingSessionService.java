@@ -1,11 +1,16 @@
 package com.evron.chargingsessionservice.service;
 
+import com.evron.chargingsessionservice.exception.ChargingSessionNotFoundException;
 import com.evron.chargingsessionservice.exception.InvalidInputParameterException;
+import com.evron.chargingsessionservice.model.BatchResponse;
 import com.evron.chargingsessionservice.model.ChargingSession;
+import com.evron.chargingsessionservice.model.ChargingSession.SessionStatus;
 import com.evron.chargingsessionservice.model.ChargingSessionRequest;
 import com.evron.chargingsessionservice.model.ChargingSessionResponse;
 import com.evron.chargingsessionservice.model.MetricsCount;
+import com.evron.chargingsessionservice.model.StatusCount;
 
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -27,13 +32,38 @@ public interface ChargingSessionService {
 
     /**
      * Updates {@link ChargingSession} of {@link UUID} with stoppedDateAndTime and
-     * Status.
+     * Status. Stopping is idempotent: stopping a session that is already
+     * {@code FINISHED} leaves it untouched and returns it, with the time of the
+     * first stop.
      *
      * @param id {@link UUID}
      * @return {@link ChargingSession} updated charging session
+     * @throws ChargingSessionNotFoundException if no session has the id
      */
     ChargingSession stopChargingSession(UUID id);
 
+    /**
+     * Adds a new ChargingSession for every request in one pass. Invalid items
+     * are reported in the response without failing the others.
+     *
+     * @param requests {@link ChargingSessionRequest}s, one per session to start
+     * @return {@link BatchResponse} with one result per request, in request order
+     * @throws InvalidInputParameterException if the batch is empty or too large
+     */
+    BatchResponse saveNewChargingSessions(List<ChargingSessionRequest> requests)
+            throws InvalidInputParameterException;
+
+    /**
+     * Stops the ChargingSession of every id in one pass. Unknown ids are
+     * reported in the response without failing the others; sessions already
+     * {@code FINISHED} are returned unchanged, as by {@link #stopChargingSession(UUID)}.
+     *
+     * @param ids {@link UUID}s of the sessions to stop
+     * @return {@link BatchResponse} with one result per id, in request order
+     * @throws InvalidInputParameterException if the batch is empty or too large
+     */
+    BatchResponse stopChargingSessions(List<UUID> ids) throws InvalidInputParameterException;
+
     /**
      * Retrieves all charging sessions.
      *
@@ -42,6 +72,70 @@ public interface ChargingSessionService {
      */
     ChargingSessionResponse retrieveChargingSessions();
 
+    /**
+     * Retrieves one page of charging sessions, ordered by id. Cost depends on the
+     * page size, not on the number of stored sessions.
+     *
+     * @param limit  maximum number of sessions in the page
+     * @param cursor opaque continuation token returned as {@code nextCursor} by
+     *               the previous page, or {@code null} for the first page
+     * @param status optional {@link SessionStatus} filter, {@code null} for all
+     * @return {@link ChargingSessionResponse} containing the page and the cursor
+     * of the next page, if any
+     * @throws InvalidInputParameterException if limit is out of range or cursor
+     *                                   is malformed
+     */
+    ChargingSessionResponse retrieveChargingSessions(int limit, String cursor, SessionStatus status)
+            throws InvalidInputParameterException;
+
+    /**
+     * Retrieves all charging sessions of one charging station.
+     *
+     * @param stationId id of the charging station
+     * @param status    optional {@link SessionStatus} filter, {@code null} for all
+     * @return {@link ChargingSessionResponse} containing the station's
+     * {@link ChargingSession}s
+     * @throws InvalidInputParameterException if stationId is empty
+     */
+    ChargingSessionResponse retrieveChargingSessionsByStation(String stationId, SessionStatus status)
+            throws InvalidInputParameterException;
+
+    /**
+     * Retrieves all charging sessions which are {@code IN_PROGRESS}, without
+     * scanning finished ones.
+     *
+     * @return {@link ChargingSessionResponse} containing the active
+     * {@link ChargingSession}s
+     */
+    ChargingSessionResponse retrieveActiveChargingSessions();
+
+    /**
+     * Retrieves the number of stored charging sessions per {@link SessionStatus}
+     * in constant time.
+     *
+     * @return {@link StatusCount} instance
+     */
+    StatusCount retrieveStatusCount();
+
+    /**
+     * Retrieves the version of the stored charging sessions in constant time.
+     * It changes with every change of the store and with every restart, so
+     * listings read at the same version are identical. Versions are only
+     * compared for equality.
+     *
+     * @return opaque version, made of characters allowed in an {@code ETag}
+     */
+    String retrieveChargingSessionsVersion();
+
+    /**
+     * Iterates over all charging sessions, archived ones included, without
+     * copying them, for exports that write sessions out one at a time. The
+     * iterator has to be closed if it is not exhausted.
+     *
+     * @return weakly consistent {@link CloseableIterator} of {@link ChargingSession}s
+     */
+    CloseableIterator<ChargingSession> exportChargingSessions();
+
     /**
      * This method retrieves summary of submitted charging sessions including:<em>
      * totalCount, startedCount, stoppedCount</em> which represents count of
@@ -51,4 +145,18 @@ public interface ChargingSessionService {
      */
     MetricsCount retrieveChargingSessionsSummary();
 
+    /**
+     * Retrieves the number of started and stopped charging sessions within a
+     * window ending now, from pre-aggregated rollups. Cost depends on the
+     * number of minutes or hours in the window, not on the number of sessions.
+     *
+     * @param window    length of the window, such as {@code 5m}, {@code 1h},
+     *                  {@code 1d} or {@code PT90M}; {@code null} for one minute
+     * @param stationId station to count, {@code null} for all stations
+     * @return {@link MetricsCount} instance
+     * @throws InvalidInputParameterException if window is malformed or out of range
+     */
+    MetricsCount retrieveChargingSessionsSummary(String window, String stationId)
+            throws InvalidInputParameterException;
+
 }
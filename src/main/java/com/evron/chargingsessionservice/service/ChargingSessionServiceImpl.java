@@ -1,19 +1,32 @@
 package com.evron.chargingsessionservice.service;
 
 import com.evron.chargingsessionservice.dao.ChargingSessionDao;
+import com.evron.chargingsessionservice.dao.SessionTransition;
 import com.evron.chargingsessionservice.exception.ChargingSessionNotFoundException;
 import com.evron.chargingsessionservice.exception.InvalidInputParameterException;
+import com.evron.chargingsessionservice.model.BatchItemResult;
+import com.evron.chargingsessionservice.model.BatchResponse;
 import com.evron.chargingsessionservice.model.ChargingSession;
+import com.evron.chargingsessionservice.model.ChargingSession.SessionStatus;
 import com.evron.chargingsessionservice.model.ChargingSessionRequest;
 import com.evron.chargingsessionservice.model.ChargingSessionResponse;
 import com.evron.chargingsessionservice.model.MetricsCount;
+import com.evron.chargingsessionservice.model.StatusCount;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
+import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
 import lombok.extern.slf4j.Slf4j;
@@ -28,13 +41,70 @@ import static com.evron.chargingsessionservice.model.ChargingSession.SessionStat
 @Slf4j
 public class ChargingSessionServiceImpl implements ChargingSessionService {
 
+    /**
+     * Upper bound of the page size accepted by paginated listing
+     */
+    static final int MAX_PAGE_SIZE = 1000;
+
+    /**
+     * Upper bound of the number of items accepted by batch requests
+     */
+    static final int MAX_BATCH_SIZE = 1000;
+
+    /**
+     * Random tag of this instance, prefixing its versions, as the version of
+     * the store starts over on restart
+     */
+    private final String instance = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
     /**
      * {@code ChargingSessionDao} instance
      */
     private ChargingSessionDao chargingSessionDao;
 
-    public ChargingSessionServiceImpl(ChargingSessionDao chargingSessionDao) {
+    /**
+     * {@code SlidingWindowCounter} instance backing the summary
+     */
+    private SlidingWindowCounter slidingWindowCounter;
+
+    /**
+     * {@code SessionIdGenerator} providing the ids of new sessions
+     */
+    private SessionIdGenerator sessionIdGenerator;
+
+    /**
+     * {@code SessionRollups} backing windowed and per-station summaries
+     */
+    private SessionRollups sessionRollups;
+
+    /**
+     * {@code SessionEventFeed} receiving starts and stops, {@code null} if none
+     */
+    private SessionEventFeed sessionEventFeed;
+
+    public ChargingSessionServiceImpl(ChargingSessionDao chargingSessionDao,
+                                      SlidingWindowCounter slidingWindowCounter) {
+        this(chargingSessionDao, slidingWindowCounter, new RandomSessionIdGenerator(), new SessionRollups());
+    }
+
+    public ChargingSessionServiceImpl(ChargingSessionDao chargingSessionDao,
+                                      SlidingWindowCounter slidingWindowCounter,
+                                      SessionIdGenerator sessionIdGenerator,
+                                      SessionRollups sessionRollups) {
+        this(chargingSessionDao, slidingWindowCounter, sessionIdGenerator, sessionRollups, null);
+    }
+
+    @Autowired
+    public ChargingSessionServiceImpl(ChargingSessionDao chargingSessionDao,
+                                      SlidingWindowCounter slidingWindowCounter,
+                                      SessionIdGenerator sessionIdGenerator,
+                                      SessionRollups sessionRollups,
+                                      @Nullable SessionEventFeed sessionEventFeed) {
         this.chargingSessionDao = chargingSessionDao;
+        this.slidingWindowCounter = slidingWindowCounter;
+        this.sessionIdGenerator = sessionIdGenerator;
+        this.sessionRollups = sessionRollups;
+        this.sessionEventFeed = sessionEventFeed;
     }
 
     /**
@@ -53,6 +123,11 @@ public class ChargingSessionServiceImpl implements ChargingSessionService {
             session = constructChargingSessionEntity(request);
             log.debug("Adding/Saving new charging station");
             chargingSessionDao.save(session);
+            slidingWindowCounter.recordStarted();
+            sessionRollups.recordStarted(stationId);
+            if (sessionEventFeed != null) {
+                sessionEventFeed.started(session);
+            }
         }
 
         return session;
@@ -66,21 +141,90 @@ public class ChargingSessionServiceImpl implements ChargingSessionService {
      */
     @Override
     public ChargingSession stopChargingSession(UUID id) {
+        if (id == null) {
+            return null;
+        }
+        //Single compare-and-set of the stored session, see ChargingSessionDao#stop
+        SessionTransition transition = chargingSessionDao.stop(id, LocalDateTime.now());
+        if (transition == null) {
+            throw new ChargingSessionNotFoundException(
+                    String.format("Charging Session with ID %s does not exist", id.toString()));
+        }
+        if (transition.isApplied()) {
+            slidingWindowCounter.recordStopped();
+            sessionRollups.recordStopped(transition.getSession().getStationId());
+            if (sessionEventFeed != null) {
+                sessionEventFeed.stopped(transition.getSession());
+            }
+        }
+        return transition.getSession();
+    }
 
-        ChargingSession stopSession = null;
-        if (id != null) {
-            if (chargingSessionDao.contains(id)) {
-                stopSession = chargingSessionDao.findById(id);
-                updateChargingSessionEntity(stopSession);
-                chargingSessionDao.save(stopSession);
+    /**
+     * {@inheritDoc}
+     *
+     * @see com.evron.chargingsessionservice.service.ChargingSessionService#saveNewChargingSessions(List)
+     */
+    @Override
+    public BatchResponse saveNewChargingSessions(List<ChargingSessionRequest> requests)
+            throws InvalidInputParameterException {
+        validateBatchSize(requests);
+        List<BatchItemResult> results = new ArrayList<>(requests.size());
+        List<ChargingSession> sessions = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            ChargingSessionRequest request = requests.get(i);
+            if (request == null || request.getStationId() == null || request.getStationId().isEmpty()) {
+                results.add(new BatchItemResult(i, null, "Incorrect/missing stationId"));
             } else {
-                throw new ChargingSessionNotFoundException(
-                        String.format("Charging Session with ID %s does not exist", id.toString()));
+                ChargingSession session = constructChargingSessionEntity(request);
+                sessions.add(session);
+                results.add(new BatchItemResult(i, session, null));
             }
         }
-        return stopSession;
+        log.debug("Adding/Saving {} new charging sessions", sessions.size());
+        chargingSessionDao.saveAll(sessions);
+        for (ChargingSession session : sessions) {
+            slidingWindowCounter.recordStarted();
+            sessionRollups.recordStarted(session.getStationId());
+        }
+        if (sessionEventFeed != null) {
+            sessionEventFeed.startedAll(sessions);
+        }
+        return constructBatchResponse(results, sessions.size());
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @see com.evron.chargingsessionservice.service.ChargingSessionService#stopChargingSessions(List)
+     */
+    @Override
+    public BatchResponse stopChargingSessions(List<UUID> ids) throws InvalidInputParameterException {
+        validateBatchSize(ids);
+        List<SessionTransition> transitions = chargingSessionDao.stopAll(ids, LocalDateTime.now());
+        List<BatchItemResult> results = new ArrayList<>(ids.size());
+        List<ChargingSession> stopped = new ArrayList<>();
+        int succeeded = 0;
+        for (int i = 0; i < ids.size(); i++) {
+            SessionTransition transition = transitions.get(i);
+            if (transition == null) {
+                results.add(new BatchItemResult(i, null,
+                        String.format("Charging Session with ID %s does not exist", ids.get(i))));
+                continue;
+            }
+            if (transition.isApplied()) {
+                slidingWindowCounter.recordStopped();
+                sessionRollups.recordStopped(transition.getSession().getStationId());
+                stopped.add(transition.getSession());
+            }
+            results.add(new BatchItemResult(i, transition.getSession(), null));
+            succeeded++;
+        }
+        if (sessionEventFeed != null) {
+            sessionEventFeed.stoppedAll(stopped);
+        }
+        return constructBatchResponse(results, succeeded);
+    }
 
     /**
      * {@inheritDoc}
@@ -97,35 +241,155 @@ public class ChargingSessionServiceImpl implements ChargingSessionService {
     /**
      * {@inheritDoc}
      *
-     * {@see io.everon.assignment.service.ChargingSessionService#retrieveChargingSessionsSummary()
+     * @see com.evron.chargingsessionservice.service.ChargingSessionService#retrieveChargingSessions(int, String, SessionStatus)
      */
     @Override
-    public MetricsCount retrieveChargingSessionsSummary() {
-        AtomicInteger startedCount = new AtomicInteger();
-        AtomicInteger stoppedCount = new AtomicInteger();
-        MetricsCount count = new MetricsCount();
-
-        LocalDateTime currentTime = LocalDateTime.now();
-        LocalDateTime previousTime = currentTime.minusMinutes(1);
-
-        //Time Complexity - O(n)
-        chargingSessionDao.findAll().stream().forEach(session ->{
-            if ((session.getStartedAt().isBefore(currentTime) && session.getStartedAt().isAfter(previousTime))
-                    || (session.getStoppedAt() != null && session.getStoppedAt().isBefore(currentTime)
-                    && session.getStoppedAt().isAfter(previousTime))){
-                if (session.getStartedAt() != null)
-                    startedCount.getAndIncrement();
-                if (session.getStoppedAt() != null)
-                    stoppedCount.getAndIncrement();
+    public ChargingSessionResponse retrieveChargingSessions(int limit, String cursor, SessionStatus status)
+            throws InvalidInputParameterException {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new InvalidInputParameterException(
+                    String.format("limit must be between 1 and %d", MAX_PAGE_SIZE));
+        }
+        log.debug("Retrieving page of charging sessions");
+
+        //Time Complexity - O(log n + page) for all or active sessions, which are read from their index;
+        //finished sessions are filtered out of all sessions, skipping the active ones in between
+        List<ChargingSession> page = new ArrayList<>(limit);
+        UUID after = decodeCursor(cursor);
+        Iterator<ChargingSession> iterator = status == SessionStatus.IN_PROGRESS
+                ? chargingSessionDao.findActiveAfter(after).iterator()
+                : chargingSessionDao.findAllAfter(after).iterator();
+        boolean hasMore = false;
+        while (iterator.hasNext()) {
+            ChargingSession session = iterator.next();
+            if (status != null && status != session.getStatus()) {
+                continue;
+            }
+            if (page.size() == limit) {
+                hasMore = true;
+                break;
             }
-        });
+            page.add(session);
+        }
 
-        count.setStartedCount(startedCount.get());
-        count.setStoppedCount(stoppedCount.get());
-        count.setTotalCount(startedCount.get() + stoppedCount.get());
+        ChargingSessionResponse response = new ChargingSessionResponse();
+        response.setChargingSessions(page);
+        if (hasMore) {
+            response.setNextCursor(encodeCursor(page.get(page.size() - 1).getId()));
+        }
+        return response;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see com.evron.chargingsessionservice.service.ChargingSessionService#retrieveChargingSessionsByStation(String, SessionStatus)
+     */
+    @Override
+    public ChargingSessionResponse retrieveChargingSessionsByStation(String stationId, SessionStatus status)
+            throws InvalidInputParameterException {
+        if (stationId == null || stationId.isEmpty()) {
+            throw new InvalidInputParameterException("Incorrect/missing stationId");
+        }
+        log.debug("Retrieving charging sessions of station {}", stationId);
+
+        //Time Complexity - O(k), k being the number of sessions of the station
+        List<ChargingSession> sessions = chargingSessionDao.findByStationId(stationId);
+        if (status != null) {
+            sessions = sessions.stream().filter(session -> session.getStatus() == status).collect(Collectors.toList());
+        }
+        ChargingSessionResponse response = new ChargingSessionResponse();
+        response.setChargingSessions(sessions);
+        return response;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see com.evron.chargingsessionservice.service.ChargingSessionService#retrieveActiveChargingSessions()
+     */
+    @Override
+    public ChargingSessionResponse retrieveActiveChargingSessions() {
+        log.debug("Retrieving active charging sessions");
+
+        //Time Complexity - O(a), a being the number of active sessions
+        ChargingSessionResponse response = new ChargingSessionResponse();
+        response.setChargingSessions(chargingSessionDao.findActive());
+        return response;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see com.evron.chargingsessionservice.service.ChargingSessionService#retrieveStatusCount()
+     */
+    @Override
+    public StatusCount retrieveStatusCount() {
+        //Time Complexity - O(1)
+        StatusCount count = new StatusCount();
+        count.setInProgressCount(chargingSessionDao.countByStatus(IN_PROGRESS));
+        count.setFinishedCount(chargingSessionDao.countByStatus(FINISHED));
+        count.setTotalCount(count.getInProgressCount() + count.getFinishedCount());
         return count;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @see com.evron.chargingsessionservice.service.ChargingSessionService#retrieveChargingSessionsVersion()
+     */
+    @Override
+    public String retrieveChargingSessionsVersion() {
+        return instance + "-" + Long.toHexString(chargingSessionDao.version());
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see com.evron.chargingsessionservice.service.ChargingSessionService#exportChargingSessions()
+     */
+    @Override
+    public CloseableIterator<ChargingSession> exportChargingSessions() {
+        log.debug("Exporting all charging sessions");
+        return CloseableIterator.of(chargingSessionDao.exportAll());
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * {@see io.everon.assignment.service.ChargingSessionService#retrieveChargingSessionsSummary()
+     */
+    @Override
+    public MetricsCount retrieveChargingSessionsSummary() {
+        //Time Complexity - O(1), independent of the number of stored sessions
+        return slidingWindowCounter.summary();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see com.evron.chargingsessionservice.service.ChargingSessionService#retrieveChargingSessionsSummary(String, String)
+     */
+    @Override
+    public MetricsCount retrieveChargingSessionsSummary(String window, String stationId)
+            throws InvalidInputParameterException {
+        Duration duration;
+        try {
+            duration = window == null ? Duration.ofMinutes(1) : DurationStyle.detectAndParse(window);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidInputParameterException("Incorrect window");
+        }
+        if (stationId != null && stationId.isEmpty()) {
+            throw new InvalidInputParameterException("Incorrect/missing stationId");
+        }
+        //Time Complexity - O(b), b being the number of minute or hour buckets in the window
+        try {
+            return sessionRollups.summary(duration, stationId);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidInputParameterException(e.getMessage());
+        }
+    }
+
     /**
      * Constructs {@link ChargingSession} from {@link ChargingSessionRequest}
      *
@@ -134,7 +398,7 @@ public class ChargingSessionServiceImpl implements ChargingSessionService {
      */
     private ChargingSession constructChargingSessionEntity(ChargingSessionRequest request) {
         ChargingSession session = new ChargingSession();
-        session.setId(UUID.randomUUID());
+        session.setId(sessionIdGenerator.nextId());
         session.setStationId(request.getStationId());
         session.setStartedAt(LocalDateTime.now());
         session.setStatus(IN_PROGRESS);
@@ -149,21 +413,78 @@ public class ChargingSessionServiceImpl implements ChargingSessionService {
      */
     private ChargingSessionResponse constructChargingSessionResponse() {
         ChargingSessionResponse response = new ChargingSessionResponse();
-        if (chargingSessionDao.size() != 0) {
-            List<ChargingSession> list = chargingSessionDao.findAll().parallelStream().collect(Collectors.toList());
+        if (!chargingSessionDao.isEmpty()) {
+            // sized by the DAO's counter: sizing the live view would walk the whole skip list
+            List<ChargingSession> list = new ArrayList<>(chargingSessionDao.size());
+            chargingSessionDao.findAll().forEach(list::add);
             response.setChargingSessions(list);
         }
         return response;
     }
 
     /**
-     * Updating {@link ChargingSession} StoppedAT and Status Attribute
+     * Validates the number of items of a batch request.
+     *
+     * @param items items of the batch
+     * @throws InvalidInputParameterException if the batch is empty or larger than {@link #MAX_BATCH_SIZE}
+     */
+    private void validateBatchSize(List<?> items) {
+        if (items == null || items.isEmpty() || items.size() > MAX_BATCH_SIZE) {
+            throw new InvalidInputParameterException(
+                    String.format("batch size must be between 1 and %d", MAX_BATCH_SIZE));
+        }
+    }
+
+    /**
+     * Prepares {@link BatchResponse} from the per-item results
+     *
+     * @param results   one {@code BatchItemResult} per item, in request order
+     * @param succeeded number of successful items
+     * @return {@code BatchResponse}
+     */
+    private BatchResponse constructBatchResponse(List<BatchItemResult> results, int succeeded) {
+        BatchResponse response = new BatchResponse();
+        response.setSucceeded(succeeded);
+        response.setFailed(results.size() - succeeded);
+        response.setResults(results);
+        return response;
+    }
+
+    /**
+     * Encodes the id of the last session of a page as an opaque cursor.
      *
-     * @param oldSession {@code ChargingSession} instance
+     * @param id {@link UUID} of the last returned session
+     * @return URL-safe cursor
      */
-    private void updateChargingSessionEntity(ChargingSession oldSession) {
-        oldSession.setStoppedAt(LocalDateTime.now());
-        oldSession.setStatus(FINISHED);
+    static String encodeCursor(UUID id) {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        buffer.putLong(id.getMostSignificantBits());
+        buffer.putLong(id.getLeastSignificantBits());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * Decodes a cursor produced by {@link #encodeCursor(UUID)}.
+     *
+     * @param cursor cursor, may be {@code null} or empty for the first page
+     * @return {@link UUID} to resume after, or {@code null}
+     * @throws InvalidInputParameterException if cursor is malformed
+     */
+    private UUID decodeCursor(String cursor) throws InvalidInputParameterException {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException e) {
+            bytes = null;
+        }
+        if (bytes == null || bytes.length != 16) {
+            throw new InvalidInputParameterException("Incorrect cursor");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
     }
 
 
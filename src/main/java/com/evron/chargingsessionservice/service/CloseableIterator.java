@@ -0,0 +1,44 @@
+package com.evron.chargingsessionservice.service;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * {@link Iterator} holding a resource, such as the response stream of another
+ * node, until it is exhausted. Consumers which may stop early close it, in a
+ * {@code finally} block or with try-with-resources.
+ *
+ * @param <T> type of the iterated elements
+ */
+public interface CloseableIterator<T> extends Iterator<T>, Closeable {
+
+    /**
+     * Releases the resource; further calls have no effect.
+     */
+    @Override
+    void close();
+
+    /**
+     * @param iterator {@link Iterator} holding no resource
+     * @return {@code CloseableIterator} over the same elements, closed without effect
+     */
+    static <T> CloseableIterator<T> of(Iterator<T> iterator) {
+        return new CloseableIterator<T>() {
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return iterator.next();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+}
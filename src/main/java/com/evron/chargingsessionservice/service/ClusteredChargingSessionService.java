@@ -0,0 +1,433 @@
+package com.evron.chargingsessionservice.service;
+
+import com.evron.chargingsessionservice.exception.InvalidInputParameterException;
+import com.evron.chargingsessionservice.model.BatchItemResult;
+import com.evron.chargingsessionservice.model.BatchResponse;
+import com.evron.chargingsessionservice.model.ChargingSession;
+import com.evron.chargingsessionservice.model.ChargingSession.SessionStatus;
+import com.evron.chargingsessionservice.model.ChargingSessionRequest;
+import com.evron.chargingsessionservice.model.ChargingSessionResponse;
+import com.evron.chargingsessionservice.model.MetricsCount;
+import com.evron.chargingsessionservice.model.StatusCount;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import lombok.extern.slf4j.Slf4j;
+
+import static com.evron.chargingsessionservice.service.ChargingSessionServiceImpl.MAX_BATCH_SIZE;
+import static com.evron.chargingsessionservice.service.ChargingSessionServiceImpl.MAX_PAGE_SIZE;
+
+/**
+ * {@link ChargingSessionService} of a cluster of nodes, each storing the
+ * sessions whose id the {@link ConsistentHashRing} assigns to it.
+ * <p>
+ * A session is started on the node owning a random point of the ring, which
+ * gives it an id of its own partition (see {@link PartitionedSessionIdGenerator}),
+ * so starts spread over the nodes in proportion to their share of the ring.
+ * Stops go to the node owning the id, and batches are split per node and
+ * sent in parallel. Listings, counts and summaries are gathered from every
+ * node in parallel and merged: listings are ordered by id, as on one node, and
+ * counts are summed. The version of the cluster lists the versions of the
+ * nodes in ring order; as the version of a node is tagged with its instance,
+ * it changes with every change of any node, and with every restart of one.
+ * <p>
+ * The partition of this node is called directly, the others through
+ * {@link RemoteChargingSessionService}s, on a pool of threads of this service
+ * shut down by {@link #close()}.
+ */
+@Slf4j
+public class ClusteredChargingSessionService implements ChargingSessionService, Closeable {
+
+    private static final Comparator<ChargingSession> BY_ID = Comparator.comparing(ChargingSession::getId);
+
+    private final ConsistentHashRing ring;
+
+    private final String self;
+
+    /**
+     * {@code ChargingSessionService} of the partition of every node of the ring
+     */
+    private final Map<String, ChargingSessionService> partitions;
+
+    /**
+     * Runs the calls to the other nodes
+     */
+    private final Executor executor;
+
+    /**
+     * Pool of {@code executor} when created by this service, {@code null} otherwise
+     */
+    private final ExecutorService pool;
+
+    /**
+     * @param ring       ring of the cluster
+     * @param self       node this service runs on
+     * @param partitions {@code ChargingSessionService} of the partition of every node
+     * @param threads    threads calling the other nodes
+     */
+    public ClusteredChargingSessionService(ConsistentHashRing ring, String self,
+                                           Map<String, ChargingSessionService> partitions, int threads) {
+        this(ring, self, partitions, newPool(threads), true);
+    }
+
+    /**
+     * @param ring       ring of the cluster
+     * @param self       node this service runs on
+     * @param partitions {@code ChargingSessionService} of the partition of every node
+     * @param executor   runs the calls to the other nodes, shut down by its owner
+     */
+    public ClusteredChargingSessionService(ConsistentHashRing ring, String self,
+                                           Map<String, ChargingSessionService> partitions, Executor executor) {
+        this(ring, self, partitions, executor, false);
+    }
+
+    private ClusteredChargingSessionService(ConsistentHashRing ring, String self,
+                                            Map<String, ChargingSessionService> partitions, Executor executor,
+                                            boolean owned) {
+        for (String node : ring.nodes()) {
+            if (!partitions.containsKey(node)) {
+                throw new IllegalArgumentException(String.format("No partition for cluster node %s", node));
+            }
+        }
+        if (!partitions.containsKey(self)) {
+            throw new IllegalArgumentException(String.format("%s is not a node of the cluster", self));
+        }
+        this.ring = ring;
+        this.self = self;
+        this.partitions = partitions;
+        this.executor = executor;
+        this.pool = owned ? (ExecutorService) executor : null;
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    private static ExecutorService newPool(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "cluster-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public ChargingSession saveNewChargingSession(ChargingSessionRequest request)
+            throws InvalidInputParameterException {
+        if (request == null) {
+            return null;
+        }
+        return partitions.get(randomOwner()).saveNewChargingSession(request);
+    }
+
+    @Override
+    public ChargingSession stopChargingSession(UUID id) {
+        if (id == null) {
+            return null;
+        }
+        return partitions.get(ring.owner(id)).stopChargingSession(id);
+    }
+
+    @Override
+    public BatchResponse saveNewChargingSessions(List<ChargingSessionRequest> requests)
+            throws InvalidInputParameterException {
+        validateBatchSize(requests);
+        Map<String, List<Integer>> indexes = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            indexes.computeIfAbsent(randomOwner(), node -> new ArrayList<>()).add(i);
+        }
+        log.debug("Starting {} charging sessions on {} nodes", requests.size(), indexes.size());
+        return scatterBatch(requests.size(), indexes,
+                (partition, items) -> partition.saveNewChargingSessions(pick(requests, items)));
+    }
+
+    @Override
+    public BatchResponse stopChargingSessions(List<UUID> ids) throws InvalidInputParameterException {
+        validateBatchSize(ids);
+        Map<String, List<Integer>> indexes = new LinkedHashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            UUID id = ids.get(i);
+            // unknown anyway, reported by this node
+            String node = id == null ? self : ring.owner(id);
+            indexes.computeIfAbsent(node, key -> new ArrayList<>()).add(i);
+        }
+        log.debug("Stopping {} charging sessions on {} nodes", ids.size(), indexes.size());
+        return scatterBatch(ids.size(), indexes, (partition, items) -> partition.stopChargingSessions(pick(ids, items)));
+    }
+
+    @Override
+    public ChargingSessionResponse retrieveChargingSessions() {
+        List<ChargingSession> sessions = merge(gather(ChargingSessionService::retrieveChargingSessions));
+        ChargingSessionResponse response = new ChargingSessionResponse();
+        if (!sessions.isEmpty()) {
+            response.setChargingSessions(sessions);
+        }
+        return response;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Every node returns its first {@code limit} sessions after the cursor, so
+     * the first {@code limit} of them all are the page of the cluster.
+     */
+    @Override
+    public ChargingSessionResponse retrieveChargingSessions(int limit, String cursor, SessionStatus status)
+            throws InvalidInputParameterException {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new InvalidInputParameterException(
+                    String.format("limit must be between 1 and %d", MAX_PAGE_SIZE));
+        }
+        List<ChargingSessionResponse> pages = gather(partition -> partition.retrieveChargingSessions(limit, cursor,
+                status));
+        List<ChargingSession> sessions = merge(pages);
+        boolean hasMore = sessions.size() > limit || pages.stream().anyMatch(page -> page.getNextCursor() != null);
+
+        ChargingSessionResponse response = new ChargingSessionResponse();
+        response.setChargingSessions(new ArrayList<>(sessions.subList(0, Math.min(limit, sessions.size()))));
+        if (hasMore) {
+            List<ChargingSession> page = response.getChargingSessions();
+            response.setNextCursor(ChargingSessionServiceImpl.encodeCursor(page.get(page.size() - 1).getId()));
+        }
+        return response;
+    }
+
+    @Override
+    public ChargingSessionResponse retrieveChargingSessionsByStation(String stationId, SessionStatus status)
+            throws InvalidInputParameterException {
+        if (stationId == null || stationId.isEmpty()) {
+            throw new InvalidInputParameterException("Incorrect/missing stationId");
+        }
+        ChargingSessionResponse response = new ChargingSessionResponse();
+        response.setChargingSessions(merge(gather(partition -> partition.retrieveChargingSessionsByStation(
+                stationId, status))));
+        return response;
+    }
+
+    @Override
+    public ChargingSessionResponse retrieveActiveChargingSessions() {
+        ChargingSessionResponse response = new ChargingSessionResponse();
+        response.setChargingSessions(merge(gather(ChargingSessionService::retrieveActiveChargingSessions)));
+        return response;
+    }
+
+    @Override
+    public StatusCount retrieveStatusCount() {
+        StatusCount count = new StatusCount();
+        for (StatusCount partition : gather(ChargingSessionService::retrieveStatusCount)) {
+            count.setInProgressCount(count.getInProgressCount() + partition.getInProgressCount());
+            count.setFinishedCount(count.getFinishedCount() + partition.getFinishedCount());
+        }
+        count.setTotalCount(count.getInProgressCount() + count.getFinishedCount());
+        return count;
+    }
+
+    @Override
+    public String retrieveChargingSessionsVersion() {
+        return String.join(".", gather(ChargingSessionService::retrieveChargingSessionsVersion));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The sessions of this node are followed by those of the others, node by
+     * node; the export of a node is only requested once the previous one is
+     * exhausted. Closing the iterator closes the export of the current node.
+     */
+    @Override
+    public CloseableIterator<ChargingSession> exportChargingSessions() {
+        List<String> nodes = new ArrayList<>(ring.nodes());
+        nodes.remove(self);
+        nodes.add(0, self);
+        Iterator<String> remaining = nodes.iterator();
+        return new CloseableIterator<ChargingSession>() {
+
+            private CloseableIterator<ChargingSession> current = CloseableIterator.of(Collections.emptyIterator());
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && remaining.hasNext()) {
+                    current.close();
+                    current = partitions.get(remaining.next()).exportChargingSessions();
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public ChargingSession next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+
+            @Override
+            public void close() {
+                current.close();
+                while (remaining.hasNext()) {
+                    remaining.next();
+                }
+            }
+        };
+    }
+
+    @Override
+    public MetricsCount retrieveChargingSessionsSummary() {
+        return sum(gather(ChargingSessionService::retrieveChargingSessionsSummary));
+    }
+
+    @Override
+    public MetricsCount retrieveChargingSessionsSummary(String window, String stationId)
+            throws InvalidInputParameterException {
+        return sum(gather(partition -> partition.retrieveChargingSessionsSummary(window, stationId)));
+    }
+
+    /**
+     * @return node owning a random point of the ring
+     */
+    private String randomOwner() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return ring.owner(new UUID(random.nextLong(), random.nextLong()));
+    }
+
+    /**
+     * Calls every node in parallel.
+     *
+     * @return result of every node, in ring order
+     */
+    private <T> List<T> gather(Function<ChargingSessionService, T> call) {
+        return scatter(ring.nodes(), node -> call.apply(partitions.get(node)));
+    }
+
+    /**
+     * Calls the given nodes in parallel, this one on the calling thread.
+     *
+     * @return result of every node, in the order of {@code nodes}
+     * @throws RuntimeException the first failure of a node, once all of them answered
+     */
+    private <T> List<T> scatter(List<String> nodes, Function<String, T> call) {
+        List<CompletableFuture<T>> futures = new ArrayList<>(nodes.size());
+        for (String node : nodes) {
+            futures.add(self.equals(node) ? null : CompletableFuture.supplyAsync(() -> call.apply(node), executor));
+        }
+        int local = nodes.indexOf(self);
+        if (local >= 0) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            try {
+                future.complete(call.apply(self));
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+            futures.set(local, future);
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+    }
+
+    /**
+     * Sends the items of a batch to their nodes in parallel and merges the
+     * results back into request order.
+     *
+     * @param size    number of items of the batch
+     * @param indexes positions in the batch of the items of every node
+     * @param call    runs the sub-batch of the given positions on a partition
+     */
+    private BatchResponse scatterBatch(int size, Map<String, List<Integer>> indexes,
+                                       BatchCall call) {
+        List<String> nodes = new ArrayList<>(indexes.keySet());
+        List<BatchResponse> responses = scatter(nodes, node -> call.apply(partitions.get(node), indexes.get(node)));
+        BatchItemResult[] results = new BatchItemResult[size];
+        int succeeded = 0;
+        for (int n = 0; n < nodes.size(); n++) {
+            List<Integer> positions = indexes.get(nodes.get(n));
+            for (BatchItemResult result : responses.get(n).getResults()) {
+                result.setIndex(positions.get(result.getIndex()));
+                results[result.getIndex()] = result;
+            }
+            succeeded += responses.get(n).getSucceeded();
+        }
+        BatchResponse response = new BatchResponse();
+        response.setSucceeded(succeeded);
+        response.setFailed(size - succeeded);
+        response.setResults(Arrays.asList(results));
+        return response;
+    }
+
+    /**
+     * Sub-batch of a partition.
+     */
+    @FunctionalInterface
+    private interface BatchCall {
+        BatchResponse apply(ChargingSessionService partition, List<Integer> positions);
+    }
+
+    private static <T> List<T> pick(List<T> items, List<Integer> positions) {
+        List<T> picked = new ArrayList<>(positions.size());
+        for (int position : positions) {
+            picked.add(items.get(position));
+        }
+        return picked;
+    }
+
+    /**
+     * @return sessions of all the responses, ordered by id
+     */
+    private static List<ChargingSession> merge(List<ChargingSessionResponse> responses) {
+        List<ChargingSession> sessions = new ArrayList<>();
+        for (ChargingSessionResponse response : responses) {
+            if (response.getChargingSessions() != null) {
+                sessions.addAll(response.getChargingSessions());
+            }
+        }
+        sessions.sort(BY_ID);
+        return sessions;
+    }
+
+    private static MetricsCount sum(List<MetricsCount> counts) {
+        MetricsCount sum = new MetricsCount();
+        for (MetricsCount count : counts) {
+            sum.setStartedCount(sum.getStartedCount() + count.getStartedCount());
+            sum.setStoppedCount(sum.getStoppedCount() + count.getStoppedCount());
+        }
+        sum.setTotalCount(sum.getStartedCount() + sum.getStoppedCount());
+        return sum;
+    }
+
+    private static void validateBatchSize(List<?> items) {
+        if (items == null || items.isEmpty() || items.size() > MAX_BATCH_SIZE) {
+            throw new InvalidInputParameterException(
+                    String.format("batch size must be between 1 and %d", MAX_BATCH_SIZE));
+        }
+    }
+
+}
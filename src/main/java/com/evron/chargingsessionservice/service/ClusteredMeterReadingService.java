@@ -0,0 +1,52 @@
+package com.evron.chargingsessionservice.service;
+
+import com.evron.chargingsessionservice.model.EnergyResponse;
+import com.evron.chargingsessionservice.model.MeterReading;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * {@link MeterReadingService} of a cluster of nodes. The readings of a session
+ * are stored on the node storing the session, the one owning its id on the
+ * {@link ConsistentHashRing}, so appends and energy requests are forwarded to
+ * it, as stops are by the {@link ClusteredChargingSessionService}.
+ * <p>
+ * The partition of this node is called directly, the others through
+ * {@link RemoteChargingSessionService}s.
+ */
+public class ClusteredMeterReadingService implements MeterReadingService {
+
+    private final ConsistentHashRing ring;
+
+    /**
+     * {@code MeterReadingService} of the partition of every node of the ring
+     */
+    private final Map<String, MeterReadingService> partitions;
+
+    /**
+     * @param ring       ring of the cluster
+     * @param partitions {@code MeterReadingService} of the partition of every node
+     */
+    public ClusteredMeterReadingService(ConsistentHashRing ring, Map<String, MeterReadingService> partitions) {
+        for (String node : ring.nodes()) {
+            if (!partitions.containsKey(node)) {
+                throw new IllegalArgumentException(String.format("No partition for cluster node %s", node));
+            }
+        }
+        this.ring = ring;
+        this.partitions = partitions;
+    }
+
+    @Override
+    public EnergyResponse appendReadings(UUID id, List<MeterReading> readings) {
+        return partitions.get(ring.owner(id)).appendReadings(id, readings);
+    }
+
+    @Override
+    public EnergyResponse retrieveEnergy(UUID id, String interval) {
+        return partitions.get(ring.owner(id)).retrieveEnergy(id, interval);
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.evron.chargingsessionservice.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Consistent hash ring assigning every session id to one node of the cluster.
+ * <p>
+ * Each node is placed at {@code virtualNodes} pseudo-random points of a ring of
+ * 64-bit positions, and an id belongs to the node of the first point at or
+ * after the hash of the id. Adding or removing a node therefore only moves the
+ * ids of the arcs it gains or loses, about {@code 1/n} of them, and the
+ * virtual nodes keep the share of each node close to even. The ring is
+ * immutable and is looked up without locking.
+ */
+public class ConsistentHashRing {
+
+    /**
+     * Nodes of the ring, in the configured order
+     */
+    private final List<String> nodes;
+
+    /**
+     * Sorted positions of the points of the ring
+     */
+    private final long[] positions;
+
+    /**
+     * Node of the point at the same index of {@link #positions}
+     */
+    private final String[] owners;
+
+    /**
+     * @param nodes        names of the nodes, such as their base URLs
+     * @param virtualNodes number of points of each node on the ring
+     */
+    public ConsistentHashRing(List<String> nodes, int virtualNodes) {
+        if (nodes == null || nodes.isEmpty()) {
+            throw new IllegalArgumentException("At least one node is required");
+        }
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("virtualNodes must be positive");
+        }
+        this.nodes = Collections.unmodifiableList(new ArrayList<>(new LinkedHashSet<>(nodes)));
+        long[][] points = new long[this.nodes.size() * virtualNodes][];
+        int p = 0;
+        for (int n = 0; n < this.nodes.size(); n++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                String point = this.nodes.get(n) + "#" + v;
+                points[p++] = new long[]{hash(UUID.nameUUIDFromBytes(point.getBytes(StandardCharsets.UTF_8))), n};
+            }
+        }
+        Arrays.sort(points, (a, b) -> Long.compare(a[0], b[0]));
+        positions = new long[points.length];
+        owners = new String[points.length];
+        for (int i = 0; i < points.length; i++) {
+            positions[i] = points[i][0];
+            owners[i] = this.nodes.get((int) points[i][1]);
+        }
+    }
+
+    /**
+     * @return nodes of the ring, in the configured order
+     */
+    public List<String> nodes() {
+        return nodes;
+    }
+
+    /**
+     * Time Complexity - O(log(n * virtualNodes))
+     *
+     * @param id session id
+     * @return node owning the id
+     */
+    public String owner(UUID id) {
+        int index = Arrays.binarySearch(positions, hash(id));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == positions.length ? 0 : index];
+    }
+
+    /**
+     * Hashes all the bits of the id, so ids sharing their timestamp prefix,
+     * such as time-ordered ones, still spread over the whole ring.
+     */
+    static long hash(UUID id) {
+        return mix(id.getMostSignificantBits() ^ mix(id.getLeastSignificantBits()));
+    }
+
+    /**
+     * Finalizer of MurmurHash3, every input bit affecting every output bit.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+}
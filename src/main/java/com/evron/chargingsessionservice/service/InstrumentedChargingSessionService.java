@@ -0,0 +1,227 @@
+package com.evron.chargingsessionservice.service;
+
+import com.evron.chargingsessionservice.exception.InvalidInputParameterException;
+import com.evron.chargingsessionservice.model.BatchResponse;
+import com.evron.chargingsessionservice.model.ChargingSession;
+import com.evron.chargingsessionservice.model.ChargingSession.SessionStatus;
+import com.evron.chargingsessionservice.model.ChargingSessionRequest;
+import com.evron.chargingsessionservice.model.ChargingSessionResponse;
+import com.evron.chargingsessionservice.model.MetricsCount;
+import com.evron.chargingsessionservice.model.StatusCount;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Primary;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * {@link ChargingSessionService} decorator recording the latency of every
+ * operation of {@link ChargingSessionServiceImpl}, or of the
+ * {@link ClusteredChargingSessionService} in cluster mode, in Micrometer.
+ * <p>
+ * Each operation is timed as {@value #TIMER_NAME}, tagged with its
+ * {@code operation} and the simple name of the thrown {@code exception}
+ * ({@code none} on success). The number of started and stopped sessions is
+ * published from the totals of the {@link SlidingWindowCounter}, which only
+ * counts a stop when it actually changed a session. Timers of successful calls are registered up front, so the hot path
+ * only reads the clock twice and records into an existing timer.
+ */
+@Service
+@Primary
+public class InstrumentedChargingSessionService implements ChargingSessionService {
+
+    static final String TIMER_NAME = "charging.session.service";
+
+    /**
+     * {@code ChargingSessionService} doing the actual work
+     */
+    private final ChargingSessionService delegate;
+
+    private final MeterRegistry registry;
+
+    private final OperationTimer start;
+
+    private final OperationTimer stop;
+
+    private final OperationTimer startBatch;
+
+    private final OperationTimer stopBatch;
+
+    private final OperationTimer list;
+
+    private final OperationTimer listPage;
+
+    private final OperationTimer listByStation;
+
+    private final OperationTimer listActive;
+
+    private final OperationTimer counts;
+
+    private final OperationTimer export;
+
+    private final OperationTimer summary;
+
+    private final OperationTimer windowSummary;
+
+    public InstrumentedChargingSessionService(ChargingSessionServiceImpl delegate,
+                                              SlidingWindowCounter slidingWindowCounter, MeterRegistry registry) {
+        this(delegate, null, slidingWindowCounter, registry);
+    }
+
+    /**
+     * @param local   {@code ChargingSessionService} of the sessions of this node
+     * @param cluster {@code ChargingSessionService} of the cluster, used instead
+     *                of {@code local} in cluster mode
+     */
+    @Autowired
+    public InstrumentedChargingSessionService(ChargingSessionServiceImpl local,
+                                              @Nullable ClusteredChargingSessionService cluster,
+                                              SlidingWindowCounter slidingWindowCounter, MeterRegistry registry) {
+        this.delegate = cluster != null ? cluster : local;
+        this.registry = registry;
+        FunctionCounter.builder("charging.sessions.started", slidingWindowCounter,
+                SlidingWindowCounter::totalStarted).description("Charging sessions started").register(registry);
+        FunctionCounter.builder("charging.sessions.stopped", slidingWindowCounter,
+                SlidingWindowCounter::totalStopped).description("Charging sessions stopped").register(registry);
+        start = new OperationTimer("start");
+        stop = new OperationTimer("stop");
+        startBatch = new OperationTimer("startBatch");
+        stopBatch = new OperationTimer("stopBatch");
+        list = new OperationTimer("list");
+        listPage = new OperationTimer("listPage");
+        listByStation = new OperationTimer("listByStation");
+        listActive = new OperationTimer("listActive");
+        counts = new OperationTimer("counts");
+        export = new OperationTimer("export");
+        summary = new OperationTimer("summary");
+        windowSummary = new OperationTimer("windowSummary");
+    }
+
+    @Override
+    public ChargingSession saveNewChargingSession(ChargingSessionRequest request)
+            throws InvalidInputParameterException {
+        return start.record(() -> delegate.saveNewChargingSession(request));
+    }
+
+    @Override
+    public ChargingSession stopChargingSession(UUID id) {
+        return stop.record(() -> delegate.stopChargingSession(id));
+    }
+
+    @Override
+    public BatchResponse saveNewChargingSessions(List<ChargingSessionRequest> requests)
+            throws InvalidInputParameterException {
+        return startBatch.record(() -> delegate.saveNewChargingSessions(requests));
+    }
+
+    @Override
+    public BatchResponse stopChargingSessions(List<UUID> ids) throws InvalidInputParameterException {
+        return stopBatch.record(() -> delegate.stopChargingSessions(ids));
+    }
+
+    @Override
+    public ChargingSessionResponse retrieveChargingSessions() {
+        return list.record(delegate::retrieveChargingSessions);
+    }
+
+    @Override
+    public ChargingSessionResponse retrieveChargingSessions(int limit, String cursor, SessionStatus status)
+            throws InvalidInputParameterException {
+        return listPage.record(() -> delegate.retrieveChargingSessions(limit, cursor, status));
+    }
+
+    @Override
+    public ChargingSessionResponse retrieveChargingSessionsByStation(String stationId, SessionStatus status)
+            throws InvalidInputParameterException {
+        return listByStation.record(() -> delegate.retrieveChargingSessionsByStation(stationId, status));
+    }
+
+    @Override
+    public ChargingSessionResponse retrieveActiveChargingSessions() {
+        return listActive.record(delegate::retrieveActiveChargingSessions);
+    }
+
+    @Override
+    public StatusCount retrieveStatusCount() {
+        return counts.record(delegate::retrieveStatusCount);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Not timed, as reading the version costs less than timing it.
+     */
+    @Override
+    public String retrieveChargingSessionsVersion() {
+        return delegate.retrieveChargingSessionsVersion();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only the creation of the iterator is timed; the export itself is paced by
+     * the client and shows up in the request metrics of the endpoint.
+     */
+    @Override
+    public CloseableIterator<ChargingSession> exportChargingSessions() {
+        return export.record(delegate::exportChargingSessions);
+    }
+
+    @Override
+    public MetricsCount retrieveChargingSessionsSummary() {
+        return summary.record(delegate::retrieveChargingSessionsSummary);
+    }
+
+    @Override
+    public MetricsCount retrieveChargingSessionsSummary(String window, String stationId)
+            throws InvalidInputParameterException {
+        return windowSummary.record(() -> delegate.retrieveChargingSessionsSummary(window, stationId));
+    }
+
+    /**
+     * Timer of one operation. Failed calls are recorded in a separate timer per
+     * exception type, looked up when the failure happens.
+     */
+    private final class OperationTimer {
+
+        private final String operation;
+
+        private final Timer success;
+
+        OperationTimer(String operation) {
+            this.operation = operation;
+            this.success = timer(operation, "none");
+        }
+
+        <T> T record(Supplier<T> action) {
+            long start = System.nanoTime();
+            try {
+                T result = action.get();
+                success.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return result;
+            } catch (RuntimeException e) {
+                timer(operation, e.getClass().getSimpleName()).record(System.nanoTime() - start,
+                        TimeUnit.NANOSECONDS);
+                throw e;
+            }
+        }
+
+        private Timer timer(String operation, String exception) {
+            return Timer.builder(TIMER_NAME)
+                    .description("Latency of charging session service operations")
+                    .tag("operation", operation)
+                    .tag("exception", exception)
+                    .register(registry);
+        }
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.evron.chargingsessionservice.service;
+
+import com.evron.chargingsessionservice.exception.ChargingSessionNotFoundException;
+import com.evron.chargingsessionservice.exception.InvalidInputParameterException;
+import com.evron.chargingsessionservice.model.EnergyResponse;
+import com.evron.chargingsessionservice.model.MeterReading;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Service of the energy meter readings of charging sessions.
+ */
+public interface MeterReadingService {
+
+    /**
+     * Appends meter readings to a session in progress, all of them or none.
+     * A reading repeating the previous one is ignored, so a charger can
+     * safely resend readings it is unsure were received. The session is
+     * checked again once the readings are written, so none are kept if it is
+     * stopped meanwhile.
+     *
+     * @param id       id of the session
+     * @param readings {@link MeterReading}s in time order
+     * @return {@link EnergyResponse} with the totals of the session
+     * @throws ChargingSessionNotFoundException if no session has the id
+     * @throws InvalidInputParameterException   if the session is not in progress,
+     *                                          or a reading is missing its value,
+     *                                          precedes the session start or the
+     *                                          previous reading, or lowers the
+     *                                          meter value
+     */
+    EnergyResponse appendReadings(UUID id, List<MeterReading> readings);
+
+    /**
+     * Retrieves the energy delivered during a session, and optionally its
+     * curve: the energy delivered within each interval of the given length,
+     * intervals being aligned on multiples of their length. The meter value at
+     * the boundary of two intervals is interpolated between the readings
+     * around it.
+     *
+     * @param id       id of the session
+     * @param interval length of the intervals of the curve, such as {@code 1m},
+     *                 {@code 15m} or {@code PT1H}; {@code null} for no curve
+     * @return {@link EnergyResponse} of the session
+     * @throws ChargingSessionNotFoundException if no session has the id
+     * @throws InvalidInputParameterException   if interval is malformed, shorter
+     *                                          than one second, or splits the
+     *                                          session into too many intervals
+     */
+    EnergyResponse retrieveEnergy(UUID id, String interval);
+
+}
@@ -0,0 +1,264 @@
+package com.evron.chargingsessionservice.service;
+
+import com.evron.chargingsessionservice.dao.ChargingSessionDao;
+import com.evron.chargingsessionservice.dao.MeterReadingDao;
+import com.evron.chargingsessionservice.dao.MeterSeries;
+import com.evron.chargingsessionservice.dao.MeterSeries.ReadingVisitor;
+import com.evron.chargingsessionservice.exception.ChargingSessionNotFoundException;
+import com.evron.chargingsessionservice.exception.InvalidInputParameterException;
+import com.evron.chargingsessionservice.model.ChargingSession;
+import com.evron.chargingsessionservice.model.ChargingSession.SessionStatus;
+import com.evron.chargingsessionservice.model.EnergyInterval;
+import com.evron.chargingsessionservice.model.EnergyResponse;
+import com.evron.chargingsessionservice.model.MeterReading;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link MeterReadingService} of the sessions of this node, their readings
+ * stored per session in a compact {@link MeterSeries}.
+ * <p>
+ * Readings are only accepted for sessions {@code IN_PROGRESS}, and at or after
+ * their start. The energy delivered is answered in constant time from the
+ * first and last reading; the downsampled curve is computed while decoding
+ * the series, one interval at a time, without building the list of readings.
+ */
+@Slf4j
+public class MeterReadingServiceImpl implements MeterReadingService {
+
+    /**
+     * Number of readings accepted in one request at most
+     */
+    static final int MAX_BATCH_SIZE = 1000;
+
+    /**
+     * Number of intervals of a curve at most
+     */
+    static final int MAX_CURVE_POINTS = 10_000;
+
+    private static final double WH_PER_KWH = 1000;
+
+    private static final double MS_PER_HOUR = 3_600_000;
+
+    private final ChargingSessionDao chargingSessionDao;
+
+    private final MeterReadingDao meterReadingDao;
+
+    private final Clock clock;
+
+    public MeterReadingServiceImpl(ChargingSessionDao chargingSessionDao, MeterReadingDao meterReadingDao) {
+        this(chargingSessionDao, meterReadingDao, Clock.systemDefaultZone());
+    }
+
+    /**
+     * @param clock clock sessions are timestamped with, giving the time of
+     *              readings sent without one
+     */
+    public MeterReadingServiceImpl(ChargingSessionDao chargingSessionDao, MeterReadingDao meterReadingDao,
+                                   Clock clock) {
+        this.chargingSessionDao = chargingSessionDao;
+        this.meterReadingDao = meterReadingDao;
+        this.clock = clock;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see com.evron.chargingsessionservice.service.MeterReadingService#appendReadings(UUID, List)
+     */
+    @Override
+    public EnergyResponse appendReadings(UUID id, List<MeterReading> readings) {
+        if (readings == null || readings.isEmpty() || readings.size() > MAX_BATCH_SIZE) {
+            throw new InvalidInputParameterException(
+                    String.format("number of readings must be between 1 and %d", MAX_BATCH_SIZE));
+        }
+        log.debug("Appending {} meter readings to charging session {}", readings.size(), id);
+        ChargingSession session = findSession(id);
+        if (session.getStatus() != SessionStatus.IN_PROGRESS) {
+            throw new InvalidInputParameterException(
+                    String.format("Charging Session with ID %s is not in progress", id));
+        }
+        long startedAt = toEpochMillis(session.getStartedAt());
+        long now = toEpochMillis(LocalDateTime.now(clock));
+        long[] times = new long[readings.size()];
+        long[] wattHours = new long[readings.size()];
+        for (int i = 0; i < readings.size(); i++) {
+            MeterReading reading = readings.get(i);
+            if (reading == null || reading.getEnergyKwh() == null || !(reading.getEnergyKwh() >= 0)) {
+                throw new InvalidInputParameterException("Incorrect/missing energyKwh");
+            }
+            times[i] = reading.getReadAt() != null ? toEpochMillis(reading.getReadAt()) : now;
+            if (times[i] < startedAt) {
+                throw new InvalidInputParameterException("Readings must not precede the start of the session");
+            }
+            wattHours[i] = Math.round(reading.getEnergyKwh() * WH_PER_KWH);
+        }
+        //Time Complexity - O(r), r being the number of readings of the request
+        try {
+            return meterReadingDao.append(id, times, wattHours, () -> isInProgress(id), series -> totals(id, series));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidInputParameterException(e.getMessage());
+        } catch (IllegalStateException e) {
+            throw new InvalidInputParameterException(
+                    String.format("Charging Session with ID %s is not in progress", id));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A curve has {@value #MAX_CURVE_POINTS} intervals at most.
+     *
+     * @see com.evron.chargingsessionservice.service.MeterReadingService#retrieveEnergy(UUID, String)
+     */
+    @Override
+    public EnergyResponse retrieveEnergy(UUID id, String interval) {
+        long intervalMs = 0;
+        if (interval != null) {
+            try {
+                intervalMs = DurationStyle.detectAndParse(interval).toMillis();
+            } catch (IllegalArgumentException e) {
+                throw new InvalidInputParameterException("Incorrect interval");
+            }
+            if (intervalMs < Duration.ofSeconds(1).toMillis()) {
+                throw new InvalidInputParameterException("interval must be at least one second");
+            }
+        }
+        findSession(id);
+        long curveIntervalMs = intervalMs;
+        // readings appended in between are either all in the response or none
+        return meterReadingDao.read(id, series -> {
+            EnergyResponse response = totals(id, series);
+            if (interval != null && series.count() == 0) {
+                response.setCurve(new ArrayList<>());
+            } else if (interval != null) {
+                //Time Complexity - O(n), n being the number of readings of the session
+                response.setCurve(curve(series, curveIntervalMs));
+            }
+            return response;
+        });
+    }
+
+    private ChargingSession findSession(UUID id) {
+        ChargingSession session = chargingSessionDao.findById(id);
+        if (session == null) {
+            throw new ChargingSessionNotFoundException(
+                    String.format("Charging Session with ID %s does not exist", id.toString()));
+        }
+        return session;
+    }
+
+    private boolean isInProgress(UUID id) {
+        ChargingSession session = chargingSessionDao.findById(id);
+        return session != null && session.getStatus() == SessionStatus.IN_PROGRESS;
+    }
+
+    private static EnergyResponse totals(UUID id, MeterSeries series) {
+        EnergyResponse response = new EnergyResponse();
+        response.setChargingSessionId(id);
+        response.setReadings(series.count());
+        if (series.count() > 0) {
+            response.setFirstReadingAt(toDateTime(series.firstTime()));
+            response.setLastReadingAt(toDateTime(series.lastTime()));
+            response.setEnergyKwh(series.energyWh() / WH_PER_KWH);
+        }
+        return response;
+    }
+
+    private static List<EnergyInterval> curve(MeterSeries series, long intervalMs) {
+        long first = Math.floorDiv(series.firstTime(), intervalMs);
+        long points = Math.floorDiv(series.lastTime(), intervalMs) - first + 1;
+        if (points > MAX_CURVE_POINTS) {
+            throw new InvalidInputParameterException(String.format(
+                    "interval splits the session into %d intervals, more than %d", points, MAX_CURVE_POINTS));
+        }
+        CurveBuilder builder = new CurveBuilder(intervalMs, (int) points);
+        series.forEach(builder);
+        return builder.finish();
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime toDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * WH_PER_KWH) / WH_PER_KWH;
+    }
+
+    /**
+     * Sums the readings of a series into intervals as they are decoded,
+     * keeping only the previous reading and the meter value at the start of
+     * the current interval.
+     */
+    private static final class CurveBuilder implements ReadingVisitor {
+
+        private final long intervalMs;
+
+        private final List<EnergyInterval> curve;
+
+        private long intervalStart;
+
+        private double intervalStartWh;
+
+        private long previousTime;
+
+        private long previousWh;
+
+        private boolean started;
+
+        private CurveBuilder(long intervalMs, int points) {
+            this.intervalMs = intervalMs;
+            this.curve = new ArrayList<>(points);
+        }
+
+        @Override
+        public void visit(long time, long wh) {
+            if (!started) {
+                intervalStart = Math.floorDiv(time, intervalMs) * intervalMs;
+                intervalStartWh = wh;
+                started = true;
+            }
+            while (time >= intervalStart + intervalMs) {
+                long intervalEnd = intervalStart + intervalMs;
+                // the previous reading is within the interval, before its end
+                double intervalEndWh = previousWh
+                        + (double) (wh - previousWh) * (intervalEnd - previousTime) / (time - previousTime);
+                add(intervalEndWh);
+                intervalStart = intervalEnd;
+                intervalStartWh = intervalEndWh;
+            }
+            previousTime = time;
+            previousWh = wh;
+        }
+
+        private List<EnergyInterval> finish() {
+            if (started) {
+                add(previousWh);
+            }
+            return curve;
+        }
+
+        private void add(double intervalEndWh) {
+            double energyKwh = (intervalEndWh - intervalStartWh) / WH_PER_KWH;
+            curve.add(new EnergyInterval(toDateTime(intervalStart), round(energyKwh),
+                    round(energyKwh * MS_PER_HOUR / intervalMs)));
+        }
+
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.evron.chargingsessionservice.service;
+
+import java.util.UUID;
+
+/**
+ * {@link SessionIdGenerator} of a node of the cluster, only returning ids the
+ * {@link ConsistentHashRing} assigns to that node, so a session is always
+ * stored on the node owning its id.
+ * <p>
+ * Ids of the underlying generator are drawn until one falls in the partition
+ * of the node, {@code n} draws on average with {@code n} evenly shared nodes.
+ */
+public class PartitionedSessionIdGenerator implements SessionIdGenerator {
+
+    private final SessionIdGenerator delegate;
+
+    private final ConsistentHashRing ring;
+
+    private final String self;
+
+    /**
+     * @param delegate generator of candidate ids
+     * @param ring     ring of the cluster
+     * @param self     node the ids are generated for
+     */
+    public PartitionedSessionIdGenerator(SessionIdGenerator delegate, ConsistentHashRing ring, String self) {
+        if (!ring.nodes().contains(self)) {
+            throw new IllegalArgumentException(String.format("%s is not a node of the cluster", self));
+        }
+        this.delegate = delegate;
+        this.ring = ring;
+        this.self = self;
+    }
+
+    @Override
+    public UUID nextId() {
+        UUID id;
+        do {
+            id = delegate.nextId();
+        } while (!self.equals(ring.owner(id)));
+        return id;
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.evron.chargingsessionservice.service;
+
+import java.util.UUID;
+
+/**
+ * Generates random (version 4) UUIDs with {@link UUID#randomUUID()}. Every id
+ * is drawn from one shared {@link java.security.SecureRandom}, which threads
+ * starting sessions concurrently contend on.
+ */
+public class RandomSessionIdGenerator implements SessionIdGenerator {
+
+    @Override
+    public UUID nextId() {
+        return UUID.randomUUID();
+    }
+
+}
@@ -0,0 +1,264 @@
+package com.evron.chargingsessionservice.service;
+
+import com.evron.chargingsessionservice.exception.ChargingSessionNotFoundException;
+import com.evron.chargingsessionservice.exception.ClusterNodeUnavailableException;
+import com.evron.chargingsessionservice.exception.InvalidInputParameterException;
+import com.evron.chargingsessionservice.model.BatchResponse;
+import com.evron.chargingsessionservice.model.ChargingSession;
+import com.evron.chargingsessionservice.model.ChargingSession.SessionStatus;
+import com.evron.chargingsessionservice.model.ChargingSessionRequest;
+import com.evron.chargingsessionservice.model.ChargingSessionResponse;
+import com.evron.chargingsessionservice.model.EnergyResponse;
+import com.evron.chargingsessionservice.model.MeterReading;
+import com.evron.chargingsessionservice.model.MetricsCount;
+import com.evron.chargingsessionservice.model.StatusCount;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * {@link ChargingSessionService} and {@link MeterReadingService} of the
+ * partition of another node of the cluster, called over HTTP through its
+ * {@value #BASE_PATH} endpoints.
+ * <p>
+ * Errors of the node are raised as they would be locally: {@code 400} as
+ * {@link InvalidInputParameterException} and {@code 404} as
+ * {@link ChargingSessionNotFoundException}, with the message of the node. A
+ * node which cannot be reached or fails raises
+ * {@link ClusterNodeUnavailableException}.
+ */
+public class RemoteChargingSessionService implements ChargingSessionService, MeterReadingService {
+
+    /**
+     * Path of the partition endpoints of a node
+     */
+    public static final String BASE_PATH = "/cluster/chargingSessions";
+
+    private final String baseUrl;
+
+    private final RestTemplate restTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final ObjectReader sessionReader;
+
+    /**
+     * @param baseUrl      base URL of the node, such as {@code http://10.0.0.2:8080}
+     * @param builder      {@link RestTemplateBuilder} with the timeouts of the cluster
+     * @param objectMapper {@link ObjectMapper} reading the exported sessions
+     */
+    public RemoteChargingSessionService(String baseUrl, RestTemplateBuilder builder, ObjectMapper objectMapper) {
+        this.baseUrl = baseUrl;
+        this.restTemplate = builder.rootUri(baseUrl).build();
+        this.objectMapper = objectMapper;
+        this.sessionReader = objectMapper.readerFor(ChargingSession.class);
+    }
+
+    @Override
+    public ChargingSession saveNewChargingSession(ChargingSessionRequest request)
+            throws InvalidInputParameterException {
+        return call(() -> restTemplate.postForObject(BASE_PATH, request, ChargingSession.class));
+    }
+
+    @Override
+    public ChargingSession stopChargingSession(UUID id) {
+        return call(() -> restTemplate.exchange(BASE_PATH + "/{id}", HttpMethod.PUT, null,
+                ChargingSession.class, id).getBody());
+    }
+
+    @Override
+    public BatchResponse saveNewChargingSessions(List<ChargingSessionRequest> requests)
+            throws InvalidInputParameterException {
+        return call(() -> restTemplate.postForObject(BASE_PATH + "/batch", requests, BatchResponse.class));
+    }
+
+    @Override
+    public BatchResponse stopChargingSessions(List<UUID> ids) throws InvalidInputParameterException {
+        return call(() -> restTemplate.exchange(BASE_PATH + "/batch", HttpMethod.PUT, new HttpEntity<>(ids),
+                BatchResponse.class).getBody());
+    }
+
+    @Override
+    public ChargingSessionResponse retrieveChargingSessions() {
+        return get("", ChargingSessionResponse.class);
+    }
+
+    @Override
+    public ChargingSessionResponse retrieveChargingSessions(int limit, String cursor, SessionStatus status)
+            throws InvalidInputParameterException {
+        return get("", ChargingSessionResponse.class, "limit", limit, "cursor", cursor, "status", status);
+    }
+
+    @Override
+    public ChargingSessionResponse retrieveChargingSessionsByStation(String stationId, SessionStatus status)
+            throws InvalidInputParameterException {
+        return get("", ChargingSessionResponse.class, "stationId", stationId, "status", status);
+    }
+
+    @Override
+    public ChargingSessionResponse retrieveActiveChargingSessions() {
+        return get("/active", ChargingSessionResponse.class);
+    }
+
+    @Override
+    public StatusCount retrieveStatusCount() {
+        return get("/counts", StatusCount.class);
+    }
+
+    @Override
+    public String retrieveChargingSessionsVersion() {
+        return get("/version", String.class);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Sessions are read from the response stream of the node as the iterator
+     * is consumed; the connection is released once it is exhausted or closed.
+     */
+    @Override
+    public CloseableIterator<ChargingSession> exportChargingSessions() {
+        ClientHttpResponse response = call(() -> {
+            try {
+                ClientHttpResponse exported = restTemplate.getRequestFactory()
+                        .createRequest(URI.create(baseUrl + BASE_PATH + "/export"), HttpMethod.GET).execute();
+                if (exported.getRawStatusCode() != 200) {
+                    exported.close();
+                    throw new RestClientException("Export answered " + exported.getRawStatusCode());
+                }
+                return exported;
+            } catch (IOException e) {
+                throw new ResourceAccessException(e.getMessage(), e);
+            }
+        });
+        MappingIterator<ChargingSession> sessions;
+        try {
+            sessions = sessionReader.readValues(response.getBody());
+        } catch (IOException e) {
+            response.close();
+            throw unavailable(e);
+        }
+        return new CloseableIterator<ChargingSession>() {
+
+            private boolean closed;
+
+            @Override
+            public boolean hasNext() {
+                if (closed) {
+                    return false;
+                }
+                boolean hasNext = sessions.hasNext();
+                if (!hasNext) {
+                    close();
+                }
+                return hasNext;
+            }
+
+            @Override
+            public ChargingSession next() {
+                if (closed) {
+                    throw new NoSuchElementException();
+                }
+                return sessions.next();
+            }
+
+            @Override
+            public void close() {
+                if (!closed) {
+                    closed = true;
+                    response.close();
+                }
+            }
+        };
+    }
+
+    @Override
+    public MetricsCount retrieveChargingSessionsSummary() {
+        return get("/summary", MetricsCount.class);
+    }
+
+    @Override
+    public MetricsCount retrieveChargingSessionsSummary(String window, String stationId)
+            throws InvalidInputParameterException {
+        return get("/summary", MetricsCount.class, "window", window, "stationId", stationId);
+    }
+
+    @Override
+    public EnergyResponse appendReadings(UUID id, List<MeterReading> readings) {
+        return call(() -> restTemplate.postForObject(BASE_PATH + "/{id}/readings", readings, EnergyResponse.class,
+                id));
+    }
+
+    @Override
+    public EnergyResponse retrieveEnergy(UUID id, String interval) {
+        return get("/" + id + "/energy", EnergyResponse.class, "interval", interval);
+    }
+
+    /**
+     * GETs {@code path}, with the query parameters of the given name/value
+     * pairs which have a value.
+     */
+    private <T> T get(String path, Class<T> type, Object... parameters) {
+        StringBuilder template = new StringBuilder(BASE_PATH).append(path);
+        Map<String, Object> variables = new HashMap<>();
+        for (int i = 0; i < parameters.length; i += 2) {
+            if (parameters[i + 1] != null) {
+                String name = (String) parameters[i];
+                template.append(variables.isEmpty() ? '?' : '&').append(name).append("={").append(name).append('}');
+                variables.put(name, parameters[i + 1]);
+            }
+        }
+        return call(() -> restTemplate.getForObject(template.toString(), type, variables));
+    }
+
+    /**
+     * Calls the node, translating its errors into the exceptions of the
+     * service.
+     */
+    private <T> T call(Supplier<T> request) {
+        try {
+            return request.get();
+        } catch (HttpClientErrorException.NotFound e) {
+            throw new ChargingSessionNotFoundException(message(e));
+        } catch (HttpClientErrorException.BadRequest e) {
+            throw new InvalidInputParameterException(message(e));
+        } catch (RestClientException e) {
+            throw unavailable(e);
+        }
+    }
+
+    private ClusterNodeUnavailableException unavailable(Exception cause) {
+        return new ClusterNodeUnavailableException(String.format("Cluster node %s is unavailable", baseUrl), cause);
+    }
+
+    /**
+     * @return message of the error body of the node, or its status text
+     */
+    private String message(HttpStatusCodeException e) {
+        try {
+            return objectMapper.readTree(e.getResponseBodyAsByteArray()).path("message").asText(e.getStatusText());
+        } catch (IOException | RuntimeException parseFailure) {
+            return e.getStatusText();
+        }
+    }
+
+}
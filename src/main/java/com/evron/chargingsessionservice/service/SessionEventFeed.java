@@ -0,0 +1,338 @@
+package com.evron.chargingsessionservice.service;
+
+import com.evron.chargingsessionservice.exception.InvalidInputParameterException;
+import com.evron.chargingsessionservice.exception.SessionEventsExpiredException;
+import com.evron.chargingsessionservice.model.ChargingSession;
+import com.evron.chargingsessionservice.model.SessionEvent;
+import com.evron.chargingsessionservice.model.SessionEvent.Type;
+
+import org.springframework.lang.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Feed of the starts and stops of charging sessions, numbered by a sequence
+ * increasing by one per event.
+ * <p>
+ * The latest {@code capacity} events are kept in a ring buffer, so a consumer
+ * reconnecting with the sequence of the last event it saw gets the events it
+ * missed instead of re-reading every session. A consumer further behind gets a
+ * {@link SessionEventsExpiredException} and has to re-read.
+ * <p>
+ * Sequences start over when the application restarts, so the ids given to
+ * consumers, see {@link #eventId(SessionEvent)}, are prefixed with a random tag
+ * of the run: an id of a previous run, or of another node, is expired as well
+ * instead of resuming at an unrelated event.
+ * <p>
+ * Subscribers are pushed new events from a delivery thread, at most one at a
+ * time per subscriber, and only while there is something to deliver; idle
+ * subscribers get a heartbeat every {@code heartbeatMs}, which also detects
+ * consumers which went away. Appending only wakes up the subscribers, so a
+ * slow consumer never slows down the requests changing sessions.
+ */
+@Slf4j
+public class SessionEventFeed implements Closeable {
+
+    /**
+     * Events delivered to a subscriber at once at most
+     */
+    private static final int DELIVERY_BATCH = 256;
+
+    /**
+     * Random tag of this run, prefixing the event ids
+     */
+    private final String run = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+    private final SessionEvent[] buffer;
+
+    /**
+     * Sequence of the latest event, guarded by {@code this}
+     */
+    private long lastSequence;
+
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService delivery;
+
+    private final ScheduledExecutorService heartbeats;
+
+    public SessionEventFeed() {
+        this(10_000, 15_000);
+    }
+
+    /**
+     * @param capacity    number of latest events kept for reconnecting consumers
+     * @param heartbeatMs period of the heartbeats of idle subscribers, in milliseconds
+     */
+    public SessionEventFeed(int capacity, long heartbeatMs) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        buffer = new SessionEvent[capacity];
+        AtomicInteger threads = new AtomicInteger();
+        // one thread per subscriber at most, so a stalled consumer only holds up itself
+        delivery = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "session-events-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-events-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeats.scheduleAtFixedRate(() -> subscriptions.forEach(Subscription::heartbeat),
+                heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void started(ChargingSession session) {
+        append(Type.STARTED, Collections.singletonList(session));
+    }
+
+    public void startedAll(List<ChargingSession> sessions) {
+        append(Type.STARTED, sessions);
+    }
+
+    public void stopped(ChargingSession session) {
+        append(Type.STOPPED, Collections.singletonList(session));
+    }
+
+    public void stoppedAll(List<ChargingSession> sessions) {
+        append(Type.STOPPED, sessions);
+    }
+
+    /**
+     * @return sequence of the latest event, {@code 0} before the first one
+     */
+    public synchronized long lastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * @param event event of this feed
+     * @return id of the event for consumers, {@code <run>-<sequence>}
+     */
+    public String eventId(SessionEvent event) {
+        return run + "-" + event.getSequence();
+    }
+
+    /**
+     * @param eventId id of the last event seen by a consumer, {@code null} if none
+     * @return sequence of that event, {@code null} if {@code eventId} is {@code null}
+     * @throws SessionEventsExpiredException  if the id belongs to another run
+     * @throws InvalidInputParameterException if the sequence of the id is malformed
+     */
+    @Nullable
+    public Long sequenceOf(@Nullable String eventId) {
+        if (eventId == null) {
+            return null;
+        }
+        String prefix = run + "-";
+        if (!eventId.startsWith(prefix)) {
+            throw new SessionEventsExpiredException(String.format(
+                    "Event %s is not an event of the current run, whose ids start with %s", eventId, prefix));
+        }
+        try {
+            return Long.parseLong(eventId.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            throw new InvalidInputParameterException("Incorrect event id");
+        }
+    }
+
+    /**
+     * Time Complexity - O(max)
+     *
+     * @param sequence sequence of the last event already seen
+     * @param max      number of events returned at most
+     * @return events following {@code sequence}, oldest first
+     * @throws SessionEventsExpiredException if events following {@code sequence}
+     *                                       are no longer kept
+     */
+    public synchronized List<SessionEvent> readAfter(long sequence, int max) {
+        if (sequence < 0 || sequence < lastSequence - buffer.length || sequence > lastSequence) {
+            throw new SessionEventsExpiredException(String.format(
+                    "Events after %d are not available, the feed holds events %d to %d",
+                    sequence, Math.max(1, lastSequence - buffer.length + 1), lastSequence));
+        }
+        int count = (int) Math.min(max, lastSequence - sequence);
+        List<SessionEvent> events = new ArrayList<>(count);
+        for (long next = sequence + 1; next <= sequence + count; next++) {
+            events.add(buffer[(int) (next % buffer.length)]);
+        }
+        return events;
+    }
+
+    /**
+     * Subscribes to the events following {@code after}, or to the events to
+     * come.
+     *
+     * @param after    sequence of the last event already seen, {@code null} to
+     *                 only receive new events
+     * @param listener receives the events
+     * @return {@link Subscription} to close once the consumer is gone
+     * @throws SessionEventsExpiredException if events following {@code after}
+     *                                       are no longer kept
+     */
+    public Subscription subscribe(@Nullable Long after, SessionEventListener listener) {
+        long from = after != null ? after : lastSequence();
+        // fails if events were already dropped
+        readAfter(from, 0);
+        Subscription subscription = new Subscription(from, listener);
+        subscriptions.add(subscription);
+        subscription.schedule();
+        return subscription;
+    }
+
+    /**
+     * @return number of open subscriptions
+     */
+    public int subscribers() {
+        return subscriptions.size();
+    }
+
+    @Override
+    public void close() {
+        subscriptions.forEach(Subscription::close);
+        heartbeats.shutdownNow();
+        delivery.shutdownNow();
+    }
+
+    private void append(Type type, List<ChargingSession> sessions) {
+        if (sessions.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            for (ChargingSession session : sessions) {
+                lastSequence++;
+                buffer[(int) (lastSequence % buffer.length)] = new SessionEvent(lastSequence, type, session);
+            }
+        }
+        for (Subscription subscription : subscriptions) {
+            subscription.schedule();
+        }
+    }
+
+    /**
+     * Receiver of the events of a {@link Subscription}. Calls for one
+     * subscription never overlap; a listener throwing closes its subscription.
+     */
+    public interface SessionEventListener {
+
+        /**
+         * @param events new events, oldest first
+         */
+        void onEvents(List<SessionEvent> events) throws IOException;
+
+        /**
+         * Called when no event was delivered for a heartbeat period.
+         */
+        void onHeartbeat() throws IOException;
+
+        /**
+         * Called once the subscriber fell so far behind that events it did
+         * not receive were dropped; the subscription is closed.
+         *
+         * @param message description of the missing events
+         */
+        void onExpired(String message) throws IOException;
+    }
+
+    /**
+     * Subscription of a consumer, delivering the events following its
+     * position in the feed.
+     */
+    public final class Subscription implements Closeable {
+
+        private final SessionEventListener listener;
+
+        /**
+         * Sequence of the last delivered event, only used by the delivering thread
+         */
+        private long position;
+
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private final AtomicBoolean heartbeatDue = new AtomicBoolean();
+
+        private volatile boolean closed;
+
+        private Subscription(long position, SessionEventListener listener) {
+            this.position = position;
+            this.listener = listener;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            subscriptions.remove(this);
+        }
+
+        private void heartbeat() {
+            heartbeatDue.set(true);
+            schedule();
+        }
+
+        private void schedule() {
+            if (!closed && scheduled.compareAndSet(false, true)) {
+                try {
+                    delivery.execute(this::deliver);
+                } catch (RuntimeException e) {
+                    // the feed is closing
+                    close();
+                }
+            }
+        }
+
+        private void deliver() {
+            boolean delivered = false;
+            try {
+                while (!closed) {
+                    List<SessionEvent> events;
+                    try {
+                        events = readAfter(position, DELIVERY_BATCH);
+                    } catch (SessionEventsExpiredException e) {
+                        close();
+                        listener.onExpired(e.getMessage());
+                        return;
+                    }
+                    if (events.isEmpty()) {
+                        break;
+                    }
+                    listener.onEvents(events);
+                    position = events.get(events.size() - 1).getSequence();
+                    delivered = true;
+                }
+                if (heartbeatDue.getAndSet(false) && !delivered && !closed) {
+                    listener.onHeartbeat();
+                }
+            } catch (IOException | RuntimeException e) {
+                log.debug("Closing subscription to session events", e);
+                close();
+                return;
+            } finally {
+                scheduled.set(false);
+            }
+            // events appended after the last read found this subscription still scheduled
+            if (lastSequence() > position) {
+                schedule();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,31 @@
+package com.evron.chargingsessionservice.service;
+
+import java.util.UUID;
+
+/**
+ * Source of the ids of new charging sessions. Implementations are called
+ * concurrently by every thread starting sessions, so they must be thread-safe.
+ */
+public interface SessionIdGenerator {
+
+    /**
+     * Available id generators, selected with {@code charging-session.ids.strategy}.
+     */
+    enum Strategy {
+
+        /**
+         * Random (version 4) UUIDs from {@link UUID#randomUUID()}.
+         */
+        RANDOM,
+        /**
+         * Time-ordered (version 7) UUIDs, see {@link TimeOrderedSessionIdGenerator}.
+         */
+        TIME_ORDERED
+    }
+
+    /**
+     * @return new unique session id
+     */
+    UUID nextId();
+
+}
@@ -0,0 +1,489 @@
+package com.evron.chargingsessionservice.service;
+
+import com.evron.chargingsessionservice.dao.ChargingSessionDao;
+import com.evron.chargingsessionservice.exception.InvalidInputParameterException;
+import com.evron.chargingsessionservice.model.ChargingSession;
+import com.evron.chargingsessionservice.model.ChargingSession.SessionStatus;
+import com.evron.chargingsessionservice.model.ImportResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bulk import of historical charging sessions, kept with their original ids,
+ * times and status, straight into the {@link ChargingSessionDao}.
+ * <p>
+ * The input is split into chunks of {@code chunkLines} lines on the calling
+ * thread, and the chunks are parsed and saved on {@code threads} threads, each
+ * chunk with one {@link ChargingSessionDao#saveAllUnlessArchived(List)} and
+ * therefore one journal write. At most two chunks per thread are in flight, so
+ * memory use does not depend on the size of the input. Progress is logged
+ * every {@code progressIntervalMs}.
+ * <p>
+ * Imported sessions replace stored sessions with the same id, archived ones
+ * included, so an interrupted import can be run again. Sessions identical to
+ * their archived copy are skipped rather than brought back into memory. An id
+ * appearing on several lines keeps the session of whichever line is saved
+ * last. Imported sessions are not counted in the summaries of recent updates
+ * nor published to the {@link SessionEventFeed}: they are history, not new
+ * starts and stops.
+ * <p>
+ * In cluster mode the sessions another node owns are skipped, so the same
+ * file is imported by posting it to every node.
+ */
+@Slf4j
+public class SessionImporter implements Closeable {
+
+    /**
+     * Number of failed lines reported at most
+     */
+    static final int MAX_ERRORS = 100;
+
+    /**
+     * Formats of the imported files.
+     */
+    public enum Format {
+        /**
+         * One JSON session per line, as written by the export
+         */
+        NDJSON,
+        /**
+         * Comma-separated values with a header line naming the columns
+         * {@code id}, {@code stationId}, {@code startedAt} and optionally
+         * {@code stoppedAt} and {@code status}, in any order
+         */
+        CSV
+    }
+
+    private final ChargingSessionDao dao;
+
+    private final ObjectReader sessionReader;
+
+    private final int threads;
+
+    private final int chunkLines;
+
+    private final long progressIntervalMs;
+
+    /**
+     * Ring and node of a cluster, {@code null} outside cluster mode
+     */
+    private final ConsistentHashRing ring;
+
+    private final String self;
+
+    private final ExecutorService parsers;
+
+    private final Counter importedCounter;
+
+    private final Counter skippedCounter;
+
+    private final Counter failedCounter;
+
+    /**
+     * @param dao                {@code ChargingSessionDao} receiving the sessions
+     * @param objectMapper       {@code ObjectMapper} parsing NDJSON lines
+     * @param threads            threads parsing and saving chunks
+     * @param chunkLines         lines per chunk
+     * @param progressIntervalMs period of the progress log lines
+     * @param ring               {@link ConsistentHashRing} of the cluster, {@code null} outside
+     *                           cluster mode
+     * @param self               node of the ring sessions are imported on
+     * @param registry           {@link MeterRegistry} receiving the import metrics, {@code null}
+     *                           to discard them
+     */
+    public SessionImporter(ChargingSessionDao dao, ObjectMapper objectMapper, int threads, int chunkLines,
+                           long progressIntervalMs, @Nullable ConsistentHashRing ring, @Nullable String self,
+                           @Nullable MeterRegistry registry) {
+        if (threads < 1 || chunkLines < 1) {
+            throw new IllegalArgumentException("threads and chunkLines must be positive");
+        }
+        if (registry == null) {
+            registry = new CompositeMeterRegistry();
+        }
+        this.dao = dao;
+        this.sessionReader = objectMapper.readerFor(ChargingSession.class);
+        this.threads = threads;
+        this.chunkLines = chunkLines;
+        this.progressIntervalMs = progressIntervalMs;
+        this.ring = ring;
+        this.self = self;
+        AtomicInteger count = new AtomicInteger();
+        this.parsers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "session-import-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        importedCounter = counter(registry, "imported");
+        skippedCounter = counter(registry, "skipped");
+        failedCounter = counter(registry, "failed");
+    }
+
+    /**
+     * Imports every session of the input. Lines which cannot be parsed or do
+     * not describe a valid session are counted as failed and do not stop the
+     * import; a failure of the store does.
+     * <p>
+     * Time Complexity - O(n log n)
+     *
+     * @param input  sessions to import, UTF-8 encoded
+     * @param format {@link Format} of the input
+     * @return {@link ImportResponse} with the outcome of the import
+     * @throws IOException if the input cannot be read
+     */
+    public ImportResponse importSessions(InputStream input, Format format) throws IOException {
+        Run run = new Run(format);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16);
+        long line = 0;
+        if (format == Format.CSV) {
+            String header = reader.readLine();
+            if (header == null) {
+                throw new InvalidInputParameterException("The CSV header line is missing");
+            }
+            run.columns = CsvColumns.of(header);
+            line++;
+        }
+        long nextReport = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(progressIntervalMs);
+        List<String> chunk = new ArrayList<>(chunkLines);
+        long chunkStart = line + 1;
+        String text;
+        try {
+            while ((text = reader.readLine()) != null) {
+                line++;
+                chunk.add(text);
+                if (chunk.size() == chunkLines) {
+                    run.submit(chunk, chunkStart);
+                    chunk = new ArrayList<>(chunkLines);
+                    chunkStart = line + 1;
+                    if (System.nanoTime() >= nextReport) {
+                        run.logProgress(line);
+                        nextReport = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(progressIntervalMs);
+                    }
+                }
+            }
+            if (!chunk.isEmpty()) {
+                run.submit(chunk, chunkStart);
+            }
+        } finally {
+            run.awaitChunks();
+        }
+        ImportResponse response = run.response();
+        log.info("Imported {} charging sessions from {} lines of {} in {} ms ({} records/s), {} skipped, {} failed",
+                response.getImported(), line, format, response.getElapsedMs(), response.getRecordsPerSecond(),
+                response.getSkipped(), response.getFailed());
+        return response;
+    }
+
+    @Override
+    public void close() {
+        parsers.shutdownNow();
+    }
+
+    /**
+     * Checks an imported session and completes its status from its stop time.
+     */
+    private static void validate(ChargingSession session) {
+        if (session.getId() == null) {
+            throw new InvalidInputParameterException("Incorrect/missing id");
+        }
+        if (!StringUtils.hasText(session.getStationId())) {
+            throw new InvalidInputParameterException("Incorrect/missing stationId");
+        }
+        if (session.getStartedAt() == null) {
+            throw new InvalidInputParameterException("Incorrect/missing startedAt");
+        }
+        LocalDateTime stoppedAt = session.getStoppedAt();
+        if (stoppedAt != null && stoppedAt.isBefore(session.getStartedAt())) {
+            throw new InvalidInputParameterException("stoppedAt is before startedAt");
+        }
+        SessionStatus status = stoppedAt != null ? SessionStatus.FINISHED : SessionStatus.IN_PROGRESS;
+        if (session.getStatus() != null && session.getStatus() != status) {
+            throw new InvalidInputParameterException(String.format("status %s does not match stoppedAt %s",
+                    session.getStatus(), stoppedAt));
+        }
+        session.setStatus(status);
+    }
+
+    private static Counter counter(MeterRegistry registry, String outcome) {
+        return Counter.builder("charging.session.import.records")
+                .description("Records of bulk imports per outcome")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    /**
+     * State of one import.
+     */
+    private final class Run {
+
+        private final Format format;
+
+        private final long start = System.nanoTime();
+
+        /**
+         * Chunks which may still be queued or being parsed
+         */
+        private final Semaphore inFlight = new Semaphore(threads * 2);
+
+        private final LongAdder imported = new LongAdder();
+
+        private final LongAdder skipped = new LongAdder();
+
+        private final LongAdder failed = new LongAdder();
+
+        /**
+         * Failed lines, up to {@value #MAX_ERRORS}, guarded by itself
+         */
+        private final Map<Long, String> errors = new HashMap<>();
+
+        /**
+         * First failure of the store, which aborts the import
+         */
+        private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        private CsvColumns columns;
+
+        private Run(Format format) {
+            this.format = format;
+        }
+
+        private void submit(List<String> chunk, long firstLine) throws InterruptedIOException {
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Import interrupted");
+            }
+            RuntimeException stored = failure.get();
+            if (stored != null) {
+                inFlight.release();
+                throw stored;
+            }
+            try {
+                parsers.execute(() -> {
+                    try {
+                        save(chunk, firstLine);
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                inFlight.release();
+                throw e;
+            }
+        }
+
+        private void save(List<String> chunk, long firstLine) {
+            List<ChargingSession> sessions = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                String text = chunk.get(i);
+                if (text.trim().isEmpty()) {
+                    continue;
+                }
+                try {
+                    ChargingSession session = format == Format.CSV ? columns.parse(text)
+                            : sessionReader.readValue(text);
+                    validate(session);
+                    if (ring != null && !self.equals(ring.owner(session.getId()))) {
+                        skipped.increment();
+                        skippedCounter.increment();
+                        continue;
+                    }
+                    sessions.add(session);
+                } catch (JsonProcessingException e) {
+                    failed(firstLine + i, e.getOriginalMessage());
+                } catch (RuntimeException e) {
+                    failed(firstLine + i, e.getMessage());
+                }
+            }
+            int archived = dao.saveAllUnlessArchived(sessions);
+            imported.add(sessions.size() - archived);
+            importedCounter.increment(sessions.size() - archived);
+            skipped.add(archived);
+            skippedCounter.increment(archived);
+        }
+
+        private void failed(long line, String message) {
+            failed.increment();
+            failedCounter.increment();
+            synchronized (errors) {
+                if (errors.size() < MAX_ERRORS) {
+                    errors.put(line, "line " + line + ": " + message);
+                }
+            }
+        }
+
+        private void awaitChunks() throws InterruptedIOException {
+            try {
+                inFlight.acquire(threads * 2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Import interrupted");
+            }
+            inFlight.release(threads * 2);
+            RuntimeException stored = failure.get();
+            if (stored != null) {
+                throw stored;
+            }
+        }
+
+        private void logProgress(long lines) {
+            long elapsedMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            log.info("Importing charging sessions: {} lines read, {} imported, {} skipped, {} failed, {} lines/s",
+                    lines, imported.sum(), skipped.sum(), failed.sum(), lines * 1000 / elapsedMs);
+        }
+
+        private ImportResponse response() {
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            ImportResponse response = new ImportResponse();
+            response.setImported(imported.sum());
+            response.setSkipped(skipped.sum());
+            response.setFailed(failed.sum());
+            List<String> messages;
+            synchronized (errors) {
+                List<Long> lines = new ArrayList<>(errors.keySet());
+                Collections.sort(lines);
+                messages = new ArrayList<>(lines.size());
+                for (Long line : lines) {
+                    messages.add(errors.get(line));
+                }
+            }
+            response.setErrors(messages);
+            response.setElapsedMs(elapsedMs);
+            long records = response.getImported() + response.getSkipped() + response.getFailed();
+            response.setRecordsPerSecond(records * 1000 / Math.max(1, elapsedMs));
+            return response;
+        }
+
+    }
+
+    /**
+     * Positions of the columns of a CSV file, read from its header line.
+     */
+    static final class CsvColumns {
+
+        private final int id;
+
+        private final int stationId;
+
+        private final int startedAt;
+
+        private final int stoppedAt;
+
+        private final int status;
+
+        private CsvColumns(Map<String, Integer> positions) {
+            id = required(positions, "id");
+            stationId = required(positions, "stationid");
+            startedAt = required(positions, "startedat");
+            stoppedAt = positions.getOrDefault("stoppedat", -1);
+            status = positions.getOrDefault("status", -1);
+        }
+
+        static CsvColumns of(String header) {
+            List<String> names = split(header);
+            Map<String, Integer> positions = new HashMap<>();
+            for (int i = 0; i < names.size(); i++) {
+                positions.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+            return new CsvColumns(positions);
+        }
+
+        ChargingSession parse(String line) {
+            List<String> fields = split(line);
+            ChargingSession session = new ChargingSession();
+            String value = field(fields, id);
+            session.setId(value != null ? UUID.fromString(value) : null);
+            session.setStationId(field(fields, stationId));
+            value = field(fields, startedAt);
+            session.setStartedAt(value != null ? LocalDateTime.parse(value) : null);
+            value = field(fields, stoppedAt);
+            session.setStoppedAt(value != null ? LocalDateTime.parse(value) : null);
+            value = field(fields, status);
+            session.setStatus(value != null ? SessionStatus.valueOf(value) : null);
+            return session;
+        }
+
+        private static int required(Map<String, Integer> positions, String name) {
+            Integer position = positions.get(name);
+            if (position == null) {
+                throw new InvalidInputParameterException(String.format("The CSV header has no %s column", name));
+            }
+            return position;
+        }
+
+        /**
+         * @return trimmed value of the column, {@code null} if absent or empty
+         */
+        private static String field(List<String> fields, int position) {
+            if (position < 0 || position >= fields.size()) {
+                return null;
+            }
+            String value = fields.get(position).trim();
+            return value.isEmpty() ? null : value;
+        }
+
+        /**
+         * Splits a line on commas outside double quotes; quotes are removed and
+         * doubled quotes within them stand for one.
+         */
+        static List<String> split(String line) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (c == '"') {
+                    if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = !quoted;
+                    }
+                } else if (c == ',' && !quoted) {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+
+    }
+
+}
@@ -0,0 +1,231 @@
+package com.evron.chargingsessionservice.service;
+
+import com.evron.chargingsessionservice.model.MetricsCount;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Pre-aggregated started/stopped counters of charging sessions, in
+ * <b>per-minute</b> and <b>per-hour</b> buckets, globally and per station.
+ * <p>
+ * Like {@link SlidingWindowCounter}, each granularity is a ring of buckets
+ * replaced lazily when its slot comes around again, so the rings retain the
+ * last {@code minuteBuckets} minutes and {@code hourBuckets} hours. Recording
+ * touches one bucket per granularity for the station and one for the global
+ * series; a summary sums one bucket per minute or hour of the window, however
+ * many sessions it covers. Rings and buckets of a station are only allocated
+ * once it records updates.
+ * <p>
+ * Windows up to {@code minuteBuckets} minutes are counted in whole minutes,
+ * longer ones in whole hours, in both cases including the current, partial,
+ * minute or hour.
+ */
+public class SessionRollups {
+
+    private static final long MINUTE_MILLIS = 60_000L;
+
+    private static final long HOUR_MILLIS = 3_600_000L;
+
+    private final int minuteBuckets;
+
+    private final int hourBuckets;
+
+    private final Clock clock;
+
+    /**
+     * Counters of all stations together
+     */
+    private final Series total;
+
+    private final ConcurrentMap<String, Series> stations = new ConcurrentHashMap<>();
+
+    public SessionRollups() {
+        this(120, 168);
+    }
+
+    /**
+     * @param minuteBuckets number of minutes retained at minute granularity
+     * @param hourBuckets   number of hours retained at hour granularity
+     */
+    public SessionRollups(int minuteBuckets, int hourBuckets) {
+        this(minuteBuckets, hourBuckets, Clock.systemDefaultZone());
+    }
+
+    SessionRollups(int minuteBuckets, int hourBuckets, Clock clock) {
+        if (minuteBuckets < 1 || hourBuckets < 1) {
+            throw new IllegalArgumentException("Rollups need at least one minute and one hour bucket");
+        }
+        this.minuteBuckets = minuteBuckets;
+        this.hourBuckets = hourBuckets;
+        this.clock = clock;
+        this.total = new Series();
+    }
+
+    /**
+     * Records a started charging session of the station in the current minute and hour.
+     */
+    public void recordStarted(String stationId) {
+        long now = clock.millis();
+        total.recordStarted(now);
+        station(stationId).recordStarted(now);
+    }
+
+    /**
+     * Records a stopped charging session of the station in the current minute and hour.
+     */
+    public void recordStopped(String stationId) {
+        long now = clock.millis();
+        total.recordStopped(now);
+        station(stationId).recordStopped(now);
+    }
+
+    /**
+     * @return longest window a summary can cover
+     */
+    public Duration maxWindow() {
+        return Duration.ofHours(hourBuckets);
+    }
+
+    /**
+     * Sums the buckets covering the window.
+     *
+     * @param window    length of the window ending now, at least one minute and
+     *                  at most {@link #maxWindow()}
+     * @param stationId station to count, {@code null} for all stations
+     * @return {@link MetricsCount} of updates within the window
+     * @throws IllegalArgumentException if the window is out of range
+     */
+    public MetricsCount summary(Duration window, String stationId) {
+        if (window.compareTo(Duration.ofMinutes(1)) < 0 || window.compareTo(maxWindow()) > 0) {
+            throw new IllegalArgumentException("window must be between 1 minute and " + hourBuckets + " hours");
+        }
+        long[] counts = new long[2];
+        Series series = stationId == null ? total : stations.get(stationId);
+        if (series != null) {
+            long now = clock.millis();
+            long minutes = ceilDiv(window.toMillis(), MINUTE_MILLIS);
+            if (minutes <= minuteBuckets) {
+                series.minutes.sum(now, (int) minutes, counts);
+            } else {
+                series.hours.sum(now, (int) ceilDiv(window.toMillis(), HOUR_MILLIS), counts);
+            }
+        }
+
+        MetricsCount count = new MetricsCount();
+        count.setStartedCount(saturatedInt(counts[0]));
+        count.setStoppedCount(saturatedInt(counts[1]));
+        count.setTotalCount(saturatedInt(counts[0] + counts[1]));
+        return count;
+    }
+
+    private Series station(String stationId) {
+        Series series = stations.get(stationId);
+        return series != null ? series : stations.computeIfAbsent(stationId, key -> new Series());
+    }
+
+    private static long ceilDiv(long value, long divisor) {
+        return -Math.floorDiv(-value, divisor);
+    }
+
+    private static int saturatedInt(long value) {
+        return (int) Math.min(value, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Minute and hour rings of one station, or of all of them.
+     */
+    private final class Series {
+
+        private final Ring minutes = new Ring(MINUTE_MILLIS, minuteBuckets);
+
+        private final Ring hours = new Ring(HOUR_MILLIS, hourBuckets);
+
+        void recordStarted(long now) {
+            Bucket.STARTED.incrementAndGet(minutes.bucket(now));
+            Bucket.STARTED.incrementAndGet(hours.bucket(now));
+        }
+
+        void recordStopped(long now) {
+            Bucket.STOPPED.incrementAndGet(minutes.bucket(now));
+            Bucket.STOPPED.incrementAndGet(hours.bucket(now));
+        }
+    }
+
+    /**
+     * Ring of buckets of a fixed length of time.
+     */
+    private static final class Ring {
+
+        private final long periodMillis;
+
+        private final AtomicReferenceArray<Bucket> buckets;
+
+        Ring(long periodMillis, int size) {
+            this.periodMillis = periodMillis;
+            this.buckets = new AtomicReferenceArray<>(size);
+        }
+
+        /**
+         * Returns the bucket of the period containing the given time, replacing
+         * the stale bucket of the same slot if needed.
+         */
+        Bucket bucket(long millis) {
+            long period = Math.floorDiv(millis, periodMillis);
+            int index = (int) Math.floorMod(period, (long) buckets.length());
+            while (true) {
+                Bucket bucket = buckets.get(index);
+                // a thread stalled past a whole ring must not wipe out the newer bucket
+                if (bucket != null && bucket.period >= period) {
+                    return bucket;
+                }
+                Bucket fresh = new Bucket(period);
+                if (buckets.compareAndSet(index, bucket, fresh)) {
+                    return fresh;
+                }
+            }
+        }
+
+        /**
+         * Adds the started and stopped counts of the last {@code periods}
+         * periods, the current one included, to {@code counts}.
+         */
+        void sum(long millis, int periods, long[] counts) {
+            long current = Math.floorDiv(millis, periodMillis);
+            for (long period = current - periods + 1; period <= current; period++) {
+                Bucket bucket = buckets.get((int) Math.floorMod(period, (long) buckets.length()));
+                if (bucket != null && bucket.period == period) {
+                    counts[0] += bucket.started;
+                    counts[1] += bucket.stopped;
+                }
+            }
+        }
+    }
+
+    /**
+     * Started/stopped counters of a single minute or hour.
+     */
+    private static final class Bucket {
+
+        static final AtomicLongFieldUpdater<Bucket> STARTED =
+                AtomicLongFieldUpdater.newUpdater(Bucket.class, "started");
+
+        static final AtomicLongFieldUpdater<Bucket> STOPPED =
+                AtomicLongFieldUpdater.newUpdater(Bucket.class, "stopped");
+
+        private final long period;
+
+        private volatile long started;
+
+        private volatile long stopped;
+
+        private Bucket(long period) {
+            this.period = period;
+        }
+    }
+
+}
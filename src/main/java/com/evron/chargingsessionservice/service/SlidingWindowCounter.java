@@ -0,0 +1,141 @@
+package com.evron.chargingsessionservice.service;
+
+import com.evron.chargingsessionservice.model.MetricsCount;
+
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Time-bucketed counter of charging session updates. Keeps a ring of
+ * <b>per-second</b> buckets covering the last minute, each bucket holding the
+ * number of sessions started and stopped within that second.
+ * <p>
+ * Recording an update and computing the summary are both independent of the
+ * number of stored sessions: an update touches a single bucket and the summary
+ * sums at most {@link #WINDOW_SECONDS} buckets. Buckets are replaced lazily,
+ * when a second that maps to the same slot comes around again.
+ * <p>
+ * Totals since startup are kept alongside, for monotonic metrics.
+ */
+@Component
+public class SlidingWindowCounter {
+
+    /**
+     * Length of the summary window in seconds.
+     */
+    static final int WINDOW_SECONDS = 60;
+
+    private final AtomicReferenceArray<Bucket> ring = new AtomicReferenceArray<>(WINDOW_SECONDS);
+
+    private final Clock clock;
+
+    private final LongAdder totalStarted = new LongAdder();
+
+    private final LongAdder totalStopped = new LongAdder();
+
+    public SlidingWindowCounter() {
+        this(Clock.systemDefaultZone());
+    }
+
+    SlidingWindowCounter(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Records a started charging session for the current second.
+     */
+    public void recordStarted() {
+        currentBucket().started.increment();
+        totalStarted.increment();
+    }
+
+    /**
+     * Records a stopped charging session for the current second.
+     */
+    public void recordStopped() {
+        currentBucket().stopped.increment();
+        totalStopped.increment();
+    }
+
+    /**
+     * @return number of charging sessions started since startup
+     */
+    public long totalStarted() {
+        return totalStarted.sum();
+    }
+
+    /**
+     * @return number of charging sessions stopped since startup
+     */
+    public long totalStopped() {
+        return totalStopped.sum();
+    }
+
+    /**
+     * Sums the buckets of the last {@link #WINDOW_SECONDS} seconds.
+     *
+     * @return {@link MetricsCount} of updates for the last minute
+     */
+    public MetricsCount summary() {
+        long now = currentSecond();
+        int startedCount = 0;
+        int stoppedCount = 0;
+        for (int i = 0; i < WINDOW_SECONDS; i++) {
+            Bucket bucket = ring.get(i);
+            if (bucket != null && now - bucket.second < WINDOW_SECONDS) {
+                startedCount += bucket.started.intValue();
+                stoppedCount += bucket.stopped.intValue();
+            }
+        }
+
+        MetricsCount count = new MetricsCount();
+        count.setStartedCount(startedCount);
+        count.setStoppedCount(stoppedCount);
+        count.setTotalCount(startedCount + stoppedCount);
+        return count;
+    }
+
+    /**
+     * Returns the bucket of the current second, replacing the stale bucket of
+     * the same slot if needed.
+     *
+     * @return {@code Bucket} for the current second
+     */
+    private Bucket currentBucket() {
+        long now = currentSecond();
+        int index = (int) Math.floorMod(now, (long) WINDOW_SECONDS);
+        while (true) {
+            Bucket bucket = ring.get(index);
+            // a thread stalled past a whole ring must not wipe out the newer bucket
+            if (bucket != null && bucket.second >= now) {
+                return bucket;
+            }
+            Bucket fresh = new Bucket(now);
+            if (ring.compareAndSet(index, bucket, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    private long currentSecond() {
+        return Math.floorDiv(clock.millis(), 1000L);
+    }
+
+    /**
+     * Started/stopped counters of a single second.
+     */
+    private static final class Bucket {
+
+        private final long second;
+        private final LongAdder started = new LongAdder();
+        private final LongAdder stopped = new LongAdder();
+
+        private Bucket(long second) {
+            this.second = second;
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.evron.chargingsessionservice.service;
+
+import java.time.Clock;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates time-ordered UUIDs in the version 7 layout of RFC 9562:
+ *
+ * <pre>
+ * 48 bits  unix timestamp in milliseconds
+ *  4 bits  version (7)
+ * 12 bits  counter
+ *  2 bits  variant (10)
+ *  8 bits  thread stripe
+ * 54 bits  random
+ * </pre>
+ * <p>
+ * Every thread keeps its own timestamp and counter, so generating an id
+ * touches no state shared with other threads. Ids of one thread are strictly
+ * increasing with {@link UUID#compareTo(UUID)}; ids of different threads are
+ * ordered by millisecond, and within a millisecond by counter rather than by
+ * the order they were generated in. The id-ordered store and its paginated
+ * listing thus follow creation order to the millisecond. Even so, an id is
+ * generated before its session is stored, so a session with a lower id can
+ * still be stored after a page ending at a higher id has been served, and a
+ * cursor resumed from that page does not return it.
+ * <p>
+ * Within a millisecond the 12-bit counter of a thread, started at a random
+ * value below 2048, is incremented (method 1 of RFC 9562); when it overflows,
+ * it carries into the timestamp of the thread, which then runs ahead of the
+ * clock until the clock catches up. A clock moving backwards is ignored the
+ * same way.
+ * <p>
+ * Threads take stripes in turn, so ids of two threads differ in their stripe
+ * unless more than 256 threads have generated ids; ids sharing timestamp,
+ * counter and stripe still differ in their 54 random bits, which come from
+ * {@link ThreadLocalRandom}. Unlike random UUIDs, ids are not meant to be
+ * unguessable.
+ */
+public class TimeOrderedSessionIdGenerator implements SessionIdGenerator {
+
+    private static final int COUNTER_BITS = 12;
+
+    private static final int STRIPE_BITS = 8;
+
+    private static final long VERSION = 0x7000L;
+
+    private static final long VARIANT = 0x8000_0000_0000_0000L;
+
+    private final Clock clock;
+
+    private final AtomicInteger stripes = new AtomicInteger();
+
+    private final ThreadLocal<ThreadState> state = ThreadLocal.withInitial(
+            () -> new ThreadState(stripes.getAndIncrement() & ((1 << STRIPE_BITS) - 1)));
+
+    public TimeOrderedSessionIdGenerator() {
+        this(Clock.systemUTC());
+    }
+
+    public TimeOrderedSessionIdGenerator(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public UUID nextId() {
+        ThreadState state = this.state.get();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long now = clock.millis();
+        if (now > state.millis) {
+            state.millis = now;
+            // a random start keeps half of the counter free for the ids of the same millisecond
+            state.counter = random.nextInt(1 << (COUNTER_BITS - 1));
+        } else if (++state.counter == 1 << COUNTER_BITS) {
+            state.millis++;
+            state.counter = 0;
+        }
+        long mostSigBits = state.millis << 16 | VERSION | state.counter;
+        long leastSigBits = VARIANT | state.stripe << (62 - STRIPE_BITS)
+                | random.nextLong() >>> (2 + STRIPE_BITS);
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    /**
+     * Timestamp and counter of the last id of a thread.
+     */
+    private static final class ThreadState {
+
+        private final long stripe;
+
+        private long millis = Long.MIN_VALUE;
+
+        private int counter;
+
+        private ThreadState(long stripe) {
+            this.stripe = stripe;
+        }
+    }
+
+}
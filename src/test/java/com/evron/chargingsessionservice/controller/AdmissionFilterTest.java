@@ -0,0 +1,191 @@
+package com.evron.chargingsessionservice.controller;
+
+import com.evron.chargingsessionservice.model.ChargingSession;
+import com.evron.chargingsessionservice.model.ChargingSessionRequest;
+import com.evron.chargingsessionservice.service.ChargingSessionService;
+import com.evron.chargingsessionservice.service.CloseableIterator;
+import com.evron.chargingsessionservice.service.SessionEventFeed;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.evron.chargingsessionservice.model.ChargingSession.SessionStatus.IN_PROGRESS;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class AdmissionFilterTest {
+
+    /**
+     * Requests the stubbed backend serves at the same time
+     */
+    private static final int BACKEND_CAPACITY = 4;
+
+    private static final long SERVICE_MILLIS = 50;
+
+    private static final int CLIENTS = 32;
+
+    private static final int REQUESTS_PER_CLIENT = 10;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final ChargingSessionService service = Mockito.mock(ChargingSessionService.class);
+
+    private final Semaphore backend = new Semaphore(BACKEND_CAPACITY, true);
+
+    private final SessionEventFeed eventFeed = new SessionEventFeed();
+
+    private ChargingSessionController controller;
+
+    @BeforeEach
+    public void init() {
+        ChargingSession session = new ChargingSession(UUID.randomUUID(), "ABC-12345", LocalDateTime.now(), null,
+                IN_PROGRESS);
+        Mockito.when(service.saveNewChargingSession(Mockito.any(ChargingSessionRequest.class))).thenAnswer(call -> {
+            backend.acquire();
+            try {
+                Thread.sleep(SERVICE_MILLIS);
+                return session;
+            } finally {
+                backend.release();
+            }
+        });
+        Mockito.when(service.exportChargingSessions()).thenAnswer(call -> CloseableIterator.of(Collections.singletonList(session).iterator()));
+        controller = new ChargingSessionController(service, mapper, new SerializedResponseCache(), eventFeed);
+    }
+
+    @AfterEach
+    public void close() {
+        eventFeed.close();
+    }
+
+    @Test
+    public void testRequestsBeyondTheLimitGetTooManyRequests() throws Exception {
+        AdmissionLimiter limiter = new AdmissionLimiter(1, 1, 1, 3, null);
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .addFilters(new AdmissionFilter(limiter, mapper)).build();
+
+        limiter.tryAcquire(AdmissionLimiter.EndpointClass.WRITE);
+        mockMvc.perform(post("/chargingSessions").contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content("{\"stationId\":\"ABC-12345\"}"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "3"));
+        limiter.release(AdmissionLimiter.EndpointClass.WRITE);
+
+        mockMvc.perform(post("/chargingSessions").contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content("{\"stationId\":\"ABC-12345\"}"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void testExportHoldsItsPermitUntilStreamed() throws Exception {
+        AdmissionLimiter limiter = new AdmissionLimiter(1, 1, 1, 1, null);
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .addFilters(new AdmissionFilter(limiter, mapper)).build();
+
+        MvcResult export = mockMvc.perform(get("/chargingSessions/export")).andReturn();
+        mockMvc.perform(get("/chargingSessions/export")).andExpect(status().isTooManyRequests());
+        mockMvc.perform(asyncDispatch(export)).andExpect(status().isOk());
+        export.getRequest().getAsyncContext().complete();
+
+        mockMvc.perform(asyncDispatch(mockMvc.perform(get("/chargingSessions/export")).andReturn()))
+                .andExpect(status().isOk());
+    }
+
+    /**
+     * Floods a backend of {@value #BACKEND_CAPACITY} workers with
+     * {@value #CLIENTS} concurrent clients. Without admission control every
+     * request queues behind all the others; with it, the requests beyond the
+     * capacity are refused and the admitted ones are served without waiting.
+     */
+    @Test
+    public void testLatencyOfAdmittedRequestsStaysBoundedUnderOverload() throws Exception {
+        MockMvc unlimited = MockMvcBuilders.standaloneSetup(controller).build();
+        AdmissionLimiter limiter = new AdmissionLimiter(BACKEND_CAPACITY, 1, 1, 1, null);
+        MockMvc limited = MockMvcBuilders.standaloneSetup(controller)
+                .addFilters(new AdmissionFilter(limiter, mapper)).build();
+        flood(limited, new AtomicInteger());
+
+        AtomicInteger rejected = new AtomicInteger();
+        long unlimitedP99 = p99(flood(unlimited, new AtomicInteger()));
+        long admittedP99 = p99(flood(limited, rejected));
+
+        assertTrue(rejected.get() > 0);
+        assertTrue(admittedP99 < TimeUnit.MILLISECONDS.toNanos(SERVICE_MILLIS * 3),
+                "p99 of admitted requests " + admittedP99 / 1_000_000 + " ms");
+        assertTrue(unlimitedP99 > 2 * admittedP99, "p99 of admitted requests " + admittedP99 / 1_000_000
+                + " ms, of all requests without admission control " + unlimitedP99 / 1_000_000 + " ms");
+    }
+
+    /**
+     * @return latencies of the successful requests, in nanoseconds
+     */
+    private List<Long> flood(MockMvc mockMvc, AtomicInteger rejected) throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<Long>>> futures = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            futures.add(clients.submit(() -> {
+                start.await();
+                List<Long> latencies = new ArrayList<>();
+                for (int n = 0; n < REQUESTS_PER_CLIENT; n++) {
+                    long begin = System.nanoTime();
+                    MockHttpServletResponse response = mockMvc.perform(post("/chargingSessions")
+                            .contentType(MediaType.APPLICATION_JSON_VALUE)
+                            .content("{\"stationId\":\"ABC-12345\"}")).andReturn().getResponse();
+                    long latency = System.nanoTime() - begin;
+                    if (response.getStatus() == 200) {
+                        latencies.add(latency);
+                    } else {
+                        assertEquals(429, response.getStatus());
+                        assertEquals("1", response.getHeader(HttpHeaders.RETRY_AFTER));
+                        rejected.incrementAndGet();
+                        // back off as a client would, scaled down from the advertised second
+                        Thread.sleep(SERVICE_MILLIS);
+                    }
+                }
+                return latencies;
+            }));
+        }
+        start.countDown();
+        List<Long> latencies = new ArrayList<>();
+        for (Future<List<Long>> future : futures) {
+            latencies.addAll(future.get());
+        }
+        clients.shutdown();
+        return latencies;
+    }
+
+    private static long p99(List<Long> latencies) {
+        Collections.sort(latencies);
+        return latencies.get((int) Math.ceil(latencies.size() * 0.99) - 1);
+    }
+
+}
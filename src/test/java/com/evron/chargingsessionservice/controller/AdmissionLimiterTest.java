@@ -0,0 +1,67 @@
+package com.evron.chargingsessionservice.controller;
+
+import com.evron.chargingsessionservice.controller.AdmissionLimiter.EndpointClass;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdmissionLimiterTest {
+
+    @Test
+    public void testClassifyEndpoints() {
+        Set<String> none = Collections.emptySet();
+        Set<String> limit = new HashSet<>(Arrays.asList("limit"));
+
+        assertEquals(EndpointClass.WRITE, AdmissionLimiter.classify("POST", "/chargingSessions", none::contains));
+        assertEquals(EndpointClass.WRITE, AdmissionLimiter.classify("PUT", "/chargingSessions/batch", none::contains));
+        assertEquals(EndpointClass.SCAN, AdmissionLimiter.classify("GET", "/chargingSessions", none::contains));
+        assertEquals(EndpointClass.SCAN, AdmissionLimiter.classify("GET", "/chargingSessions/export", none::contains));
+        assertEquals(EndpointClass.SCAN, AdmissionLimiter.classify("POST", "/chargingSessions/import", none::contains));
+        assertEquals(EndpointClass.READ, AdmissionLimiter.classify("GET", "/chargingSessions", limit::contains));
+        assertEquals(EndpointClass.READ, AdmissionLimiter.classify("GET", "/chargingSessions/summary", none::contains));
+        assertTrue(AdmissionLimiter.covers("/chargingSessions/counts"));
+        assertFalse(AdmissionLimiter.covers("/actuator/prometheus"));
+    }
+
+    @Test
+    public void testRequestsBeyondTheLimitAreRefused() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AdmissionLimiter limiter = new AdmissionLimiter(4, 2, 1, 1, registry);
+
+        assertTrue(limiter.tryAcquire(EndpointClass.READ));
+        assertTrue(limiter.tryAcquire(EndpointClass.READ));
+        assertFalse(limiter.tryAcquire(EndpointClass.READ));
+        limiter.release(EndpointClass.READ);
+        assertTrue(limiter.tryAcquire(EndpointClass.READ));
+
+        assertEquals(2, registry.get("charging.session.admission.inflight").tag("class", "read").gauge().value());
+        assertEquals(1, registry.get("charging.session.admission.rejected").tag("class", "read").counter().count());
+    }
+
+    @Test
+    public void testScansAreRefusedWhileWritesAreBusy() {
+        AdmissionLimiter limiter = new AdmissionLimiter(4, 2, 1, 1, null);
+
+        assertTrue(limiter.tryAcquire(EndpointClass.WRITE));
+        assertTrue(limiter.tryAcquire(EndpointClass.SCAN));
+        limiter.release(EndpointClass.SCAN);
+
+        assertTrue(limiter.tryAcquire(EndpointClass.WRITE));
+        assertFalse(limiter.tryAcquire(EndpointClass.SCAN));
+        assertTrue(limiter.tryAcquire(EndpointClass.READ));
+
+        limiter.release(EndpointClass.WRITE);
+        assertTrue(limiter.tryAcquire(EndpointClass.SCAN));
+    }
+
+}
@@ -1,10 +1,20 @@
 package com.evron.chargingsessionservice.controller;
 
 import com.evron.chargingsessionservice.ChargingsessionserviceApplication;
+import com.evron.chargingsessionservice.dao.ChargingSessionDao;
+import com.evron.chargingsessionservice.model.BatchItemResult;
+import com.evron.chargingsessionservice.model.BatchResponse;
 import com.evron.chargingsessionservice.model.ChargingSession;
 import com.evron.chargingsessionservice.model.ChargingSessionRequest;
+import com.evron.chargingsessionservice.model.ChargingSessionResponse;
+import com.evron.chargingsessionservice.model.MetricsCount;
+import com.evron.chargingsessionservice.model.SessionEvent;
+import com.evron.chargingsessionservice.model.StatusCount;
 import com.evron.chargingsessionservice.service.ChargingSessionServiceImpl;
+import com.evron.chargingsessionservice.service.CloseableIterator;
+import com.evron.chargingsessionservice.service.SessionEventFeed;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,21 +23,35 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
 import java.net.URL;
 import java.security.InvalidParameterException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.UUID;
 
+import static com.evron.chargingsessionservice.model.ChargingSession.SessionStatus.IN_PROGRESS;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 
@@ -40,6 +64,12 @@ public class ChargingSessionControllerTest {
     @Autowired
     private WebApplicationContext webApplicationContext;
 
+    @Autowired
+    private SessionEventFeed eventFeed;
+
+    @Autowired
+    private ChargingSessionDao dao;
+
     private MockMvc mockMvc;
 
     private ObjectMapper mapper = new ObjectMapper();
@@ -102,6 +132,187 @@ public class ChargingSessionControllerTest {
     }
 
 
+    @Test
+    public void testRetrieveChargingSessionsCallsServiceOnce() throws Exception {
+        ChargingSession session = mapper.readValue(new URL("file:src/main/resources/stab/charging-session-response.json"),
+                ChargingSession.class);
+        ChargingSessionResponse response = new ChargingSessionResponse();
+        response.setChargingSessions(Collections.singletonList(session));
+        Mockito.when(service.retrieveChargingSessions()).thenReturn(response);
+
+        mockMvc.perform(get("/chargingSessions"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.chargingSessions.length()").value(1));
+
+        verify(service, times(1)).retrieveChargingSessions();
+    }
+
+    @Test
+    public void testRetrieveSummaryOfWindowAndStation() throws Exception {
+        MetricsCount count = new MetricsCount();
+        count.setStartedCount(3);
+        count.setStoppedCount(1);
+        count.setTotalCount(4);
+        Mockito.when(service.retrieveChargingSessionsSummary("1h", "ABC-12345")).thenReturn(count);
+
+        mockMvc.perform(get("/chargingSessions/summary?window=1h&stationId=ABC-12345"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.startedCount").value(3))
+                .andExpect(jsonPath("$.totalCount").value(4));
+
+        verify(service, times(0)).retrieveChargingSessionsSummary();
+    }
+
+    @Test
+    public void testUnchangedChargingSessionsAreNotModified() throws Exception {
+        ChargingSessionResponse response = new ChargingSessionResponse();
+        response.setChargingSessions(Collections.emptyList());
+        Mockito.when(service.retrieveChargingSessionsVersion()).thenReturn("a-7");
+        Mockito.when(service.retrieveChargingSessions(10, null, null)).thenReturn(response);
+
+        String eTag = mockMvc.perform(get("/chargingSessions?limit=10"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(eTag);
+        mockMvc.perform(get("/chargingSessions?limit=10").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().string(""));
+        verify(service, times(1)).retrieveChargingSessions(10, null, null);
+
+        Mockito.when(service.retrieveChargingSessionsVersion()).thenReturn("a-8");
+        mockMvc.perform(get("/chargingSessions?limit=10").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk());
+        verify(service, times(2)).retrieveChargingSessions(10, null, null);
+    }
+
+    @Test
+    public void testUnchangedSummaryIsNotModified() throws Exception {
+        MetricsCount count = new MetricsCount();
+        count.setStartedCount(3);
+        count.setStoppedCount(1);
+        count.setTotalCount(4);
+        Mockito.when(service.retrieveChargingSessionsSummary()).thenReturn(count);
+
+        String eTag = mockMvc.perform(get("/chargingSessions/summary"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/chargingSessions/summary").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        count.setStoppedCount(2);
+        mockMvc.perform(get("/chargingSessions/summary").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stoppedCount").value(2));
+    }
+
+    @Test
+    public void testRetrieveChargingSessionsPage() throws Exception {
+        ChargingSessionResponse response = new ChargingSessionResponse();
+        response.setChargingSessions(Collections.emptyList());
+        response.setNextCursor("cursor");
+        Mockito.when(service.retrieveChargingSessions(10, "abc", IN_PROGRESS)).thenReturn(response);
+
+        mockMvc.perform(get("/chargingSessions?limit=10&cursor=abc&status=IN_PROGRESS"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nextCursor").value("cursor"));
+
+        verify(service, times(1)).retrieveChargingSessions(10, "abc", IN_PROGRESS);
+        verify(service, times(0)).retrieveChargingSessions();
+    }
+
+    @Test
+    public void testRetrieveChargingSessionsByStation() throws Exception {
+        ChargingSession session = mapper.readValue(new URL("file:src/main/resources/stab/charging-session-response.json"),
+                ChargingSession.class);
+        ChargingSessionResponse response = new ChargingSessionResponse();
+        response.setChargingSessions(Collections.singletonList(session));
+        Mockito.when(service.retrieveChargingSessionsByStation("ABC-12345", null)).thenReturn(response);
+
+        mockMvc.perform(get("/chargingSessions?stationId=ABC-12345"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.chargingSessions[0].stationId").value("ABC-12345"));
+
+        verify(service, times(1)).retrieveChargingSessionsByStation("ABC-12345", null);
+        verify(service, times(0)).retrieveChargingSessions();
+    }
+
+    @Test
+    public void testRetrieveActiveChargingSessionsAndStatusCount() throws Exception {
+        ChargingSession session = mapper.readValue(new URL("file:src/main/resources/stab/charging-session-response.json"),
+                ChargingSession.class);
+        ChargingSessionResponse response = new ChargingSessionResponse();
+        response.setChargingSessions(Collections.singletonList(session));
+        StatusCount count = new StatusCount();
+        count.setInProgressCount(1);
+        count.setTotalCount(1);
+        Mockito.when(service.retrieveActiveChargingSessions()).thenReturn(response);
+        Mockito.when(service.retrieveStatusCount()).thenReturn(count);
+
+        mockMvc.perform(get("/chargingSessions/active"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.chargingSessions[0].status").value("IN_PROGRESS"));
+        mockMvc.perform(get("/chargingSessions/counts"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inProgressCount").value(1))
+                .andExpect(jsonPath("$.finishedCount").value(0));
+
+        verify(service, times(1)).retrieveActiveChargingSessions();
+        verify(service, times(1)).retrieveStatusCount();
+    }
+
+    @Test
+    public void testExportChargingSessionsAsNdjson() throws Exception {
+        ChargingSession first = mapper.readValue(new URL("file:src/main/resources/stab/charging-session-response.json"),
+                ChargingSession.class);
+        ChargingSession second = mapper.readValue(new URL("file:src/main/resources/stab/charging-session-updated-response.json"),
+                ChargingSession.class);
+        Mockito.when(service.exportChargingSessions()).thenReturn(CloseableIterator.of(Arrays.asList(first, second).iterator()));
+
+        MvcResult result = mockMvc.perform(get("/chargingSessions/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains(first.getId().toString()));
+        assertTrue(lines[1].contains("\"stoppedAt\""));
+        verify(service, times(1)).exportChargingSessions();
+    }
+
+    @Test
+    public void testBatchStartAndStopChargingSessions() throws Exception {
+        ChargingSession session = mapper.readValue(new URL("file:src/main/resources/stab/charging-session-response.json"),
+                ChargingSession.class);
+        BatchResponse response = new BatchResponse();
+        response.setSucceeded(1);
+        response.setFailed(1);
+        response.setResults(Arrays.asList(new BatchItemResult(0, session, null),
+                new BatchItemResult(1, null, "Incorrect/missing stationId")));
+        Mockito.when(service.saveNewChargingSessions(Mockito.anyList())).thenReturn(response);
+        Mockito.when(service.stopChargingSessions(Mockito.anyList())).thenReturn(response);
+
+        mockMvc.perform(post("/chargingSessions/batch").contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content("[{\"stationId\":\"ABC-12345\"},{\"stationId\":\"\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded").value(1))
+                .andExpect(jsonPath("$.results[0].chargingSession.status").value("IN_PROGRESS"))
+                .andExpect(jsonPath("$.results[1].error").value("Incorrect/missing stationId"));
+        mockMvc.perform(put("/chargingSessions/batch").contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content("[\"" + session.getId() + "\"]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.failed").value(1));
+
+        verify(service, times(1)).saveNewChargingSessions(Mockito.argThat(requests -> requests.size() == 2));
+        verify(service, times(1)).stopChargingSessions(Collections.singletonList(session.getId()));
+        verify(service, times(0)).stopChargingSession(Mockito.any(UUID.class));
+    }
+
     @Test
     public void testStopChargingSession() throws Exception {
         ChargingSession response = mapper.readValue(new URL("file:src/main/resources/stab/charging-session-response.json"),
@@ -114,4 +325,118 @@ public class ChargingSessionControllerTest {
 
         verify(service, times(1)).stopChargingSession(Mockito.any(UUID.class));
     }
+
+    @Test
+    public void testCborRequestsAndListings() throws Exception {
+        ChargingSession session = mapper.readValue(new URL("file:src/main/resources/stab/charging-session-response.json"),
+                ChargingSession.class);
+        ChargingSessionResponse response = new ChargingSessionResponse();
+        response.setChargingSessions(Collections.singletonList(session));
+        Mockito.when(service.saveNewChargingSession(Mockito.any(ChargingSessionRequest.class))).thenReturn(session);
+        Mockito.when(service.retrieveChargingSessions()).thenReturn(response);
+        ObjectMapper cbor = SessionFormat.CBOR.objectMapper(mapper);
+        ChargingSessionRequest request = new ChargingSessionRequest();
+        request.setStationId("ABC-12345");
+
+        MvcResult created = mockMvc.perform(post("/chargingSessions").contentType(MediaType.APPLICATION_CBOR)
+                .accept(MediaType.APPLICATION_CBOR).content(cbor.writeValueAsBytes(request)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn();
+        MvcResult listed = mockMvc.perform(get("/chargingSessions").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn();
+        String jsonTag = SessionETags.ofVersion(service.retrieveChargingSessionsVersion(), SessionFormat.JSON);
+
+        byte[] body = listed.getResponse().getContentAsByteArray();
+        ChargingSession listedSession = new CBORMapper().readValue(body, ChargingSessionResponse.class)
+                .getChargingSessions().get(0);
+        assertEquals(session.getId(), cbor.readValue(created.getResponse().getContentAsByteArray(),
+                ChargingSession.class).getId());
+        assertEquals(session.getId(), listedSession.getId());
+        assertEquals(session.getStartedAt(), listedSession.getStartedAt());
+        assertTrue(body.length < mapper.writeValueAsBytes(response).length);
+        assertTrue(!jsonTag.equals(listed.getResponse().getHeader(HttpHeaders.ETAG)));
+        verify(service, times(1)).saveNewChargingSession(Mockito.argThat(r -> "ABC-12345".equals(r.getStationId())));
+    }
+
+    @Test
+    public void testImportChargingSessionsFromNdjson() throws Exception {
+        UUID id = UUID.randomUUID();
+        String ndjson = "{\"id\":\"" + id + "\",\"stationId\":\"ABC-1\",\"startedAt\":\"2019-05-01T08:30:00\"}\n"
+                + "{\"id\":\"" + UUID.randomUUID() + "\"}\n";
+
+        mockMvc.perform(post("/chargingSessions/import").contentType(MediaType.APPLICATION_NDJSON).content(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.errors[0]").value("line 2: Incorrect/missing stationId"));
+        mockMvc.perform(post("/chargingSessions/import").contentType("text/csv").content("id,startedAt\n"))
+                .andExpect(status().isBadRequest());
+
+        assertEquals("ABC-1", dao.findById(id).getStationId());
+    }
+
+    @Test
+    public void testAppendMeterReadingsAndGetEnergyCurve() throws Exception {
+        UUID id = UUID.randomUUID();
+        dao.save(new ChargingSession(id, "ABC-1", LocalDateTime.of(2021, 3, 15, 14, 0), null, IN_PROGRESS));
+        String readings = "[{\"readAt\":\"2021-03-15T14:10:00\",\"energyKwh\":1520.0},"
+                + "{\"readAt\":\"2021-03-15T14:20:00\",\"energyKwh\":1522.0},"
+                + "{\"readAt\":\"2021-03-15T14:25:00\",\"energyKwh\":1523.5}]";
+
+        mockMvc.perform(post("/chargingSessions/{id}/readings", id).contentType(MediaType.APPLICATION_JSON)
+                .content(readings))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.readings").value(3))
+                .andExpect(jsonPath("$.energyKwh").value(3.5))
+                .andExpect(jsonPath("$.curve").doesNotExist());
+        mockMvc.perform(get("/chargingSessions/{id}/energy", id).param("interval", "15m"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lastReadingAt").value("2021-03-15T14:25:00"))
+                .andExpect(jsonPath("$.curve[0].from").value("2021-03-15T14:00:00"))
+                .andExpect(jsonPath("$.curve[0].energyKwh").value(1.0))
+                .andExpect(jsonPath("$.curve[1].energyKwh").value(2.5))
+                .andExpect(jsonPath("$.curve[1].averagePowerKw").value(10.0));
+        mockMvc.perform(post("/chargingSessions/{id}/readings", id).contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"readAt\":\"2021-03-15T14:30:00\",\"energyKwh\":1500.0}]"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/chargingSessions/{id}/energy", UUID.randomUUID()))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testStreamSessionEventsResumesFromLastEventId() throws Exception {
+        ChargingSession session = mapper.readValue(new URL("file:src/main/resources/stab/charging-session-response.json"),
+                ChargingSession.class);
+        long seen = eventFeed.lastSequence();
+        eventFeed.started(session);
+        eventFeed.stopped(session);
+
+        MvcResult result = mockMvc.perform(get("/chargingSessions/events").header("Last-Event-ID", eventId(seen)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!result.getResponse().getContentAsString().contains("event:stopped")
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        String stream = result.getResponse().getContentAsString();
+        assertTrue(stream.startsWith("id:" + eventId(seen + 1) + "\nevent:started\ndata:"), stream);
+        assertTrue(stream.contains("id:" + eventId(seen + 2) + "\nevent:stopped\ndata:"), stream);
+        assertTrue(stream.contains(session.getId().toString()), stream);
+
+        mockMvc.perform(get("/chargingSessions/events").param("after", eventId(seen + 10)))
+                .andExpect(status().isGone());
+        // same sequence, previous run
+        mockMvc.perform(get("/chargingSessions/events").header("Last-Event-ID", "0-" + seen))
+                .andExpect(status().isGone());
+        mockMvc.perform(get("/chargingSessions/events").param("after", eventId(seen) + "x"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private String eventId(long sequence) {
+        return eventFeed.eventId(new SessionEvent(sequence, null, null));
+    }
 }
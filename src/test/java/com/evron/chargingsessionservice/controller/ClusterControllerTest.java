@@ -0,0 +1,152 @@
+package com.evron.chargingsessionservice.controller;
+
+import com.evron.chargingsessionservice.ChargingsessionserviceApplication;
+import com.evron.chargingsessionservice.model.BatchResponse;
+import com.evron.chargingsessionservice.model.ChargingSession;
+import com.evron.chargingsessionservice.model.ChargingSessionRequest;
+import com.evron.chargingsessionservice.model.ChargingSessionResponse;
+import com.evron.chargingsessionservice.model.EnergyResponse;
+import com.evron.chargingsessionservice.model.MeterReading;
+import com.evron.chargingsessionservice.model.StatusCount;
+import com.evron.chargingsessionservice.service.ChargingSessionServiceImpl;
+import com.evron.chargingsessionservice.service.ConsistentHashRing;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static com.evron.chargingsessionservice.model.ChargingSession.SessionStatus.FINISHED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two nodes of a cluster on localhost, partitioning sessions over HTTP.
+ */
+public class ClusterControllerTest {
+
+    private static final List<ConfigurableApplicationContext> NODES = new ArrayList<>();
+
+    private static final List<String> URLS = new ArrayList<>();
+
+    private static final RestTemplate CLIENT = new RestTemplateBuilder().build();
+
+    @BeforeAll
+    public static void startNodes() throws IOException {
+        for (int i = 0; i < 2; i++) {
+            try (ServerSocket socket = new ServerSocket(0)) {
+                URLS.add("http://localhost:" + socket.getLocalPort());
+            }
+        }
+        for (String url : URLS) {
+            NODES.add(new SpringApplicationBuilder(ChargingsessionserviceApplication.class).run(
+                    "--server.port=" + url.substring(url.lastIndexOf(':') + 1),
+                    "--charging-session.cluster.enabled=true",
+                    "--charging-session.cluster.nodes=" + String.join(",", URLS),
+                    "--charging-session.cluster.self=" + url));
+        }
+    }
+
+    @AfterAll
+    public static void stopNodes() {
+        NODES.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    public void testSessionsArePartitionedAcrossNodes() {
+        List<ChargingSessionRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            ChargingSessionRequest request = new ChargingSessionRequest();
+            request.setStationId("ABC-" + i);
+            requests.add(request);
+        }
+        BatchResponse started = CLIENT.postForObject(URLS.get(0) + "/chargingSessions/batch", requests,
+                BatchResponse.class);
+        assertEquals(40, started.getSucceeded());
+
+        ConsistentHashRing ring = NODES.get(0).getBean(ConsistentHashRing.class);
+        long stored = 0;
+        for (int i = 0; i < NODES.size(); i++) {
+            StatusCount local = NODES.get(i).getBean(ChargingSessionServiceImpl.class).retrieveStatusCount();
+            assertTrue(local.getTotalCount() > 0, URLS.get(i));
+            stored += local.getTotalCount();
+        }
+        assertEquals(40, stored);
+        assertEquals(40, CLIENT.getForObject(URLS.get(1) + "/chargingSessions/counts", StatusCount.class)
+                .getInProgressCount());
+
+        for (ChargingSession session : CLIENT.getForObject(URLS.get(1) + "/chargingSessions",
+                ChargingSessionResponse.class).getChargingSessions()) {
+            ChargingSession stopped = CLIENT.exchange(URLS.get(0) + "/chargingSessions/{id}", HttpMethod.PUT,
+                    HttpEntity.EMPTY, ChargingSession.class, session.getId()).getBody();
+            assertEquals(FINISHED, stopped.getStatus());
+        }
+        assertEquals(40, CLIENT.getForObject(URLS.get(1) + "/chargingSessions/counts", StatusCount.class)
+                .getFinishedCount());
+
+        String export = CLIENT.getForObject(URLS.get(1) + "/chargingSessions/export", String.class);
+        assertEquals(40, export.split("\n").length);
+
+        List<UUID> ids = CLIENT.getForObject(URLS.get(0) + "/chargingSessions?limit=1000",
+                ChargingSessionResponse.class).getChargingSessions().stream().map(ChargingSession::getId)
+                .collect(Collectors.toList());
+        assertEquals(ids.stream().sorted().collect(Collectors.toList()), ids);
+
+        UUID remote;
+        do {
+            remote = UUID.randomUUID();
+        } while (!ring.owner(remote).equals(URLS.get(1)));
+        UUID unknown = remote;
+        HttpClientErrorException notFound = assertThrows(HttpClientErrorException.class,
+                () -> CLIENT.exchange(URLS.get(0) + "/chargingSessions/{id}", HttpMethod.PUT, HttpEntity.EMPTY,
+                        ChargingSession.class, unknown));
+        assertEquals(HttpStatus.NOT_FOUND, notFound.getStatusCode());
+        assertTrue(notFound.getResponseBodyAsString().contains(unknown.toString()));
+    }
+
+    @Test
+    public void testMeterReadingsAreForwardedToTheNodeOfTheSession() {
+        ConsistentHashRing ring = NODES.get(0).getBean(ConsistentHashRing.class);
+        ChargingSession session;
+        do {
+            ChargingSessionRequest request = new ChargingSessionRequest();
+            request.setStationId("XYZ-12345");
+            session = CLIENT.postForObject(URLS.get(0) + "/chargingSessions", request, ChargingSession.class);
+        } while (!ring.owner(session.getId()).equals(URLS.get(1)));
+        List<MeterReading> readings = Arrays.asList(
+                new MeterReading(session.getStartedAt().plusMinutes(1), 1520.0),
+                new MeterReading(session.getStartedAt().plusMinutes(11), 1522.0));
+
+        EnergyResponse appended = CLIENT.postForObject(URLS.get(0) + "/chargingSessions/{id}/readings", readings,
+                EnergyResponse.class, session.getId());
+        assertEquals(2, appended.getReadings());
+        EnergyResponse energy = CLIENT.getForObject(URLS.get(0) + "/chargingSessions/{id}/energy?interval=5m",
+                EnergyResponse.class, session.getId());
+        assertEquals(2.0, energy.getEnergyKwh());
+        assertEquals(3, energy.getCurve().size());
+
+        CLIENT.exchange(URLS.get(0) + "/chargingSessions/{id}", HttpMethod.PUT, HttpEntity.EMPTY,
+                ChargingSession.class, session.getId());
+        HttpClientErrorException finished = assertThrows(HttpClientErrorException.class,
+                () -> CLIENT.postForObject(URLS.get(0) + "/chargingSessions/{id}/readings", readings,
+                        EnergyResponse.class, appended.getChargingSessionId()));
+        assertEquals(HttpStatus.BAD_REQUEST, finished.getStatusCode());
+    }
+
+}
@@ -0,0 +1,198 @@
+package com.evron.chargingsessionservice.controller;
+
+import com.evron.chargingsessionservice.ChargingsessionserviceApplication;
+import com.evron.chargingsessionservice.exception.ChargingSessionNotFoundException;
+import com.evron.chargingsessionservice.model.ChargingSession;
+import com.evron.chargingsessionservice.model.ChargingSessionRequest;
+import com.evron.chargingsessionservice.model.ChargingSessionResponse;
+import com.evron.chargingsessionservice.model.EnergyResponse;
+import com.evron.chargingsessionservice.model.StatusCount;
+import com.evron.chargingsessionservice.service.ChargingSessionServiceImpl;
+import com.evron.chargingsessionservice.service.CloseableIterator;
+import com.evron.chargingsessionservice.service.MeterReadingServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(webEnvironment = WebEnvironment.MOCK, classes = {ChargingsessionserviceApplication.class},
+        properties = "spring.main.web-application-type=reactive")
+@AutoConfigureWebTestClient
+public class ReactiveChargingSessionControllerTest {
+
+    @MockBean
+    private ChargingSessionServiceImpl service;
+
+    @MockBean
+    private MeterReadingServiceImpl readings;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    private ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void testSaveNewChargingSession() throws Exception {
+        ChargingSession session = mapper.readValue(new URL("file:src/main/resources/stab/charging-session-response.json"),
+                ChargingSession.class);
+        Mockito.when(service.saveNewChargingSession(Mockito.any(ChargingSessionRequest.class))).thenReturn(session);
+
+        webTestClient.post().uri("/chargingSessions").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"stationId\":\"ABC-12345\"}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.id").isEqualTo(session.getId().toString());
+
+        verify(service, times(1)).saveNewChargingSession(Mockito.argThat(r -> "ABC-12345".equals(r.getStationId())));
+    }
+
+    @Test
+    public void testRetrieveChargingSessionsWithoutSessions() {
+        Mockito.when(service.retrieveChargingSessions()).thenReturn(new ChargingSessionResponse());
+
+        webTestClient.get().uri("/chargingSessions")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("No sessions found!!");
+
+        verify(service, times(1)).retrieveChargingSessions();
+    }
+
+    @Test
+    public void testUnchangedActiveChargingSessionsAreNotModified() {
+        Mockito.when(service.retrieveChargingSessionsVersion()).thenReturn("a-7");
+        Mockito.when(service.retrieveActiveChargingSessions()).thenReturn(new ChargingSessionResponse());
+
+        String eTag = webTestClient.get().uri("/chargingSessions/active")
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class).getResponseHeaders().getETag();
+        webTestClient.get().uri("/chargingSessions/active").header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, eTag)
+                .expectBody().isEmpty();
+
+        verify(service, times(1)).retrieveActiveChargingSessions();
+    }
+
+    @Test
+    public void testStopUnknownChargingSessionReturns404() {
+        UUID id = UUID.randomUUID();
+        Mockito.when(service.stopChargingSession(id)).thenThrow(new ChargingSessionNotFoundException("not found"));
+
+        webTestClient.put().uri("/chargingSessions/" + id)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody().jsonPath("$.message").isEqualTo("not found");
+    }
+
+    @Test
+    public void testExportChargingSessionsAsNdjson() throws Exception {
+        ChargingSession first = mapper.readValue(new URL("file:src/main/resources/stab/charging-session-response.json"),
+                ChargingSession.class);
+        ChargingSession second = mapper.readValue(new URL("file:src/main/resources/stab/charging-session-updated-response.json"),
+                ChargingSession.class);
+        Mockito.when(service.exportChargingSessions()).thenReturn(CloseableIterator.of(Arrays.asList(first, second).iterator()));
+
+        String body = webTestClient.get().uri("/chargingSessions/export")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class).returnResult().getResponseBody();
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains(first.getId().toString()));
+        verify(service, times(1)).exportChargingSessions();
+    }
+
+    @Test
+    public void testSmileListingsAndCounts() throws Exception {
+        ChargingSession session = mapper.readValue(new URL("file:src/main/resources/stab/charging-session-response.json"),
+                ChargingSession.class);
+        ChargingSessionResponse response = new ChargingSessionResponse();
+        response.setChargingSessions(Collections.singletonList(session));
+        Mockito.when(service.retrieveActiveChargingSessions()).thenReturn(response);
+        StatusCount statusCount = new StatusCount();
+        statusCount.setTotalCount(1);
+        statusCount.setInProgressCount(1);
+        Mockito.when(service.retrieveStatusCount()).thenReturn(statusCount);
+        ObjectMapper smile = SessionFormat.SMILE.objectMapper(mapper);
+
+        byte[] active = webTestClient.get().uri("/chargingSessions/active")
+                .accept(MediaType.valueOf(SessionFormat.APPLICATION_SMILE_VALUE))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(SessionFormat.APPLICATION_SMILE_VALUE)
+                .expectBody().returnResult().getResponseBody();
+        byte[] counts = webTestClient.get().uri("/chargingSessions/counts")
+                .accept(MediaType.valueOf(SessionFormat.APPLICATION_SMILE_VALUE))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(SessionFormat.APPLICATION_SMILE_VALUE)
+                .expectBody().returnResult().getResponseBody();
+
+        ChargingSession activeSession = smile.readValue(active, ChargingSessionResponse.class)
+                .getChargingSessions().get(0);
+        assertEquals(session.getId(), activeSession.getId());
+        assertEquals(session.getStartedAt(), activeSession.getStartedAt());
+        assertEquals(1, smile.readValue(counts, StatusCount.class).getInProgressCount());
+    }
+
+    @Test
+    public void testBatchStopChargingSessions() {
+        UUID id = UUID.randomUUID();
+
+        webTestClient.put().uri("/chargingSessions/batch").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[\"" + id + "\"]")
+                .exchange()
+                .expectStatus().isOk();
+
+        verify(service, times(1)).stopChargingSessions(Collections.singletonList(id));
+    }
+
+    @Test
+    public void testAppendMeterReadingsAndGetEnergy() {
+        UUID id = UUID.randomUUID();
+        EnergyResponse energy = new EnergyResponse();
+        energy.setChargingSessionId(id);
+        energy.setReadings(2);
+        energy.setEnergyKwh(2.0);
+        Mockito.when(readings.appendReadings(Mockito.eq(id), Mockito.anyList())).thenReturn(energy);
+        Mockito.when(readings.retrieveEnergy(id, "15m")).thenReturn(energy);
+
+        webTestClient.post().uri("/chargingSessions/" + id + "/readings").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[{\"readAt\":\"2021-03-15T14:10:00\",\"energyKwh\":1520.0},"
+                        + "{\"readAt\":\"2021-03-15T14:20:00\",\"energyKwh\":1522.0}]")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.energyKwh").isEqualTo(2.0);
+        webTestClient.get().uri("/chargingSessions/" + id + "/energy?interval=15m")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.readings").isEqualTo(2);
+
+        verify(readings, times(1)).appendReadings(Mockito.eq(id), Mockito.argThat(r -> r.size() == 2));
+        verify(readings, times(1)).retrieveEnergy(id, "15m");
+    }
+
+}
@@ -0,0 +1,143 @@
+package com.evron.chargingsessionservice.controller;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SerializedResponseCacheTest {
+
+    private final AtomicInteger serializations = new AtomicInteger();
+
+    @Test
+    public void testBodyIsReusedUntilTheStoreChanges() {
+        SerializedResponseCache cache = new SerializedResponseCache();
+
+        byte[] first = cache.get("all", () -> "a-1", () -> body("v1"));
+        byte[] second = cache.get("all", () -> "a-1", () -> body("v1"));
+        byte[] changed = cache.get("all", () -> "a-2", () -> body("v2"));
+
+        assertSame(first, second);
+        assertArrayEquals(bytes("v2"), changed);
+        assertEquals(2, serializations.get());
+    }
+
+    @Test
+    public void testBodyIsRebuiltWhenTheVersionStartsOver() {
+        SerializedResponseCache cache = new SerializedResponseCache();
+
+        cache.get("all", () -> "a-5.b-3", () -> body("before"));
+        byte[] restarted = cache.get("all", () -> "a-5.c-1", () -> body("after"));
+
+        assertArrayEquals(bytes("after"), restarted);
+        assertEquals(2, serializations.get());
+    }
+
+    @Test
+    public void testConcurrentRequestsShareOneSerialization() throws Exception {
+        SerializedResponseCache cache = new SerializedResponseCache();
+        int threads = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<byte[]>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return cache.get("all", () -> "a-1", () -> {
+                        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+                        return body("v1");
+                    });
+                }));
+            }
+            start.countDown();
+            for (Future<byte[]> future : futures) {
+                assertArrayEquals(bytes("v1"), future.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, serializations.get());
+    }
+
+    @Test
+    public void testBodyBeingBuiltIsNotReplaced() throws Exception {
+        SerializedResponseCache cache = new SerializedResponseCache();
+        AtomicReference<String> version = new AtomicReference<>("a-1");
+        CountDownLatch building = new CountDownLatch(1);
+        CompletableFuture<Void> changed = new CompletableFuture<>();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<byte[]> stale = executor.submit(() -> cache.get("all", version::get, () -> {
+                building.countDown();
+                changed.join();
+                return body("v1");
+            }));
+            building.await();
+            version.set("a-2");
+            CompletableFuture<byte[]> fresh = cache.getAsync("all", version::get, () -> body("v2"));
+
+            assertFalse(fresh.isDone());
+            assertEquals(0, serializations.get());
+
+            changed.complete(null);
+            assertArrayEquals(bytes("v1"), stale.get(10, TimeUnit.SECONDS));
+            assertArrayEquals(bytes("v2"), fresh.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertSame(cache.get("all", version::get, () -> body("v3")), cache.get("all", version::get, () -> body("v3")));
+        assertEquals(2, serializations.get());
+    }
+
+    @Test
+    public void testFailedSerializationIsNotCached() {
+        SerializedResponseCache cache = new SerializedResponseCache();
+
+        assertThrows(UncheckedIOException.class, () -> cache.get("all", () -> "a-1", () -> {
+            throw new IOException("broken");
+        }));
+
+        assertArrayEquals(bytes("v1"), cache.get("all", () -> "a-1", () -> body("v1")));
+    }
+
+    @Test
+    public void testBodiesOverTheLimitAreNotKept() {
+        SerializedResponseCache cache = new SerializedResponseCache(1);
+
+        cache.get("all", () -> "a-1", () -> body("v1"));
+        cache.get("all", () -> "a-1", () -> body("v1"));
+
+        assertEquals(2, serializations.get());
+    }
+
+    private byte[] body(String content) {
+        serializations.incrementAndGet();
+        return bytes(content);
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
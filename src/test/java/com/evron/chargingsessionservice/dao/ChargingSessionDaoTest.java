@@ -0,0 +1,222 @@
+package com.evron.chargingsessionservice.dao;
+
+import com.evron.chargingsessionservice.model.ChargingSession;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static com.evron.chargingsessionservice.model.ChargingSession.SessionStatus.FINISHED;
+import static com.evron.chargingsessionservice.model.ChargingSession.SessionStatus.IN_PROGRESS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ChargingSessionDaoTest {
+
+    private final ChargingSessionDao dao = new ChargingSessionDao();
+
+    @Test
+    public void testFindByStationIdReturnsOnlySessionsOfStation() {
+        dao.save(session("ABC-12345"));
+        dao.save(session("ABC-12345"));
+        dao.save(session("XYZ-12345"));
+
+        List<ChargingSession> sessions = dao.findByStationId("ABC-12345");
+
+        assertEquals(2, sessions.size());
+        assertTrue(sessions.stream().allMatch(s -> "ABC-12345".equals(s.getStationId())));
+        assertEquals(1, dao.findByStationId("XYZ-12345").size());
+        assertTrue(dao.findByStationId("UNKNOWN").isEmpty());
+    }
+
+    @Test
+    public void testFindByStationIdFollowsStationChangeOnSave() {
+        ChargingSession session = session("ABC-12345");
+        dao.save(session);
+
+        ChargingSession moved = session("XYZ-12345");
+        moved.setId(session.getId());
+        dao.save(moved);
+
+        assertTrue(dao.findByStationId("ABC-12345").isEmpty());
+        assertEquals(1, dao.findByStationId("XYZ-12345").size());
+    }
+
+    @Test
+    public void testActiveIndexAndStatusCountsFollowStopTransition() {
+        ChargingSession first = session("ABC-12345");
+        ChargingSession second = session("XYZ-12345");
+        dao.save(first);
+        dao.save(second);
+
+        assertEquals(2, dao.findActive().size());
+        assertEquals(2, dao.countByStatus(IN_PROGRESS));
+        assertEquals(0, dao.countByStatus(FINISHED));
+
+        dao.save(new ChargingSession(first.getId(), first.getStationId(), first.getStartedAt(),
+                LocalDateTime.now(), FINISHED));
+        dao.save(new ChargingSession(first.getId(), first.getStationId(), first.getStartedAt(),
+                LocalDateTime.now(), FINISHED));
+
+        List<ChargingSession> active = dao.findActive();
+        assertEquals(1, active.size());
+        assertEquals(second.getId(), active.get(0).getId());
+        assertEquals(second.getId(), dao.findActiveAfter(null).iterator().next().getId());
+        assertFalse(dao.findActiveAfter(second.getId()).iterator().hasNext());
+        assertEquals(1, dao.countByStatus(IN_PROGRESS));
+        assertEquals(1, dao.countByStatus(FINISHED));
+    }
+
+    @Test
+    public void testFindByIdReturnsSavedStateFromCompactStore() {
+        ChargingSession session = new ChargingSession(UUID.randomUUID(), "ABC-12345",
+                LocalDateTime.of(2021, 3, 15, 14, 5, 7, 123_456_789), LocalDateTime.of(2021, 3, 15, 15, 0), FINISHED);
+        dao.save(session);
+
+        ChargingSession found = dao.findById(session.getId());
+
+        assertEquals(session.getId(), found.getId());
+        assertEquals("ABC-12345", found.getStationId());
+        assertEquals(session.getStartedAt(), found.getStartedAt());
+        assertEquals(session.getStoppedAt(), found.getStoppedAt());
+        assertEquals(FINISHED, found.getStatus());
+        assertEquals(1, dao.findAll().size());
+        assertEquals(session.getStartedAt(), dao.findAll().iterator().next().getStartedAt());
+    }
+
+    @Test
+    public void testStopIsAppliedOnceAndRepeatedStopReturnsFirstStop() {
+        ChargingSession session = session("ABC-12345");
+        dao.save(session);
+        LocalDateTime first = LocalDateTime.of(2021, 3, 15, 15, 0);
+
+        SessionTransition stopped = dao.stop(session.getId(), first);
+        SessionTransition repeated = dao.stop(session.getId(), first.plusMinutes(5));
+
+        assertTrue(stopped.isApplied());
+        assertEquals(FINISHED, stopped.getSession().getStatus());
+        assertEquals(first, stopped.getSession().getStoppedAt());
+        assertFalse(repeated.isApplied());
+        assertEquals(first, repeated.getSession().getStoppedAt());
+        assertEquals(0, dao.countByStatus(IN_PROGRESS));
+        assertEquals(1, dao.countByStatus(FINISHED));
+        assertTrue(dao.findActive().isEmpty());
+        assertNull(dao.stop(UUID.randomUUID(), first));
+    }
+
+    @Test
+    public void testVersionIncreasesWithEveryChange() {
+        ChargingSession session = session("ABC-12345");
+        long initial = dao.version();
+
+        dao.save(session);
+        long saved = dao.version();
+        dao.findAll().forEach(s -> { });
+        dao.findByStationId("ABC-12345");
+        assertEquals(saved, dao.version());
+
+        dao.stop(session.getId(), LocalDateTime.of(2021, 3, 15, 15, 0));
+        long stopped = dao.version();
+        dao.stop(session.getId(), LocalDateTime.of(2021, 3, 15, 15, 5));
+
+        assertTrue(initial < saved);
+        assertTrue(saved < stopped);
+        assertEquals(stopped, dao.version());
+    }
+
+    /**
+     * Stress test: every session is stopped by several threads at once while
+     * new sessions are started. Each stop must be applied exactly once, all
+     * callers must see the same stop, and no start or stop may be lost.
+     */
+    @Test
+    public void testConcurrentStopsApplyExactlyOnce() throws Exception {
+        int threads = 8;
+        int sessions = 20_000;
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < sessions; i++) {
+            ChargingSession session = session("ABC-" + i % 100);
+            dao.save(session);
+            ids.add(session.getId());
+        }
+        ConcurrentMap<UUID, LocalDateTime> stoppedAt = new ConcurrentHashMap<>();
+        AtomicInteger applied = new AtomicInteger();
+        AtomicInteger torn = new AtomicInteger();
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                LocalDateTime stopTime = LocalDateTime.of(2021, 3, 15, 15, 0).plusSeconds(t);
+                futures.add(executor.submit(() -> {
+                    barrier.await();
+                    for (UUID id : ids) {
+                        SessionTransition transition = dao.stop(id, stopTime);
+                        if (transition.isApplied()) {
+                            applied.incrementAndGet();
+                        }
+                        ChargingSession stopped = transition.getSession();
+                        LocalDateTime previous = stoppedAt.putIfAbsent(id, stopped.getStoppedAt());
+                        if (stopped.getStatus() != FINISHED
+                                || previous != null && !previous.equals(stopped.getStoppedAt())) {
+                            torn.incrementAndGet();
+                        }
+                        dao.save(session("XYZ-12345"));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(sessions, applied.get());
+        assertEquals(0, torn.get());
+        assertEquals(sessions, dao.countByStatus(FINISHED));
+        assertEquals((long) threads * sessions, dao.countByStatus(IN_PROGRESS));
+        assertEquals(threads * sessions, dao.findActive().size());
+        assertEquals(sessions + threads * sessions, dao.size());
+        for (UUID id : ids) {
+            assertEquals(stoppedAt.get(id), dao.findById(id).getStoppedAt());
+        }
+    }
+
+    @Test
+    public void testOperationsAreTimedAndSizesPublished() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        ChargingSessionDao dao = new ChargingSessionDao(null, null, null, registry);
+        ChargingSession session = session("ABC-12345");
+        dao.save(session);
+        dao.save(session("ABC-12345"));
+        dao.findById(session.getId());
+
+        assertEquals(2, registry.get(ChargingSessionDao.TIMER_NAME).tag("operation", "save").timer().count());
+        assertEquals(1, registry.get(ChargingSessionDao.TIMER_NAME).tag("operation", "findById").timer().count());
+        assertEquals(2.0, registry.get("charging.sessions.stored").gauge().value());
+        assertEquals(2.0, registry.get("charging.sessions.active").gauge().value());
+    }
+
+    private ChargingSession session(String stationId) {
+        return new ChargingSession(UUID.randomUUID(), stationId, LocalDateTime.now(), null, IN_PROGRESS);
+    }
+
+}
@@ -0,0 +1,348 @@
+package com.evron.chargingsessionservice.dao;
+
+import com.evron.chargingsessionservice.dao.SessionJournal.FsyncPolicy;
+import com.evron.chargingsessionservice.model.ChargingSession;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static com.evron.chargingsessionservice.model.ChargingSession.SessionStatus.FINISHED;
+import static com.evron.chargingsessionservice.model.ChargingSession.SessionStatus.IN_PROGRESS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ColdSegmentStoreTest {
+
+    private Path directory;
+
+    @BeforeEach
+    public void init() throws IOException {
+        directory = Files.createTempDirectory("cold");
+    }
+
+    @AfterEach
+    public void cleanup() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testFindReturnsWrittenSessionsAfterReopen() throws IOException {
+        List<ChargingSession> sessions = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            sessions.add(finished("STATION-" + i % 100, LocalDateTime.now()));
+        }
+        sessions.sort(Comparator.comparing(ChargingSession::getId));
+        try (ColdSegmentStore store = new ColdSegmentStore(directory)) {
+            assertEquals(20_000, store.write(sessions));
+        }
+
+        try (ColdSegmentStore store = new ColdSegmentStore(directory)) {
+            assertEquals(20_000, store.size());
+            for (ChargingSession session : sessions) {
+                ChargingSession copy = store.find(session.getId());
+                assertEquals(session.getStationId(), copy.getStationId());
+                assertEquals(session.getStartedAt(), copy.getStartedAt());
+                assertEquals(session.getStoppedAt(), copy.getStoppedAt());
+                assertEquals(FINISHED, copy.getStatus());
+            }
+            assertNull(store.find(UUID.randomUUID()));
+        }
+    }
+
+    @Test
+    public void testIteratorSkipsCopiesShadowedByNewerSegment() throws IOException {
+        ChargingSession first = finished("ABC-12345", LocalDateTime.now().minusDays(1));
+        ChargingSession second = finished("DEF-12345", LocalDateTime.now().minusDays(1));
+        ChargingSession updated = finished("XYZ-12345", LocalDateTime.now());
+        updated.setId(first.getId());
+        List<ChargingSession> older = new ArrayList<>();
+        older.add(first);
+        older.add(second);
+        older.sort(Comparator.comparing(ChargingSession::getId));
+
+        try (ColdSegmentStore store = new ColdSegmentStore(directory)) {
+            store.write(older);
+            store.write(Collections.singletonList(updated), 1);
+
+            assertEquals(2, store.size());
+            assertEquals("XYZ-12345", store.find(first.getId()).getStationId());
+            Set<String> stations = new HashSet<>();
+            for (Iterator<ChargingSession> iterator = store.iterator(); iterator.hasNext(); ) {
+                stations.add(iterator.next().getStationId());
+            }
+            assertEquals(2, stations.size());
+            assertTrue(stations.contains("XYZ-12345"));
+            assertTrue(stations.contains("DEF-12345"));
+        }
+    }
+
+    @Test
+    public void testLookupsAfterManyArchiveRuns() throws IOException {
+        Map<UUID, ChargingSession> latest = new HashMap<>();
+        List<UUID> ids = new ArrayList<>();
+        Random random = new Random(42);
+        try (ColdSegmentStore store = new ColdSegmentStore(directory)) {
+            for (int run = 0; run < 300; run++) {
+                Map<UUID, ChargingSession> batch = new TreeMap<>();
+                long superseded = 0;
+                for (int i = 0; i < 50; i++) {
+                    ChargingSession session = finished("RUN-" + run, LocalDateTime.now());
+                    // every fifth one is an archived session saved again and archived anew
+                    if (i % 5 == 0 && !ids.isEmpty()) {
+                        session.setId(ids.get(random.nextInt(ids.size())));
+                    }
+                    if (batch.put(session.getId(), session) == null && latest.containsKey(session.getId())) {
+                        superseded++;
+                    }
+                }
+                store.write(batch.values(), superseded);
+                for (ChargingSession session : batch.values()) {
+                    if (latest.put(session.getId(), session) == null) {
+                        ids.add(session.getId());
+                    }
+                }
+                assertTrue(store.segmentCount() <= 10, "segments after run " + run + ": " + store.segmentCount());
+            }
+
+            assertEquals(latest.size(), store.size());
+            for (ChargingSession session : latest.values()) {
+                assertEquals(session.getStationId(), store.find(session.getId()).getStationId());
+            }
+            UUID previous = null;
+            int iterated = 0;
+            for (Iterator<ChargingSession> iterator = store.iterator(); iterator.hasNext(); iterated++) {
+                ChargingSession session = iterator.next();
+                assertTrue(previous == null || previous.compareTo(session.getId()) < 0);
+                assertEquals(latest.get(session.getId()).getStationId(), session.getStationId());
+                previous = session.getId();
+            }
+            assertEquals(latest.size(), iterated);
+        }
+
+        try (ColdSegmentStore store = new ColdSegmentStore(directory);
+             Stream<Path> files = Files.list(directory)) {
+            assertEquals(store.segmentCount(), files.count());
+            assertEquals(latest.size(), store.size());
+            for (ChargingSession session : latest.values()) {
+                assertEquals(session.getStationId(), store.find(session.getId()).getStationId());
+            }
+        }
+    }
+
+    @Test
+    public void testReopenDropsSegmentsLeftBehindByMerge() throws IOException {
+        ChargingSession first = finished("ABC-12345", LocalDateTime.now());
+        ChargingSession second = finished("XYZ-12345", LocalDateTime.now());
+        Path segment = directory.resolve(StorageFiles.name(ColdSegmentStore.SEGMENT_PREFIX, 1,
+                ColdSegmentStore.SEGMENT_SUFFIX));
+        Path backup = directory.resolve("backup");
+
+        try (ColdSegmentStore store = new ColdSegmentStore(directory)) {
+            store.write(Collections.singletonList(first));
+            Files.copy(segment, backup);
+            store.write(Collections.singletonList(second));
+
+            assertEquals(1, store.segmentCount());
+            assertFalse(Files.exists(segment));
+        }
+        // as if the merged segment had not been deleted before a crash
+        Files.move(backup, segment);
+
+        try (ColdSegmentStore store = new ColdSegmentStore(directory)) {
+            assertEquals(1, store.segmentCount());
+            assertEquals(2, store.size());
+            assertEquals("ABC-12345", store.find(first.getId()).getStationId());
+        }
+        assertFalse(Files.exists(segment));
+    }
+
+    @Test
+    public void testIteratorContinuesAcrossMerge() throws IOException {
+        Set<UUID> written = new HashSet<>();
+        try (ColdSegmentStore store = new ColdSegmentStore(directory)) {
+            store.write(sortedSessions(2000, written));
+            store.write(sortedSessions(1000, written));
+            assertEquals(2, store.segmentCount());
+
+            Set<UUID> before = new HashSet<>(written);
+            Iterator<ChargingSession> iterator = store.iterator();
+            Set<UUID> iterated = new HashSet<>();
+            for (int i = 0; i < 100; i++) {
+                iterated.add(iterator.next().getId());
+            }
+            store.write(sortedSessions(1000, written));
+            assertEquals(1, store.segmentCount());
+            while (iterator.hasNext()) {
+                assertTrue(iterated.add(iterator.next().getId()));
+            }
+
+            // sessions archived while iterating may or may not be included
+            assertTrue(iterated.containsAll(before));
+            assertTrue(written.containsAll(iterated));
+        }
+    }
+
+    @Test
+    public void testDaoArchivesOldFinishedSessions() throws IOException {
+        LocalDateTime now = LocalDateTime.now();
+        ChargingSession old = finished("ABC-12345", now.minusDays(10));
+        ChargingSession recent = finished("ABC-12345", now.minusHours(1));
+        ChargingSession active = new ChargingSession(UUID.randomUUID(), "ABC-12345", now, null, IN_PROGRESS);
+
+        try (ColdSegmentStore store = new ColdSegmentStore(directory)) {
+            ChargingSessionDao dao = new ChargingSessionDao(null, null, store);
+            dao.save(old);
+            dao.save(recent);
+            dao.save(active);
+
+            assertEquals(1, dao.archive(now.minusDays(7)));
+
+            assertEquals(2, dao.size());
+            assertEquals(1, store.size());
+            assertEquals(2, dao.findByStationId("ABC-12345").size());
+            assertEquals(2, dao.countByStatus(FINISHED));
+            assertTrue(dao.contains(old.getId()));
+            assertEquals(old.getStoppedAt(), dao.findById(old.getId()).getStoppedAt());
+            int exported = 0;
+            for (Iterator<ChargingSession> iterator = dao.exportAll(); iterator.hasNext(); iterator.next()) {
+                exported++;
+            }
+            assertEquals(3, exported);
+        }
+    }
+
+    @Test
+    public void testDaoRecoverySkipsArchivedSessions() throws IOException {
+        ChargingSession old = finished("ABC-12345", LocalDateTime.now().minusDays(10));
+        Path journalDirectory = directory.resolve("journal");
+        Path coldDirectory = directory.resolve("cold");
+
+        try (SessionJournal journal = new SessionJournal(journalDirectory, FsyncPolicy.NEVER, 0);
+             ColdSegmentStore store = new ColdSegmentStore(coldDirectory)) {
+            ChargingSessionDao dao = new ChargingSessionDao(journal, null, store);
+            dao.save(old);
+            assertEquals(1, dao.archive(LocalDateTime.now().minusDays(7)));
+        }
+
+        try (SessionJournal journal = new SessionJournal(journalDirectory, FsyncPolicy.NEVER, 0);
+             ColdSegmentStore store = new ColdSegmentStore(coldDirectory)) {
+            ChargingSessionDao dao = new ChargingSessionDao(journal, null, store);
+
+            assertEquals(0, dao.size());
+            assertFalse(dao.findAll().iterator().hasNext());
+            assertEquals("ABC-12345", dao.findById(old.getId()).getStationId());
+        }
+    }
+
+    @Test
+    public void testDaoCountsSessionSavedAgainWhileArchivedOnce() throws IOException {
+        LocalDateTime now = LocalDateTime.now();
+        ChargingSession old = finished("ABC-12345", now.minusDays(10));
+        ChargingSession corrected = finished("DEF-12345", now.minusDays(9));
+        corrected.setId(old.getId());
+        AtomicReference<ChargingSessionDao> dao = new AtomicReference<>();
+        // saves the session again while its batch is being written
+        ColdSegmentStore racing = new ColdSegmentStore(directory) {
+            @Override
+            public synchronized long write(Iterable<ChargingSession> sessions, long superseded) {
+                if (dao.get().findById(old.getId()).getStationId().equals("ABC-12345")) {
+                    dao.get().save(corrected);
+                }
+                return super.write(sessions, superseded);
+            }
+        };
+
+        try (ColdSegmentStore store = racing) {
+            dao.set(new ChargingSessionDao(null, null, store));
+            dao.get().save(old);
+
+            assertEquals(0, dao.get().archive(now.minusDays(7)));
+            assertEquals(1, dao.get().size());
+            assertEquals(1, dao.get().countByStatus(FINISHED));
+            assertEquals(0, dao.get().countArchived());
+            assertEquals("DEF-12345", dao.get().findById(old.getId()).getStationId());
+
+            assertEquals(1, dao.get().archive(now.minusDays(7)));
+            assertEquals(0, dao.get().size());
+            assertEquals(1, dao.get().countByStatus(FINISHED));
+            assertEquals(1, dao.get().countArchived());
+            assertEquals("DEF-12345", dao.get().findById(old.getId()).getStationId());
+        }
+
+        try (ColdSegmentStore store = new ColdSegmentStore(directory)) {
+            assertEquals(1, store.size());
+        }
+    }
+
+    @Test
+    public void testDaoRecoveryKeepsSessionsSavedAgainAfterArchiving() throws IOException {
+        ChargingSession old = finished("ABC-12345", LocalDateTime.now().minusDays(10));
+        ChargingSession corrected = finished("DEF-12345", LocalDateTime.now().minusDays(9));
+        corrected.setId(old.getId());
+        Path journalDirectory = directory.resolve("journal");
+        Path coldDirectory = directory.resolve("cold");
+
+        try (SessionJournal journal = new SessionJournal(journalDirectory, FsyncPolicy.NEVER, 0);
+             ColdSegmentStore store = new ColdSegmentStore(coldDirectory)) {
+            ChargingSessionDao dao = new ChargingSessionDao(journal, null, store);
+            dao.save(old);
+            assertEquals(1, dao.archive(LocalDateTime.now().minusDays(7)));
+            dao.save(corrected);
+        }
+
+        try (SessionJournal journal = new SessionJournal(journalDirectory, FsyncPolicy.NEVER, 0);
+             ColdSegmentStore store = new ColdSegmentStore(coldDirectory)) {
+            ChargingSessionDao dao = new ChargingSessionDao(journal, null, store);
+
+            assertEquals(1, dao.size());
+            assertEquals("DEF-12345", dao.findById(old.getId()).getStationId());
+            assertEquals(1, dao.countByStatus(FINISHED));
+            assertEquals(0, dao.countArchived());
+            int exported = 0;
+            for (Iterator<ChargingSession> iterator = dao.exportAll(); iterator.hasNext(); iterator.next()) {
+                exported++;
+            }
+            assertEquals(1, exported);
+        }
+    }
+
+    private List<ChargingSession> sortedSessions(int count, Set<UUID> ids) {
+        List<ChargingSession> sessions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ChargingSession session = finished("STATION-" + i % 100, LocalDateTime.now());
+            sessions.add(session);
+            ids.add(session.getId());
+        }
+        sessions.sort(Comparator.comparing(ChargingSession::getId));
+        return sessions;
+    }
+
+    private ChargingSession finished(String stationId, LocalDateTime stoppedAt) {
+        return new ChargingSession(UUID.randomUUID(), stationId, stoppedAt.minusMinutes(30), stoppedAt, FINISHED);
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.evron.chargingsessionservice.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MeterReadingDaoTest {
+
+    private static final long START = 1_615_819_470_000L;
+
+    @Test
+    public void testReadingsGaugeMatchesStoredReadingsUnderConcurrentEviction() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MeterReadingDao dao = new MeterReadingDao(1_000_000, 0, Clock.systemUTC(), registry);
+        UUID[] ids = {UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID()};
+        AtomicBoolean appending = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> evictions = executor.submit(() -> {
+                while (appending.get()) {
+                    dao.evictBefore(Long.MAX_VALUE);
+                }
+            });
+            Future<?> appends = executor.submit(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    dao.append(ids[i % ids.length], new long[]{START + i}, new long[]{i}, () -> true,
+                            MeterSeries::count);
+                }
+                appending.set(false);
+            });
+            appends.get();
+            evictions.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long stored = 0;
+        for (UUID id : ids) {
+            stored += dao.read(id, MeterSeries::count);
+        }
+        assertEquals(stored, registry.get("charging.session.meter.readings").gauge().value());
+    }
+
+    @Test
+    public void testRejectedReadingsAreNotCounted() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MeterReadingDao dao = new MeterReadingDao(10, 0, Clock.systemUTC(), registry);
+        UUID id = UUID.randomUUID();
+        dao.append(id, new long[]{START}, new long[]{100}, () -> true, MeterSeries::count);
+
+        assertThrows(IllegalStateException.class,
+                () -> dao.append(id, new long[]{START + 5_000}, new long[]{110}, () -> false, MeterSeries::count));
+        assertEquals(1, (int) dao.read(id, MeterSeries::count));
+        assertEquals(1, registry.get("charging.session.meter.readings").gauge().value());
+        assertEquals(0, (int) dao.read(UUID.randomUUID(), MeterSeries::count));
+    }
+
+    @Test
+    public void testRejectedFirstReadingsLeaveNoSeries() {
+        MeterReadingDao dao = new MeterReadingDao(10, 0, Clock.systemUTC(), null);
+        UUID id = UUID.randomUUID();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> dao.append(id, new long[]{START, START - 5_000}, new long[]{100, 110}, () -> true,
+                        MeterSeries::count));
+        assertThrows(IllegalStateException.class,
+                () -> dao.append(id, new long[]{START}, new long[]{100}, () -> false, MeterSeries::count));
+        assertEquals(0, dao.evictBefore(Long.MAX_VALUE));
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.evron.chargingsessionservice.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MeterSeriesTest {
+
+    private static final long START = 1_615_819_470_000L;
+
+    @Test
+    public void testReadingsAreDecodedAsAppendedInAboutTwoBytesEach() {
+        Random random = new Random(42);
+        int readings = 10_000;
+        long[] times = new long[readings];
+        long[] wattHours = new long[readings];
+        for (int i = 0; i < readings; i++) {
+            // a reading every 5 seconds, a few of them late, at 7 to 11 kW
+            times[i] = START + i * 5_000L + (i % 100 == 0 ? random.nextInt(800) : 0);
+            wattHours[i] = i == 0 ? 1_523_417 : wattHours[i - 1] + 10 + random.nextInt(6);
+        }
+        MeterSeries series = new MeterSeries();
+        for (int from = 0; from < readings; from += 1000) {
+            series.append(copy(times, from, 1000), copy(wattHours, from, 1000), readings);
+        }
+
+        List<Long> decodedTimes = new ArrayList<>();
+        List<Long> decodedWattHours = new ArrayList<>();
+        series.forEach((time, wh) -> {
+            decodedTimes.add(time);
+            decodedWattHours.add(wh);
+        });
+
+        assertArrayEquals(times, decodedTimes.stream().mapToLong(Long::longValue).toArray());
+        assertArrayEquals(wattHours, decodedWattHours.stream().mapToLong(Long::longValue).toArray());
+        assertEquals(readings, series.count());
+        assertEquals(wattHours[readings - 1] - wattHours[0], series.energyWh());
+        assertTrue(series.encodedBytes() < 2.2 * readings, () -> series.encodedBytes() + " bytes");
+    }
+
+    @Test
+    public void testOutOfOrderReadingsAreRejectedWithTheirWholeBatch() {
+        MeterSeries series = new MeterSeries();
+        series.append(new long[]{START, START + 5_000}, new long[]{100, 110}, 10);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> series.append(new long[]{START + 10_000, START + 9_000}, new long[]{120, 130}, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> series.append(new long[]{START + 10_000, START + 15_000}, new long[]{120, 119}, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> series.append(new long[]{START + 5_000}, new long[]{111}, 10));
+        assertEquals(2, series.count());
+
+        // a resent reading is ignored
+        assertEquals(1, series.append(new long[]{START + 5_000, START + 10_000}, new long[]{110, 120}, 10));
+        assertEquals(3, series.count());
+        assertThrows(IllegalArgumentException.class,
+                () -> series.append(new long[]{START + 20_000}, new long[]{130}, 3));
+    }
+
+    @Test
+    public void testReadingsNoLongerAcceptedAreRemovedAgain() {
+        MeterSeries series = new MeterSeries();
+        series.append(new long[]{START, START + 5_000}, new long[]{100, 110}, 10);
+
+        assertThrows(IllegalStateException.class,
+                () -> series.append(new long[]{START + 10_000, START + 15_000}, new long[]{120, 130}, 10, () -> false));
+        assertEquals(2, series.count());
+        assertEquals(START + 5_000, series.lastTime());
+        assertEquals(10, series.energyWh());
+
+        // the step between the kept readings is the base of the next one again
+        series.append(new long[]{START + 10_000}, new long[]{125}, 10);
+        List<Long> decodedTimes = new ArrayList<>();
+        series.forEach((time, wh) -> decodedTimes.add(time));
+        assertEquals(START + 10_000, decodedTimes.get(2));
+        assertEquals(25, series.energyWh());
+    }
+
+    private static long[] copy(long[] values, int from, int length) {
+        long[] copy = new long[length];
+        System.arraycopy(values, from, copy, 0, length);
+        return copy;
+    }
+
+}
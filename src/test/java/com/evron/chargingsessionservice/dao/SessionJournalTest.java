@@ -0,0 +1,304 @@
+package com.evron.chargingsessionservice.dao;
+
+import com.evron.chargingsessionservice.dao.SessionJournal.FsyncPolicy;
+import com.evron.chargingsessionservice.exception.SessionStorageException;
+import com.evron.chargingsessionservice.model.ChargingSession;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static com.evron.chargingsessionservice.model.ChargingSession.SessionStatus.FINISHED;
+import static com.evron.chargingsessionservice.model.ChargingSession.SessionStatus.IN_PROGRESS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SessionJournalTest {
+
+    private Path directory;
+
+    @BeforeEach
+    public void init() throws IOException {
+        directory = Files.createTempDirectory("journal");
+    }
+
+    @AfterEach
+    public void cleanup() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testReplayReturnsAppendedSessionsInOrder() throws IOException {
+        ChargingSession started = new ChargingSession(UUID.randomUUID(), "ABC-12345", LocalDateTime.now(), null, IN_PROGRESS);
+        ChargingSession stopped = new ChargingSession(started.getId(), "ABC-12345", started.getStartedAt(),
+                LocalDateTime.now(), FINISHED);
+        try (SessionJournal journal = new SessionJournal(directory, FsyncPolicy.ALWAYS, 0)) {
+            journal.replay(0, session -> { });
+            journal.append(started);
+            journal.append(stopped);
+        }
+
+        List<ChargingSession> replayed = new ArrayList<>();
+        try (SessionJournal journal = new SessionJournal(directory, FsyncPolicy.ALWAYS, 0)) {
+            assertEquals(2, journal.replay(0, replayed::add));
+        }
+
+        assertEquals(started.getId(), replayed.get(0).getId());
+        assertEquals(started.getStartedAt(), replayed.get(0).getStartedAt());
+        assertNull(replayed.get(0).getStoppedAt());
+        assertEquals(IN_PROGRESS, replayed.get(0).getStatus());
+        assertEquals("ABC-12345", replayed.get(1).getStationId());
+        assertEquals(stopped.getStoppedAt(), replayed.get(1).getStoppedAt());
+        assertEquals(FINISHED, replayed.get(1).getStatus());
+    }
+
+    @Test
+    public void testAppendAllWritesEveryRecord() throws IOException {
+        List<ChargingSession> sessions = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            sessions.add(new ChargingSession(UUID.randomUUID(), "STATION-" + i, LocalDateTime.now(), null, IN_PROGRESS));
+        }
+        try (SessionJournal journal = new SessionJournal(directory, FsyncPolicy.ALWAYS, 0)) {
+            journal.replay(0, session -> { });
+            journal.appendAll(sessions);
+            journal.append(sessions.get(0));
+        }
+
+        List<ChargingSession> replayed = new ArrayList<>();
+        try (SessionJournal journal = new SessionJournal(directory, FsyncPolicy.ALWAYS, 0)) {
+            assertEquals(501, journal.replay(0, replayed::add));
+        }
+
+        for (int i = 0; i < sessions.size(); i++) {
+            assertEquals(sessions.get(i).getId(), replayed.get(i).getId());
+            assertEquals(sessions.get(i).getStationId(), replayed.get(i).getStationId());
+        }
+        assertEquals(sessions.get(0).getId(), replayed.get(500).getId());
+    }
+
+    @Test
+    public void testReplayTruncatesTornTail() throws IOException {
+        try (SessionJournal journal = new SessionJournal(directory, FsyncPolicy.NEVER, 0)) {
+            journal.replay(0, session -> { });
+            journal.append(new ChargingSession(UUID.randomUUID(), "ABC-12345", LocalDateTime.now(), null, IN_PROGRESS));
+            journal.append(new ChargingSession(UUID.randomUUID(), "XYZ-12345", LocalDateTime.now(), null, IN_PROGRESS));
+        }
+        long intactSize;
+        Path segment = directory.resolve(StorageFiles.name(SessionJournal.SEGMENT_PREFIX, 1, SessionJournal.SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            intactSize = channel.size();
+            channel.truncate(intactSize - 3);
+        }
+
+        try (SessionJournal journal = new SessionJournal(directory, FsyncPolicy.NEVER, 0)) {
+            assertEquals(1, journal.replay(0, session -> { }));
+            journal.append(new ChargingSession(UUID.randomUUID(), "DEF-12345", LocalDateTime.now(), null, IN_PROGRESS));
+        }
+
+        List<ChargingSession> replayed = new ArrayList<>();
+        try (SessionJournal journal = new SessionJournal(directory, FsyncPolicy.NEVER, 0)) {
+            assertEquals(2, journal.replay(0, replayed::add));
+        }
+        assertEquals("ABC-12345", replayed.get(0).getStationId());
+        assertEquals("DEF-12345", replayed.get(1).getStationId());
+    }
+
+    @Test
+    public void testShortWriteDoesNotHideLaterRecords() throws IOException {
+        AtomicBoolean tearing = new AtomicBoolean();
+        try (SessionJournal journal = new SessionJournal(directory, FsyncPolicy.ALWAYS, 0) {
+            @Override
+            void write(FileChannel target, ByteBuffer buffer) throws IOException {
+                if (tearing.getAndSet(false)) {
+                    int limit = buffer.limit();
+                    buffer.limit(buffer.position() + buffer.remaining() / 2);
+                    target.write(buffer);
+                    buffer.limit(limit);
+                    throw new IOException("No space left on device");
+                }
+                super.write(target, buffer);
+            }
+        }) {
+            journal.replay(0, session -> { });
+            journal.append(new ChargingSession(UUID.randomUUID(), "ABC-12345", LocalDateTime.now(), null, IN_PROGRESS));
+            tearing.set(true);
+            assertThrows(SessionStorageException.class, () -> journal.append(
+                    new ChargingSession(UUID.randomUUID(), "TORN-12345", LocalDateTime.now(), null, IN_PROGRESS)));
+            journal.append(new ChargingSession(UUID.randomUUID(), "XYZ-12345", LocalDateTime.now(), null, IN_PROGRESS));
+        }
+
+        List<ChargingSession> replayed = new ArrayList<>();
+        try (SessionJournal journal = new SessionJournal(directory, FsyncPolicy.ALWAYS, 0)) {
+            assertEquals(2, journal.replay(0, replayed::add));
+        }
+        assertEquals("ABC-12345", replayed.get(0).getStationId());
+        assertEquals("XYZ-12345", replayed.get(1).getStationId());
+    }
+
+    @Test
+    public void testReplayFromSegmentSkipsOlderSegments() throws IOException {
+        try (SessionJournal journal = new SessionJournal(directory, FsyncPolicy.ALWAYS, 0)) {
+            journal.append(new ChargingSession(UUID.randomUUID(), "ABC-12345", LocalDateTime.now(), null, IN_PROGRESS));
+            assertEquals(2, journal.rotate());
+            journal.append(new ChargingSession(UUID.randomUUID(), "XYZ-12345", LocalDateTime.now(), null, IN_PROGRESS));
+        }
+
+        List<ChargingSession> replayed = new ArrayList<>();
+        try (SessionJournal journal = new SessionJournal(directory, FsyncPolicy.ALWAYS, 0)) {
+            assertEquals(2, journal.replay(0, session -> { }));
+            assertEquals(1, journal.replay(2, replayed::add));
+            assertEquals(1, journal.deleteSegmentsBefore(2));
+            assertEquals(1, journal.replay(0, session -> { }));
+        }
+        assertEquals("XYZ-12345", replayed.get(0).getStationId());
+    }
+
+    @Test
+    public void testStopIsRolledBackWhenItCannotBeJournaled() throws IOException {
+        AtomicBoolean failing = new AtomicBoolean();
+        ChargingSession session = new ChargingSession(UUID.randomUUID(), "ABC-12345", LocalDateTime.now(), null, IN_PROGRESS);
+        try (SessionJournal journal = new SessionJournal(directory, FsyncPolicy.ALWAYS, 0) {
+            @Override
+            public void appendAll(List<ChargingSession> sessions) {
+                if (failing.get()) {
+                    throw new SessionStorageException("Disk full", null);
+                }
+                super.appendAll(sessions);
+            }
+        }) {
+            ChargingSessionDao dao = new ChargingSessionDao(journal, null);
+            dao.save(session);
+            failing.set(true);
+
+            assertThrows(SessionStorageException.class, () -> dao.stop(session.getId(), LocalDateTime.now()));
+            assertEquals(IN_PROGRESS, dao.findById(session.getId()).getStatus());
+            assertEquals(1, dao.countByStatus(IN_PROGRESS));
+            assertEquals(0, dao.countByStatus(FINISHED));
+            assertEquals(1, dao.findActive().size());
+
+            failing.set(false);
+            assertTrue(dao.stop(session.getId(), LocalDateTime.now()).isApplied());
+        }
+
+        try (SessionJournal journal = new SessionJournal(directory, FsyncPolicy.ALWAYS, 0)) {
+            assertEquals(FINISHED, new ChargingSessionDao(journal, null).findById(session.getId()).getStatus());
+        }
+    }
+
+    @Test
+    public void testRolledBackStopLeavesNoActiveEntryWhenSavedAgainMeanwhile() throws IOException {
+        AtomicBoolean failing = new AtomicBoolean();
+        AtomicReference<Runnable> saveAgain = new AtomicReference<>();
+        ChargingSession session = new ChargingSession(UUID.randomUUID(), "ABC-12345", LocalDateTime.now(), null, IN_PROGRESS);
+        try (SessionJournal journal = new SessionJournal(directory, FsyncPolicy.ALWAYS, 0) {
+            @Override
+            public void appendAll(List<ChargingSession> sessions) {
+                if (failing.getAndSet(false)) {
+                    saveAgain.get().run();
+                    throw new SessionStorageException("Disk full", null);
+                }
+                super.appendAll(sessions);
+            }
+        }) {
+            ChargingSessionDao dao = new ChargingSessionDao(journal, null);
+            dao.save(session);
+            saveAgain.set(() -> dao.save(new ChargingSession(session.getId(), "ABC-12345", session.getStartedAt(),
+                    LocalDateTime.now(), FINISHED)));
+            failing.set(true);
+
+            assertThrows(SessionStorageException.class, () -> dao.stop(session.getId(), LocalDateTime.now()));
+            assertEquals(FINISHED, dao.findById(session.getId()).getStatus());
+            assertEquals(0, dao.countByStatus(IN_PROGRESS));
+            assertTrue(dao.activeIndex.isEmpty());
+        }
+    }
+
+    @Test
+    public void testRepeatedStopWaitsUntilFirstStopIsJournaled() throws Exception {
+        CountDownLatch journaling = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean blocking = new AtomicBoolean();
+        ChargingSession session = new ChargingSession(UUID.randomUUID(), "ABC-12345", LocalDateTime.now(), null, IN_PROGRESS);
+        try (SessionJournal journal = new SessionJournal(directory, FsyncPolicy.ALWAYS, 0) {
+            @Override
+            public void appendAll(List<ChargingSession> sessions) {
+                if (blocking.getAndSet(false)) {
+                    journaling.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.appendAll(sessions);
+            }
+        }) {
+            ChargingSessionDao dao = new ChargingSessionDao(journal, null);
+            dao.save(session);
+            blocking.set(true);
+            ExecutorService executor = Executors.newFixedThreadPool(2);
+            try {
+                Future<SessionTransition> first = executor.submit(() -> dao.stop(session.getId(), LocalDateTime.now()));
+                journaling.await();
+                Future<SessionTransition> repeated = executor.submit(() -> dao.stop(session.getId(), LocalDateTime.now()));
+
+                assertThrows(TimeoutException.class, () -> repeated.get(200, TimeUnit.MILLISECONDS));
+                release.countDown();
+                assertTrue(first.get().isApplied());
+                assertFalse(repeated.get().isApplied());
+                assertEquals(first.get().getSession().getStoppedAt(), repeated.get().getSession().getStoppedAt());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    @Test
+    public void testDaoRecoversStoreFromJournal() throws IOException {
+        ChargingSession first = new ChargingSession(UUID.randomUUID(), "ABC-12345", LocalDateTime.now(), null, IN_PROGRESS);
+        ChargingSession second = new ChargingSession(UUID.randomUUID(), "ABC-12345", LocalDateTime.now(), null, IN_PROGRESS);
+        try (SessionJournal journal = new SessionJournal(directory, FsyncPolicy.INTERVAL, 10)) {
+            ChargingSessionDao dao = new ChargingSessionDao(journal, null);
+            dao.save(first);
+            dao.save(second);
+            dao.save(new ChargingSession(first.getId(), "ABC-12345", first.getStartedAt(), LocalDateTime.now(), FINISHED));
+        }
+
+        try (SessionJournal journal = new SessionJournal(directory, FsyncPolicy.INTERVAL, 10)) {
+            ChargingSessionDao dao = new ChargingSessionDao(journal, null);
+
+            assertEquals(2, dao.size());
+            assertEquals(FINISHED, dao.findById(first.getId()).getStatus());
+            assertEquals(1, dao.countByStatus(IN_PROGRESS));
+            assertEquals(1, dao.countByStatus(FINISHED));
+            assertEquals(2, dao.findByStationId("ABC-12345").size());
+        }
+    }
+
+}
@@ -0,0 +1,275 @@
+package com.evron.chargingsessionservice.dao;
+
+import com.evron.chargingsessionservice.dao.SessionJournal.FsyncPolicy;
+import com.evron.chargingsessionservice.model.ChargingSession;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static com.evron.chargingsessionservice.model.ChargingSession.SessionStatus.FINISHED;
+import static com.evron.chargingsessionservice.model.ChargingSession.SessionStatus.IN_PROGRESS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SessionSnapshotStoreTest {
+
+    private Path directory;
+
+    @BeforeEach
+    public void init() throws IOException {
+        directory = Files.createTempDirectory("snapshot");
+    }
+
+    @AfterEach
+    public void cleanup() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testLoadLatestReturnsWrittenSessionsAcrossBlocks() {
+        List<ChargingSession> sessions = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            LocalDateTime startedAt = LocalDateTime.now();
+            sessions.add(i % 3 == 0
+                    ? new ChargingSession(UUID.randomUUID(), "STATION-" + i, startedAt, startedAt.plusMinutes(5), FINISHED)
+                    : new ChargingSession(UUID.randomUUID(), "STATION-" + i, startedAt, null, IN_PROGRESS));
+        }
+        SessionSnapshotStore store = new SessionSnapshotStore(directory, 2);
+
+        assertEquals(50_000, store.write(sessions, 7));
+        Map<UUID, ChargingSession> loaded = new ConcurrentHashMap<>();
+        long segment = store.loadLatest(session -> loaded.put(session.getId(), session));
+
+        assertEquals(7, segment);
+        assertEquals(50_000, loaded.size());
+        for (ChargingSession session : sessions) {
+            ChargingSession copy = loaded.get(session.getId());
+            assertEquals(session.getStationId(), copy.getStationId());
+            assertEquals(session.getStartedAt(), copy.getStartedAt());
+            assertEquals(session.getStoppedAt(), copy.getStoppedAt());
+            assertEquals(session.getStatus(), copy.getStatus());
+        }
+    }
+
+    @Test
+    public void testPruneKeepsNewestSnapshots() {
+        SessionSnapshotStore store = new SessionSnapshotStore(directory, 2);
+        store.write(Collections.emptyList(), 3);
+        store.write(Collections.emptyList(), 5);
+        store.write(Collections.emptyList(), 9);
+
+        assertEquals(5, store.prune());
+        assertEquals(2, StorageFiles.list(directory, SessionSnapshotStore.SNAPSHOT_PREFIX,
+                SessionSnapshotStore.SNAPSHOT_SUFFIX).size());
+        assertEquals(9, store.loadLatest(session -> { }));
+    }
+
+    @Test
+    public void testDaoRecoversFromSnapshotAndNewerJournal() throws IOException {
+        ChargingSession first = new ChargingSession(UUID.randomUUID(), "ABC-12345", LocalDateTime.now(), null, IN_PROGRESS);
+        ChargingSession second = new ChargingSession(UUID.randomUUID(), "XYZ-12345", LocalDateTime.now(), null, IN_PROGRESS);
+        try (SessionJournal journal = new SessionJournal(directory, FsyncPolicy.NEVER, 0)) {
+            ChargingSessionDao dao = new ChargingSessionDao(journal, new SessionSnapshotStore(directory, 1));
+            dao.save(first);
+            assertEquals(1, dao.snapshot());
+            dao.save(second);
+            dao.save(new ChargingSession(first.getId(), "ABC-12345", first.getStartedAt(), LocalDateTime.now(), FINISHED));
+            assertEquals(2, dao.snapshot());
+        }
+        assertEquals(1, StorageFiles.list(directory, SessionJournal.SEGMENT_PREFIX, SessionJournal.SEGMENT_SUFFIX).size());
+
+        try (SessionJournal journal = new SessionJournal(directory, FsyncPolicy.NEVER, 0)) {
+            ChargingSessionDao dao = new ChargingSessionDao(journal, new SessionSnapshotStore(directory, 1));
+            dao.save(new ChargingSession(second.getId(), "XYZ-12345", second.getStartedAt(), LocalDateTime.now(), FINISHED));
+        }
+
+        try (SessionJournal journal = new SessionJournal(directory, FsyncPolicy.NEVER, 0)) {
+            ChargingSessionDao dao = new ChargingSessionDao(journal, new SessionSnapshotStore(directory, 1));
+
+            assertEquals(2, dao.size());
+            assertEquals(FINISHED, dao.findById(first.getId()).getStatus());
+            assertEquals(FINISHED, dao.findById(second.getId()).getStatus());
+            assertEquals(0, dao.countByStatus(IN_PROGRESS));
+            assertEquals(2, dao.countByStatus(FINISHED));
+        }
+    }
+
+    @Test
+    public void testDaoRebuildsIndexesFromSnapshotAcrossBlocks() throws IOException {
+        TreeMap<UUID, ChargingSession> sessions = new TreeMap<>();
+        LocalDateTime startedAt = LocalDateTime.now();
+        for (int i = 0; i < 50_000; i++) {
+            UUID id = UUID.randomUUID();
+            sessions.put(id, i % 3 == 0
+                    ? new ChargingSession(id, "STATION-" + "0123456".substring(i % 7), startedAt,
+                    startedAt.plusMinutes(5), FINISHED)
+                    : new ChargingSession(id, "STATION-" + "0123456".substring(i % 7), startedAt, null, IN_PROGRESS));
+        }
+        try (SessionJournal journal = new SessionJournal(directory, FsyncPolicy.NEVER, 0)) {
+            ChargingSessionDao dao = new ChargingSessionDao(journal, new SessionSnapshotStore(directory, 1));
+            dao.saveAll(new ArrayList<>(sessions.values()));
+            assertEquals(50_000, dao.snapshot());
+        }
+
+        try (SessionJournal journal = new SessionJournal(directory, FsyncPolicy.NEVER, 0)) {
+            ChargingSessionDao dao = new ChargingSessionDao(journal, new SessionSnapshotStore(directory, 1));
+
+            assertEquals(50_000, dao.size());
+            List<UUID> active = new ArrayList<>();
+            for (ChargingSession session : sessions.values()) {
+                if (session.getStatus() == IN_PROGRESS) {
+                    active.add(session.getId());
+                }
+            }
+            assertEquals(active.size(), dao.countByStatus(IN_PROGRESS));
+            assertEquals(50_000 - active.size(), dao.countByStatus(FINISHED));
+            assertEquals(active, ids(dao.findActive()));
+            List<UUID> station = new ArrayList<>();
+            for (ChargingSession session : sessions.values()) {
+                if (session.getStationId().equals("STATION-3456")) {
+                    station.add(session.getId());
+                }
+            }
+            assertEquals(station, ids(dao.findByStationId("STATION-3456")));
+            ChargingSession copy = dao.findById(station.get(0));
+            assertEquals(sessions.get(copy.getId()).getStartedAt(), copy.getStartedAt());
+            assertEquals(sessions.get(copy.getId()).getStoppedAt(), copy.getStoppedAt());
+
+            // the bulk-built map and indexes take changes like the ones built one insert at a time
+            assertTrue(dao.stop(active.get(0), LocalDateTime.now()).isApplied());
+            ChargingSession added = new ChargingSession(UUID.randomUUID(), "STATION-3456", startedAt, null, IN_PROGRESS);
+            dao.save(added);
+            assertEquals(active.size(), dao.countByStatus(IN_PROGRESS));
+            assertFalse(ids(dao.findActive()).contains(active.get(0)));
+            assertTrue(ids(dao.findActive()).contains(added.getId()));
+            assertEquals(station.size() + 1, dao.findByStationId("STATION-3456").size());
+        }
+    }
+
+    @Test
+    public void testDaoRecoversFromOlderSnapshotWhenNewestIsCorrupted() throws IOException {
+        ChargingSession first = new ChargingSession(UUID.randomUUID(), "ABC-12345", LocalDateTime.now(), null, IN_PROGRESS);
+        ChargingSession second = new ChargingSession(UUID.randomUUID(), "XYZ-12345", LocalDateTime.now(), null, IN_PROGRESS);
+        try (SessionJournal journal = new SessionJournal(directory, FsyncPolicy.NEVER, 0)) {
+            ChargingSessionDao dao = new ChargingSessionDao(journal, new SessionSnapshotStore(directory, 2));
+            dao.save(first);
+            dao.snapshot();
+            dao.save(second);
+            dao.save(new ChargingSession(first.getId(), "ABC-12345", first.getStartedAt(), LocalDateTime.now(), FINISHED));
+            dao.snapshot();
+        }
+        List<Long> snapshots = StorageFiles.list(directory, SessionSnapshotStore.SNAPSHOT_PREFIX,
+                SessionSnapshotStore.SNAPSHOT_SUFFIX);
+        assertEquals(2, snapshots.size());
+        Path newest = directory.resolve(StorageFiles.name(SessionSnapshotStore.SNAPSHOT_PREFIX,
+                snapshots.get(1), SessionSnapshotStore.SNAPSHOT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(newest, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF, (byte) 0xFF}), 30);
+        }
+
+        try (SessionJournal journal = new SessionJournal(directory, FsyncPolicy.NEVER, 0)) {
+            ChargingSessionDao dao = new ChargingSessionDao(journal, new SessionSnapshotStore(directory, 2));
+
+            assertEquals(2, dao.size());
+            assertEquals(FINISHED, dao.findById(first.getId()).getStatus());
+            assertEquals(IN_PROGRESS, dao.findById(second.getId()).getStatus());
+            assertEquals(1, dao.countByStatus(IN_PROGRESS));
+            assertEquals(1, dao.countByStatus(FINISHED));
+        }
+    }
+
+    /**
+     * Stress test: sessions are saved and stopped while snapshots are taken,
+     * with a slow fsync widening the gap between journaling a change and
+     * applying it. Every acknowledged change must be recovered from the last
+     * snapshot and the journal segments after it.
+     */
+    @Test
+    public void testChangesRacingWithSnapshotsAreRecovered() throws Exception {
+        List<UUID> stopped = Collections.synchronizedList(new ArrayList<>());
+        List<UUID> started = Collections.synchronizedList(new ArrayList<>());
+        try (SessionJournal journal = new SessionJournal(directory, FsyncPolicy.ALWAYS, 0) {
+            @Override
+            public void appendAll(List<ChargingSession> sessions) {
+                super.appendAll(sessions);
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }) {
+            ChargingSessionDao dao = new ChargingSessionDao(journal, new SessionSnapshotStore(directory, 1));
+            AtomicBoolean running = new AtomicBoolean(true);
+            List<Thread> writers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                Thread writer = new Thread(() -> {
+                    for (int i = 0; running.get(); i++) {
+                        ChargingSession session = new ChargingSession(UUID.randomUUID(), "ABC-12345",
+                                LocalDateTime.now(), null, IN_PROGRESS);
+                        dao.save(session);
+                        if (i % 2 == 0) {
+                            dao.stop(session.getId(), LocalDateTime.now());
+                            stopped.add(session.getId());
+                        } else {
+                            started.add(session.getId());
+                        }
+                    }
+                });
+                writer.start();
+                writers.add(writer);
+            }
+            long deadline = System.currentTimeMillis() + 1000;
+            while (System.currentTimeMillis() < deadline) {
+                dao.snapshot();
+            }
+            running.set(false);
+            for (Thread writer : writers) {
+                writer.join();
+            }
+        }
+
+        try (SessionJournal journal = new SessionJournal(directory, FsyncPolicy.NEVER, 0)) {
+            ChargingSessionDao dao = new ChargingSessionDao(journal, new SessionSnapshotStore(directory, 1));
+
+            assertEquals(started.size() + stopped.size(), dao.size());
+            for (UUID id : started) {
+                assertEquals(IN_PROGRESS, dao.findById(id).getStatus());
+            }
+            for (UUID id : stopped) {
+                assertEquals(FINISHED, dao.findById(id).getStatus());
+            }
+        }
+    }
+
+    private static List<UUID> ids(List<ChargingSession> sessions) {
+        List<UUID> ids = new ArrayList<>(sessions.size());
+        for (ChargingSession session : sessions) {
+            ids.add(session.getId());
+        }
+        return ids;
+    }
+
+}
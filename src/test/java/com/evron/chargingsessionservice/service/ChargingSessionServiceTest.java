@@ -1,21 +1,30 @@
 package com.evron.chargingsessionservice.service;
 
 import com.evron.chargingsessionservice.dao.ChargingSessionDao;
+import com.evron.chargingsessionservice.dao.SessionTransition;
 import com.evron.chargingsessionservice.exception.ChargingSessionNotFoundException;
 import com.evron.chargingsessionservice.exception.InvalidInputParameterException;
+import com.evron.chargingsessionservice.model.BatchResponse;
 import com.evron.chargingsessionservice.model.ChargingSession;
 import com.evron.chargingsessionservice.model.ChargingSessionRequest;
 import com.evron.chargingsessionservice.model.ChargingSessionResponse;
+import com.evron.chargingsessionservice.model.MetricsCount;
+import com.evron.chargingsessionservice.model.StatusCount;
 
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.springframework.boot.test.context.SpringBootTest;
 
 import java.time.LocalDateTime;
+import java.util.AbstractCollection;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
 
@@ -35,6 +44,15 @@ public class ChargingSessionServiceTest {
     @Mock
     private ChargingSessionDao dao;
 
+    @Spy
+    private SlidingWindowCounter slidingWindowCounter = new SlidingWindowCounter();
+
+    @Spy
+    private SessionIdGenerator sessionIdGenerator = new RandomSessionIdGenerator();
+
+    @Spy
+    private SessionRollups sessionRollups = new SessionRollups();
+
     @Test
     public void testSaveNewChargingSession_Success() {
         String stationId = "ABC-12345";
@@ -84,20 +102,16 @@ public class ChargingSessionServiceTest {
         String stationId = "ABC-12345";
 
         ChargingSession mockedSession = mockedSession(stationId);
-
-        when(dao.contains(Mockito.any(UUID.class))).thenReturn(true);
-        when(dao.findById(Mockito.any(UUID.class))).thenReturn(mockedSession);
-
         mockedSession.setStatus(FINISHED);
         mockedSession.setStoppedAt(LocalDateTime.now());
-        when(dao.save(Mockito.any(ChargingSession.class))).thenReturn(mockedSession);
+        when(dao.stop(Mockito.any(UUID.class), Mockito.any(LocalDateTime.class)))
+                .thenReturn(new SessionTransition(mockedSession, true));
 
         UUID uiD = mockedSession.getId();
         ChargingSession response = service.stopChargingSession(uiD);
 
-        verify(dao, times(1)).save(Mockito.any(ChargingSession.class));
-        verify(dao, times(1)).contains(Mockito.any(UUID.class));
-        verify(dao, times(1)).findById(Mockito.any(UUID.class));
+        verify(dao, times(1)).stop(Mockito.eq(uiD), Mockito.any(LocalDateTime.class));
+        verify(dao, times(0)).save(Mockito.any(ChargingSession.class));
         assertNotNull(response);
         assertEquals("ABC-12345", response.getStationId());
         assertEquals(FINISHED, response.getStatus());
@@ -105,6 +119,22 @@ public class ChargingSessionServiceTest {
         assertNotNull(response.getStoppedAt());
     }
 
+    @Test
+    public void testRepeatedStopChargingSessionIsIdempotent() {
+        ChargingSessionDao realDao = new ChargingSessionDao();
+        ChargingSessionServiceImpl realService = new ChargingSessionServiceImpl(realDao, slidingWindowCounter);
+        ChargingSession session = mockedSession("ABC-12345");
+        realDao.save(session);
+
+        ChargingSession first = realService.stopChargingSession(session.getId());
+        ChargingSession repeated = realService.stopChargingSession(session.getId());
+
+        assertEquals(FINISHED, repeated.getStatus());
+        assertEquals(first.getStoppedAt(), repeated.getStoppedAt());
+        assertEquals(1, realService.retrieveChargingSessionsSummary().getStoppedCount());
+        assertEquals(1, realService.retrieveStatusCount().getFinishedCount());
+    }
+
     @Test
     public void testStopChargingSessionThrowsChargingSessionNotFoundException() {
 
@@ -115,8 +145,7 @@ public class ChargingSessionServiceTest {
         });
 
         verify(dao, times(0)).save(Mockito.any(ChargingSession.class));
-        verify(dao, times(1)).contains(Mockito.any(UUID.class));
-        verify(dao, times(0)).findById(Mockito.any(UUID.class));
+        verify(dao, times(1)).stop(Mockito.eq(uid), Mockito.any(LocalDateTime.class));
         String actualMessage = exception.getMessage();
         assertTrue(actualMessage.contains(String.format("Charging Session with ID %s does not exist", uid.toString())));
     }
@@ -124,16 +153,222 @@ public class ChargingSessionServiceTest {
     @Test
     public void testRetrieveChargingSessions() {
 
-        when(dao.size()).thenReturn(2);
+        when(dao.isEmpty()).thenReturn(false);
         when(dao.findAll()).thenReturn(mockedSessionList());
         ChargingSessionResponse response = service.retrieveChargingSessions();
 
-        verify(dao, times(1)).size();
+        verify(dao, times(1)).isEmpty();
         verify(dao, times(1)).findAll();
         assertNotNull(response);
         assertEquals(response.getChargingSessions().size(), 2);
     }
 
+    @Test
+    public void testRetrieveChargingSessionsDoesNotSizeTheLiveView() {
+        List<ChargingSession> sessions = new ArrayList<>(mockedSessionList());
+        when(dao.isEmpty()).thenReturn(false);
+        when(dao.size()).thenReturn(sessions.size());
+        when(dao.findAll()).thenReturn(new AbstractCollection<ChargingSession>() {
+            @Override
+            public Iterator<ChargingSession> iterator() {
+                return sessions.iterator();
+            }
+
+            @Override
+            public int size() {
+                throw new AssertionError("view sized");
+            }
+        });
+
+        ChargingSessionResponse response = service.retrieveChargingSessions();
+
+        assertEquals(sessions, response.getChargingSessions());
+    }
+
+    @Test
+    public void testRetrieveChargingSessionsSummary() {
+        ChargingSessionRequest request = new ChargingSessionRequest();
+        request.setStationId("ABC-12345");
+        ChargingSession session = service.saveNewChargingSession(request);
+        service.saveNewChargingSession(request);
+
+        when(dao.stop(Mockito.any(UUID.class), Mockito.any(LocalDateTime.class)))
+                .thenReturn(new SessionTransition(session, true));
+        service.stopChargingSession(session.getId());
+
+        MetricsCount count = service.retrieveChargingSessionsSummary();
+
+        verify(dao, times(0)).findAll();
+        assertEquals(2, count.getStartedCount());
+        assertEquals(1, count.getStoppedCount());
+        assertEquals(3, count.getTotalCount());
+    }
+
+    @Test
+    public void testRetrieveChargingSessionsSummaryOfWindowAndStation() {
+        ChargingSessionRequest request = new ChargingSessionRequest();
+        request.setStationId("ABC-12345");
+        ChargingSession session = service.saveNewChargingSession(request);
+        request.setStationId("XYZ-12345");
+        service.saveNewChargingSession(request);
+        when(dao.stop(Mockito.any(UUID.class), Mockito.any(LocalDateTime.class)))
+                .thenReturn(new SessionTransition(session, true));
+        service.stopChargingSession(session.getId());
+
+        MetricsCount station = service.retrieveChargingSessionsSummary("1h", "ABC-12345");
+        MetricsCount all = service.retrieveChargingSessionsSummary("PT5M", null);
+
+        assertEquals(1, station.getStartedCount());
+        assertEquals(1, station.getStoppedCount());
+        assertEquals(2, all.getStartedCount());
+        assertEquals(3, all.getTotalCount());
+        assertThrows(InvalidInputParameterException.class,
+                () -> service.retrieveChargingSessionsSummary("soon", null));
+        assertThrows(InvalidInputParameterException.class,
+                () -> service.retrieveChargingSessionsSummary("30d", null));
+    }
+
+    @Test
+    public void testRetrieveChargingSessionsPage() {
+        ChargingSessionDao realDao = new ChargingSessionDao();
+        for (int i = 0; i < 5; i++) {
+            ChargingSession session = mockedSession("ABC-" + i);
+            if (i % 2 == 0) {
+                session.setStatus(FINISHED);
+                session.setStoppedAt(LocalDateTime.now());
+            }
+            realDao.save(session);
+        }
+        ChargingSessionServiceImpl pagingService = new ChargingSessionServiceImpl(realDao, slidingWindowCounter);
+
+        ChargingSessionResponse first = pagingService.retrieveChargingSessions(2, null, null);
+        assertEquals(2, first.getChargingSessions().size());
+        assertNotNull(first.getNextCursor());
+
+        ChargingSessionResponse second = pagingService.retrieveChargingSessions(2, first.getNextCursor(), null);
+        assertEquals(2, second.getChargingSessions().size());
+        assertTrue(first.getChargingSessions().get(1).getId()
+                .compareTo(second.getChargingSessions().get(0).getId()) < 0);
+
+        ChargingSessionResponse last = pagingService.retrieveChargingSessions(2, second.getNextCursor(), null);
+        assertEquals(1, last.getChargingSessions().size());
+        assertNull(last.getNextCursor());
+
+        ChargingSessionResponse finished = pagingService.retrieveChargingSessions(10, null, FINISHED);
+        assertEquals(3, finished.getChargingSessions().size());
+        assertTrue(finished.getChargingSessions().stream().allMatch(s -> s.getStatus() == FINISHED));
+        assertNull(finished.getNextCursor());
+
+        ChargingSessionResponse active = pagingService.retrieveChargingSessions(1, null, IN_PROGRESS);
+        assertEquals(1, active.getChargingSessions().size());
+        assertNotNull(active.getNextCursor());
+        ChargingSessionResponse lastActive = pagingService.retrieveChargingSessions(1, active.getNextCursor(), IN_PROGRESS);
+        assertEquals(1, lastActive.getChargingSessions().size());
+        assertEquals(IN_PROGRESS, lastActive.getChargingSessions().get(0).getStatus());
+        assertTrue(active.getChargingSessions().get(0).getId()
+                .compareTo(lastActive.getChargingSessions().get(0).getId()) < 0);
+        assertNull(lastActive.getNextCursor());
+    }
+
+    @Test
+    public void testRetrieveChargingSessionsPageThrowsInvalidParameterException() {
+        assertThrows(InvalidInputParameterException.class,
+                () -> service.retrieveChargingSessions(0, null, null));
+        assertThrows(InvalidInputParameterException.class,
+                () -> service.retrieveChargingSessions(10, "not-a-cursor", null));
+        verify(dao, times(0)).findAllAfter(Mockito.any(UUID.class));
+    }
+
+    @Test
+    public void testRetrieveChargingSessionsByStation() {
+        ChargingSession session1 = mockedSession("ABC-12345");
+        ChargingSession session2 = mockedSession("ABC-12345");
+        session2.setStatus(FINISHED);
+        List<ChargingSession> list = new ArrayList<>();
+        list.add(session1);
+        list.add(session2);
+        when(dao.findByStationId("ABC-12345")).thenReturn(list);
+
+        ChargingSessionResponse all = service.retrieveChargingSessionsByStation("ABC-12345", null);
+        ChargingSessionResponse inProgress = service.retrieveChargingSessionsByStation("ABC-12345", IN_PROGRESS);
+
+        verify(dao, times(2)).findByStationId("ABC-12345");
+        verify(dao, times(0)).findAll();
+        assertEquals(2, all.getChargingSessions().size());
+        assertEquals(1, inProgress.getChargingSessions().size());
+        assertEquals(session1.getId(), inProgress.getChargingSessions().get(0).getId());
+    }
+
+    @Test
+    public void testRetrieveChargingSessionsByStationThrowsInvalidParameterException() {
+        Exception exception = assertThrows(InvalidInputParameterException.class,
+                () -> service.retrieveChargingSessionsByStation("", null));
+
+        verify(dao, times(0)).findByStationId(Mockito.anyString());
+        assertTrue(exception.getMessage().contains("Incorrect/missing stationId"));
+    }
+
+    @Test
+    public void testRetrieveStatusCount() {
+        when(dao.countByStatus(IN_PROGRESS)).thenReturn(3L);
+        when(dao.countByStatus(FINISHED)).thenReturn(2L);
+
+        StatusCount count = service.retrieveStatusCount();
+
+        verify(dao, times(0)).findAll();
+        assertEquals(3, count.getInProgressCount());
+        assertEquals(2, count.getFinishedCount());
+        assertEquals(5, count.getTotalCount());
+    }
+
+    @Test
+    public void testSaveNewChargingSessionsReportsInvalidItems() {
+        ChargingSessionRequest valid = new ChargingSessionRequest();
+        valid.setStationId("ABC-12345");
+        ChargingSessionRequest invalid = new ChargingSessionRequest();
+        invalid.setStationId("");
+
+        BatchResponse response = service.saveNewChargingSessions(Arrays.asList(valid, invalid, null));
+
+        verify(dao, times(1)).saveAll(Mockito.argThat(sessions -> sessions.size() == 1));
+        assertEquals(1, response.getSucceeded());
+        assertEquals(2, response.getFailed());
+        assertEquals("ABC-12345", response.getResults().get(0).getChargingSession().getStationId());
+        assertEquals("Incorrect/missing stationId", response.getResults().get(1).getError());
+        assertEquals(2, response.getResults().get(2).getIndex());
+        assertEquals(1, service.retrieveChargingSessionsSummary().getStartedCount());
+    }
+
+    @Test
+    public void testStopChargingSessionsReportsUnknownIds() {
+        ChargingSessionDao realDao = new ChargingSessionDao();
+        ChargingSessionServiceImpl realService = new ChargingSessionServiceImpl(realDao, slidingWindowCounter);
+        ChargingSession session = mockedSession("ABC-12345");
+        realDao.save(session);
+        UUID unknown = UUID.randomUUID();
+
+        BatchResponse response = realService.stopChargingSessions(Arrays.asList(session.getId(), unknown));
+
+        assertEquals(1, response.getSucceeded());
+        assertEquals(FINISHED, response.getResults().get(0).getChargingSession().getStatus());
+        assertNotNull(response.getResults().get(0).getChargingSession().getStoppedAt());
+        assertTrue(response.getResults().get(1).getError().contains(unknown.toString()));
+        assertEquals(1, service.retrieveChargingSessionsSummary().getStoppedCount());
+    }
+
+    @Test
+    public void testBatchThrowsInvalidParameterExceptionForEmptyOrOversizedBatch() {
+        List<UUID> oversized = Collections.nCopies(ChargingSessionServiceImpl.MAX_BATCH_SIZE + 1, UUID.randomUUID());
+
+        assertThrows(InvalidInputParameterException.class,
+                () -> service.saveNewChargingSessions(Collections.emptyList()));
+        Exception exception = assertThrows(InvalidInputParameterException.class,
+                () -> service.stopChargingSessions(oversized));
+
+        verify(dao, times(0)).saveAll(Mockito.anyList());
+        assertTrue(exception.getMessage().contains("batch size must be between 1 and"));
+    }
+
     private Collection<ChargingSession> mockedSessionList() {
         ChargingSession session1 = mockedSession("ABC-1234");
         ChargingSession session2 = mockedSession("DEF-1234");
@@ -157,4 +392,4 @@ public class ChargingSessionServiceTest {
         return list;
     }
 
-}
\ No newline at end of file
+}
\ No newline at end of file
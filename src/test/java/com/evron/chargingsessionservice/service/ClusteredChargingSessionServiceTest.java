@@ -0,0 +1,252 @@
+package com.evron.chargingsessionservice.service;
+
+import com.evron.chargingsessionservice.dao.ChargingSessionDao;
+import com.evron.chargingsessionservice.exception.ChargingSessionNotFoundException;
+import com.evron.chargingsessionservice.model.BatchResponse;
+import com.evron.chargingsessionservice.model.ChargingSession;
+import com.evron.chargingsessionservice.model.ChargingSessionRequest;
+import com.evron.chargingsessionservice.model.ChargingSessionResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static com.evron.chargingsessionservice.model.ChargingSession.SessionStatus.FINISHED;
+import static com.evron.chargingsessionservice.model.ChargingSession.SessionStatus.IN_PROGRESS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Three nodes in one JVM, calling each other's partitions directly.
+ */
+public class ClusteredChargingSessionServiceTest {
+
+    private static final List<String> NODES = Arrays.asList("a", "b", "c");
+
+    private final ConsistentHashRing ring = new ConsistentHashRing(NODES, 128);
+
+    private final Map<String, ChargingSessionServiceImpl> partitions = new LinkedHashMap<>();
+
+    private final Map<String, ClusteredChargingSessionService> nodes = new LinkedHashMap<>();
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void startNodes() {
+        executor = Executors.newCachedThreadPool();
+        for (String node : NODES) {
+            partitions.put(node, new ChargingSessionServiceImpl(new ChargingSessionDao(), new SlidingWindowCounter(),
+                    new PartitionedSessionIdGenerator(new RandomSessionIdGenerator(), ring, node),
+                    new SessionRollups()));
+        }
+        for (String node : NODES) {
+            nodes.put(node, new ClusteredChargingSessionService(ring, node, new LinkedHashMap<>(partitions), executor));
+        }
+    }
+
+    @AfterEach
+    public void stopNodes() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testSessionsAreStoredOnTheNodeOwningTheirId() {
+        for (int i = 0; i < 150; i++) {
+            nodes.get("a").saveNewChargingSession(request("ABC-" + i));
+        }
+        nodes.get("a").saveNewChargingSessions(requests(150));
+
+        for (String node : NODES) {
+            List<ChargingSession> stored = partitions.get(node).retrieveChargingSessions().getChargingSessions();
+            assertNotNull(stored, node);
+            for (ChargingSession session : stored) {
+                assertEquals(node, ring.owner(session.getId()));
+            }
+        }
+        assertEquals(300, nodes.get("b").retrieveStatusCount().getTotalCount());
+        assertEquals(300, nodes.get("c").retrieveChargingSessionsSummary().getStartedCount());
+        assertEquals(300, nodes.get("c").retrieveChargingSessionsSummary("1h", null).getStartedCount());
+    }
+
+    @Test
+    public void testStopIsRoutedToTheNodeOwningTheId() {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            ids.add(nodes.get("a").saveNewChargingSession(request("ABC-12345")).getId());
+        }
+
+        for (UUID id : ids) {
+            assertEquals(FINISHED, nodes.get("c").stopChargingSession(id).getStatus());
+        }
+
+        assertEquals(30, nodes.get("b").retrieveStatusCount().getFinishedCount());
+        assertEquals(30, nodes.get("b").retrieveChargingSessionsSummary().getStoppedCount());
+        assertThrows(ChargingSessionNotFoundException.class,
+                () -> nodes.get("b").stopChargingSession(UUID.randomUUID()));
+    }
+
+    @Test
+    public void testBatchResultsAreInRequestOrder() {
+        List<ChargingSessionRequest> requests = requests(60);
+        requests.get(2).setStationId("");
+
+        BatchResponse started = nodes.get("a").saveNewChargingSessions(requests);
+
+        assertEquals(59, started.getSucceeded());
+        assertEquals(1, started.getFailed());
+        for (int i = 0; i < requests.size(); i++) {
+            assertEquals(i, started.getResults().get(i).getIndex());
+            if (i != 2) {
+                assertEquals("ABC-" + i, started.getResults().get(i).getChargingSession().getStationId());
+            }
+        }
+        assertNotNull(started.getResults().get(2).getError());
+
+        List<UUID> ids = started.getResults().stream().filter(result -> result.getChargingSession() != null)
+                .map(result -> result.getChargingSession().getId()).collect(Collectors.toList());
+        ids.add(7, UUID.randomUUID());
+        BatchResponse stopped = nodes.get("b").stopChargingSessions(ids);
+
+        assertEquals(59, stopped.getSucceeded());
+        assertNotNull(stopped.getResults().get(7).getError());
+        assertEquals(ids.get(8), stopped.getResults().get(8).getChargingSession().getId());
+        assertEquals(FINISHED, stopped.getResults().get(8).getChargingSession().getStatus());
+    }
+
+    @Test
+    public void testListingsAreMergedInIdOrder() {
+        nodes.get("a").saveNewChargingSessions(requests(250));
+        nodes.get("a").stopChargingSessions(ids(nodes.get("b").retrieveChargingSessions().getChargingSessions()
+                .subList(0, 50)));
+
+        List<ChargingSession> all = nodes.get("c").retrieveChargingSessions().getChargingSessions();
+        assertEquals(250, all.size());
+        assertSortedById(all);
+
+        List<ChargingSession> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            ChargingSessionResponse page = nodes.get("b").retrieveChargingSessions(40, cursor, IN_PROGRESS);
+            assertTrue(page.getChargingSessions().size() <= 40);
+            paged.addAll(page.getChargingSessions());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertEquals(ids(all.stream().filter(session -> session.getStatus() == IN_PROGRESS)
+                .collect(Collectors.toList())), ids(paged));
+
+        assertEquals(200, nodes.get("a").retrieveActiveChargingSessions().getChargingSessions().size());
+        assertEquals(1, nodes.get("a").retrieveChargingSessionsByStation("ABC-7", null).getChargingSessions()
+                .size());
+
+        int exported = 0;
+        for (Iterator<ChargingSession> iterator = nodes.get("b").exportChargingSessions(); iterator.hasNext(); ) {
+            iterator.next();
+            exported++;
+        }
+        assertEquals(250, exported);
+    }
+
+    @Test
+    public void testClosingAnExportClosesTheExportOfTheCurrentNode() {
+        AtomicBoolean closed = new AtomicBoolean();
+        ChargingSession session = new ChargingSession(UUID.randomUUID(), "ABC-12345", LocalDateTime.now(), null,
+                IN_PROGRESS);
+        ChargingSessionService remote = Mockito.mock(ChargingSessionService.class);
+        Mockito.when(remote.exportChargingSessions()).thenReturn(new CloseableIterator<ChargingSession>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public ChargingSession next() {
+                return session;
+            }
+
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        });
+        Map<String, ChargingSessionService> withRemote = new LinkedHashMap<>(partitions);
+        withRemote.put("b", remote);
+
+        try (CloseableIterator<ChargingSession> export = new ClusteredChargingSessionService(ring, "a", withRemote,
+                executor).exportChargingSessions()) {
+            assertEquals(session, export.next());
+        }
+        assertTrue(closed.get());
+        Mockito.verify(remote, Mockito.times(1)).exportChargingSessions();
+    }
+
+    @Test
+    public void testVersionChangesWithChangesOfAnyNode() {
+        assertNull(nodes.get("a").retrieveChargingSessions().getChargingSessions());
+        String before = nodes.get("a").retrieveChargingSessionsVersion();
+
+        nodes.get("b").saveNewChargingSessions(requests(10));
+
+        assertNotEquals(before, nodes.get("a").retrieveChargingSessionsVersion());
+        assertEquals(nodes.get("a").retrieveChargingSessionsVersion(),
+                nodes.get("c").retrieveChargingSessionsVersion());
+    }
+
+    @Test
+    public void testVersionChangesWhenANodeRestarts() {
+        Map<String, ChargingSessionService> restarted = new LinkedHashMap<>(partitions);
+        partitions.get("b").saveNewChargingSession(request("ABC-1"));
+        partitions.get("c").saveNewChargingSession(request("ABC-2"));
+        String before = nodes.get("a").retrieveChargingSessionsVersion();
+
+        // b comes back empty, and c changes once more: the sum of their versions is unchanged
+        restarted.put("b", new ChargingSessionServiceImpl(new ChargingSessionDao(), new SlidingWindowCounter(),
+                new PartitionedSessionIdGenerator(new RandomSessionIdGenerator(), ring, "b"), new SessionRollups()));
+        partitions.get("c").saveNewChargingSession(request("ABC-3"));
+        ClusteredChargingSessionService node = new ClusteredChargingSessionService(ring, "a", restarted, executor);
+
+        assertNotEquals(before, node.retrieveChargingSessionsVersion());
+    }
+
+    private static ChargingSessionRequest request(String stationId) {
+        ChargingSessionRequest request = new ChargingSessionRequest();
+        request.setStationId(stationId);
+        return request;
+    }
+
+    private static List<ChargingSessionRequest> requests(int count) {
+        List<ChargingSessionRequest> requests = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            requests.add(request("ABC-" + i));
+        }
+        return requests;
+    }
+
+    private static List<UUID> ids(List<ChargingSession> sessions) {
+        return sessions.stream().map(ChargingSession::getId).collect(Collectors.toList());
+    }
+
+    private static void assertSortedById(List<ChargingSession> sessions) {
+        for (int i = 1; i < sessions.size(); i++) {
+            assertTrue(sessions.get(i - 1).getId().compareTo(sessions.get(i).getId()) < 0);
+        }
+    }
+
+}
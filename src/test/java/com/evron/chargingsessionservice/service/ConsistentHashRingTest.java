@@ -0,0 +1,73 @@
+package com.evron.chargingsessionservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConsistentHashRingTest {
+
+    private static final int IDS = 30_000;
+
+    @Test
+    public void testIdsSpreadEvenlyOverNodes() {
+        ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList("a", "b", "c"), 128);
+        SessionIdGenerator timeOrdered = new TimeOrderedSessionIdGenerator();
+        Map<String, Integer> random = new HashMap<>();
+        Map<String, Integer> ordered = new HashMap<>();
+
+        for (int i = 0; i < IDS; i++) {
+            random.merge(ring.owner(UUID.randomUUID()), 1, Integer::sum);
+            ordered.merge(ring.owner(timeOrdered.nextId()), 1, Integer::sum);
+        }
+
+        for (String node : ring.nodes()) {
+            assertShare(random.get(node), 1.0 / 3);
+            assertShare(ordered.get(node), 1.0 / 3);
+        }
+    }
+
+    @Test
+    public void testAddingANodeOnlyMovesIdsToIt() {
+        List<String> nodes = Arrays.asList("a", "b", "c");
+        ConsistentHashRing before = new ConsistentHashRing(nodes, 128);
+        ConsistentHashRing after = new ConsistentHashRing(Arrays.asList("a", "b", "c", "d"), 128);
+
+        int moved = 0;
+        for (int i = 0; i < IDS; i++) {
+            UUID id = UUID.randomUUID();
+            String owner = after.owner(id);
+            if (!owner.equals(before.owner(id))) {
+                assertEquals("d", owner);
+                moved++;
+            }
+        }
+
+        assertShare(moved, 1.0 / 4);
+    }
+
+    @Test
+    public void testPartitionedGeneratorOnlyReturnsIdsOfItsNode() {
+        ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList("a", "b", "c", "d"), 128);
+        SessionIdGenerator generator = new PartitionedSessionIdGenerator(new RandomSessionIdGenerator(), ring, "c");
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("c", ring.owner(generator.nextId()));
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> new PartitionedSessionIdGenerator(new RandomSessionIdGenerator(), ring, "e"));
+    }
+
+    private static void assertShare(int count, double expected) {
+        double share = (double) count / IDS;
+        assertTrue(Math.abs(share - expected) < 0.08, () -> "share " + share + ", expected " + expected);
+    }
+
+}
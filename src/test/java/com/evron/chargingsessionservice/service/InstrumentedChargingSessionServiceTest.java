@@ -0,0 +1,73 @@
+package com.evron.chargingsessionservice.service;
+
+import com.evron.chargingsessionservice.exception.ChargingSessionNotFoundException;
+import com.evron.chargingsessionservice.model.BatchResponse;
+import com.evron.chargingsessionservice.model.ChargingSession;
+import com.evron.chargingsessionservice.model.ChargingSessionRequest;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.Collections;
+import java.util.UUID;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+public class InstrumentedChargingSessionServiceTest {
+
+    private final ChargingSessionServiceImpl delegate = Mockito.mock(ChargingSessionServiceImpl.class);
+
+    private final SlidingWindowCounter slidingWindowCounter = new SlidingWindowCounter();
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private final InstrumentedChargingSessionService service =
+            new InstrumentedChargingSessionService(delegate, slidingWindowCounter, registry);
+
+    @Test
+    public void testSuccessfulCallsAreTimed() {
+        ChargingSession session = new ChargingSession();
+        ChargingSessionRequest request = new ChargingSessionRequest();
+        when(delegate.saveNewChargingSession(request)).thenReturn(session);
+        when(delegate.saveNewChargingSessions(Collections.emptyList())).thenReturn(new BatchResponse());
+
+        assertSame(session, service.saveNewChargingSession(request));
+        service.saveNewChargingSessions(Collections.emptyList());
+
+        assertEquals(1, timerCount("start", "none"));
+        assertEquals(1, timerCount("startBatch", "none"));
+    }
+
+    @Test
+    public void testSessionCountersFollowSlidingWindowTotals() {
+        slidingWindowCounter.recordStarted();
+        slidingWindowCounter.recordStarted();
+        slidingWindowCounter.recordStopped();
+
+        assertEquals(2.0, registry.get("charging.sessions.started").functionCounter().count());
+        assertEquals(1.0, registry.get("charging.sessions.stopped").functionCounter().count());
+    }
+
+    @Test
+    public void testFailedCallsAreTimedByException() {
+        UUID id = UUID.randomUUID();
+        when(delegate.stopChargingSession(id)).thenThrow(new ChargingSessionNotFoundException("not found"));
+
+        assertThrows(ChargingSessionNotFoundException.class, () -> service.stopChargingSession(id));
+
+        assertEquals(0, timerCount("stop", "none"));
+        assertEquals(1, timerCount("stop", "ChargingSessionNotFoundException"));
+    }
+
+    private long timerCount(String operation, String exception) {
+        return registry.get(InstrumentedChargingSessionService.TIMER_NAME)
+                .tags("operation", operation, "exception", exception).timer().count();
+    }
+
+}
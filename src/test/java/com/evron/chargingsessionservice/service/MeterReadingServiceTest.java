@@ -0,0 +1,118 @@
+package com.evron.chargingsessionservice.service;
+
+import com.evron.chargingsessionservice.dao.ChargingSessionDao;
+import com.evron.chargingsessionservice.dao.MeterReadingDao;
+import com.evron.chargingsessionservice.exception.ChargingSessionNotFoundException;
+import com.evron.chargingsessionservice.exception.InvalidInputParameterException;
+import com.evron.chargingsessionservice.model.ChargingSession;
+import com.evron.chargingsessionservice.model.EnergyInterval;
+import com.evron.chargingsessionservice.model.EnergyResponse;
+import com.evron.chargingsessionservice.model.MeterReading;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static com.evron.chargingsessionservice.model.ChargingSession.SessionStatus.FINISHED;
+import static com.evron.chargingsessionservice.model.ChargingSession.SessionStatus.IN_PROGRESS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MeterReadingServiceTest {
+
+    private static final LocalDateTime STARTED_AT = LocalDateTime.of(2021, 3, 15, 14, 0, 0);
+
+    private final ChargingSessionDao dao = new ChargingSessionDao();
+
+    private final MeterReadingService service = new MeterReadingServiceImpl(dao, new MeterReadingDao(100_000));
+
+    @Test
+    public void testCurveSumsReadingsPerIntervalWithInterpolatedBoundaries() {
+        UUID id = save(IN_PROGRESS);
+        List<MeterReading> readings = new ArrayList<>();
+        // 12 kW from 14:05:30 to 14:35:30, one reading every 10 seconds
+        for (int i = 0; i <= 180; i++) {
+            readings.add(new MeterReading(STARTED_AT.plusSeconds(330 + i * 10), 1000 + i * 12 / 360.0));
+        }
+        for (int from = 0; from < readings.size(); from += 50) {
+            service.appendReadings(id, readings.subList(from, Math.min(from + 50, readings.size())));
+        }
+
+        EnergyResponse totals = service.retrieveEnergy(id, null);
+        assertEquals(181, totals.getReadings());
+        assertEquals(STARTED_AT.plusSeconds(330), totals.getFirstReadingAt());
+        assertEquals(STARTED_AT.plusSeconds(2130), totals.getLastReadingAt());
+        assertEquals(6.0, totals.getEnergyKwh());
+        assertNull(totals.getCurve());
+
+        List<EnergyInterval> curve = service.retrieveEnergy(id, "15m").getCurve();
+        assertEquals(3, curve.size());
+        assertEquals(STARTED_AT, curve.get(0).getFrom());
+        assertEquals(1.9, curve.get(0).getEnergyKwh());
+        assertEquals(7.6, curve.get(0).getAveragePowerKw());
+        assertEquals(STARTED_AT.plusMinutes(15), curve.get(1).getFrom());
+        assertEquals(3.0, curve.get(1).getEnergyKwh());
+        assertEquals(12.0, curve.get(1).getAveragePowerKw());
+        assertEquals(1.1, curve.get(2).getEnergyKwh());
+        assertEquals(6.0, curve.stream().mapToDouble(EnergyInterval::getEnergyKwh).sum(), 1e-9);
+
+        assertEquals(31, service.retrieveEnergy(id, "1m").getCurve().size());
+        assertThrows(InvalidInputParameterException.class, () -> service.retrieveEnergy(id, "100ms"));
+        assertThrows(InvalidInputParameterException.class, () -> service.retrieveEnergy(id, "soon"));
+    }
+
+    @Test
+    public void testReadingsAreOnlyAcceptedForSessionsInProgress() {
+        List<MeterReading> reading = Collections.singletonList(new MeterReading(STARTED_AT.plusMinutes(1), 12.5));
+
+        assertThrows(ChargingSessionNotFoundException.class,
+                () -> service.appendReadings(UUID.randomUUID(), reading));
+        UUID finished = save(FINISHED);
+        assertThrows(InvalidInputParameterException.class, () -> service.appendReadings(finished, reading));
+        assertEquals(0, service.retrieveEnergy(finished, "15m").getCurve().size());
+
+        UUID inProgress = save(IN_PROGRESS);
+        assertThrows(InvalidInputParameterException.class, () -> service.appendReadings(inProgress,
+                Collections.singletonList(new MeterReading(STARTED_AT.minusMinutes(1), 12.5))));
+        assertThrows(InvalidInputParameterException.class, () -> service.appendReadings(inProgress,
+                Collections.singletonList(new MeterReading(STARTED_AT, null))));
+        assertEquals(1, service.appendReadings(inProgress, reading).getReadings());
+    }
+
+    @Test
+    public void testReadingsAreNotKeptWhenTheSessionIsStoppedMeanwhile() {
+        UUID id = UUID.randomUUID();
+        // stops the session between the status check and the append of the readings
+        ChargingSessionDao stopping = new ChargingSessionDao() {
+
+            private int lookups;
+
+            @Override
+            public ChargingSession findById(UUID sessionId) {
+                if (++lookups == 2) {
+                    stop(sessionId, STARTED_AT.plusHours(1));
+                }
+                return super.findById(sessionId);
+            }
+        };
+        stopping.save(new ChargingSession(id, "ABC-1", STARTED_AT, null, IN_PROGRESS));
+        MeterReadingService stoppedService = new MeterReadingServiceImpl(stopping, new MeterReadingDao(100));
+
+        assertThrows(InvalidInputParameterException.class, () -> stoppedService.appendReadings(id,
+                Collections.singletonList(new MeterReading(STARTED_AT.plusMinutes(1), 12.5))));
+        assertEquals(0, stoppedService.retrieveEnergy(id, null).getReadings());
+    }
+
+    private UUID save(ChargingSession.SessionStatus status) {
+        UUID id = UUID.randomUUID();
+        dao.save(new ChargingSession(id, "ABC-1", STARTED_AT, status == FINISHED ? STARTED_AT.plusHours(1) : null,
+                status));
+        return id;
+    }
+
+}
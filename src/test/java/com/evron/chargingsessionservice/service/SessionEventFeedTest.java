@@ -0,0 +1,163 @@
+package com.evron.chargingsessionservice.service;
+
+import com.evron.chargingsessionservice.exception.SessionEventsExpiredException;
+import com.evron.chargingsessionservice.model.ChargingSession;
+import com.evron.chargingsessionservice.model.SessionEvent;
+import com.evron.chargingsessionservice.model.SessionEvent.Type;
+import com.evron.chargingsessionservice.service.SessionEventFeed.SessionEventListener;
+import com.evron.chargingsessionservice.service.SessionEventFeed.Subscription;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SessionEventFeedTest {
+
+    private final SessionEventFeed feed = new SessionEventFeed(4, 50);
+
+    @AfterEach
+    public void close() {
+        feed.close();
+    }
+
+    @Test
+    public void testReadAfterReturnsEventsFollowingSequence() {
+        ChargingSession first = session();
+        ChargingSession second = session();
+        feed.startedAll(Arrays.asList(first, second));
+        feed.stopped(first);
+
+        List<SessionEvent> events = feed.readAfter(1, 10);
+
+        assertEquals(3, feed.lastSequence());
+        assertEquals(2, events.size());
+        assertEquals(2, events.get(0).getSequence());
+        assertEquals(Type.STARTED, events.get(0).getType());
+        assertEquals(second.getId(), events.get(0).getChargingSession().getId());
+        assertEquals(Type.STOPPED, events.get(1).getType());
+        assertEquals(first.getId(), events.get(1).getChargingSession().getId());
+        assertEquals(1, feed.readAfter(1, 1).size());
+        assertTrue(feed.readAfter(3, 10).isEmpty());
+    }
+
+    @Test
+    public void testDroppedOrUnknownOffsetsExpire() {
+        for (int i = 0; i < 6; i++) {
+            feed.started(session());
+        }
+
+        assertEquals(4, feed.readAfter(2, 10).size());
+        assertThrows(SessionEventsExpiredException.class, () -> feed.readAfter(1, 10));
+        assertThrows(SessionEventsExpiredException.class, () -> feed.readAfter(7, 10));
+        assertThrows(SessionEventsExpiredException.class, () -> feed.subscribe(0L, new RecordingListener()));
+    }
+
+    @Test
+    public void testEventIdsOfAnotherRunExpire() {
+        feed.started(session());
+        SessionEvent event = feed.readAfter(0, 1).get(0);
+
+        assertEquals(1L, feed.sequenceOf(feed.eventId(event)));
+        assertNull(feed.sequenceOf(null));
+        assertThrows(SessionEventsExpiredException.class, () -> feed.sequenceOf("1"));
+        try (SessionEventFeed restarted = new SessionEventFeed(8, 60_000)) {
+            assertThrows(SessionEventsExpiredException.class, () -> restarted.sequenceOf(feed.eventId(event)));
+        }
+    }
+
+    @Test
+    public void testSubscriberReceivesMissedAndNewEventsInOrder() throws InterruptedException {
+        feed.started(session());
+        feed.started(session());
+        RecordingListener listener = new RecordingListener();
+
+        Subscription subscription = feed.subscribe(1L, listener);
+        feed.stopped(session());
+
+        List<Long> sequences = new ArrayList<>();
+        while (sequences.size() < 2) {
+            SessionEvent event = listener.events.poll(5, TimeUnit.SECONDS);
+            assertTrue(event != null, "missing event after " + sequences);
+            sequences.add(event.getSequence());
+        }
+        assertEquals(Arrays.asList(2L, 3L), sequences);
+        assertTrue(listener.heartbeats.await(5, TimeUnit.SECONDS));
+        assertEquals(1, feed.subscribers());
+
+        subscription.close();
+        assertEquals(0, feed.subscribers());
+    }
+
+    @Test
+    public void testSubscriberFallingBehindExpires() throws InterruptedException {
+        CountDownLatch blocked = new CountDownLatch(1);
+        RecordingListener listener = new RecordingListener() {
+            @Override
+            public void onEvents(List<SessionEvent> events) {
+                super.onEvents(events);
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        feed.subscribe(null, listener);
+        feed.started(session());
+        assertTrue(listener.events.poll(5, TimeUnit.SECONDS) != null);
+
+        for (int i = 0; i < 5; i++) {
+            feed.started(session());
+        }
+        blocked.countDown();
+
+        assertTrue(listener.expired.await(5, TimeUnit.SECONDS));
+        assertEquals(0, feed.subscribers());
+    }
+
+    private static ChargingSession session() {
+        ChargingSession session = new ChargingSession();
+        session.setId(UUID.randomUUID());
+        session.setStationId("ABC-1234");
+        return session;
+    }
+
+    private static class RecordingListener implements SessionEventListener {
+
+        final BlockingQueue<SessionEvent> events = new LinkedBlockingQueue<>();
+
+        final CountDownLatch heartbeats = new CountDownLatch(1);
+
+        final CountDownLatch expired = new CountDownLatch(1);
+
+        @Override
+        public void onEvents(List<SessionEvent> events) {
+            this.events.addAll(events);
+        }
+
+        @Override
+        public void onHeartbeat() {
+            heartbeats.countDown();
+        }
+
+        @Override
+        public void onExpired(String message) {
+            expired.countDown();
+        }
+
+    }
+
+}
@@ -0,0 +1,157 @@
+package com.evron.chargingsessionservice.service;
+
+import com.evron.chargingsessionservice.dao.ChargingSessionDao;
+import com.evron.chargingsessionservice.dao.ColdSegmentStore;
+import com.evron.chargingsessionservice.exception.InvalidInputParameterException;
+import com.evron.chargingsessionservice.model.ChargingSession;
+import com.evron.chargingsessionservice.model.ImportResponse;
+import com.evron.chargingsessionservice.service.SessionImporter.Format;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static com.evron.chargingsessionservice.model.ChargingSession.SessionStatus.FINISHED;
+import static com.evron.chargingsessionservice.model.ChargingSession.SessionStatus.IN_PROGRESS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SessionImporterTest {
+
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private final ChargingSessionDao dao = new ChargingSessionDao();
+
+    private SessionImporter importer = new SessionImporter(dao, mapper, 2, 3, 10_000, null, null, null);
+
+    @AfterEach
+    public void close() {
+        importer.close();
+    }
+
+    @Test
+    public void testNdjsonImportKeepsIdsAndTimesAndReportsFailedLines() throws IOException {
+        StringBuilder ndjson = new StringBuilder();
+        UUID[] ids = new UUID[10];
+        LocalDateTime startedAt = LocalDateTime.of(2019, 5, 1, 8, 30, 15, 123_456_000);
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = UUID.randomUUID();
+            LocalDateTime stoppedAt = i % 2 == 0 ? startedAt.plusMinutes(i) : null;
+            ndjson.append(mapper.writeValueAsString(
+                    new ChargingSession(ids[i], "ABC-" + i, startedAt, stoppedAt, null))).append('\n');
+            if (i == 4) {
+                ndjson.append("{\"id\":\"").append(UUID.randomUUID()).append("\",\"stationId\":\"\"}\n");
+                ndjson.append("\n{not json\n");
+            }
+        }
+
+        ImportResponse response = importer.importSessions(input(ndjson.toString()), Format.NDJSON);
+
+        assertEquals(10, response.getImported());
+        assertEquals(2, response.getFailed());
+        assertEquals(Arrays.asList("line 6: Incorrect/missing stationId", "line 8"),
+                Arrays.asList(response.getErrors().get(0), response.getErrors().get(1).substring(0, 6)));
+        assertEquals(10, dao.size());
+        ChargingSession finished = dao.findById(ids[2]);
+        assertEquals("ABC-2", finished.getStationId());
+        assertEquals(startedAt, finished.getStartedAt());
+        assertEquals(startedAt.plusMinutes(2), finished.getStoppedAt());
+        assertEquals(FINISHED, finished.getStatus());
+        assertEquals(IN_PROGRESS, dao.findById(ids[3]).getStatus());
+        assertEquals(5, dao.findActive().size());
+    }
+
+    @Test
+    public void testCsvImportReadsColumnsByHeader() throws IOException {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        String csv = "status,startedAt,stationId,id,stoppedAt\n"
+                + "FINISHED,2019-05-01T08:30:00,\"ABC,\"\"1\"\"\"," + first + ",2019-05-01T09:00:00\n"
+                + ",2019-05-01T08:45:00,ABC-2," + second + ",\n"
+                + "IN_PROGRESS,2019-05-01T08:45:00,ABC-3," + UUID.randomUUID() + ",2019-05-01T09:00:00\n";
+
+        ImportResponse response = importer.importSessions(input(csv), Format.CSV);
+
+        assertEquals(2, response.getImported());
+        assertEquals(1, response.getFailed());
+        assertTrue(response.getErrors().get(0).startsWith("line 4: status IN_PROGRESS"), response.getErrors()::toString);
+        assertEquals("ABC,\"1\"", dao.findById(first).getStationId());
+        assertEquals(LocalDateTime.of(2019, 5, 1, 9, 0), dao.findById(first).getStoppedAt());
+        assertEquals(IN_PROGRESS, dao.findById(second).getStatus());
+        assertThrows(InvalidInputParameterException.class,
+                () -> importer.importSessions(input("id,stationId\n"), Format.CSV));
+    }
+
+    @Test
+    public void testClusterNodeOnlyImportsItsPartition() throws IOException {
+        ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList("a", "b"), 128);
+        importer.close();
+        importer = new SessionImporter(dao, mapper, 2, 3, 10_000, ring, "a", null);
+        StringBuilder csv = new StringBuilder("id,stationId,startedAt\n");
+        int owned = 0;
+        for (int i = 0; i < 100; i++) {
+            UUID id = UUID.randomUUID();
+            owned += ring.owner(id).equals("a") ? 1 : 0;
+            csv.append(id).append(",ABC-1,2019-05-01T08:30:00\n");
+        }
+
+        ImportResponse response = importer.importSessions(input(csv.toString()), Format.CSV);
+
+        assertEquals(owned, response.getImported());
+        assertEquals(100 - owned, response.getSkipped());
+        assertEquals(owned, dao.size());
+    }
+
+    @Test
+    public void testImportRunAgainSkipsArchivedSessions() throws IOException {
+        Path directory = Files.createTempDirectory("cold");
+        try (ColdSegmentStore store = new ColdSegmentStore(directory)) {
+            ChargingSessionDao archiving = new ChargingSessionDao(null, null, store);
+            importer.close();
+            importer = new SessionImporter(archiving, mapper, 2, 3, 10_000, null, null, null);
+            UUID corrected = UUID.randomUUID();
+            StringBuilder csv = new StringBuilder("id,stationId,startedAt,stoppedAt\n");
+            csv.append(corrected).append(",ABC-1,2019-05-01T08:30:00,2019-05-01T09:00:00\n");
+            for (int i = 0; i < 9; i++) {
+                csv.append(UUID.randomUUID()).append(",ABC-1,2019-05-01T08:30:00,2019-05-01T09:00:00\n");
+            }
+            csv.append(UUID.randomUUID()).append(",ABC-1,2019-05-01T08:30:00,\n");
+
+            assertEquals(11, importer.importSessions(input(csv.toString()), Format.CSV).getImported());
+            assertEquals(10, archiving.archive(LocalDateTime.of(2020, 1, 1, 0, 0)));
+
+            String rerun = csv.toString().replace(corrected + ",ABC-1", corrected + ",ABC-2");
+            ImportResponse response = importer.importSessions(input(rerun), Format.CSV);
+
+            assertEquals(2, response.getImported());
+            assertEquals(9, response.getSkipped());
+            assertEquals(2, archiving.size());
+            assertEquals("ABC-2", archiving.findById(corrected).getStationId());
+            assertEquals(10, archiving.countByStatus(FINISHED));
+            assertEquals(9, archiving.countArchived());
+        } finally {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static InputStream input(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.evron.chargingsessionservice.service;
+
+import com.evron.chargingsessionservice.model.MetricsCount;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SessionRollupsTest {
+
+    private final AtomicLong millis = new AtomicLong(1_615_819_470_000L);
+
+    private final SessionRollups rollups = new SessionRollups(10, 48, new Clock() {
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.systemDefault();
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis.get());
+        }
+    });
+
+    @Test
+    public void testSummaryCountsMinutesOfTheWindow() {
+        rollups.recordStarted("ABC-12345");
+        millis.addAndGet(Duration.ofMinutes(3).toMillis());
+        rollups.recordStarted("ABC-12345");
+        rollups.recordStopped("ABC-12345");
+
+        assertCounts(1, 1, rollups.summary(Duration.ofMinutes(1), null));
+        assertCounts(1, 1, rollups.summary(Duration.ofMinutes(3), null));
+        assertCounts(2, 1, rollups.summary(Duration.ofMinutes(5), null));
+    }
+
+    @Test
+    public void testSummaryCountsOneStation() {
+        rollups.recordStarted("ABC-12345");
+        rollups.recordStarted("XYZ-12345");
+        rollups.recordStopped("XYZ-12345");
+
+        assertCounts(1, 0, rollups.summary(Duration.ofMinutes(5), "ABC-12345"));
+        assertCounts(1, 1, rollups.summary(Duration.ofMinutes(5), "XYZ-12345"));
+        assertCounts(0, 0, rollups.summary(Duration.ofMinutes(5), "UNKNOWN"));
+        assertCounts(2, 1, rollups.summary(Duration.ofMinutes(5), null));
+    }
+
+    @Test
+    public void testWindowsLongerThanMinuteBucketsAreCountedInHours() {
+        rollups.recordStarted("ABC-12345");
+        millis.addAndGet(Duration.ofMinutes(30).toMillis());
+        rollups.recordStopped("ABC-12345");
+
+        // the start left the 10 minute buckets, but is still in the hour buckets
+        assertCounts(0, 1, rollups.summary(Duration.ofMinutes(10), null));
+        assertCounts(1, 1, rollups.summary(Duration.ofDays(1), "ABC-12345"));
+
+        millis.addAndGet(Duration.ofHours(48).toMillis());
+        assertCounts(0, 0, rollups.summary(Duration.ofHours(48), null));
+    }
+
+    @Test
+    public void testSummaryRejectsWindowOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> rollups.summary(Duration.ofSeconds(30), null));
+        assertThrows(IllegalArgumentException.class, () -> rollups.summary(Duration.ofHours(49), null));
+    }
+
+    private void assertCounts(int started, int stopped, MetricsCount count) {
+        assertEquals(started, count.getStartedCount());
+        assertEquals(stopped, count.getStoppedCount());
+        assertEquals(started + stopped, count.getTotalCount());
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.evron.chargingsessionservice.service;
+
+import com.evron.chargingsessionservice.model.MetricsCount;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SlidingWindowCounterTest {
+
+    private final AtomicLong millis = new AtomicLong(1_615_819_470_000L);
+
+    private final SlidingWindowCounter counter = new SlidingWindowCounter(new Clock() {
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.systemDefault();
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis.get());
+        }
+    });
+
+    @Test
+    public void testSummaryCountsUpdatesOfTheLastMinute() {
+        counter.recordStarted();
+        counter.recordStarted();
+        millis.addAndGet(30_000L);
+        counter.recordStopped();
+
+        MetricsCount count = counter.summary();
+
+        assertEquals(2, count.getStartedCount());
+        assertEquals(1, count.getStoppedCount());
+        assertEquals(3, count.getTotalCount());
+    }
+
+    @Test
+    public void testSummaryDropsUpdatesOlderThanAMinute() {
+        counter.recordStarted();
+        millis.addAndGet(45_000L);
+        counter.recordStopped();
+        millis.addAndGet(15_000L);
+
+        MetricsCount count = counter.summary();
+
+        assertEquals(0, count.getStartedCount());
+        assertEquals(1, count.getStoppedCount());
+        assertEquals(1, count.getTotalCount());
+    }
+
+    @Test
+    public void testBucketIsResetWhenSlotIsReused() {
+        counter.recordStarted();
+        millis.addAndGet(60_000L);
+        counter.recordStarted();
+
+        assertEquals(1, counter.summary().getStartedCount());
+    }
+
+    @Test
+    public void testStalledUpdateDoesNotResetNewerBucket() {
+        millis.addAndGet(60_000L);
+        counter.recordStarted();
+        // an update which read the clock a whole ring earlier
+        millis.addAndGet(-60_000L);
+        counter.recordStopped();
+        millis.addAndGet(60_000L);
+
+        MetricsCount count = counter.summary();
+
+        assertEquals(1, count.getStartedCount());
+        assertEquals(1, count.getStoppedCount());
+    }
+
+}
@@ -0,0 +1,123 @@
+package com.evron.chargingsessionservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TimeOrderedSessionIdGeneratorTest {
+
+    @Test
+    public void testIdsFollowVersion7Layout() {
+        Instant now = Instant.ofEpochMilli(1_615_819_470_123L);
+        UUID id = new TimeOrderedSessionIdGenerator(Clock.fixed(now, ZoneOffset.UTC)).nextId();
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        assertEquals(now.toEpochMilli(), id.getMostSignificantBits() >>> 16);
+    }
+
+    @Test
+    public void testIdsSortByCreationTime() {
+        Instant now = Instant.ofEpochMilli(1_615_819_470_123L);
+        UUID earlier = new TimeOrderedSessionIdGenerator(Clock.fixed(now, ZoneOffset.UTC)).nextId();
+        UUID later = new TimeOrderedSessionIdGenerator(Clock.fixed(now.plusMillis(1), ZoneOffset.UTC)).nextId();
+
+        assertTrue(earlier.compareTo(later) < 0);
+    }
+
+    @Test
+    public void testIdsOfTheSameMillisecondAreStrictlyIncreasing() {
+        TimeOrderedSessionIdGenerator generator = new TimeOrderedSessionIdGenerator(
+                Clock.fixed(Instant.ofEpochMilli(1_615_819_470_123L), ZoneOffset.UTC));
+        UUID previous = generator.nextId();
+        for (int i = 0; i < 10_000; i++) {
+            UUID id = generator.nextId();
+            assertTrue(previous.compareTo(id) < 0);
+            previous = id;
+        }
+    }
+
+    @Test
+    public void testIdsKeepIncreasingWhenTheClockMovesBackwards() {
+        Instant now = Instant.ofEpochMilli(1_615_819_470_123L);
+        AtomicReference<Instant> instant = new AtomicReference<>(now);
+        TimeOrderedSessionIdGenerator generator = new TimeOrderedSessionIdGenerator(new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return instant.get();
+            }
+        });
+        UUID later = generator.nextId();
+        instant.set(now.minusSeconds(1));
+
+        assertTrue(later.compareTo(generator.nextId()) < 0);
+    }
+
+    @Test
+    public void testIdsOfTheSameMillisecondAreUnique() {
+        TimeOrderedSessionIdGenerator generator = new TimeOrderedSessionIdGenerator(
+                Clock.fixed(Instant.ofEpochMilli(1_615_819_470_123L), ZoneOffset.UTC));
+        Set<UUID> ids = new HashSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            ids.add(generator.nextId());
+        }
+
+        assertEquals(100_000, ids.size());
+    }
+
+    @Test
+    public void testIdsOfConcurrentThreadsAreUniqueAndIncreasingPerThread() throws InterruptedException {
+        TimeOrderedSessionIdGenerator generator = new TimeOrderedSessionIdGenerator(
+                Clock.fixed(Instant.ofEpochMilli(1_615_819_470_123L), ZoneOffset.UTC));
+        Set<UUID> ids = ConcurrentHashMap.newKeySet();
+        AtomicBoolean ordered = new AtomicBoolean(true);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                UUID previous = generator.nextId();
+                ids.add(previous);
+                for (int i = 0; i < 20_000; i++) {
+                    UUID id = generator.nextId();
+                    if (previous.compareTo(id) >= 0) {
+                        ordered.set(false);
+                    }
+                    ids.add(id);
+                    previous = id;
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(ordered.get());
+        assertEquals(8 * 20_001, ids.size());
+    }
+
+}